@@ -7,6 +7,7 @@ options {
 tokens {
 	ALL_ATTRIBS;
 	AGGREGATION;
+	ORDERING;
 	TYPE_KILL; TYPE_SYNC; TYPE_ROUTE; TYPE_QUERY; TYPE_SET;
 }
 
@@ -185,9 +186,20 @@ FROM    : 'FROM' ;
 WHERE   : 'WHERE' ;
 GROUPBY : 'GROUP BY' ;
 HAVING  : 'HAVING' ;
+ORDERBY : 'ORDER BY' ;
+LIMIT   : 'LIMIT' ;
+WINDOW  : 'WINDOW' ;
+EPOCHS  : 'EPOCHS' ;
+DEADBAND: 'DEADBAND' ;
+ASC     : 'ASC' ;
+DESC    : 'DESC' ;
 START   : 'START' ;
 EPOCH   : 'EPOCH' ;
 RUNCOUNT: 'RUNCOUNT' ;
+OVERRUN : 'OVERRUN' ;
+CATCHUP : 'CATCHUP' ;
+SKIP    : 'SKIP' ;
+DEGRADE : 'DEGRADE' ;
 
 BOOL_AND: 'AND' ;
 BOOL_OR : 'OR' ;
@@ -234,8 +246,8 @@ set
  *  QUERY related rules
  * =====================*/
 data_query 
-	: qselect (WHITE_SPACE qfrom)? (WHITE_SPACE qwhere)? (WHITE_SPACE qgroupby)? (WHITE_SPACE qhaving)? (WHITE_SPACE qstart)? (WHITE_SPACE qepoch)? (WHITE_SPACE qruncount)? WHITE_SPACE?
-		-> ^(TYPE_QUERY qselect qfrom? qwhere? qgroupby? qhaving? qstart? qepoch? qruncount?)
+	: qselect (WHITE_SPACE qfrom)? (WHITE_SPACE qwhere)? (WHITE_SPACE qgroupby)? (WHITE_SPACE qhaving)? (WHITE_SPACE qorderby)? (WHITE_SPACE qlimit)? (WHITE_SPACE qwindow)? (WHITE_SPACE qdeadband)? (WHITE_SPACE qstart)? (WHITE_SPACE qepoch)? (WHITE_SPACE qruncount)? (WHITE_SPACE qoverrun)? WHITE_SPACE?
+		-> ^(TYPE_QUERY qselect qfrom? qwhere? qgroupby? qhaving? qorderby? qlimit? qwindow? qdeadband? qstart? qepoch? qruncount? qoverrun?)
 	;
 qselect 
 	: SELECT^ WHITE_SPACE! fields 
@@ -252,6 +264,18 @@ qgroupby
 qhaving
 	: HAVING^ WHITE_SPACE! orexpression
 	;
+qorderby
+	: ORDERBY^ WHITE_SPACE! obfield (WHITE_SPACE!? ','! WHITE_SPACE!? obfield)*
+	;
+qlimit
+	: LIMIT^ WHITE_SPACE! NUMBER_INT
+	;
+qwindow
+	: WINDOW^ WHITE_SPACE! NUMBER_INT WHITE_SPACE! EPOCHS!
+	;
+qdeadband
+	: DEADBAND^ WHITE_SPACE! (NUMBER_INT | NUMBER_FLOAT)
+	;
 qstart
 	: START^ WHITE_SPACE! starttime
 	;
@@ -261,6 +285,9 @@ qepoch
 qruncount
 	: RUNCOUNT^ WHITE_SPACE! (NUMBER_INT | FOREVER)
 	;
+qoverrun
+	: OVERRUN^ WHITE_SPACE! (CATCHUP | SKIP | DEGRADE)
+	;
 
 
 
@@ -285,6 +312,13 @@ aggregation
 gbfield
 	: WORD (WHITE_SPACE? ',' WHITE_SPACE? WORD)* -> WORD+
 	;
+obfield
+	: fields3 (WHITE_SPACE direction)? -> ^(ORDERING fields3 direction?)
+	;
+direction
+	: ASC
+	| DESC
+	;
 
 
 
@@ -0,0 +1,194 @@
+package au.edu.usyd.corona.server.grammar;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.edu.usyd.corona.srdb.*;
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * Simplifies the condition trees of the WHERE and HAVING clauses before they
+ * are sent into the network, so that the token stream is shorter and the nodes
+ * do less work for every row. The simplified condition always gives the same
+ * result as the original for rows it can be evaluated on. The simplifier
+ * <ul>
+ * <li>folds subtrees which do not read any attributes into constants;</li>
+ * <li>pushes negations down into the comparisons beneath them, removing
+ * double negations and rewriting any NAND's into AND, OR and NOT;</li>
+ * <li>flattens chains of AND's and OR's, dropping repeated operands and
+ * operands which are constant, and collapsing the chain if one of its
+ * operands decides it.</li>
+ * </ul>
+ */
+final class ConditionSimplifier {
+	private ConditionSimplifier() {
+	}
+	
+	/**
+	 * Simplifies a condition. The given tree is left untouched.
+	 * 
+	 * @param e the condition to simplify
+	 * @return the simplified condition
+	 */
+	public static ConditionExpression simplify(ConditionExpression e) {
+		if (e instanceof AttributeExpression || e instanceof ConstantExpression)
+			return e;
+		
+		// fold attribute free subtrees
+		if (e.getAttributeMask() == 0) {
+			ConstantExpression c = fold(e);
+			if (c != null)
+				return c;
+		}
+		
+		if (e instanceof NotExpression)
+			return negate(simplify(e.getChild(0)));
+		else if (e instanceof NANDExpression) {
+			ConditionExpression a = simplify(e.getChild(0));
+			ConditionExpression b = simplify(e.getChild(1));
+			if (same(a, b))
+				return negate(a);
+			return negate(makeChain(true, a, b));
+		}
+		else if (e instanceof AndExpression)
+			return makeChain(true, simplify(e.getChild(0)), simplify(e.getChild(1)));
+		else if (e instanceof OrExpression)
+			return makeChain(false, simplify(e.getChild(0)), simplify(e.getChild(1)));
+		
+		ConditionExpression a = simplify(e.getChild(0));
+		ConditionExpression b = simplify(e.getChild(1));
+		if (a == e.getChild(0) && b == e.getChild(1))
+			return e;
+		return rebuild(e, a, b);
+	}
+	
+	/**
+	 * Evaluates a condition which does not read any attributes
+	 * 
+	 * @return the constant result, or null if it cannot be evaluated
+	 */
+	private static ConstantExpression fold(ConditionExpression e) {
+		try {
+			ValueType value = e.eval(null);
+			return (value == null) ? null : new ConstantExpression(value);
+		}
+		catch (InvalidOperationException ex) {
+			return null;
+		}
+		catch (RuntimeException ex) {
+			// left for the type checking of the compiler to report
+			return null;
+		}
+	}
+	
+	/**
+	 * Negates an already simplified condition, pushing the negation into it
+	 * where this can be done without growing the tree
+	 */
+	private static ConditionExpression negate(ConditionExpression e) {
+		if (e instanceof NotExpression)
+			return e.getChild(0);
+		else if (e instanceof LessThanExpression)
+			return new GreaterEqualsExpression(e.getChild(0), e.getChild(1));
+		else if (e instanceof GreaterEqualsExpression)
+			return new LessThanExpression(e.getChild(0), e.getChild(1));
+		else if (e instanceof GreaterThanExpression)
+			return new LessEqualsExpression(e.getChild(0), e.getChild(1));
+		else if (e instanceof LessEqualsExpression)
+			return new GreaterThanExpression(e.getChild(0), e.getChild(1));
+		else if (e instanceof EqualsExpression)
+			return new NotEqualsExpression(e.getChild(0), e.getChild(1));
+		else if (e instanceof NotEqualsExpression)
+			return new EqualsExpression(e.getChild(0), e.getChild(1));
+		
+		Boolean value = booleanConstant(e);
+		if (value != null)
+			return new ConstantExpression(new BooleanType(!value));
+		return new NotExpression(e);
+	}
+	
+	/**
+	 * Builds the AND or OR of two already simplified conditions
+	 * 
+	 * @param and whether to build an AND chain, else an OR chain
+	 */
+	private static ConditionExpression makeChain(boolean and, ConditionExpression a, ConditionExpression b) {
+		// the operands in order, keyed by their tokens to remove repeats
+		Map<String, ConditionExpression> operands = new LinkedHashMap<String, ConditionExpression>();
+		if (addOperands(and, a, operands) || addOperands(and, b, operands))
+			return new ConstantExpression(new BooleanType(!and));
+		
+		List<ConditionExpression> list = new ArrayList<ConditionExpression>(operands.values());
+		if (list.isEmpty())
+			return new ConstantExpression(new BooleanType(and));
+		ConditionExpression chain = list.get(0);
+		for (int i = 1; i != list.size(); i++)
+			chain = and ? new AndExpression(chain, list.get(i)) : new OrExpression(chain, list.get(i));
+		return chain;
+	}
+	
+	/**
+	 * Adds the operands of a chain to the given map
+	 * 
+	 * @return whether an operand decides the result of the chain
+	 */
+	private static boolean addOperands(boolean and, ConditionExpression e, Map<String, ConditionExpression> operands) {
+		if ((and && e instanceof AndExpression) || (!and && e instanceof OrExpression))
+			return addOperands(and, e.getChild(0), operands) || addOperands(and, e.getChild(1), operands);
+		
+		Boolean value = booleanConstant(e);
+		if (value != null)
+			return value.booleanValue() != and;
+		
+		String key = e.toTokens().toString();
+		if (!operands.containsKey(key))
+			operands.put(key, e);
+		return false;
+	}
+	
+	private static Boolean booleanConstant(ConditionExpression e) {
+		if (!(e instanceof ConstantExpression))
+			return null;
+		try {
+			ValueType value = e.eval(null);
+			return (value instanceof BooleanType) ? ((BooleanType) value).getVal() : null;
+		}
+		catch (InvalidOperationException ex) {
+			return null;
+		}
+	}
+	
+	private static boolean same(ConditionExpression a, ConditionExpression b) {
+		return a == b || a.toTokens().toString().equals(b.toTokens().toString());
+	}
+	
+	private static ConditionExpression rebuild(ConditionExpression e, ConditionExpression a, ConditionExpression b) {
+		if (e instanceof AddExpression)
+			return new AddExpression(a, b);
+		else if (e instanceof SubtractExpression)
+			return new SubtractExpression(a, b);
+		else if (e instanceof MultiplyExpression)
+			return new MultiplyExpression(a, b);
+		else if (e instanceof DivideExpression)
+			return new DivideExpression(a, b);
+		else if (e instanceof EqualsExpression)
+			return new EqualsExpression(a, b);
+		else if (e instanceof NotEqualsExpression)
+			return new NotEqualsExpression(a, b);
+		else if (e instanceof LessThanExpression)
+			return new LessThanExpression(a, b);
+		else if (e instanceof LessEqualsExpression)
+			return new LessEqualsExpression(a, b);
+		else if (e instanceof GreaterThanExpression)
+			return new GreaterThanExpression(a, b);
+		else if (e instanceof GreaterEqualsExpression)
+			return new GreaterEqualsExpression(a, b);
+		else
+			return e;
+	}
+}
@@ -26,7 +26,9 @@ import au.edu.usyd.corona.scheduler.SchedulableTask;
 import au.edu.usyd.corona.scheduler.TaskID;
 import au.edu.usyd.corona.sensing.SenseManager;
 import au.edu.usyd.corona.server.srdb.BaseForwardOperator;
+import au.edu.usyd.corona.server.srdb.LastValueOperator;
 import au.edu.usyd.corona.srdb.*;
+import au.edu.usyd.corona.types.BooleanType;
 import au.edu.usyd.corona.types.FloatType;
 import au.edu.usyd.corona.types.IEEEAddressType;
 import au.edu.usyd.corona.types.InvalidOperationException;
@@ -45,6 +47,8 @@ import au.edu.usyd.corona.util.ClassIdentifiers;
 class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 	public static final int DEFAULT_RUNCOUNT = 1;
 	public static final long DEFAULT_EPOCH = 5000;
+	public static final int DEADBAND_REFRESH = 10; // the most epochs between reports of an unchanged row in a DEADBAND query
+	private static final float NO_DEADBAND = -1;
 	
 	private static final Map<String, Byte> ALL_AGGREGATES;
 	private static final Map<String, Byte> COLUMN_NUMBERS;
@@ -53,6 +57,8 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 	private final LinkedHashMap<String, ColumnAttribute> whereColumns = new LinkedHashMap<String, ColumnAttribute>();
 	private final LinkedHashMap<String, ColumnAttribute> havingColumns = new LinkedHashMap<String, ColumnAttribute>();
 	private final LinkedHashMap<String, ColumnAttribute> groupByColumns = new LinkedHashMap<String, ColumnAttribute>();
+	private final LinkedHashMap<String, ColumnAttribute> orderByColumns = new LinkedHashMap<String, ColumnAttribute>();
+	private final List<Boolean> orderByDescending = new ArrayList<Boolean>(); // the direction of each of the ORDER BY columns, in order
 	private final LinkedHashMap<ColumnAttribute, Byte> networkColumnNumbers = new LinkedHashMap<ColumnAttribute, Byte>(); // mapping from column attribute to i, i being the ith column in the network table
 	private final List<ColumnAttribute> aggregates = new ArrayList<ColumnAttribute>();
 	
@@ -62,8 +68,12 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 	private byte[] baseSchema; // the schema used at the base
 	
 	private int runcount = DEFAULT_RUNCOUNT; // the RUNCOUNT of the query
+	private int limit = TopKOperator.NO_LIMIT; // the LIMIT of the query
+	private int windowSize = 0; // the number of epochs in the WINDOW of the query, or 0 for none
+	private float deadband = NO_DEADBAND; // the DEADBAND of the query
 	private long epoch = DEFAULT_EPOCH; // the EPOCH of the query 
 	private long starttime = -1; // the STARTTIME of the query
+	private byte overrunPolicy = SchedulableTask.OVERRUN_CATCH_UP; // the OVERRUN policy of the query
 	private boolean starttimeIsRelative = false;
 	
 	private int whereChild = -1; // the index of the child of the WHERE clause in the root tree
@@ -124,64 +134,32 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		super(root, queryId);
 	}
 	
-	private ConditionExpression makeAND(ConditionExpression a, ConditionExpression b) {
-		ConditionExpression c1 = new NANDExpression(a, b);
-		return new NANDExpression(c1, c1);
-	}
-	
-	private ConditionExpression makeOR(ConditionExpression a, ConditionExpression b) {
-		ConditionExpression c1 = new NANDExpression(a, a);
-		ConditionExpression c2 = new NANDExpression(b, b);
-		return new NANDExpression(c1, c2);
-	}
-	
-	private ConditionExpression makeNOT(ConditionExpression a) {
-		return new NANDExpression(a, a);
-	}
-	
-	private ConditionExpression makeLT(ConditionExpression a, ConditionExpression b) {
-		return new LessThanExpression(a, b);
-	}
-	
-	private ConditionExpression makeEQ(ConditionExpression a, ConditionExpression b) {
-		return new EqualsExpression(a, b);
-	}
-	
 	private ConditionExpression conditionToSRDBTree(Tree _node, boolean isWhere) throws QLCompileException {
 		CommonTree node = (CommonTree) _node;
 		String op = node.getText();
 		
-		if (op.equals("AND")) {
-			return makeAND(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere));
-		}
-		else if (op.equals("OR")) {
-			return makeOR(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere));
-		}
-		else if (op.equals("NOT")) {
-			return makeNOT(conditionToSRDBTree(node.getChild(0), isWhere));
-		}
-		else if (op.equals("<")) {
-			return makeLT(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere));
-		}
-		else if (op.equals("<=")) {
-			ConditionExpression c0 = conditionToSRDBTree(node.getChild(0), isWhere);
-			ConditionExpression c1 = conditionToSRDBTree(node.getChild(1), isWhere);
-			return makeOR(makeLT(c0, c1), makeEQ(c0, c1));
-		}
-		else if (op.equals("==")) {
-			return makeEQ(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere));
-		}
-		else if (op.equals("!=")) {
-			ConditionExpression x = makeEQ(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere));
-			return makeNOT(x);
-		}
-		else if (op.equals(">=")) {
-			return makeNOT(makeLT(conditionToSRDBTree(node.getChild(0), isWhere), conditionToSRDBTree(node.getChild(1), isWhere)));
+		if (op.equals("NOT")) {
+			return new NotExpression(conditionToSRDBTree(node.getChild(0), isWhere));
 		}
-		else if (op.equals(">")) {
+		else if (op.equals("AND") || op.equals("OR") || op.equals("<") || op.equals("<=") || op.equals("==") || op.equals("!=") || op.equals(">=") || op.equals(">")) {
 			ConditionExpression c0 = conditionToSRDBTree(node.getChild(0), isWhere);
 			ConditionExpression c1 = conditionToSRDBTree(node.getChild(1), isWhere);
-			return makeAND(makeNOT(makeLT(c0, c1)), makeNOT(makeEQ(c0, c1)));
+			if (op.equals("AND"))
+				return new AndExpression(c0, c1);
+			else if (op.equals("OR"))
+				return new OrExpression(c0, c1);
+			else if (op.equals("<"))
+				return new LessThanExpression(c0, c1);
+			else if (op.equals("<="))
+				return new LessEqualsExpression(c0, c1);
+			else if (op.equals("=="))
+				return new EqualsExpression(c0, c1);
+			else if (op.equals("!="))
+				return new NotEqualsExpression(c0, c1);
+			else if (op.equals(">="))
+				return new GreaterEqualsExpression(c0, c1);
+			else
+				return new GreaterThanExpression(c0, c1);
 		}
 		else if (op.equals("+") || op.equals("-") || op.equals("*") || op.equals("/")) {
 			ConditionExpression c0 = conditionToSRDBTree(node.getChild(0), isWhere);
@@ -206,8 +184,10 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		}
 		else if (node.getType() == CoronaQLLexer.WORD) {
 			op = op.toUpperCase();
-			if (isWhere)
+			if (isWhere && deadband == NO_DEADBAND)
 				return new AttributeExpression(COLUMN_NUMBERS.get(op));
+			else if (isWhere) // evaluated on the filled in rows at the base
+				return new AttributeExpression(networkColumnNumbers.get(whereColumns.get(op)));
 			else
 				return new AttributeExpression(networkColumnNumbers.get(havingColumns.get(op)));
 		}
@@ -325,6 +305,58 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		}
 	}
 	
+	private int extractLimit(Tree node) throws QLCompileException {
+		int limit;
+		try {
+			limit = Integer.parseInt(node.getChild(0).getText());
+		}
+		catch (NumberFormatException e) {
+			throw new QLCompileException("Value for LIMIT is too large; must be less than or equal to " + Integer.MAX_VALUE);
+		}
+		if (limit <= 0)
+			throw new QLCompileException("Value for LIMIT must be a positive integer");
+		return limit;
+	}
+	
+	private int extractWindow(Tree node) throws QLCompileException {
+		int size;
+		try {
+			size = Integer.parseInt(node.getChild(0).getText());
+		}
+		catch (NumberFormatException e) {
+			throw new QLCompileException("Value for WINDOW is too large; must be less than or equal to " + Integer.MAX_VALUE);
+		}
+		if (size <= 0)
+			throw new QLCompileException("Value for WINDOW must be a positive integer");
+		return size;
+	}
+	
+	private float extractDeadband(Tree node) throws QLCompileException {
+		float band = Float.parseFloat(node.getChild(0).getText());
+		if (band < 0)
+			throw new QLCompileException("Value for DEADBAND must not be negative");
+		return band;
+	}
+	
+	private byte extractOverrun(Tree node) {
+		switch (node.getChild(0).getType()) {
+		case CoronaQLLexer.SKIP:
+			return SchedulableTask.OVERRUN_SKIP;
+		case CoronaQLLexer.DEGRADE:
+			return SchedulableTask.OVERRUN_DEGRADE;
+		default:
+			return SchedulableTask.OVERRUN_CATCH_UP;
+		}
+	}
+	
+	private void extractOrderBy(Tree node) throws QLCompileException {
+		extractAttributes(node, orderByColumns, true);
+		for (int i = 0; i != node.getChildCount(); i++) {
+			Tree ordering = node.getChild(i);
+			orderByDescending.add(ordering.getChildCount() == 2 && ordering.getChild(1).getType() == CoronaQLLexer.DESC);
+		}
+	}
+	
 	private void extractAttributes(Tree _node, LinkedHashMap<String, ColumnAttribute> columns, boolean errorDuplicates) throws QLCompileException {
 		CommonTree node = (CommonTree) _node;
 		if (node.getType() == CoronaQLLexer.WORD) {
@@ -398,7 +430,9 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		if (whereChild == -1)
 			return op;
 		if (whereClauseCondition == null)
-			whereClauseCondition = conditionToSRDBTree(root.getChild(whereChild).getChild(0), true);
+			whereClauseCondition = ConditionSimplifier.simplify(conditionToSRDBTree(root.getChild(whereChild).getChild(0), true));
+		if (isTrue(whereClauseCondition))
+			return op;
 		return new SelectionOperator(op, whereClauseCondition);
 	}
 	
@@ -407,10 +441,46 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		if (havingChild == -1)
 			return op;
 		if (havingClauseCondition == null)
-			havingClauseCondition = conditionToSRDBTree(root.getChild(havingChild).getChild(0), false);
+			havingClauseCondition = ConditionSimplifier.simplify(conditionToSRDBTree(root.getChild(havingChild).getChild(0), false));
+		if (isTrue(havingClauseCondition))
+			return op;
 		return new SelectionOperator(op, havingClauseCondition);
 	}
 	
+	/**
+	 * @return whether the condition always holds, so no selection is needed
+	 */
+	private static boolean isTrue(ConditionExpression condition) {
+		if (!(condition instanceof ConstantExpression))
+			return false;
+		try {
+			ValueType value = condition.eval(null);
+			return value instanceof BooleanType && ((BooleanType) value).getVal();
+		}
+		catch (InvalidOperationException e) {
+			return false;
+		}
+	}
+	
+	private TableOperator _compileOrderBy(TableOperator op, boolean networkTree) {
+		if (orderByColumns.isEmpty() && limit == TopKOperator.NO_LIMIT)
+			return op;
+		
+		// in the network, only a LIMIT is worth doing, and only if the rows are not partial aggregates or left to be filled in
+		if (networkTree && (limit == TopKOperator.NO_LIMIT || !aggregates.isEmpty() || !groupByColumns.isEmpty() || deadband != NO_DEADBAND))
+			return op;
+		
+		final byte[] columns = new byte[orderByColumns.size()];
+		final boolean[] descending = new boolean[columns.length];
+		int i = 0;
+		for (ColumnAttribute ca : orderByColumns.values()) {
+			columns[i] = (ca.aggregate == AggregateOperator.COUNT) ? 0 : networkColumnNumbers.get(ca);
+			descending[i] = orderByDescending.get(i);
+			i++;
+		}
+		return new TopKOperator(op, limit, columns, descending);
+	}
+	
 	private TableOperator _compileSelectClause(TableOperator where, boolean networkTree) throws QLCompileException {
 		Vector<Byte> cols = new Vector<Byte>();
 		
@@ -431,7 +501,7 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		return new ProjectionOperator(where, cols);
 	}
 	
-	private TableOperator _compileAggregates(TableOperator merged) throws QLCompileException {
+	private TableOperator _compileAggregates(TableOperator merged, boolean partial) throws QLCompileException {
 		if (groupByColumns.isEmpty() && aggregates.isEmpty())
 			return merged;
 		
@@ -452,24 +522,34 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 			i++;
 		}
 		
-		return new AggregateOperator(merged, functions, functionCols, groupBys);
+		return new AggregateOperator(merged, functions, functionCols, groupBys, partial);
 	}
 	
-	private TableOperator compileNetworkTree(TaskID taskId, ChildResultStore results, boolean hasAverage) throws QLCompileException {
+	private TableOperator compileNetworkTree(TaskID taskId, ChildResultStore results) throws QLCompileException {
 		TableOperator op = new SenseOperator(taskId); // sense
-		op = _compileWhereClause(op); // selection
+		if (deadband == NO_DEADBAND)
+			op = _compileWhereClause(op); // selection
 		op = _compileSelectClause(op, true); // projection
+		if (deadband != NO_DEADBAND)
+			op = new DeadbandOperator(op, deadband, DEADBAND_REFRESH); // change suppression
+		if (windowSize != 0)
+			op = new WindowOperator((AggregateOperator) _compileAggregates(op, true), windowSize); // local aggregation over the window
 		op = new MergeOperator(taskId, new CollectOperator(taskId, results), op); // merge
-		if (!hasAverage)
-			op = _compileAggregates(op); // function application (all functions at once)
+		op = _compileAggregates(op, true); // partial function application (all functions at once)
+		op = _compileOrderBy(op, true); // top k
 		op = new ForwardOperator(op, results); // forward
 		return op;
 	}
 	
-	private TableOperator compileBaseTree(TaskID taskId, ChildResultStore results, boolean hasAverage) throws QLCompileException {
+	private TableOperator compileBaseTree(TaskID taskId, ChildResultStore results) throws QLCompileException {
 		TableOperator op = new CollectOperator(taskId, results);
-		op = _compileAggregates(op);
+		if (deadband != NO_DEADBAND) {
+			op = new LastValueOperator(op, networkColumnNumbers.get(new ColumnAttribute("NODE", null)), DEADBAND_REFRESH); // fill in unchanged rows
+			op = _compileWhereClause(op); // selection, now the rows are complete
+		}
+		op = _compileAggregates(op, false);
 		op = _compileHavingClause(op);
+		op = _compileOrderBy(op, false);
 		
 		Vector<Byte> cols = new Vector<Byte>();
 		for (ColumnAttribute ca : selectColumns.values()) {
@@ -527,6 +607,22 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 				extractAttributes(child, groupByColumns, true);
 				break;
 			
+			case CoronaQLLexer.ORDERBY:
+				extractOrderBy(child);
+				break;
+			
+			case CoronaQLLexer.LIMIT:
+				limit = extractLimit(child);
+				break;
+			
+			case CoronaQLLexer.WINDOW:
+				windowSize = extractWindow(child);
+				break;
+			
+			case CoronaQLLexer.DEADBAND:
+				deadband = extractDeadband(child);
+				break;
+			
 			case CoronaQLLexer.RUNCOUNT:
 				runcount = extractRuncount(child);
 				break;
@@ -535,6 +631,10 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 				epoch = extractEpoch(child);
 				break;
 			
+			case CoronaQLLexer.OVERRUN:
+				overrunPolicy = extractOverrun(child);
+				break;
+			
 			case CoronaQLLexer.START:
 				starttime = extractStarttime(child);
 				break;
@@ -562,7 +662,7 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		Set<String> aggreateColumns = new HashSet<String>();
 		Set<String> nonaggreateColumns = new HashSet<String>();
 		
-		Map<String, ColumnAttribute>[] tmp = new Map[]{selectColumns, havingColumns};
+		Map<String, ColumnAttribute>[] tmp = new Map[]{selectColumns, havingColumns, orderByColumns};
 		for (Map<String, ColumnAttribute> map : tmp) {
 			for (Entry<String, ColumnAttribute> e : map.entrySet()) {
 				if (e.getValue().aggregate == -1)
@@ -578,11 +678,22 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		}
 		if (aggreateColumns.isEmpty() && !groupByColumns.isEmpty())
 			throw new QLCompileException("Can not have a GROUP BY statement with no aggregate given in the SELECT statement");
+		
+		// a window is aggregated over, so only makes sense with aggregates
+		if (windowSize != 0 && aggregates.isEmpty())
+			throw new QLCompileException("Can not have a WINDOW with no aggregate given in the query");
+		
+		// the unchanged rows are filled in at the base, which partial aggregates cannot be
+		if (deadband != NO_DEADBAND && (!aggregates.isEmpty() || !groupByColumns.isEmpty()))
+			throw new QLCompileException("Can not have a DEADBAND in a query involving aggregates");
 	}
 	
-	private void testOperationsAndGetSchemas(boolean hasAverage, TaskID taskID) throws QLCompileException {
-		// where clause
-		TableOperator testWhere = _compileWhereClause(new ReadOperator(SenseManager.getInstance().sense(taskID)));
+	private void testOperationsAndGetSchemas(TaskID taskID) throws QLCompileException {
+		// where clause, which is evaluated on the network columns when there is a deadband
+		TableOperator testWhere = new ReadOperator(SenseManager.getInstance().sense(taskID));
+		if (deadband != NO_DEADBAND)
+			testWhere = _compileSelectClause(testWhere, true);
+		testWhere = _compileWhereClause(testWhere);
 		try {
 			testWhere.eval(0);
 		}
@@ -592,9 +703,8 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		
 		// Network project and aggregate
 		TableOperator testAggregatesAndProject = new ReadOperator(SenseManager.getInstance().sense(taskID));
-		if (!hasAverage)
-			testAggregatesAndProject = _compileAggregates(testAggregatesAndProject);
 		testAggregatesAndProject = _compileSelectClause(testAggregatesAndProject, true);
+		testAggregatesAndProject = _compileAggregates(testAggregatesAndProject, true);
 		Table networkRes = null;
 		try {
 			networkRes = testAggregatesAndProject.eval(0);
@@ -612,7 +722,7 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		
 		// Base project and aggregate
 		testAggregatesAndProject = new ReadOperator(networkRes);
-		testAggregatesAndProject = _compileAggregates(testAggregatesAndProject);
+		testAggregatesAndProject = _compileAggregates(testAggregatesAndProject, false);
 		testAggregatesAndProject = _compileSelectClause(testAggregatesAndProject, false);
 		Table baseRes = null;
 		try {
@@ -642,12 +752,6 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 		// check for validity
 		doSemanticChecks();
 		
-		// works out whether the base can do all the function application or not
-		boolean hasAverage = false;
-		for (ColumnAttribute ca : aggregates)
-			if (ca.aggregate == AggregateOperator.AVG)
-				hasAverage = true;
-		
 		// works out the mapping from sense table to network table after projection 
 		Set<ColumnAttribute> seen = new HashSet<ColumnAttribute>();
 		byte column = 0;
@@ -655,7 +759,7 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 			ColumnAttribute ca = new ColumnAttribute("_COUNT", "COUNT");
 			networkColumnNumbers.put(ca, column++);
 		}
-		for (Object group : new Object[]{selectColumns, whereColumns, havingColumns, groupByColumns}) {
+		for (Object group : new Object[]{selectColumns, whereColumns, havingColumns, groupByColumns, orderByColumns}) {
 			for (ColumnAttribute ca : ((Map<String, ColumnAttribute>) group).values()) {
 				if (ca.aggregate == AggregateOperator.COUNT)
 					continue;
@@ -666,22 +770,35 @@ class QueryCompiler extends QLPacketTypeCompiler<QueryTask> {
 			}
 		}
 		
+		// the rows of a deadband query are told apart at the base by the node which sensed them
+		if (deadband != NO_DEADBAND) {
+			ColumnAttribute ca = new ColumnAttribute("NODE", null);
+			if (!seen.contains(ca))
+				networkColumnNumbers.put(ca, column++);
+		}
+		
 		// compile each tree separately
-		TableOperator networkTree = compileNetworkTree(taskID, results, hasAverage);
-		TableOperator baseTree = compileBaseTree(taskID, results, hasAverage);
+		TableOperator networkTree = compileNetworkTree(taskID, results);
+		TableOperator baseTree = compileBaseTree(taskID, results);
 		
 		// run against default table to ensure operators are valid
-		testOperationsAndGetSchemas(hasAverage, taskID);
+		testOperationsAndGetSchemas(taskID);
 		
 		// return the corresponding Task object
 		final String[] baseAttributes = selectColumns.keySet().toArray(new String[0]);
 		
 		// if the start time was not set, or if its relative, make it now
 		long now = TimeSync.getInstance().getTime();
-		if (starttime == -1)
+		final boolean startFlexible = starttime == -1;
+		if (startFlexible)
 			starttime = now;
 		else if (starttimeIsRelative)
 			starttime += now;
-		return new QueryTask(networkTree, baseTree, starttime, runcount, epoch, taskID, networkSchema, baseSchema, baseAttributes, results);
+		QueryTask task = new QueryTask(networkTree, baseTree, starttime, runcount, epoch, taskID, networkSchema, baseSchema, baseAttributes, results);
+		
+		// a query with no start time can be lined up with other queries so they share a plan
+		task.setStartFlexible(startFlexible);
+		task.setOverrunPolicy(overrunPolicy);
+		return task;
 	}
 }
@@ -63,6 +63,18 @@ class SetPropertyCompiler extends QLPacketTypeCompiler<SetPropertyTask> {
 			checkBounds(value, -32, 31, property, "decibels");
 			type = SetPropertyTask.SET_INTRACLUSTER_POWER;
 		}
+		else if (property.equals("SAMPLE_CACHE_WINDOW")) {
+			checkBounds(value, 0, Integer.MAX_VALUE, property, "milliseconds");
+			type = SetPropertyTask.SET_SAMPLE_CACHE_WINDOW;
+		}
+		else if (property.equals("MAX_CONCURRENT_QUERIES")) {
+			checkBounds(value, 1, 64, property, "queries");
+			type = SetPropertyTask.SET_MAX_CONCURRENT_QUERIES;
+		}
+		else if (property.equals("COALESCE_TOLERANCE")) {
+			checkBounds(value, 0, 60000, property, "milliseconds");
+			type = SetPropertyTask.SET_COALESCE_TOLERANCE;
+		}
 		else
 			throw new QLCompileException("Unknown property to set '" + property + "'");
 		
@@ -117,4 +117,12 @@ public abstract class DAOFactory {
 	 * @throws DAOException If there is a problem creating a DAO object
 	 */
 	public abstract UserDAO getUserDAO() throws DAOException;
+	
+	/**
+	 * Return a DAO for the telemetry of the scheduler
+	 * 
+	 * @return A DAO for the telemetry of the scheduler
+	 * @throws DAOException If there is a problem creating a DAO object
+	 */
+	public abstract MetricsDAO getMetricsDAO() throws DAOException;
 }
@@ -0,0 +1,31 @@
+package au.edu.usyd.corona.server.persistence.DAOinterface;
+
+
+import au.edu.usyd.corona.scheduler.Scheduler;
+
+/**
+ * A DAO for the telemetry of the scheduler on the basestation. The scheduler
+ * writes a row of its statistics every so often, so that they can be retrieved
+ * and charted like the results of a query, with
+ * <code>SELECT * FROM scheduler_metrics</code>.
+ */
+public interface MetricsDAO {
+	public static final String TABLE_NAME = "scheduler_metrics";
+	
+	/**
+	 * Store the current statistics of a scheduler
+	 * 
+	 * @param time The time the statistics were read at
+	 * @param scheduler The scheduler to read the statistics of
+	 * @throws DAOException If there is a problem storing the statistics
+	 */
+	public void insert(long time, Scheduler scheduler) throws DAOException;
+	
+	/**
+	 * Delete the statistics stored before a given time
+	 * 
+	 * @param time The time to delete the statistics before
+	 * @throws DAOException If there is a problem deleting the statistics
+	 */
+	public void deleteBefore(long time) throws DAOException;
+}
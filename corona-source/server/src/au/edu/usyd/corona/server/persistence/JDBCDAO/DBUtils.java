@@ -211,4 +211,33 @@ public class DBUtils {
 			DBUtils.closeResultSet(rs);
 		}
 	}
+	
+	/**
+	 * Check whether a column exists in a table in the database
+	 * 
+	 * @param table The name of the table holding the column
+	 * @param column The name of the column to check for existence
+	 * @param conn A connection to a datasource
+	 * @param sqlStatements SQLLoader containing sql queries for the database
+	 * @return true if the column exists, else false
+	 * @throws DAOException If there is a problem connecting to the datasource
+	 */
+	public static boolean columnExists(String table, String column, Connection conn, SQLLoader sqlStatements) throws DAOException {
+		if (table == null || column == null)
+			throw new IllegalArgumentException("Null table or column name");
+		
+		ResultSet rs = null;
+		try {
+			rs = conn.getMetaData().getColumns(null, null, table.trim().toUpperCase(), column.trim().toUpperCase());
+			boolean res = rs.next();
+			return res;
+		}
+		catch (SQLException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not check the column for existence.", e);
+		}
+		finally {
+			DBUtils.closeResultSet(rs);
+		}
+	}
 }
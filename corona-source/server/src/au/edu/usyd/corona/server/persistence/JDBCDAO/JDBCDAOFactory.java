@@ -21,6 +21,7 @@ import org.xml.sax.SAXException;
 
 import au.edu.usyd.corona.server.persistence.DAOinterface.DAOException;
 import au.edu.usyd.corona.server.persistence.DAOinterface.DAOFactory;
+import au.edu.usyd.corona.server.persistence.DAOinterface.MetricsDAO;
 import au.edu.usyd.corona.server.persistence.DAOinterface.QueryDAO;
 import au.edu.usyd.corona.server.persistence.DAOinterface.ResultDAO;
 import au.edu.usyd.corona.server.persistence.DAOinterface.TaskDAO;
@@ -84,6 +85,7 @@ public class JDBCDAOFactory extends DAOFactory {
 				new JDBCUserDAO(dataSource, sqlStatements).init();
 				new JDBCTaskDAO(dataSource, sqlStatements).init();
 				new JDBCQueryDAO(dataSource, sqlStatements).init();
+				new JDBCMetricsDAO(dataSource, sqlStatements).init();
 			}
 			catch (DAOException e) {
 				logger.warning("Could not init DAOs: " + e.getMessage());
@@ -180,6 +182,11 @@ public class JDBCDAOFactory extends DAOFactory {
 		return new JDBCQueryDAO(dataSource, sqlStatements);
 	}
 	
+	@Override
+	public synchronized MetricsDAO getMetricsDAO() throws DAOException {
+		return new JDBCMetricsDAO(dataSource, sqlStatements);
+	}
+	
 	@Override
 	public synchronized void clean() throws DAOException {
 		Connection conn = null;
@@ -0,0 +1,124 @@
+package au.edu.usyd.corona.server.persistence.JDBCDAO;
+
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import au.edu.usyd.corona.scheduler.Scheduler;
+import au.edu.usyd.corona.scheduler.SchedulerStats;
+import au.edu.usyd.corona.server.persistence.DAOinterface.DAOException;
+import au.edu.usyd.corona.server.persistence.DAOinterface.MetricsDAO;
+
+/**
+ * A specific implementation of the MetricsDAO for JDBC databases.
+ */
+class JDBCMetricsDAO implements MetricsDAO {
+	// These are the keys which correspond to an SQL statement in the XML file
+	public static final String CREATE_METRICS_TABLE_KEY = "CREATE_METRICS_TABLE";
+	public static final String INSERT_METRICS_KEY = "INSERT_METRICS";
+	public static final String DELETE_OLD_METRICS_KEY = "DELETE_OLD_METRICS";
+	
+	private final DataSource dataSource;
+	private final SQLLoader sqlStatements;
+	
+	/**
+	 * Create a new JDBCMetricsDAO object
+	 * 
+	 * @param dataSource The DataSource to obtain connections from
+	 * @param sqlStatements An SQLLoader object to obtain SQL statements from
+	 */
+	public JDBCMetricsDAO(DataSource dataSource, SQLLoader sqlStatements) {
+		this.dataSource = dataSource;
+		this.sqlStatements = sqlStatements;
+	}
+	
+	/**
+	 * Initialises the metrics section of the database by attempting to create
+	 * the metrics table.
+	 * 
+	 * @throws DAOException if there is a problem initialising the DAO
+	 */
+	public void init() throws DAOException {
+		Connection conn = null;
+		PreparedStatement create = null;
+		try {
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+			if (DBUtils.tableExists(TABLE_NAME, conn, sqlStatements))
+				return;
+			
+			create = sqlStatements.buildSQLStatement(conn, CREATE_METRICS_TABLE_KEY);
+			create.executeUpdate();
+			conn.commit();
+		}
+		catch (SQLException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly execute metrics table creation: ", e);
+		}
+		catch (IOException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly execute metrics table creation: ", e);
+		}
+		finally {
+			DBUtils.closeStatement(create);
+			DBUtils.closeConnection(conn);
+		}
+	}
+	
+	public synchronized void insert(long time, Scheduler scheduler) throws DAOException {
+		Connection conn = null;
+		PreparedStatement insert = null;
+		try {
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+			
+			SchedulerStats stats = scheduler.getStats();
+			Object[] parameters = {time, scheduler.getQueuedJobs(), scheduler.getScheduledTasks(), scheduler.getBusyWorkers(), Thread.activeCount(), stats.getExecuted(), stats.getSkipped(), stats.getLateness().getPercentile(50), stats.getLateness().getPercentile(95), stats.getDuration().getPercentile(50), stats.getDuration().getPercentile(95)};
+			
+			insert = sqlStatements.buildSQLStatement(conn, INSERT_METRICS_KEY, parameters);
+			insert.executeUpdate();
+			conn.commit();
+		}
+		catch (SQLException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly insert the metrics", e);
+		}
+		catch (IOException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly insert the metrics", e);
+		}
+		finally {
+			DBUtils.closeStatement(insert);
+			DBUtils.closeConnection(conn);
+		}
+	}
+	
+	public synchronized void deleteBefore(long time) throws DAOException {
+		Connection conn = null;
+		PreparedStatement delete = null;
+		try {
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+			Object[] parameters = {time};
+			delete = sqlStatements.buildSQLStatement(conn, DELETE_OLD_METRICS_KEY, parameters);
+			delete.executeUpdate();
+			conn.commit();
+		}
+		catch (SQLException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly delete the metrics", e);
+		}
+		catch (IOException e) {
+			DBUtils.rollbackConn(conn);
+			throw new DAOException("Could not properly delete the metrics", e);
+		}
+		finally {
+			DBUtils.closeStatement(delete);
+			DBUtils.closeConnection(conn);
+		}
+	}
+}
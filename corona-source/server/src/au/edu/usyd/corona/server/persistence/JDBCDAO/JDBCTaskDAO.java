@@ -35,6 +35,8 @@ class JDBCTaskDAO implements TaskDAO {
 	public static final String RETRIEVE_TASK_KEY_LIMIT_KEY = "RETRIEVE_TASK_LIMIT";
 	public static final String CREATE_TASK_TABLE_KEY = "CREATE_TASK_TABLE";
 	public static final String GET_MAX_TASKID_KEY = "GET_MAX_TASKID";
+	public static final String ADD_TASK_LATENESS_KEY = "ADD_TASK_LATENESS";
+	public static final String ADD_TASK_SKIPPED_EPOCHS_KEY = "ADD_TASK_SKIPPED_EPOCHS";
 	
 	// These are the named parameters in the SQL which can be substituted by generated SQL
 	public static final String NAMED_PARAM_WHERE = "{where}";
@@ -59,7 +61,8 @@ class JDBCTaskDAO implements TaskDAO {
 	
 	/**
 	 * Initialises the Task section of the database by attempting to create a
-	 * Task table. If it cannot be created, a warning is logged.
+	 * Task table. If it cannot be created, a warning is logged. A Task table
+	 * left by an older version is given the columns it is missing.
 	 * 
 	 * @throws DAOException if there is a problem initialising the DAO
 	 */
@@ -70,8 +73,12 @@ class JDBCTaskDAO implements TaskDAO {
 			conn = dataSource.getConnection();
 			conn.setAutoCommit(false);
 			// Attempt to create the table
-			if (DBUtils.tableExists(TABLE_NAME, conn, sqlStatements))
+			if (DBUtils.tableExists(TABLE_NAME, conn, sqlStatements)) {
+				addMissingColumn(conn, "lateness", ADD_TASK_LATENESS_KEY);
+				addMissingColumn(conn, "skippedEpochs", ADD_TASK_SKIPPED_EPOCHS_KEY);
+				conn.commit();
 				return;
+			}
 			
 			create = sqlStatements.buildSQLStatement(conn, CREATE_TASK_TABLE_KEY);
 			create.executeUpdate();
@@ -91,6 +98,20 @@ class JDBCTaskDAO implements TaskDAO {
 		}
 	}
 	
+	private void addMissingColumn(Connection conn, String column, String key) throws DAOException, SQLException, IOException {
+		if (DBUtils.columnExists(TABLE_NAME, column, conn, sqlStatements))
+			return;
+		
+		PreparedStatement alter = null;
+		try {
+			alter = sqlStatements.buildSQLStatement(conn, key);
+			alter.executeUpdate();
+		}
+		finally {
+			DBUtils.closeStatement(alter);
+		}
+	}
+	
 	public synchronized void delete(TaskID taskId) throws DAOException {
 		Connection conn = null;
 		PreparedStatement delete = null;
@@ -123,7 +144,7 @@ class JDBCTaskDAO implements TaskDAO {
 			conn = dataSource.getConnection();
 			conn.setAutoCommit(false);
 			
-			Object[] parameters = {task.getTaskId().getQueryID(), task.getTaskId().getNodeID(), task.getTaskId().getLocalTaskID(), task.getExecutionTime(), task.getReschedulePeriod(), task.getRunCountTotal(), task.getRunCountLeft(), task.getStatus()};
+			Object[] parameters = {task.getTaskId().getQueryID(), task.getTaskId().getNodeID(), task.getTaskId().getLocalTaskID(), task.getExecutionTime(), task.getReschedulePeriod(), task.getRunCountTotal(), task.getRunCountLeft(), task.getStatus(), task.getLateness(), task.getSkippedEpochs()};
 			
 			insert = sqlStatements.buildSQLStatement(conn, INSERT_TASK_KEY, parameters);
 			insert.executeUpdate();
@@ -151,7 +172,7 @@ class JDBCTaskDAO implements TaskDAO {
 		try {
 			conn = dataSource.getConnection();
 			conn.setAutoCommit(false);
-			Object[] parameters = {task.getExecutionTime(), task.getReschedulePeriod(), task.getRunCountTotal(), task.getRunCountLeft(), task.getStatus(), task.getTaskId().getQueryID(), task.getTaskId().getNodeID(), task.getTaskId().getLocalTaskID()};
+			Object[] parameters = {task.getExecutionTime(), task.getReschedulePeriod(), task.getRunCountTotal(), task.getRunCountLeft(), task.getStatus(), task.getLateness(), task.getSkippedEpochs(), task.getTaskId().getQueryID(), task.getTaskId().getNodeID(), task.getTaskId().getLocalTaskID()};
 			
 			update = sqlStatements.buildSQLStatement(conn, UPDATE_TASK_KEY, parameters);
 			update.executeUpdate();
@@ -217,6 +238,8 @@ class JDBCTaskDAO implements TaskDAO {
 				current.setRunCountLeft(rs.getInt("runCountLeft"));
 				current.setRunCountTotal(rs.getInt("runCountTotal"));
 				current.setStatus(rs.getInt("status"));
+				current.setLateness(rs.getLong("lateness"));
+				current.setSkippedEpochs(rs.getInt("skippedEpochs"));
 				results.add(current);
 			}
 		}
@@ -88,7 +88,7 @@ public class RemoteJDBCTableResults extends UnicastRemoteObject implements Remot
 			else {
 				ResultSet rsColumns = null;
 				DatabaseMetaData meta = conn.getMetaData();
-				rsColumns = meta.getColumns(null, null, sqlExtractor.extractFrom(), null);
+				rsColumns = meta.getColumns(null, null, sqlExtractor.extractFrom().trim().toUpperCase(), null);
 				ArrayList<Class<?>> types = new ArrayList<Class<?>>();
 				ArrayList<String> names = new ArrayList<String>();
 				while (rsColumns.next()) {
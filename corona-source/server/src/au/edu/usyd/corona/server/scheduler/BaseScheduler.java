@@ -8,12 +8,14 @@ import java.util.List;
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.scheduler.KillTask;
 import au.edu.usyd.corona.scheduler.PropgateExceptionTask;
+import au.edu.usyd.corona.scheduler.QueryTask;
 import au.edu.usyd.corona.scheduler.SchedulableTask;
 import au.edu.usyd.corona.scheduler.Scheduler;
 import au.edu.usyd.corona.scheduler.TaskDetails;
 import au.edu.usyd.corona.scheduler.TaskID;
 import au.edu.usyd.corona.server.persistence.DAOinterface.DAOException;
 import au.edu.usyd.corona.server.persistence.DAOinterface.DAOFactory;
+import au.edu.usyd.corona.server.persistence.DAOinterface.MetricsDAO;
 import au.edu.usyd.corona.server.persistence.DAOinterface.TaskDAO;
 import au.edu.usyd.corona.server.persistence.JDBCDAO.JDBCDAOFactory;
 import au.edu.usyd.corona.server.session.notifier.NotifierID;
@@ -24,13 +26,24 @@ import au.edu.usyd.corona.util.SPOTTools;
 
 /**
  * This class handles execution of Task's on the Basestation. It also provides
- * persistence of Task objects.
+ * persistence of Task objects, and writes the statistics of the scheduler to
+ * the metrics table every {@link #METRICS_PERIOD} milliseconds (see
+ * {@link MetricsDAO}).
  * 
  * 
  * @author Raymes Khoury
  */
 public class BaseScheduler extends Scheduler {
+	// the basestation receives the results of every node, and runs the base tree of every query
+	private static final int SHORT_WORKERS = 4;
+	private static final int LONG_WORKERS = 16;
+	private static final int QUEUE_CAPACITY = 256;
+	
+	public static final long METRICS_PERIOD = 10000; // how often the statistics are written, in milliseconds
+	public static final long METRICS_RETENTION = 24 * 60 * 60 * 1000; // how long the statistics are kept, in milliseconds
+	
 	private final TaskDAO taskDAO;
+	private final MetricsDAO metricsDAO;
 	
 	public static void initialize() {
 		if (instance == null) {
@@ -41,13 +54,15 @@ public class BaseScheduler extends Scheduler {
 				SPOTTools.terminate(e);
 			}
 			(thread = new Thread(instance, "Scheduler")).start();
+			((BaseScheduler) instance).new MetricsRecorder().start();
 			Logger.logDebug("Base Scheduler initialized");
 		}
 	}
 	
 	private BaseScheduler() throws DAOException {
-		super();
+		super(SHORT_WORKERS, LONG_WORKERS, QUEUE_CAPACITY);
 		taskDAO = DAOFactory.getInstance().getTaskDAO();
+		metricsDAO = DAOFactory.getInstance().getMetricsDAO();
 		
 		// Kill existing incomplete queries.  An alternative may be to recover however this is currently infeasible
 		List<TaskDetails> incomplete = taskDAO.retrieve("status = " + TaskDetails.STATUS_RUNNING + " OR status = " + TaskDetails.STATUS_SUBMITTED, "", 0, TaskDAO.MAX_TASKS_RETRIEVED);
@@ -74,6 +89,9 @@ public class BaseScheduler extends Scheduler {
 			return;
 		}
 		
+		if (task instanceof QueryTask)
+			sharePlan((QueryTask) task);
+		
 		// do the base init on the task
 		try {
 			task.baseInit();
@@ -101,6 +119,39 @@ public class BaseScheduler extends Scheduler {
 		NotifierManager.getInstance().updateAll(new NotifierID(NotifierType.QUERIES_TABLE_NOTIFIER));
 	}
 	
+	/**
+	 * Puts a new query into the plan of a running query with the same epoch, so
+	 * that the nodes send the results of both to their parents together. If the
+	 * query was not given a start time, it is put back by up to an epoch to
+	 * line up with the running query.
+	 * 
+	 * @param task the new query
+	 * @see au.edu.usyd.corona.scheduler.SharedPlan
+	 */
+	private void sharePlan(QueryTask task) {
+		final long period = task.getReschedulePeriod();
+		if (period <= 0)
+			return;
+		for (Object o : tasksTable.values()) {
+			if (!(o instanceof QueryTask))
+				continue;
+			QueryTask running = (QueryTask) o;
+			if (running.getReschedulePeriod() != period || running.getStatus() == TaskDetails.STATUS_KILLED)
+				continue;
+			long offset = (task.getExecutionTime() - running.getExecutionTime()) % period;
+			if (offset < 0)
+				offset += period;
+			if (offset != 0) {
+				if (!task.isStartFlexible())
+					continue;
+				task.setExecutionTime(task.getExecutionTime() + period - offset);
+			}
+			Logger.logDebug("Query " + task.getTaskId().getQueryID() + " shares plan " + running.getPlanID());
+			task.setPlanID(running.getPlanID());
+			return;
+		}
+	}
+	
 	@Override
 	public synchronized void reschedule(SchedulableTask task) {
 		super.reschedule(task);
@@ -129,4 +180,34 @@ public class BaseScheduler extends Scheduler {
 		NotifierManager.getInstance().updateAll(new NotifierID(NotifierType.RESULT_TABLE_NOTIFIER, task.getTaskId().getQueryID()));
 		NotifierManager.getInstance().updateAll(new NotifierID(NotifierType.QUERIES_TABLE_NOTIFIER));
 	}
+	
+	/**
+	 * Periodically writes the statistics of the scheduler to the metrics table,
+	 * and deletes those older than {@link BaseScheduler#METRICS_RETENTION}
+	 */
+	private class MetricsRecorder extends Thread {
+		public MetricsRecorder() {
+			super("Metrics");
+			setDaemon(true);
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					Thread.sleep(METRICS_PERIOD);
+				}
+				catch (InterruptedException e) {
+				}
+				final long now = System.currentTimeMillis();
+				try {
+					metricsDAO.insert(now, BaseScheduler.this);
+					metricsDAO.deleteBefore(now - METRICS_RETENTION);
+				}
+				catch (DAOException e) {
+					Logger.logError("Could not write the scheduler metrics: " + e);
+				}
+			}
+		}
+	}
 }
@@ -33,7 +33,7 @@ public class BaseForwardOperator extends TableOperator {
 	 */
 	@Override
 	public Table eval(int epoch) throws InvalidOperationException {
-		Table table = children[0].eval(epoch);
+		Table table = evalChild(0, epoch);
 		
 		if (Network.getInstance().getMode() == Network.MODE_UNITTEST)
 			return table;
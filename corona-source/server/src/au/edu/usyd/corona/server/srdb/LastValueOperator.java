@@ -0,0 +1,80 @@
+package au.edu.usyd.corona.server.srdb;
+
+
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import au.edu.usyd.corona.srdb.ColumnarTable;
+import au.edu.usyd.corona.srdb.DeadbandOperator;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.srdb.TableOperator;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * Fills in the rows the nodes did not report because they had not changed (see
+ * {@link DeadbandOperator}) with the last values reported for them, so that the
+ * results of every epoch are complete. Rows are told apart by a key column,
+ * normally the address of the node that sensed them. A row that has not been
+ * reported for two refresh periods is taken to have left the network, and is
+ * no longer filled in.
+ */
+public class LastValueOperator extends TableOperator {
+	private final byte keyColumn;
+	private final int refresh; // the most epochs between reports of a row
+	private final Map<ValueType, Entry> lastValues = new LinkedHashMap<ValueType, Entry>();
+	
+	/**
+	 * The last report of a row
+	 */
+	private static class Entry {
+		private ValueType[] row;
+		private int epoch;
+	}
+	
+	/**
+	 * @param child the reported rows
+	 * @param keyColumn the column identifying each row
+	 * @param refresh the most epochs between reports of each row
+	 */
+	public LastValueOperator(TableOperator child, byte keyColumn, int refresh) {
+		children = new TableOperator[]{child};
+		this.keyColumn = keyColumn;
+		this.refresh = refresh;
+	}
+	
+	@Override
+	public Table eval(int epoch) throws InvalidOperationException {
+		Table reported = evalChild(0, epoch);
+		for (Enumeration<?> e = reported.elements(); e.hasMoreElements();) {
+			ValueType[] row = (ValueType[]) e.nextElement();
+			Entry entry = lastValues.get(row[keyColumn]);
+			if (entry == null) {
+				entry = new Entry();
+				lastValues.put(row[keyColumn], entry);
+			}
+			entry.row = row;
+			entry.epoch = epoch;
+		}
+		
+		Table result = new ColumnarTable(reported.getTaskID(), new byte[0]);
+		for (Iterator<Entry> it = lastValues.values().iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (epoch - entry.epoch > 2 * refresh)
+				it.remove();
+			else
+				result.addRow(entry.row);
+		}
+		return result;
+	}
+	
+	@Override
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_LAST_VALUE).append(T_GROUP_OPEN).append(children[0].toTokens());
+		b.append(' ').append(keyColumn).append(' ').append(refresh);
+		return b.append(T_GROUP_CLOSE);
+	}
+}
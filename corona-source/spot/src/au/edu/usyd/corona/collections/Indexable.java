@@ -0,0 +1,23 @@
+package au.edu.usyd.corona.collections;
+
+
+/**
+ * An element of an {@link IndexedPriorityBlockingQueue} which keeps its own
+ * position in the heap of the queue, so that it can be found and removed
+ * without searching the heap. An element may only be in one queue at a time.
+ */
+public interface Indexable extends Comparable {
+	/**
+	 * @return the position of the element in the heap of its queue, or -1 if it
+	 * is not in a queue
+	 */
+	public int getQueueIndex();
+	
+	/**
+	 * Called by the queue as the element is moved around its heap
+	 * 
+	 * @param index the new position of the element, or -1 if it has been
+	 * removed from the queue
+	 */
+	public void setQueueIndex(int index);
+}
@@ -0,0 +1,278 @@
+package au.edu.usyd.corona.collections;
+
+
+import java.util.Enumeration;
+import java.util.Vector;
+
+/**
+ * An unbounded priority queue based on a 4-ary heap, with the same interface
+ * and blocking behaviour as {@link PriorityBlockingQueue}. A 4-ary heap is
+ * half the height of a binary heap, so elements are added in fewer steps, and
+ * the heap is kept in an array rather than a synchronized Vector. Elements
+ * which are {@link Indexable} are told their position in the heap as they
+ * move, so they are removed in O(log n) time rather than by searching the
+ * whole heap; other elements are found with <code>equals</code> as before. It
+ * is thread-safe.
+ */
+public class IndexedPriorityBlockingQueue {
+	private static final int DEFAULT_INTIAL_CAPACITY = 11;
+	private static final int ARITY = 4; // the number of children of each element of the heap
+	
+	private Comparable[] heap;
+	private int size;
+	
+	/**
+	 * Creates a queue with the specified initial capacity that orders its
+	 * elements according to their natural ordering (using Comparable).
+	 * 
+	 * @param initialCapacity the initial capacity for this priority queue.
+	 */
+	public IndexedPriorityBlockingQueue(int initialCapacity) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("The initial capacity must be > 1. Actual: " + initialCapacity + ".");
+		heap = new Comparable[initialCapacity];
+	}
+	
+	/**
+	 * Creates a queue with the default initial capacity (
+	 * {@link #DEFAULT_INTIAL_CAPACITY}) that orders its elements according to
+	 * their natural ordering (using Comparable).
+	 */
+	public IndexedPriorityBlockingQueue() {
+		this(DEFAULT_INTIAL_CAPACITY);
+	}
+	
+	/**
+	 * Returns the number of elements in this collection.
+	 * 
+	 * @return the number of elements in this collection.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Removes all elements from the priority queue. The queue will be empty
+	 * after this call returns.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i != size; i++) {
+			setIndex(heap[i], -1);
+			heap[i] = null;
+		}
+		size = 0;
+	}
+	
+	/**
+	 * Adds the specified element to this queue.
+	 * 
+	 * @param c the element
+	 */
+	public synchronized void add(Comparable c) {
+		if (c == null)
+			throw new NullPointerException("Cannot insert null object");
+		if (size == heap.length) {
+			Comparable[] grown = new Comparable[heap.length * 2];
+			System.arraycopy(heap, 0, grown, 0, size);
+			heap = grown;
+		}
+		siftUp(size++, c);
+		notifyAll();
+	}
+	
+	/**
+	 * Inserts the specified element into this priority queue.
+	 * 
+	 * @param o Adds the specified element to this queue.
+	 */
+	public synchronized void offer(Comparable o) {
+		add(o);
+	}
+	
+	/**
+	 * Removes a single instance of the specified element from this queue, if it
+	 * is present. An {@link Indexable} element is only removed if it is the
+	 * same object as was added.
+	 * 
+	 * @param o element to be removed from this collection, if present.
+	 * @return true if the collection contained the specified element.
+	 */
+	public synchronized boolean remove(Comparable o) {
+		int i = indexOf(o);
+		if (i == -1)
+			return false;
+		removeAt(i);
+		return true;
+	}
+	
+	/**
+	 * Retrieves, but does not remove, the head of this queue, returning null if
+	 * this queue is empty. Does not block.
+	 * 
+	 * @return the head of this queue, or null if this queue is empty.
+	 */
+	public synchronized Comparable peek() {
+		return (size == 0) ? null : heap[0];
+	}
+	
+	/**
+	 * Retrieves, but does not remove, the head of this queue. If the queue is
+	 * empty, this method blocks until a root becomes available.
+	 * 
+	 * @return the head of this queue.
+	 */
+	public synchronized Comparable peekBlocking() {
+		while (size == 0) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+			}
+		}
+		return heap[0];
+	}
+	
+	/**
+	 * Retrieves and removes the head of this queue, or null if this queue is
+	 * empty. Does not block.
+	 * 
+	 * @return the head of this queue, or null if this queue is empty.
+	 */
+	public synchronized Comparable poll() {
+		if (size == 0)
+			return null;
+		Comparable res = heap[0];
+		removeAt(0);
+		return res;
+	}
+	
+	/**
+	 * Retrieves and removes the head of this queue. If the queue is empty, this
+	 * method blocks until a root becomes available.
+	 * 
+	 * @return the head of this queue.
+	 */
+	public synchronized Comparable pollBlocking() {
+		while (size == 0) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+			}
+		}
+		Comparable res = heap[0];
+		removeAt(0);
+		return res;
+	}
+	
+	/**
+	 * Returns true if this collection contains no elements.
+	 * 
+	 * @return true if this collection contains no elements.
+	 */
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+	
+	private int indexOf(Comparable o) {
+		if (o instanceof Indexable) {
+			int i = ((Indexable) o).getQueueIndex();
+			return (i >= 0 && i < size && heap[i] == o) ? i : -1;
+		}
+		for (int i = 0; i != size; i++)
+			if (o.equals(heap[i]))
+				return i;
+		return -1;
+	}
+	
+	/**
+	 * Removes the element at a given position in the heap, moving the last
+	 * element of the heap into its place and then up or down to where it
+	 * belongs
+	 * 
+	 * @param pos the position of the element which is to be removed
+	 */
+	private void removeAt(int pos) {
+		setIndex(heap[pos], -1);
+		size--;
+		Comparable last = heap[size];
+		heap[size] = null;
+		if (pos != size) {
+			siftDown(pos, last);
+			if (heap[pos] == last)
+				siftUp(pos, last);
+		}
+	}
+	
+	/**
+	 * Puts an element in at a position, moving it up towards the root past any
+	 * parents greater than it
+	 */
+	private void siftUp(int pos, Comparable c) {
+		while (pos > 0) {
+			int parent = (pos - 1) / ARITY;
+			if (c.compareTo(heap[parent]) >= 0)
+				break;
+			place(heap[parent], pos);
+			pos = parent;
+		}
+		place(c, pos);
+	}
+	
+	/**
+	 * Puts an element in at a position, moving it down towards the leaves past
+	 * any children less than it
+	 */
+	private void siftDown(int pos, Comparable c) {
+		while (true) {
+			int first = pos * ARITY + 1;
+			if (first >= size)
+				break;
+			int smallest = first;
+			int end = Math.min(first + ARITY, size);
+			for (int child = first + 1; child < end; child++)
+				if (heap[child].compareTo(heap[smallest]) < 0)
+					smallest = child;
+			if (heap[smallest].compareTo(c) >= 0)
+				break;
+			place(heap[smallest], pos);
+			pos = smallest;
+		}
+		place(c, pos);
+	}
+	
+	private void place(Comparable c, int pos) {
+		heap[pos] = c;
+		setIndex(c, pos);
+	}
+	
+	private static void setIndex(Comparable c, int pos) {
+		if (c instanceof Indexable)
+			((Indexable) c).setQueueIndex(pos);
+	}
+	
+	public synchronized String toString() {
+		StringBuffer s = new StringBuffer("{");
+		for (int i = 0; i < size; i++) {
+			s.append(heap[i]);
+			if (i + 1 < size)
+				s.append(',');
+		}
+		s.append('}');
+		return s.toString();
+	}
+	
+	/**
+	 * Returns an Enumeration over the elements in this queue. The Enumeration
+	 * does not return the elements in any particular order, and does not see
+	 * any changes made to the queue after it was created.
+	 * 
+	 * @return an Enumeration over the elements in this queue.
+	 */
+	public synchronized Enumeration elements() {
+		Vector copy = new Vector(size);
+		for (int i = 0; i != size; i++)
+			copy.addElement(heap[i]);
+		return copy.elements();
+	}
+}
@@ -209,6 +209,17 @@ public class PriorityBlockingQueue {
 		
 		heap.setElementAt(heap.lastElement(), pos); // Fill a potential end gap
 		heap.removeElementAt(heap.size() - 1);
+		
+		// the element moved into the gap may be less than the parents of the gap
+		while (pos > 0 && pos < heap.size()) {
+			int parent = (pos - 1) / 2;
+			if (((Comparable) heap.elementAt(pos)).compareTo(heap.elementAt(parent)) >= 0)
+				break;
+			Object temp = heap.elementAt(pos);
+			heap.setElementAt(heap.elementAt(parent), pos);
+			heap.setElementAt(temp, parent);
+			pos = parent;
+		}
 	}
 	
 	public synchronized String toString() {
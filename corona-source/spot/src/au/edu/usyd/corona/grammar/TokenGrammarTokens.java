@@ -16,17 +16,28 @@ public interface TokenGrammarTokens {
 	public static final char T_COLLECT = 'C';
 	public static final char T_MERGE = 'M';
 	public static final char T_FORWARD = 'D';
-	
-	public static final char T_CROSS_PRODUCT = 'X';
+	public static final char T_JOIN = 'J';
+	public static final char T_CONSTANT_TABLE = 'T';
+	public static final char T_TOP_K = 'K';
+	public static final char T_WINDOW = 'W';
+	public static final char T_DEADBAND = 'R';
+	public static final char T_LAST_VALUE = 'V';
 	
 	// numeric expressions
 	public static final char T_EQ = '=';
 	public static final char T_LT = '<';
+	public static final char T_GT = '>';
+	public static final char T_LE = 'L';
+	public static final char T_GE = 'G';
+	public static final char T_NE = '#';
 	public static final char T_MULTIPLY = '*';
 	public static final char T_DIVIDE = '/';
 	public static final char T_SUBTRACT = '-';
 	public static final char T_ADD = '+';
 	public static final char T_NAND = 'N';
+	public static final char T_AND = '&';
+	public static final char T_OR = '|';
+	public static final char T_NOT = '!';
 	public static final char T_ATTRIBUTE = 'B';
 	
 	// grouping
@@ -40,8 +51,8 @@ public interface TokenGrammarTokens {
 	public static final char T_DATA_TYPE_BOOLEAN = 'd';
 	public static final char T_DATA_TYPE_IEEE_ADDRESS = 'e';
 	public static final char T_DATA_TYPE_FLOAT = 'f';
-	public static final char T_DATA_TYPE_7 = 'g';
-	public static final char T_DATA_TYPE_8 = 'h';
+	public static final char T_DATA_TYPE_DISTINCT_SKETCH = 'g';
+	public static final char T_DATA_TYPE_QUANTILE_SKETCH = 'h';
 	public static final char T_DATA_TYPE_9 = 'i';
 	public static final char T_DATA_TYPE_10 = 'j';
 	public static final char T_DATA_TYPE_11 = 'k';
@@ -59,6 +59,16 @@ public class TokenParser implements TokenGrammarTokens {
 			return parseForward();
 		case T_MERGE:
 			return parseMerge();
+		case T_JOIN:
+			return parseJoin();
+		case T_CONSTANT_TABLE:
+			return parseConstantTable();
+		case T_TOP_K:
+			return parseTopK();
+		case T_WINDOW:
+			return parseWindow();
+		case T_DEADBAND:
+			return parseDeadband();
 		default:
 			throw new TokenParseException("Unknown table operator token type '" + lexer.token() + "' in _parse");
 		}
@@ -84,6 +94,46 @@ public class TokenParser implements TokenGrammarTokens {
 		return r;
 	}
 	
+	private ConditionExpression condGreaterThan() throws TokenParseException {
+		assertDie(T_GT);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new GreaterThanExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private ConditionExpression condLessEquals() throws TokenParseException {
+		assertDie(T_LE);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new LessEqualsExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private ConditionExpression condGreaterEquals() throws TokenParseException {
+		assertDie(T_GE);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new GreaterEqualsExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private ConditionExpression condNotEquals() throws TokenParseException {
+		assertDie(T_NE);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new NotEqualsExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
 	private ConditionExpression condMultiply() throws TokenParseException {
 		assertDie(T_MULTIPLY);
 		assertDie(T_GROUP_OPEN);
@@ -134,6 +184,34 @@ public class TokenParser implements TokenGrammarTokens {
 		return r;
 	}
 	
+	private ConditionExpression condAND() throws TokenParseException {
+		assertDie(T_AND);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new AndExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private ConditionExpression condOR() throws TokenParseException {
+		assertDie(T_OR);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression a = _parseConditionTree();
+		ConditionExpression b = _parseConditionTree();
+		ConditionExpression r = new OrExpression(a, b);
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private ConditionExpression condNOT() throws TokenParseException {
+		assertDie(T_NOT);
+		assertDie(T_GROUP_OPEN);
+		ConditionExpression r = new NotExpression(_parseConditionTree());
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
 	private ConditionExpression condAttribute() throws TokenParseException {
 		assertDie(T_ATTRIBUTE);
 		assertDie(T_GROUP_OPEN);
@@ -149,6 +227,14 @@ public class TokenParser implements TokenGrammarTokens {
 			return condEquals();
 		case T_LT:
 			return condLessThan();
+		case T_GT:
+			return condGreaterThan();
+		case T_LE:
+			return condLessEquals();
+		case T_GE:
+			return condGreaterEquals();
+		case T_NE:
+			return condNotEquals();
 		case T_MULTIPLY:
 			return condMultiply();
 		case T_DIVIDE:
@@ -159,6 +245,12 @@ public class TokenParser implements TokenGrammarTokens {
 			return condAdd();
 		case T_NAND:
 			return condNAND();
+		case T_AND:
+			return condAND();
+		case T_OR:
+			return condOR();
+		case T_NOT:
+			return condNOT();
 		case T_ATTRIBUTE:
 			return condAttribute();
 		default:
@@ -180,10 +272,9 @@ public class TokenParser implements TokenGrammarTokens {
 			return dataTypeIEEEAddress();
 		case T_DATA_TYPE_FLOAT:
 			return dataTypeFloat();
-		case T_DATA_TYPE_7:
-			throw new TokenParseException("Custom data type 7 not accounted for");
-		case T_DATA_TYPE_8:
-			throw new TokenParseException("Custom data type 8 not accounted for");
+		case T_DATA_TYPE_DISTINCT_SKETCH:
+		case T_DATA_TYPE_QUANTILE_SKETCH:
+			throw new TokenParseException("Sketches cannot be given as constants");
 		case T_DATA_TYPE_9:
 			throw new TokenParseException("Custom data type 9 not accounted for");
 		case T_DATA_TYPE_10:
@@ -215,6 +306,148 @@ public class TokenParser implements TokenGrammarTokens {
 		return r;
 	}
 	
+	private TableOperator parseJoin() throws TokenParseException {
+		assertDie(T_JOIN);
+		assertDie(T_GROUP_OPEN);
+		
+		TableOperator a = _parse();
+		TableOperator b = _parse();
+		
+		// the number of pairs of join columns
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for join number of columns");
+		byte numColumns = lexer.currentByte();
+		lexer.next();
+		
+		final byte[] leftColumns = new byte[numColumns];
+		final byte[] rightColumns = new byte[numColumns];
+		for (byte i = 0; i != numColumns; i++) {
+			if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+				throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for join column");
+			leftColumns[i] = lexer.currentByte();
+			lexer.next();
+			if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+				throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for join column");
+			rightColumns[i] = lexer.currentByte();
+			lexer.next();
+		}
+		
+		TableOperator r = new JoinOperator(queryTask.getTaskId(), a, b, leftColumns, rightColumns);
+		
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private TableOperator parseConstantTable() throws TokenParseException {
+		assertDie(T_CONSTANT_TABLE);
+		assertDie(T_GROUP_OPEN);
+		
+		// the dimensions of the table
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for constant table number of rows");
+		int numRows = lexer.currentInt();
+		lexer.next();
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for constant table number of columns");
+		int numCols = lexer.currentInt();
+		lexer.next();
+		
+		final ValueType[][] rows = new ValueType[numRows][numCols];
+		for (int i = 0; i != numRows; i++)
+			for (int j = 0; j != numCols; j++)
+				rows[i][j] = _parseValueType();
+		
+		TableOperator r = new ConstantTableOperator(queryTask.getTaskId(), rows);
+		
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private TableOperator parseTopK() throws TokenParseException {
+		assertDie(T_TOP_K);
+		assertDie(T_GROUP_OPEN);
+		
+		TableOperator a = _parse();
+		
+		// the number of rows to keep
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for top k limit");
+		int limit = lexer.currentInt();
+		lexer.next();
+		
+		// the ordering columns and their directions
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for top k number of columns");
+		byte numColumns = lexer.currentByte();
+		lexer.next();
+		
+		final byte[] columns = new byte[numColumns];
+		final boolean[] descending = new boolean[numColumns];
+		for (byte i = 0; i != numColumns; i++) {
+			if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+				throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for top k column");
+			columns[i] = lexer.currentByte();
+			lexer.next();
+			if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+				throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for top k direction");
+			descending[i] = lexer.currentByte() != 0;
+			lexer.next();
+		}
+		
+		TableOperator r = new TopKOperator(a, limit, columns, descending);
+		
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private TableOperator parseWindow() throws TokenParseException {
+		assertDie(T_WINDOW);
+		assertDie(T_GROUP_OPEN);
+		
+		TableOperator a = _parse(); // function
+		if (!(a instanceof AggregateOperator))
+			throw new TokenParseException("Found a window over a table operator other than an aggregate");
+		
+		// the number of epochs in the window
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for window size");
+		int size = lexer.currentInt();
+		lexer.next();
+		if (size <= 0)
+			throw new TokenParseException("Found a window size of " + size + " when expected a positive size");
+		
+		TableOperator r = new WindowOperator((AggregateOperator) a, size);
+		
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
+	private TableOperator parseDeadband() throws TokenParseException {
+		assertDie(T_DEADBAND);
+		assertDie(T_GROUP_OPEN);
+		
+		TableOperator a = _parse();
+		
+		// how far a number must move to be reported
+		if (lexer.token() != TokenLexer.TOKEN_FLOAT && lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_FLOAT for deadband");
+		float band = lexer.currentFloat();
+		lexer.next();
+		
+		// the most epochs between reports
+		if (lexer.token() != TokenLexer.TOKEN_INTEGER)
+			throw new TokenParseException("Found token '" + lexer.currentString() + "' when expected token of type TOKEN_LONG for deadband refresh");
+		int refresh = lexer.currentInt();
+		lexer.next();
+		if (band < 0 || refresh <= 0)
+			throw new TokenParseException("Found a deadband of " + band + " refreshed every " + refresh + " epochs");
+		
+		TableOperator r = new DeadbandOperator(a, band, refresh);
+		
+		assertDie(T_GROUP_CLOSE);
+		return r;
+	}
+	
 	private TableOperator parseForward() throws TokenParseException {
 		assertDie(T_FORWARD);
 		assertDie(T_GROUP_OPEN);
@@ -293,7 +526,7 @@ public class TokenParser implements TokenGrammarTokens {
 			lexer.next();
 		}
 		
-		TableOperator r = new AggregateOperator(a, functions, functionColumns, groupByColumns);
+		TableOperator r = new AggregateOperator(a, functions, functionColumns, groupByColumns, true);
 		
 		assertDie(T_GROUP_CLOSE);
 		return r;
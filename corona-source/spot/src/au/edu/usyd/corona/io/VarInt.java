@@ -0,0 +1,130 @@
+package au.edu.usyd.corona.io;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes integers in a variable number of bytes, 7 bits to a byte
+ * with the top bit of each byte set when more bytes follow. Signed values are
+ * zig-zag encoded first, so that small negative values are as short as small
+ * positive ones: an int between -64 and 63 takes one byte, rather than the four
+ * of {@link DataOutput#writeInt(int)}.
+ */
+public class VarInt {
+	private VarInt() {
+	}
+	
+	/**
+	 * Writes an int, treating it as unsigned
+	 * 
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 * @throws IOException
+	 */
+	public static void writeUnsigned(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	
+	/**
+	 * Reads an int written by {@link #writeUnsigned(DataOutput, int)}
+	 * 
+	 * @param in the stream to read from
+	 * @return the value read
+	 * @throws IOException if the value is longer than an int
+	 */
+	public static int readUnsigned(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed variable length int");
+	}
+	
+	/**
+	 * Writes a long, treating it as unsigned
+	 * 
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 * @throws IOException
+	 */
+	public static void writeUnsignedLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+	
+	/**
+	 * Reads a long written by {@link #writeUnsignedLong(DataOutput, long)}
+	 * 
+	 * @param in the stream to read from
+	 * @return the value read
+	 * @throws IOException if the value is longer than a long
+	 */
+	public static long readUnsignedLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed variable length long");
+	}
+	
+	/**
+	 * Writes a signed int, zig-zag encoded
+	 * 
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 * @throws IOException
+	 */
+	public static void writeInt(DataOutput out, int value) throws IOException {
+		writeUnsigned(out, (value << 1) ^ (value >> 31));
+	}
+	
+	/**
+	 * Reads an int written by {@link #writeInt(DataOutput, int)}
+	 * 
+	 * @param in the stream to read from
+	 * @return the value read
+	 * @throws IOException
+	 */
+	public static int readInt(DataInput in) throws IOException {
+		int value = readUnsigned(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Writes a signed long, zig-zag encoded
+	 * 
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 * @throws IOException
+	 */
+	public static void writeLong(DataOutput out, long value) throws IOException {
+		writeUnsignedLong(out, (value << 1) ^ (value >> 63));
+	}
+	
+	/**
+	 * Reads a long written by {@link #writeLong(DataOutput, long)}
+	 * 
+	 * @param in the stream to read from
+	 * @return the value read
+	 * @throws IOException
+	 */
+	public static long readLong(DataInput in) throws IOException {
+		long value = readUnsignedLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
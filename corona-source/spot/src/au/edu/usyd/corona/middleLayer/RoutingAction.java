@@ -83,7 +83,8 @@ class RoutingAction implements Comparable, RoutingConstants {
 	}
 	
 	public int compareTo(Object o) {
-		return (int) (getTimeExecution() - ((RoutingAction) o).getTimeExecution());
+		long time = getTimeExecution(), other = ((RoutingAction) o).getTimeExecution();
+		return (time < other) ? -1 : ((time == other) ? 0 : 1);
 	}
 	
 	public String toString() {
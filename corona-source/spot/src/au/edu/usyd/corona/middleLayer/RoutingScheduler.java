@@ -1,7 +1,7 @@
 package au.edu.usyd.corona.middleLayer;
 
 
-import au.edu.usyd.corona.collections.PriorityBlockingQueue;
+import au.edu.usyd.corona.collections.IndexedPriorityBlockingQueue;
 import au.edu.usyd.corona.util.Logger;
 
 /**
@@ -12,10 +12,10 @@ import au.edu.usyd.corona.util.Logger;
  * @author Raymes Khoury
  */
 class RoutingScheduler {
-	protected final PriorityBlockingQueue actionQueue; // The priority queue structure to store the tasks
+	protected final IndexedPriorityBlockingQueue actionQueue; // The priority queue structure to store the tasks
 	
 	public RoutingScheduler() {
-		actionQueue = new PriorityBlockingQueue();
+		actionQueue = new IndexedPriorityBlockingQueue();
 	}
 	
 	private long calculateTimeDelta(long time) {
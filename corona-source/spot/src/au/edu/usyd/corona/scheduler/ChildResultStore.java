@@ -4,24 +4,59 @@ package au.edu.usyd.corona.scheduler;
 import java.util.Hashtable;
 import java.util.Vector;
 
+import au.edu.usyd.corona.srdb.AggregateOperator;
+import au.edu.usyd.corona.srdb.ResultAccumulator;
 import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.util.SPOTTools;
 
 /**
- * This class stores results from child nodes
+ * This class stores results from child nodes. The results of each epoch are
+ * folded into a {@link ResultAccumulator} as they arrive, pre-aggregating them
+ * if the query aggregates the collected results. Threads waiting on the results of
+ * an epoch are woken up as soon as each result is added. Once the collector has
+ * taken the results of an epoch, any result of the epoch which arrives late is
+ * dropped, so that the table handed to the collector is never changed while
+ * the query is using it. The time at which the
+ * result of each child arrives is also tracked, so the time to wait for the
+ * children can be worked out from how long they have actually taken in the
+ * past.
  * 
  * @author Raymes Khoury
  */
 public class ChildResultStore {
-	private final Hashtable childResults; // Hashtable of results from children.  Maps epoch to vector of results for that epoch.
+	public static final int MIN_SAMPLES = 5; // the number of latencies needed for a child before they are trusted
+	public static final int TIMEOUT_SLACK = 250; // milliseconds added to the observed latencies
+	
+	private final Hashtable childResults; // Hashtable of results from children.  Maps epoch to the ResultAccumulator for that epoch.
 	private final Hashtable nodesReceivedFrom;
+	private final Hashtable arrivalTimes; // Maps epoch to a Hashtable mapping node to the time its result arrived
+	private final Hashtable latencies; // Maps node to its LatencyTracker
+	private final Hashtable takenEpochs; // The epochs whose results have been taken by the collector, mapped to themselves
+	private AggregateOperator aggregate; // the aggregation performed over the collected results, if any
 	
 	public ChildResultStore() {
 		childResults = new Hashtable();
 		nodesReceivedFrom = new Hashtable();
+		arrivalTimes = new Hashtable();
+		latencies = new Hashtable();
+		takenEpochs = new Hashtable();
 	}
 	
 	/**
-	 * Add a result table from a child
+	 * Sets the aggregation which is performed over the collected results, so
+	 * that the results can be partially aggregated as they arrive
+	 * 
+	 * @param aggregate the aggregation, or null if the results are not
+	 * aggregated
+	 */
+	public synchronized void setAggregation(AggregateOperator aggregate) {
+		this.aggregate = aggregate;
+	}
+	
+	/**
+	 * Add a result table from a child, folding it into the results already
+	 * received for the epoch
 	 * 
 	 * @param t The table to add
 	 * @param epoch The epoch which the table was from
@@ -29,12 +64,18 @@ public class ChildResultStore {
 	 */
 	public synchronized void addResult(Table t, int epoch, long node) {
 		Integer epochObj = new Integer(epoch);
-		if (childResults.containsKey(epochObj))
-			((Vector) childResults.get(epochObj)).addElement(t);
-		else {
-			Vector newEpoch = new Vector();
-			newEpoch.addElement(t);
-			childResults.put(epochObj, newEpoch);
+		if (takenEpochs.containsKey(epochObj))
+			return;
+		ResultAccumulator accumulator = (ResultAccumulator) childResults.get(epochObj);
+		if (accumulator == null) {
+			accumulator = (aggregate == null) ? new ResultAccumulator(t.getTaskID()) : aggregate.createAccumulator(t.getTaskID());
+			childResults.put(epochObj, accumulator);
+		}
+		try {
+			accumulator.add(t);
+		}
+		catch (InvalidOperationException e) {
+			SPOTTools.reportError(e);
 		}
 		
 		Long nodeObj = new Long(node);
@@ -45,6 +86,97 @@ public class ChildResultStore {
 			newEpoch.addElement(nodeObj);
 			nodesReceivedFrom.put(epochObj, newEpoch);
 		}
+		
+		Hashtable arrivals = (Hashtable) arrivalTimes.get(epochObj);
+		if (arrivals == null) {
+			arrivals = new Hashtable();
+			arrivalTimes.put(epochObj, arrivals);
+		}
+		arrivals.put(nodeObj, new Long(System.currentTimeMillis()));
+		
+		// wake up anyone waiting on the results
+		notifyAll();
+	}
+	
+	/**
+	 * Blocks until either the given number of results are available for an
+	 * epoch, or the deadline has passed
+	 * 
+	 * @param epoch the epoch to wait for the results of
+	 * @param numExpected the number of results expected
+	 * @param deadline the time in milliseconds (as given by
+	 * {@link System#currentTimeMillis()}) after which to stop waiting
+	 * @return the number of results available
+	 */
+	public synchronized int waitForResults(int epoch, int numExpected, long deadline) {
+		int num = numResults(epoch);
+		long remaining = deadline - System.currentTimeMillis();
+		while (num < numExpected && remaining > 0) {
+			try {
+				wait(remaining);
+			}
+			catch (InterruptedException e) {
+			}
+			num = numResults(epoch);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return num;
+	}
+	
+	/**
+	 * Works out how long to wait for the results of the given children, from
+	 * the {@link LatencyTracker#PERCENTILE}th percentile of the latencies they
+	 * have had in the past. Until enough latencies have been seen for each of
+	 * the children, the maximum timeout is used.
+	 * 
+	 * @param children the children results are expected from
+	 * @param maxTimeout the longest time in milliseconds to wait
+	 * @return the time in milliseconds to wait for the results
+	 */
+	public synchronized long getTimeout(Long[] children, long maxTimeout) {
+		long timeout = 0;
+		for (int i = 0; i < children.length; i++) {
+			LatencyTracker tracker = (LatencyTracker) latencies.get(children[i]);
+			if (tracker == null || tracker.getNumSamples() < MIN_SAMPLES)
+				return maxTimeout;
+			long latency = tracker.getPercentile();
+			latency += latency / 2 + TIMEOUT_SLACK;
+			if (latency > timeout)
+				timeout = latency;
+		}
+		return (timeout < maxTimeout) ? timeout : maxTimeout;
+	}
+	
+	/**
+	 * Records how long each of the given children took to send their results
+	 * for an epoch. Children which did not send anything are recorded as
+	 * having taken the maximum timeout, so that a child which starts missing
+	 * its deadlines pushes the timeout back up.
+	 * 
+	 * @param epoch the epoch the results were for
+	 * @param children the children results were expected from
+	 * @param start the time in milliseconds when waiting for the results began
+	 * @param maxTimeout the longest time in milliseconds to wait
+	 */
+	public synchronized void recordLatencies(int epoch, Long[] children, long start, long maxTimeout) {
+		Hashtable arrivals = (Hashtable) arrivalTimes.get(new Integer(epoch));
+		for (int i = 0; i < children.length; i++) {
+			LatencyTracker tracker = (LatencyTracker) latencies.get(children[i]);
+			if (tracker == null) {
+				tracker = new LatencyTracker();
+				latencies.put(children[i], tracker);
+			}
+			Long arrival = (arrivals == null) ? null : (Long) arrivals.get(children[i]);
+			tracker.addSample((arrival == null) ? maxTimeout : arrival.longValue() - start);
+		}
+	}
+	
+	/**
+	 * @param node the child node
+	 * @return the latencies observed for the node, or null if none have been
+	 */
+	public synchronized LatencyTracker getLatencies(long node) {
+		return (LatencyTracker) latencies.get(new Long(node));
 	}
 	
 	public synchronized Vector getNodesReceivedFrom(int epoch) {
@@ -58,18 +190,26 @@ public class ChildResultStore {
 	 * @return The number of tables available from this epoch
 	 */
 	public synchronized int numResults(int epoch) {
-		Vector res = (Vector) childResults.get(new Integer(epoch));
+		Vector res = (Vector) nodesReceivedFrom.get(new Integer(epoch));
 		return res == null ? 0 : res.size();
 	}
 	
 	/**
-	 * Return a Vector of tables from a given epoch
+	 * Takes the table of all of the results received for a given epoch. The
+	 * results are detached from the store, and any result of the epoch which
+	 * arrives afterwards is dropped until {@link #removeResults(int)} is called
+	 * for the epoch.
 	 * 
-	 * @param epoch The epoch to retrieve tables from
-	 * @return A vector of tables from that epoch
+	 * @param epoch The epoch to retrieve the results of
+	 * @return The merged (and possibly partially aggregated) results of the
+	 * epoch, or null if nothing was received
+	 * @throws InvalidOperationException if the results cannot be aggregated
 	 */
-	public synchronized Vector getResults(int epoch) {
-		return (Vector) childResults.get(new Integer(epoch));
+	public synchronized Table takeResult(int epoch) throws InvalidOperationException {
+		Integer key = new Integer(epoch);
+		takenEpochs.put(key, key);
+		ResultAccumulator accumulator = (ResultAccumulator) childResults.remove(key);
+		return (accumulator == null) ? null : accumulator.getTable();
 	}
 	
 	/**
@@ -83,6 +223,8 @@ public class ChildResultStore {
 			childResults.remove(key);
 		if (nodesReceivedFrom.containsKey(key))
 			nodesReceivedFrom.remove(key);
+		arrivalTimes.remove(key);
+		takenEpochs.remove(key);
 	}
 	
 }
@@ -0,0 +1,86 @@
+package au.edu.usyd.corona.scheduler;
+
+
+/**
+ * A histogram of non-negative values, such as times in milliseconds, cheap
+ * enough to record every task the {@link Scheduler} runs into. Values are
+ * counted in buckets of powers of two, so recording a value is a few shifts
+ * and percentiles are accurate to within a factor of two. Every
+ * {@link #DECAY_PERIOD} milliseconds the counts are halved, so that the
+ * percentiles follow what the scheduler has been doing lately rather than
+ * since the node started.
+ */
+public class Histogram {
+	public static final long DECAY_PERIOD = 60000; // milliseconds
+	private static final int BUCKETS = 33; // bucket i counts the values below 2^i and not below 2^(i-1)
+	
+	private final int[] counts;
+	private int count; // the sum of the counts
+	private long lastDecay;
+	
+	public Histogram() {
+		counts = new int[BUCKETS];
+		lastDecay = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Records a value, clamped to be at least 0
+	 * 
+	 * @param value the value to record
+	 */
+	public synchronized void record(long value) {
+		decay(System.currentTimeMillis());
+		int bucket = 0;
+		while (value > 0 && bucket != BUCKETS - 1) {
+			value >>>= 1;
+			bucket++;
+		}
+		counts[bucket]++;
+		count++;
+	}
+	
+	/**
+	 * Halves the counts for each decay period that has passed
+	 * 
+	 * @param now the current time in milliseconds
+	 */
+	synchronized void decay(long now) {
+		while (now - lastDecay >= DECAY_PERIOD) {
+			count = 0;
+			for (int i = 0; i != BUCKETS; i++) {
+				counts[i] >>= 1;
+				count += counts[i];
+			}
+			lastDecay += DECAY_PERIOD;
+			if (count == 0)
+				lastDecay = now;
+		}
+	}
+	
+	/**
+	 * @return the (decayed) number of values recorded
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Estimates a percentile of the values recorded, as the upper bound of the
+	 * bucket it falls in
+	 * 
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the estimate, or 0 if nothing has been recorded
+	 */
+	public synchronized long getPercentile(int percentile) {
+		if (count == 0)
+			return 0;
+		final int rank = Math.max(1, (percentile * count + 99) / 100);
+		int seen = 0;
+		for (int i = 0; i != BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return (i == 0) ? 0 : (1L << i) - 1;
+		}
+		return (1L << (BUCKETS - 1)) - 1;
+	}
+}
@@ -0,0 +1,63 @@
+package au.edu.usyd.corona.scheduler;
+
+
+/**
+ * Keeps the most recent latencies observed for one child node, and estimates a
+ * high percentile of them. The samples are held in a small ring buffer, so the
+ * estimate follows changes in the network without keeping an unbounded
+ * history.
+ */
+public class LatencyTracker {
+	public static final int WINDOW = 20; // the number of samples kept
+	public static final int PERCENTILE = 95;
+	
+	private final long[] samples;
+	private int next; // where the next sample is written in the ring buffer
+	private int size; // the number of valid samples
+	
+	public LatencyTracker() {
+		samples = new long[WINDOW];
+	}
+	
+	/**
+	 * Records an observed latency
+	 * 
+	 * @param latency the latency in milliseconds
+	 */
+	public synchronized void addSample(long latency) {
+		samples[next] = (latency < 0) ? 0 : latency;
+		next = (next + 1) % samples.length;
+		if (size < samples.length)
+			size++;
+	}
+	
+	/**
+	 * @return the number of samples currently held
+	 */
+	public synchronized int getNumSamples() {
+		return size;
+	}
+	
+	/**
+	 * Works out the {@link #PERCENTILE}th percentile of the samples held, using
+	 * the nearest rank method
+	 * 
+	 * @return the percentile in milliseconds, or -1 if no samples are held
+	 */
+	public synchronized long getPercentile() {
+		if (size == 0)
+			return -1;
+		
+		// insertion sort a copy, as there are only ever a handful of samples
+		long[] sorted = new long[size];
+		for (int i = 0; i != size; i++) {
+			long v = samples[i];
+			int j = i - 1;
+			for (; j >= 0 && sorted[j] > v; j--)
+				sorted[j + 1] = sorted[j];
+			sorted[j + 1] = v;
+		}
+		int rank = (PERCENTILE * size + 99) / 100;
+		return sorted[rank - 1];
+	}
+}
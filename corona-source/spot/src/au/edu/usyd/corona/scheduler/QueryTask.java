@@ -14,6 +14,7 @@ import au.edu.usyd.corona.sensing.SenseManager;
 import au.edu.usyd.corona.srdb.Table;
 import au.edu.usyd.corona.srdb.TableOperator;
 import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
 import au.edu.usyd.corona.util.ClassIdentifiers;
 import au.edu.usyd.corona.util.Logger;
 import au.edu.usyd.corona.util.SPOTTools;
@@ -26,18 +27,25 @@ import au.edu.usyd.corona.util.SPOTTools;
  * @author Tim Dawborn
  */
 public class QueryTask extends SchedulableTask {
-	// Mutex to force only 1 relational algebra execution at any time. Prevents stack overflow
-	private static Object mutex = new Object();
+	public static final int DEFAULT_MAX_CONCURRENT_EVALUATIONS = 4; // as many as the long lane of the node has workers
+	
+	// Caps the number of network trees evaluated on this node at once
+	private static final Object evaluationLock = new Object();
+	private static int maxConcurrentEvaluations = DEFAULT_MAX_CONCURRENT_EVALUATIONS;
+	private static int runningEvaluations = 0;
 	
 	// network variables
 	protected TableOperator networkTree; //the composite tree executed on the nodes
 	protected byte[] networkSchema; // The schema of the resultant table
 	protected String tokenStream; //the relational token string
+	protected long senseMask = TableOperator.ALL_COLUMNS; // the columns of the sensed table that the network tree uses
+	protected int planID; // the SharedPlan the query is executed in on the nodes
 	
 	// basestation variables
 	protected TableOperator baseTree; //the composite tree executed on the base
 	protected String[] baseAttributes;
 	protected byte[] baseSchema; // The schema of the final table
+	protected boolean startFlexible; // whether the start may be put back to share the plan of another query
 	
 	// common variables
 	protected Hashtable senseResults; // Hashtable of sensor tables. Maps epoch to sensor table for that epoch
@@ -51,6 +59,8 @@ public class QueryTask extends SchedulableTask {
 		this.baseTree = baseTree;
 		this.networkTree = networkTree;
 		this.tokenStream = networkTree.toTokens().toString();
+		this.senseMask = networkTree.getSensedColumns(TableOperator.ALL_COLUMNS);
+		this.planID = tID.getQueryID();
 		childResults = results;
 		senseResults = new Hashtable();
 	}
@@ -72,6 +82,8 @@ public class QueryTask extends SchedulableTask {
 	}
 	
 	protected void _deconstruct() {
+		if (Network.getInstance().getMode() == Network.MODE_SPOT)
+			SharedPlan.leave(this);
 	}
 	
 	/**
@@ -93,13 +105,14 @@ public class QueryTask extends SchedulableTask {
 		try {
 			switch (Network.getInstance().getMode()) {
 			case Network.MODE_SPOT:
-				synchronized (mutex) {
-					networkTree.eval(epoch);
-				}
-				removeSensorResult(epoch);
+				SharedPlan plan = SharedPlan.getPlan(planID);
+				if (plan == null)
+					executeNetworkTree(epoch);
+				else
+					plan.execute(this, epoch);
 				break;
 			case Network.MODE_BASESTATION:
-				baseTree.eval(epoch);
+				baseTree.evaluate(epoch);
 				removeSensorResult(epoch);
 				break;
 			}
@@ -109,6 +122,112 @@ public class QueryTask extends SchedulableTask {
 		}
 	}
 	
+	/**
+	 * Executes the network tree for an epoch, on this node
+	 * 
+	 * @param epoch the epoch to execute
+	 * @throws InvalidOperationException if the tree cannot be executed
+	 */
+	void executeNetworkTree(int epoch) throws InvalidOperationException {
+		synchronized (evaluationLock) {
+			while (runningEvaluations >= maxConcurrentEvaluations) {
+				try {
+					evaluationLock.wait();
+				}
+				catch (InterruptedException e) {
+				}
+			}
+			runningEvaluations++;
+		}
+		try {
+			networkTree.evaluate(epoch);
+		}
+		finally {
+			synchronized (evaluationLock) {
+				runningEvaluations--;
+				evaluationLock.notifyAll();
+			}
+		}
+		removeSensorResult(epoch);
+	}
+	
+	/**
+	 * Sets how many queries may evaluate their network trees on this node at
+	 * once. Queries over the cap wait for a running one to finish.
+	 * 
+	 * @param max the number of evaluations which may run at once, at least 1
+	 */
+	public static void setMaxConcurrentEvaluations(int max) {
+		synchronized (evaluationLock) {
+			maxConcurrentEvaluations = Math.max(1, max);
+			evaluationLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * @return the number of queries which may evaluate their network trees on
+	 * this node at once
+	 */
+	public static int getMaxConcurrentEvaluations() {
+		return maxConcurrentEvaluations;
+	}
+	
+	/**
+	 * @return the number of queries evaluating their network trees on this node
+	 * right now
+	 */
+	public static int getRunningEvaluations() {
+		return runningEvaluations;
+	}
+	
+	/**
+	 * Passes over an epoch, dropping anything sensed for it
+	 */
+	public void skip() {
+		removeSensorResult(runCountTotal - runCountLeft);
+		super.skip();
+	}
+	
+	/**
+	 * Queries wait on the results of their children, so are run apart from the
+	 * tasks which finish quickly
+	 */
+	public boolean isLongRunning() {
+		return true;
+	}
+	
+	/**
+	 * @return the ID of the plan the query shares with the other queries that
+	 * are executed in the same epochs, which is its own query ID if it has not
+	 * been put into the plan of another query
+	 * @see SharedPlan
+	 */
+	public int getPlanID() {
+		return planID;
+	}
+	
+	/**
+	 * Puts the query into a shared plan. Must be called before the query is
+	 * sent to the nodes.
+	 * 
+	 * @param planID the ID of the plan
+	 */
+	public void setPlanID(int planID) {
+		this.planID = planID;
+	}
+	
+	/**
+	 * @return whether the start of the query was not given, so it can be put
+	 * back to line up with other queries
+	 */
+	public boolean isStartFlexible() {
+		return startFlexible;
+	}
+	
+	public void setStartFlexible(boolean startFlexible) {
+		this.startFlexible = startFlexible;
+	}
+	
 	/**
 	 * @return The schema of the resultant table
 	 */
@@ -153,12 +272,15 @@ public class QueryTask extends SchedulableTask {
 		this.networkSchema = new byte[schemaLen];
 		for (int i = 0; i < schemaLen; ++i)
 			networkSchema[i] = data.readByte();
+		this.planID = data.readInt();
+		this.overrunPolicy = data.readByte();
 		
 		senseResults = new Hashtable();
 		childResults = new ChildResultStore();
 		
 		try {
 			networkTree = parseTokens();
+			senseMask = networkTree.getSensedColumns(TableOperator.ALL_COLUMNS);
 		}
 		catch (TokenParseException e) {
 			SPOTTools.reportError(e);
@@ -173,6 +295,8 @@ public class QueryTask extends SchedulableTask {
 		data.writeUTF(tokenStream);
 		data.writeByte(networkSchema.length);
 		data.write(networkSchema);
+		data.writeInt(planID);
+		data.writeByte(overrunPolicy);
 	}
 	
 	/**
@@ -188,7 +312,7 @@ public class QueryTask extends SchedulableTask {
 		}
 		Table res;
 		if (Network.getInstance().getMode() == Network.MODE_SPOT) {
-			res = SenseManager.getInstance().sense(taskID);
+			res = SenseManager.getInstance().sense(taskID, senseMask);
 			senseResults.put(key, res);
 		}
 		else {
@@ -198,6 +322,24 @@ public class QueryTask extends SchedulableTask {
 		return res;
 	}
 	
+	/**
+	 * Stores the sensed Table for the epoch about to be executed, from a row
+	 * sampled once for every query in a batch run by the {@link Scheduler}
+	 * 
+	 * @param sample the sampled row
+	 */
+	synchronized void setSensorSample(ValueType[] sample) {
+		senseResults.put(new Integer(runCountTotal - runCountLeft), SenseManager.getInstance().tableOf(taskID, sample));
+	}
+	
+	/**
+	 * @return the mask of the columns of the sensed table that the network tree
+	 * uses
+	 */
+	long getSenseMask() {
+		return senseMask;
+	}
+	
 	/**
 	 * 
 	 * @param epoch
@@ -214,6 +356,7 @@ public class QueryTask extends SchedulableTask {
 	
 	public void nodeInit() {
 		Logger.logDebug("Scheduled task to execute at: " + executionTime + ". Current time: " + TimeSync.getInstance().getTime());
+		SharedPlan.join(this);
 		Scheduler.getInstance().addTask(new SensorTask(new TaskID(taskID.getQueryID()), executionTime, reschedulePeriod, runCountTotal, runCountLeft, this));
 	}
 	
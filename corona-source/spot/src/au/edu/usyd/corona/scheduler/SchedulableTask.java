@@ -5,7 +5,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
-import au.edu.usyd.corona.collections.Comparable;
+import au.edu.usyd.corona.collections.Indexable;
 import au.edu.usyd.corona.io.ByteArrayDataInputStream;
 import au.edu.usyd.corona.io.ByteArrayDataOutputStream;
 import au.edu.usyd.corona.util.ClassIdentifiers;
@@ -18,9 +18,19 @@ import au.edu.usyd.corona.util.SPOTTools;
  * @author Raymes Khoury
  * @see Scheduler
  */
-public abstract class SchedulableTask extends TaskDetails implements Comparable, Transmittable {
+public abstract class SchedulableTask extends TaskDetails implements Indexable, Transmittable {
 	public static final int RUNCOUNT_FOREVER = Integer.MIN_VALUE;
 	
+	// what a periodic task does when an execution overruns, so that its next execution is already due
+	public static final byte OVERRUN_CATCH_UP = 0; // run the missed executions one after another
+	public static final byte OVERRUN_SKIP = 1; // skip the missed executions, except for the latest
+	public static final byte OVERRUN_DEGRADE = 2; // run only every n-th execution, doubling n on each overrun
+	public static final int MAX_DEGRADE_STRIDE = 16;
+	
+	private int queueIndex = -1; // The position of the task in the queue of the Scheduler
+	protected byte overrunPolicy = OVERRUN_CATCH_UP;
+	private int stride = 1; // every how many executions a degraded task runs
+	
 	public SchedulableTask() {
 		super();
 	}
@@ -75,6 +85,49 @@ public abstract class SchedulableTask extends TaskDetails implements Comparable,
 	 */
 	protected abstract void _reschedule();
 	
+	/**
+	 * Applies the overrun policy of the task once it has been rescheduled,
+	 * skipping the executions it is not to run
+	 * 
+	 * @param behind how many milliseconds the new execution time is behind the
+	 * current time; not negative if the last execution overran
+	 * @see #getOverrunPolicy()
+	 */
+	public void handleOverrun(long behind) {
+		if (reschedulePeriod <= 0)
+			return;
+		final boolean overran = behind >= 0;
+		long skip = 0;
+		switch (overrunPolicy) {
+		case OVERRUN_SKIP:
+			if (overran)
+				skip = behind / reschedulePeriod;
+			break;
+		
+		case OVERRUN_DEGRADE:
+			stride = overran ? Math.min(stride * 2, MAX_DEGRADE_STRIDE) : Math.max(stride / 2, 1);
+			skip = stride - 1;
+			break;
+		}
+		for (long i = 0; i < skip && needsRescheduling(); i++) {
+			skip();
+			reschedule();
+		}
+	}
+	
+	/**
+	 * @return what the task does when an execution overruns: one of
+	 * {@link #OVERRUN_CATCH_UP}, {@link #OVERRUN_SKIP} and
+	 * {@link #OVERRUN_DEGRADE}
+	 */
+	public byte getOverrunPolicy() {
+		return overrunPolicy;
+	}
+	
+	public void setOverrunPolicy(byte overrunPolicy) {
+		this.overrunPolicy = overrunPolicy;
+	}
+	
 	/**
 	 * Executes the task
 	 */
@@ -84,6 +137,27 @@ public abstract class SchedulableTask extends TaskDetails implements Comparable,
 			runCountLeft--;
 	}
 	
+	/**
+	 * Passes over a run of the task without doing its work, such as when the
+	 * scheduler has no worker free to run it
+	 */
+	public void skip() {
+		if (runCountTotal != RUNCOUNT_FOREVER)
+			runCountLeft--;
+		skippedEpochs++;
+	}
+	
+	/**
+	 * Returns whether the task may block for a long time while executing, such
+	 * as while waiting on other nodes, so that it is run apart from the tasks
+	 * which finish quickly
+	 * 
+	 * @return true if the task may block for a long time
+	 */
+	public boolean isLongRunning() {
+		return false;
+	}
+	
 	/**
 	 * Does the work of the task
 	 */
@@ -100,7 +174,17 @@ public abstract class SchedulableTask extends TaskDetails implements Comparable,
 	protected abstract void _deconstruct();
 	
 	public int compareTo(Object o) {
-		return (int) (getExecutionTime() - ((SchedulableTask) o).getExecutionTime());
+		// compared rather than subtracted, as the difference may not fit in an int
+		long time = getExecutionTime(), other = ((SchedulableTask) o).getExecutionTime();
+		return (time < other) ? -1 : ((time == other) ? 0 : 1);
+	}
+	
+	public int getQueueIndex() {
+		return queueIndex;
+	}
+	
+	public void setQueueIndex(int index) {
+		queueIndex = index;
 	}
 	
 	public void encode(DataOutput data) throws IOException {
@@ -141,7 +225,7 @@ public abstract class SchedulableTask extends TaskDetails implements Comparable,
 		data = new ByteArrayDataInputStream(bytes);
 		try {
 			byte classID = data.readByte();
-			SchedulableTask t = (SchedulableTask) ClassIdentifiers.getClass(classID).newInstance();
+			SchedulableTask t = (SchedulableTask) ClassIdentifiers.newInstance(classID);
 			t.decode(data);
 			return t;
 		}
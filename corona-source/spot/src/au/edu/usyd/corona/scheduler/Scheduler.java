@@ -6,10 +6,13 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
 
-import au.edu.usyd.corona.collections.PriorityBlockingQueue;
+import au.edu.usyd.corona.collections.IndexedPriorityBlockingQueue;
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.middleLayer.NetworkListener;
 import au.edu.usyd.corona.middleLayer.TimeSync;
+import au.edu.usyd.corona.sensing.SenseManager;
+import au.edu.usyd.corona.srdb.TableCodec;
+import au.edu.usyd.corona.types.ValueType;
 import au.edu.usyd.corona.util.Logger;
 import au.edu.usyd.corona.util.SPOTTools;
 
@@ -18,15 +21,36 @@ import au.edu.usyd.corona.util.SPOTTools;
  * given scheduled time. This thread sleeps while waiting for the time that the
  * next task is to be executed. It also sleeps while there are no tasks left to
  * be executed at any point in time.
+ * <p>
+ * Each time it wakes, every task that is due is run as one batch. With a
+ * coalescing tolerance set (see {@link #setCoalesceTolerance(long)}), the tasks
+ * due within the tolerance after that are run early with the batch, rather
+ * than the scheduler going back to sleep for each of them. The sensors are
+ * sampled once for all of the queries in a batch.
+ * <p>
+ * The scheduler keeps {@link SchedulerStats} of how late the tasks start, how
+ * long they take and how many wait for a worker, which the nodes report
+ * through the scheduler sensors and the basestation writes to its metrics
+ * table.
  * 
  * @author Raymes Khoury
  * @author Tim Dawborn
  */
 public class Scheduler implements Runnable, NetworkListener {
-	protected final PriorityBlockingQueue tasksQueue; // The priority queue structure to store the tasks
+	protected final IndexedPriorityBlockingQueue tasksQueue; // The priority queue structure to store the tasks
 	protected final Hashtable tasksTable; // A hash table to keep track of tasks
 	protected final QueryToTaskTable queriesTable; // Hash table mapping queryID to a hashtable of tasks related to that query
 	protected final Vector sleepable; // A vector of Sleepable objects.  They are notified of the Schedulers intention to go to sleep or wake up so they can react appropriately
+	protected final WorkerPool workers; // The threads the tasks are executed on
+	protected final SchedulerStats stats; // The telemetry of the tasks executed
+	private volatile long coalesceTolerance = DEFAULT_COALESCE_TOLERANCE; // how early, in milliseconds, a task may be run to join a batch
+	
+	// the size of the worker pool on a node
+	private static final int SHORT_WORKERS = 2;
+	private static final int LONG_WORKERS = 4;
+	private static final int QUEUE_CAPACITY = 16;
+	
+	public static final long DEFAULT_COALESCE_TOLERANCE = 0; // only the tasks already due are run together
 	
 	protected static Scheduler instance;
 	protected static Thread thread;
@@ -36,7 +60,22 @@ public class Scheduler implements Runnable, NetworkListener {
 	 * 
 	 */
 	protected Scheduler() {
-		tasksQueue = new PriorityBlockingQueue();
+		this(SHORT_WORKERS, LONG_WORKERS, QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Constructor for the scheduler, with a worker pool of the given size
+	 * 
+	 * @param shortWorkers the number of workers for tasks which finish quickly
+	 * @param longWorkers the number of workers for tasks which may block (see
+	 * {@link SchedulableTask#isLongRunning()})
+	 * @param capacity the number of tasks which may wait for a worker of each
+	 * kind
+	 */
+	protected Scheduler(int shortWorkers, int longWorkers, int capacity) {
+		workers = new WorkerPool(shortWorkers, longWorkers, capacity);
+		stats = new SchedulerStats();
+		tasksQueue = new IndexedPriorityBlockingQueue();
 		tasksTable = new Hashtable();
 		queriesTable = new QueryToTaskTable();
 		sleepable = new Vector();
@@ -103,6 +142,8 @@ public class Scheduler implements Runnable, NetworkListener {
 		task.setStatus(TaskDetails.STATUS_SUBMITTED);
 		tasksTable.put(task.getTaskId(), task);
 		queriesTable.addTask(task);
+		if (task instanceof QueryTask)
+			TableCodec.register((QueryTask) task);
 		tasksQueue.add(task);
 		synchronized (this) {
 			notifyAll();
@@ -135,6 +176,8 @@ public class Scheduler implements Runnable, NetworkListener {
 		tasksQueue.remove(task);
 		tasksTable.remove(task.getTaskId());
 		queriesTable.removeTask(task.getTaskId());
+		if (task instanceof QueryTask)
+			TableCodec.unregister((QueryTask) task);
 		task.deconstruct();
 		if (task.getStatus() != TaskDetails.STATUS_KILLED)
 			task.setStatus(TaskDetails.STATUS_COMPLETE);
@@ -149,6 +192,16 @@ public class Scheduler implements Runnable, NetworkListener {
 		if (!tasksTable.containsKey(task.getTaskId()))
 			return;
 		task.reschedule();
+		
+		// if the execution overran, the task may skip some of the executions now due
+		final int skipped = task.getSkippedEpochs();
+		task.handleOverrun(-calculateTimeDelta(task.getExecutionTime()));
+		if (task.getSkippedEpochs() != skipped)
+			stats.recordSkipped(task.getSkippedEpochs() - skipped);
+		if (!task.needsRescheduling()) {
+			removeTask(task);
+			return;
+		}
 		tasksQueue.add(task);
 		synchronized (this) {
 			notifyAll();
@@ -199,11 +252,14 @@ public class Scheduler implements Runnable, NetworkListener {
 		SchedulableTask currentTask = null;
 		while (true) {
 			// inner loop to catch notifyAll() calls on the wait() when a new task
-			// is added
+			// is added.  The Sleepables are only told of the waits that happen
 			while (true) {
-				toSleep();
-				currentTask = (SchedulableTask) tasksQueue.peekBlocking();
-				wakeUp();
+				currentTask = (SchedulableTask) tasksQueue.peek();
+				if (currentTask == null) {
+					toSleep();
+					currentTask = (SchedulableTask) tasksQueue.peekBlocking();
+					wakeUp();
+				}
 				
 				// Sleep thread until next task is due
 				final long timeDelta = calculateTimeDelta(currentTask.getExecutionTime());
@@ -223,17 +279,78 @@ public class Scheduler implements Runnable, NetworkListener {
 					break;
 			}
 			
-			// actually remove the next task from the heap
-			currentTask = (SchedulableTask) tasksQueue.poll();
-			
-			// If the task has been killed, don't execute it
-			if (tasksTable.get(currentTask.getTaskId()) == null) {
-				continue;
+			// actually remove the batch of tasks due from the heap, leaving out any that have been killed
+			final Vector batch = new Vector();
+			final long tolerance = coalesceTolerance;
+			while ((currentTask = (SchedulableTask) tasksQueue.poll()) != null) {
+				if (calculateTimeDelta(currentTask.getExecutionTime()) > tolerance) {
+					tasksQueue.add(currentTask);
+					break;
+				}
+				if (tasksTable.get(currentTask.getTaskId()) != null)
+					batch.addElement(currentTask);
 			}
+			stats.recordWakeUp(getQueuedJobs() + batch.size());
+			if (Network.getInstance().getMode() == Network.MODE_SPOT)
+				senseBatch(batch);
 			
-			// performs all the relational algebra such as merging in a new thread
-			new TaskExecutor(currentTask).start();
+			// performs all the relational algebra such as merging on a worker.  If
+			// the workers are too far behind, a periodic task skips this run, and
+			// any other task waits for a worker to be free
+			for (int i = 0; i != batch.size(); i++) {
+				currentTask = (SchedulableTask) batch.elementAt(i);
+				final TaskExecutor executor = new TaskExecutor(currentTask);
+				final int lane = currentTask.isLongRunning() ? WorkerPool.LANE_LONG : WorkerPool.LANE_SHORT;
+				if (!workers.submit(executor, lane, currentTask.getReschedulePeriod() <= 0))
+					executor.skip();
+			}
+		}
+	}
+	
+	/**
+	 * Samples the sensors once for all of the queries in a batch, so that each
+	 * does not sense for itself when it is executed
+	 * 
+	 * @param batch the tasks about to be executed
+	 */
+	private void senseBatch(Vector batch) {
+		long mask = 0;
+		int queries = 0;
+		for (int i = 0; i != batch.size(); i++) {
+			if (batch.elementAt(i) instanceof QueryTask) {
+				mask |= ((QueryTask) batch.elementAt(i)).getSenseMask();
+				queries++;
+			}
 		}
+		if (queries < 2)
+			return;
+		
+		final ValueType[] sample = SenseManager.getInstance().sample(mask);
+		for (int i = 0; i != batch.size(); i++)
+			if (batch.elementAt(i) instanceof QueryTask)
+				((QueryTask) batch.elementAt(i)).setSensorSample(sample);
+	}
+	
+	/**
+	 * Sets how early a task may be run so that it is run in the same batch as
+	 * the tasks due before it
+	 * 
+	 * @param tolerance the tolerance in milliseconds, or 0 to only run the tasks
+	 * already due together
+	 */
+	public void setCoalesceTolerance(long tolerance) {
+		coalesceTolerance = Math.max(0, tolerance);
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * @return how early, in milliseconds, a task may be run so that it is run in
+	 * the same batch as the tasks due before it
+	 */
+	public long getCoalesceTolerance() {
+		return coalesceTolerance;
 	}
 	
 	/**
@@ -265,6 +382,46 @@ public class Scheduler implements Runnable, NetworkListener {
 		sleepable.addElement(s);
 	}
 	
+	/**
+	 * Returns the worker pool the tasks are executed on, which keeps counts of
+	 * the tasks executed and skipped, and of how long they waited to start
+	 * 
+	 * @return The worker pool of the Scheduler
+	 */
+	public WorkerPool getWorkerPool() {
+		return workers;
+	}
+	
+	/**
+	 * Returns the telemetry of the tasks the Scheduler has executed
+	 * 
+	 * @return The statistics of the Scheduler
+	 */
+	public SchedulerStats getStats() {
+		return stats;
+	}
+	
+	/**
+	 * @return the number of tasks due which are waiting for a worker
+	 */
+	public int getQueuedJobs() {
+		return workers.getQueueLength(WorkerPool.LANE_SHORT) + workers.getQueueLength(WorkerPool.LANE_LONG);
+	}
+	
+	/**
+	 * @return the number of workers which are executing a task
+	 */
+	public int getBusyWorkers() {
+		return workers.getBusyWorkers(WorkerPool.LANE_SHORT) + workers.getBusyWorkers(WorkerPool.LANE_LONG);
+	}
+	
+	/**
+	 * @return the number of tasks waiting for their execution time
+	 */
+	public int getScheduledTasks() {
+		return tasksQueue.size();
+	}
+	
 	/**
 	 * Returns the number of Tasks in the Scheduler
 	 * 
@@ -359,19 +516,33 @@ public class Scheduler implements Runnable, NetworkListener {
 	}
 	
 	/**
-	 * This class represents a thread that is spawned to execute the Task. This
-	 * allows multiple Tasks to be executing simultaneously.
+	 * This class represents a job given to the worker pool to execute the Task.
+	 * This allows multiple Tasks to be executing simultaneously.
 	 * 
 	 */
-	protected class TaskExecutor extends Thread {
+	protected class TaskExecutor implements Runnable {
 		private final SchedulableTask task;
 		
 		public TaskExecutor(SchedulableTask task) {
-			super("Executor (" + task.getTaskId().getQueryID() + ": " + task.getClass().getName() + ")");
 			this.task = task;
 		}
 		
+		/**
+		 * Passes over this run of the task, for when there is no worker to run it
+		 */
+		public void skip() {
+			task.skip();
+			stats.recordSkipped(1);
+			if (task.needsRescheduling())
+				reschedule(task);
+			else
+				removeTask(task);
+		}
+		
 		public void run() {
+			final long lateness = Math.max(0, -calculateTimeDelta(task.getExecutionTime()));
+			task.setLateness(lateness);
+			final long started = System.currentTimeMillis();
 			try {
 				// executes the task
 				task.execute();
@@ -380,6 +551,7 @@ public class Scheduler implements Runnable, NetworkListener {
 				e.printStackTrace();
 				SPOTTools.reportError(e);
 			}
+			stats.recordExecution(lateness, System.currentTimeMillis() - started);
 			
 			// reschedule the task if it needs to
 			if (task.needsRescheduling())
@@ -0,0 +1,100 @@
+package au.edu.usyd.corona.scheduler;
+
+
+/**
+ * The telemetry kept by a {@link Scheduler}: how late each task started
+ * compared to its execution time, how long each took to execute, and how
+ * many tasks were waiting for a worker each time the scheduler woke up, as
+ * {@link Histogram}s, along with counts of the tasks executed and skipped.
+ * These are read by the scheduler sensors on the nodes, and written to the
+ * metrics table on the basestation.
+ */
+public class SchedulerStats {
+	private final Histogram lateness = new Histogram();
+	private final Histogram duration = new Histogram();
+	private final Histogram backlog = new Histogram();
+	private int executed;
+	private int skipped;
+	private int wakeUps;
+	
+	/**
+	 * Records an execution of a task
+	 * 
+	 * @param late how many milliseconds after its execution time the task
+	 * started
+	 * @param took how many milliseconds the task took to execute
+	 */
+	void recordExecution(long late, long took) {
+		lateness.record(late);
+		duration.record(took);
+		synchronized (this) {
+			executed++;
+		}
+	}
+	
+	/**
+	 * Records executions of tasks which were skipped
+	 * 
+	 * @param runs the number of executions skipped
+	 */
+	synchronized void recordSkipped(int runs) {
+		skipped += runs;
+	}
+	
+	/**
+	 * Records the scheduler waking up to run a batch of tasks
+	 * 
+	 * @param waiting the number of tasks waiting for a worker
+	 */
+	void recordWakeUp(int waiting) {
+		backlog.record(waiting);
+		synchronized (this) {
+			wakeUps++;
+		}
+	}
+	
+	/**
+	 * @return how many milliseconds after their execution times the tasks
+	 * started
+	 */
+	public Histogram getLateness() {
+		return lateness;
+	}
+	
+	/**
+	 * @return how many milliseconds the tasks took to execute
+	 */
+	public Histogram getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * @return how many tasks were waiting for a worker each time the scheduler
+	 * woke up
+	 */
+	public Histogram getBacklog() {
+		return backlog;
+	}
+	
+	/**
+	 * @return the number of executions of tasks
+	 */
+	public synchronized int getExecuted() {
+		return executed;
+	}
+	
+	/**
+	 * @return the number of executions of tasks which were skipped, whether
+	 * turned away by the workers or passed over by an overrun policy
+	 */
+	public synchronized int getSkipped() {
+		return skipped;
+	}
+	
+	/**
+	 * @return the number of times the scheduler woke up to run tasks
+	 */
+	public synchronized int getWakeUps() {
+		return wakeUps;
+	}
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.middleLayer.TimeSync;
+import au.edu.usyd.corona.sensing.SenseManager;
 
 /**
  * This class is a task created to execute the SET syntax in the query language.
@@ -21,6 +22,9 @@ public class SetPropertyTask extends SchedulableTask {
 	public static final byte SET_SYNC_EPOCH = 2;
 	public static final byte SET_INTERCLUSTER_POWER = 3;
 	public static final byte SET_INTRACLUSTER_POWER = 4;
+	public static final byte SET_SAMPLE_CACHE_WINDOW = 5;
+	public static final byte SET_MAX_CONCURRENT_QUERIES = 6;
+	public static final byte SET_COALESCE_TOLERANCE = 7;
 	
 	private byte property;
 	private int value;
@@ -56,6 +60,18 @@ public class SetPropertyTask extends SchedulableTask {
 		case SET_INTRACLUSTER_POWER:
 			Network.getInstance().setIntraClusterTrasmissionLevel(value);
 			break;
+		
+		case SET_SAMPLE_CACHE_WINDOW:
+			SenseManager.getInstance().getSampleCache().setWindow(value);
+			break;
+		
+		case SET_MAX_CONCURRENT_QUERIES:
+			QueryTask.setMaxConcurrentEvaluations(value);
+			break;
+		
+		case SET_COALESCE_TOLERANCE:
+			Scheduler.getInstance().setCoalesceTolerance(value);
+			break;
 		}
 	}
 	
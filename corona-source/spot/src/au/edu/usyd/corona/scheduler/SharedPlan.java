@@ -0,0 +1,245 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.srdb.ForwardOperator;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.util.SPOTTools;
+
+/**
+ * This class executes the queries on a node which share a plan. The basestation
+ * puts queries with the same epoch, lined up to start in the same epochs, into
+ * the same plan (see {@link QueryTask#getPlanID()}). Whichever member of the
+ * plan is executed first in an epoch executes all of the members due in that
+ * epoch, and the results they forward are sent to the parent together in one
+ * {@link TransmitPlanResultsTask}, rather than one packet per query. The other
+ * members then have nothing left to do in that epoch.
+ * <p>
+ * The other members due are handed to the long lane of the scheduler's
+ * {@link WorkerPool}, so that the waits for their children's results overlap.
+ * Any member which no worker has started by the time the leading member is
+ * done, or which the lane turns away, is run by the leading member itself, so
+ * the plan never waits on a worker which is busy leading another plan.
+ * <p>
+ * The members still have their own network trees, so each carries its own
+ * predicates and aggregates, and their results are told apart by the task ID of
+ * each table when they arrive. Sensing is already shared between queries by the
+ * sample cache of the sense manager, and by the {@link Scheduler} sampling once
+ * for all of the queries in each batch it runs.
+ */
+public class SharedPlan {
+	private static final Hashtable plans = new Hashtable(); // Maps plan ID to SharedPlan
+	private static final Hashtable batches = new Hashtable(); // Maps each thread executing an epoch of a plan to the results forwarded so far
+	
+	private final int planID;
+	private final Vector members; // the QueryTasks in the plan
+	private long lastExecutionTime = -1; // the execution time of the last epoch executed
+	
+	private SharedPlan(int planID) {
+		this.planID = planID;
+		members = new Vector();
+	}
+	
+	/**
+	 * Adds a query to the plan it belongs to, creating the plan if it is the
+	 * first member on this node
+	 * 
+	 * @param task the query to add
+	 */
+	static synchronized void join(QueryTask task) {
+		Integer key = new Integer(task.getPlanID());
+		SharedPlan plan = (SharedPlan) plans.get(key);
+		if (plan == null) {
+			plan = new SharedPlan(task.getPlanID());
+			plans.put(key, plan);
+		}
+		plan.addMember(task);
+	}
+	
+	/**
+	 * Removes a query from its plan, removing the plan once it has no members
+	 * 
+	 * @param task the query to remove
+	 */
+	static synchronized void leave(QueryTask task) {
+		Integer key = new Integer(task.getPlanID());
+		SharedPlan plan = (SharedPlan) plans.get(key);
+		if (plan != null && plan.removeMember(task) == 0)
+			plans.remove(key);
+	}
+	
+	/**
+	 * @param planID the ID of the plan
+	 * @return the plan with the given ID, or null if no query on this node
+	 * belongs to it
+	 */
+	static synchronized SharedPlan getPlan(int planID) {
+		return (SharedPlan) plans.get(new Integer(planID));
+	}
+	
+	private synchronized void addMember(QueryTask task) {
+		if (!members.contains(task))
+			members.addElement(task);
+	}
+	
+	private synchronized int removeMember(QueryTask task) {
+		members.removeElement(task);
+		return members.size();
+	}
+	
+	/**
+	 * Executes an epoch of the given member, along with the other members due
+	 * at the same time, unless another member has already done so
+	 * 
+	 * @param task the member being executed
+	 * @param epoch the epoch of the member being executed
+	 */
+	void execute(QueryTask task, int epoch) {
+		final long executionTime = task.getExecutionTime();
+		final Vector due = new Vector();
+		final Vector epochs = new Vector();
+		synchronized (this) {
+			if (executionTime == lastExecutionTime)
+				return;
+			lastExecutionTime = executionTime;
+			
+			// the epochs are worked out now, as the other members go on to be rescheduled
+			for (int i = 0; i != members.size(); i++) {
+				QueryTask member = (QueryTask) members.elementAt(i);
+				if (member != task && member.getExecutionTime() == executionTime && member.getStatus() != TaskDetails.STATUS_KILLED) {
+					due.addElement(member);
+					epochs.addElement(new Integer(member.getRunCountTotal() - member.getRunCountLeft()));
+				}
+			}
+		}
+		
+		// on its own, the member forwards its results as normal
+		if (due.isEmpty()) {
+			executeMember(task, epoch);
+			return;
+		}
+		
+		// the other members run alongside this one, so their collect timeouts overlap
+		final TransmitPlanResultsTask batch = new TransmitPlanResultsTask(new TaskID(planID));
+		final WorkerPool pool = Scheduler.getInstance().getWorkerPool();
+		final MemberJob[] jobs = new MemberJob[due.size()];
+		for (int i = 0; i != jobs.length; i++) {
+			jobs[i] = new MemberJob((QueryTask) due.elementAt(i), ((Integer) epochs.elementAt(i)).intValue(), batch);
+			pool.submit(jobs[i], WorkerPool.LANE_LONG, false);
+		}
+		batches.put(Thread.currentThread(), batch);
+		try {
+			executeMember(task, epoch);
+			for (int i = 0; i != jobs.length; i++) {
+				if (jobs[i].claim())
+					jobs[i].execute();
+				else
+					jobs[i].waitFor();
+			}
+		}
+		finally {
+			batches.remove(Thread.currentThread());
+		}
+		
+		if (batch.getNumResults() != 0 && Network.getInstance().getMode() != Network.MODE_UNITTEST) {
+			try {
+				Network.getInstance().sendToParent(batch.encode());
+			}
+			catch (IOException e) {
+				SPOTTools.reportError(e);
+			}
+		}
+	}
+	
+	private static void executeMember(QueryTask task, int epoch) {
+		try {
+			task.executeNetworkTree(epoch);
+		}
+		catch (InvalidOperationException e) {
+			SPOTTools.reportError(e);
+		}
+	}
+	
+	/**
+	 * The execution of a member for an epoch, by whichever of a worker and the
+	 * leading member claims it first. A worker forwards the member's results
+	 * into the batch of the plan while it runs the member.
+	 */
+	private static final class MemberJob implements Runnable {
+		private final QueryTask task;
+		private final int epoch;
+		private final TransmitPlanResultsTask batch;
+		private boolean claimed;
+		private boolean done;
+		
+		MemberJob(QueryTask task, int epoch, TransmitPlanResultsTask batch) {
+			this.task = task;
+			this.epoch = epoch;
+			this.batch = batch;
+		}
+		
+		synchronized boolean claim() {
+			if (claimed)
+				return false;
+			claimed = true;
+			return true;
+		}
+		
+		void execute() {
+			try {
+				executeMember(task, epoch);
+			}
+			finally {
+				synchronized (this) {
+					done = true;
+					notifyAll();
+				}
+			}
+		}
+		
+		synchronized void waitFor() {
+			while (!done) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+					// keep waiting, the batch cannot be sent until every member is done
+				}
+			}
+		}
+		
+		public void run() {
+			if (!claim())
+				return;
+			batches.put(Thread.currentThread(), batch);
+			try {
+				execute();
+			}
+			finally {
+				batches.remove(Thread.currentThread());
+			}
+		}
+	}
+	
+	/**
+	 * Adds a result table to the packet of the plan being executed by the
+	 * current thread. Called by the {@link ForwardOperator} of each member.
+	 * 
+	 * @param table the result of a member for the epoch being executed
+	 * @param epoch the epoch of the member the result is from
+	 * @return true if the table will be sent with the rest of the plan, or false
+	 * if no plan is being executed and it must be sent on its own
+	 */
+	public static boolean forward(Table table, int epoch) {
+		TransmitPlanResultsTask batch = (TransmitPlanResultsTask) batches.get(Thread.currentThread());
+		if (batch == null)
+			return false;
+		batch.addResult(table, epoch);
+		return true;
+	}
+}
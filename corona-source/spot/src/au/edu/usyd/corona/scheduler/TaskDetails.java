@@ -7,7 +7,8 @@ import au.edu.usyd.corona.middleLayer.TimeSync;
  * This class contains all the common details that a Task in the system require.
  * These include the Task ID, the next execution time, the reschedule period,
  * the number of executions in total, number of executions left and the status
- * of the task.
+ * of the task, as well as how late its last execution started and how many of
+ * its executions have been skipped.
  * 
  * @author Raymes Khoury
  */
@@ -23,6 +24,8 @@ public class TaskDetails {
 	protected int runCountLeft;
 	protected int runCountTotal;
 	protected int status;
+	protected long lateness; // how many milliseconds after its execution time the last execution started
+	protected int skippedEpochs; // the number of executions passed over without doing the work of the task
 	
 	public TaskDetails(TaskID taskID, long firstExecutionTime, long reschedulePeriod, int runCountTotal, int runCountLeft) {
 		this.taskID = taskID;
@@ -65,6 +68,14 @@ public class TaskDetails {
 		return status;
 	}
 	
+	public long getLateness() {
+		return lateness;
+	}
+	
+	public int getSkippedEpochs() {
+		return skippedEpochs;
+	}
+	
 	public void setExecutionTime(long executionTime) {
 		this.executionTime = executionTime;
 	}
@@ -88,4 +99,12 @@ public class TaskDetails {
 	public void setStatus(int status) {
 		this.status = status;
 	}
+	
+	public void setLateness(long lateness) {
+		this.lateness = lateness;
+	}
+	
+	public void setSkippedEpochs(int skippedEpochs) {
+		this.skippedEpochs = skippedEpochs;
+	}
 }
@@ -0,0 +1,113 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Vector;
+
+import au.edu.usyd.corona.io.ByteArrayDataInputStream;
+import au.edu.usyd.corona.io.ByteArrayDataOutputStream;
+import au.edu.usyd.corona.srdb.ColumnarTable;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.util.Logger;
+
+/**
+ * A task which transmits the result tables of all of the queries in a
+ * {@link SharedPlan} to a parent in one packet, and makes each of them
+ * available to be processed by the query it belongs to. Each table is sent with
+ * its length, so that a table of a query the receiver does not have cannot stop
+ * the tables after it from being read.
+ */
+public class TransmitPlanResultsTask extends SchedulableTask {
+	private final Vector tables;
+	private final Vector epochs;
+	
+	public TransmitPlanResultsTask() {
+		super();
+		tables = new Vector();
+		epochs = new Vector();
+	}
+	
+	public TransmitPlanResultsTask(TaskID taskID) {
+		super(taskID);
+		tables = new Vector();
+		epochs = new Vector();
+	}
+	
+	/**
+	 * Adds the result of a query to the packet
+	 * 
+	 * @param t the result table, which gives the ID of its query
+	 * @param epoch the epoch of the query the result is from
+	 */
+	public synchronized void addResult(Table t, int epoch) {
+		tables.addElement(t);
+		epochs.addElement(new Integer(epoch));
+	}
+	
+	/**
+	 * @return the number of results in the packet
+	 */
+	public int getNumResults() {
+		return tables.size();
+	}
+	
+	/**
+	 * @param i the index of the result
+	 * @return the result table
+	 */
+	public Table getResult(int i) {
+		return (Table) tables.elementAt(i);
+	}
+	
+	protected void _execute() {
+		for (int i = 0; i != tables.size(); i++) {
+			Table t = (Table) tables.elementAt(i);
+			try {
+				ChildResultStore results = ((QueryTask) Scheduler.getInstance().getTask(t.getTaskID())).getChildResults();
+				results.addResult(t, ((Integer) epochs.elementAt(i)).intValue(), taskID.getNodeID());
+			}
+			catch (TaskNotFoundException e) {
+				Logger.logError("Could not store recieved task: " + e);
+			}
+		}
+	}
+	
+	protected void _deconstruct() {
+	}
+	
+	protected void _reschedule() {
+	}
+	
+	protected void _decode(DataInput data) throws IOException {
+		taskID = new TaskID(data);
+		int numResults = data.readUnsignedByte();
+		for (int i = 0; i != numResults; i++) {
+			byte[] bytes = new byte[data.readUnsignedShort()];
+			data.readFully(bytes);
+			Table t = new ColumnarTable();
+			t.decode(new ByteArrayDataInputStream(bytes));
+			addResult(t, data.readInt());
+		}
+	}
+	
+	protected void _encode(DataOutput data) throws IOException {
+		taskID.encode(data);
+		data.writeByte(tables.size());
+		for (int i = 0; i != tables.size(); i++) {
+			ByteArrayDataOutputStream table = new ByteArrayDataOutputStream();
+			((Table) tables.elementAt(i)).encode(table);
+			byte[] bytes = table.getBytes();
+			data.writeShort(bytes.length);
+			data.write(bytes);
+			data.writeInt(((Integer) epochs.elementAt(i)).intValue());
+		}
+	}
+	
+	public void baseInit() throws IOException {
+	}
+	
+	public void nodeInit() {
+	}
+}
@@ -5,6 +5,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import au.edu.usyd.corona.srdb.ColumnarTable;
 import au.edu.usyd.corona.srdb.Table;
 import au.edu.usyd.corona.util.Logger;
 
@@ -50,7 +51,7 @@ public class TransmitResultsTask extends SchedulableTask {
 	
 	protected void _decode(DataInput data) throws IOException {
 		taskID = new TaskID(data);
-		t = new Table();
+		t = new ColumnarTable();
 		t.decode(data);
 		epoch = data.readInt();
 	}
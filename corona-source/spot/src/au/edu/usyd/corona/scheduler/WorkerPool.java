@@ -0,0 +1,189 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import java.util.Vector;
+
+/**
+ * A fixed set of worker threads which the {@link Scheduler} runs its tasks on,
+ * instead of starting a new thread for each task. The workers are split into
+ * lanes, each with its own threads and its own bounded queue of jobs waiting
+ * for a worker, so that tasks which can block for a long time (such as queries
+ * waiting on the results of their children) cannot hold up the short tasks
+ * (such as storing the results received from a child).
+ * <p>
+ * When the queue of a lane is full, a job is either turned away, so that the
+ * caller can skip it, or the caller waits until there is space in the queue.
+ * The pool keeps counts of the jobs run and turned away in each lane, and of
+ * how long the jobs waited for a worker.
+ */
+public class WorkerPool {
+	public static final int LANE_SHORT = 0; // jobs which finish quickly
+	public static final int LANE_LONG = 1; // jobs which may block for a long time
+	
+	private final Lane[] lanes;
+	
+	/**
+	 * Creates the pool, and starts all of its workers
+	 * 
+	 * @param shortWorkers the number of workers in the short lane
+	 * @param longWorkers the number of workers in the long lane
+	 * @param capacity the number of jobs which may wait in each lane for a
+	 * worker
+	 */
+	public WorkerPool(int shortWorkers, int longWorkers, int capacity) {
+		lanes = new Lane[]{new Lane("short", shortWorkers, capacity), new Lane("long", longWorkers, capacity)};
+	}
+	
+	/**
+	 * Hands a job to the workers of a lane
+	 * 
+	 * @param job the job to run
+	 * @param lane the lane to run the job in
+	 * @param block whether to wait for space in the queue of the lane if it is
+	 * full, rather than turning the job away
+	 * @return true if the job will be run, or false if it was turned away
+	 */
+	public boolean submit(Runnable job, int lane, boolean block) {
+		return lanes[lane].submit(job, block);
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the number of jobs waiting for a worker in the lane
+	 */
+	public int getQueueLength(int lane) {
+		return lanes[lane].getQueueLength();
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the number of workers of the lane which are running a job
+	 */
+	public int getBusyWorkers(int lane) {
+		return lanes[lane].busy;
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the number of jobs which have been handed to a worker in the lane
+	 */
+	public int getRunCount(int lane) {
+		return lanes[lane].runCount;
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the number of jobs turned away as the lane was full
+	 */
+	public int getTurnedAwayCount(int lane) {
+		return lanes[lane].turnedAwayCount;
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the total time, in milliseconds, that the jobs run in the lane
+	 * waited for a worker
+	 */
+	public long getTotalWaitTime(int lane) {
+		return lanes[lane].totalWaitTime;
+	}
+	
+	/**
+	 * @param lane the lane
+	 * @return the longest time, in milliseconds, that a job run in the lane
+	 * waited for a worker
+	 */
+	public long getMaxWaitTime(int lane) {
+		return lanes[lane].maxWaitTime;
+	}
+	
+	/**
+	 * The workers and queue of one lane. The jobs and the times they were queued
+	 * are kept in two vectors side by side.
+	 */
+	private static class Lane implements Runnable {
+		private final Vector jobs;
+		private final Vector queuedTimes;
+		private final int capacity;
+		
+		private int busy;
+		private int runCount;
+		private int turnedAwayCount;
+		private long totalWaitTime;
+		private long maxWaitTime;
+		
+		Lane(String name, int workers, int capacity) {
+			this.jobs = new Vector(capacity);
+			this.queuedTimes = new Vector(capacity);
+			this.capacity = capacity;
+			for (int i = 0; i != workers; i++)
+				new Thread(this, "Worker (" + name + " " + i + ")").start();
+		}
+		
+		synchronized boolean submit(Runnable job, boolean block) {
+			while (jobs.size() >= capacity) {
+				if (!block) {
+					turnedAwayCount++;
+					return false;
+				}
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+				}
+			}
+			jobs.addElement(job);
+			queuedTimes.addElement(new Long(System.currentTimeMillis()));
+			notifyAll();
+			return true;
+		}
+		
+		synchronized int getQueueLength() {
+			return jobs.size();
+		}
+		
+		private synchronized Runnable take() {
+			while (jobs.isEmpty()) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+				}
+			}
+			Runnable job = (Runnable) jobs.firstElement();
+			long waited = System.currentTimeMillis() - ((Long) queuedTimes.firstElement()).longValue();
+			jobs.removeElementAt(0);
+			queuedTimes.removeElementAt(0);
+			
+			runCount++;
+			busy++;
+			totalWaitTime += waited;
+			if (waited > maxWaitTime)
+				maxWaitTime = waited;
+			
+			// there is now space for any submitters waiting on a full queue
+			notifyAll();
+			return job;
+		}
+		
+		private synchronized void finished() {
+			busy--;
+		}
+		
+		public void run() {
+			while (true) {
+				Runnable job = take();
+				try {
+					job.run();
+				}
+				catch (Throwable e) {
+					// the jobs report their own errors, this only keeps the worker alive
+					e.printStackTrace();
+				}
+				finally {
+					finished();
+				}
+			}
+		}
+	}
+}
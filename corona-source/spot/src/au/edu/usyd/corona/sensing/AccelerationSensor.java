@@ -54,4 +54,7 @@ class AccelerationSensor implements Sensor {
 		return null;
 	}
 	
+	public ValueType getPlaceholder() {
+		return new FloatType(0);
+	}
 }
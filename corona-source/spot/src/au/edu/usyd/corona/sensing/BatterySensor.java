@@ -26,4 +26,8 @@ class BatterySensor implements Sensor {
 		else
 			return new ByteType(0);
 	}
+	
+	public ValueType getPlaceholder() {
+		return new ByteType(0);
+	}
 }
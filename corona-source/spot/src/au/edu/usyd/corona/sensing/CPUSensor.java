@@ -25,4 +25,7 @@ class CPUSensor implements Sensor {
 			return new ByteType(0);
 	}
 	
+	public ValueType getPlaceholder() {
+		return new ByteType(0);
+	}
 }
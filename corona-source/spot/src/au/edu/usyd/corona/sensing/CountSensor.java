@@ -21,4 +21,8 @@ class CountSensor implements Sensor {
 	public ValueType sense() {
 		return new IntType(1);
 	}
+	
+	public ValueType getPlaceholder() {
+		return new IntType(0);
+	}
 }
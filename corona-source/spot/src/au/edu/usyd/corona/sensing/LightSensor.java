@@ -28,4 +28,8 @@ class LightSensor implements Sensor {
 		else
 			return new IntType(0);
 	}
+	
+	public ValueType getPlaceholder() {
+		return new IntType(0);
+	}
 }
@@ -26,4 +26,8 @@ class MemorySensor implements Sensor {
 		Runtime.getRuntime().gc();
 		return new ByteType((byte) (((MAX_MEMORY - Runtime.getRuntime().freeMemory()) * 100) / MAX_MEMORY));
 	}
+	
+	public ValueType getPlaceholder() {
+		return new ByteType(0);
+	}
 }
@@ -21,4 +21,8 @@ class NodeSensor implements Sensor {
 	public ValueType sense() {
 		return new IEEEAddressType(Network.getInstance().getMyAddress());
 	}
+	
+	public ValueType getPlaceholder() {
+		return new IEEEAddressType(0);
+	}
 }
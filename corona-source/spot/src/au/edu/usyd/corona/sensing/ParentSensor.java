@@ -25,4 +25,7 @@ class ParentSensor implements Sensor {
 			return new IEEEAddressType(0);
 	}
 	
+	public ValueType getPlaceholder() {
+		return new IEEEAddressType(0);
+	}
 }
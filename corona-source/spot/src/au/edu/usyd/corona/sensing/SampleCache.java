@@ -0,0 +1,98 @@
+package au.edu.usyd.corona.sensing;
+
+
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * A node wide cache of the most recent value read from each of the registered
+ * sensors. Queries which sense within the freshness window of an earlier sample
+ * of a sensor reuse that sample instead of reading the hardware again, so
+ * concurrent queries with the same period share their sensor readings. A
+ * window of 0 turns the cache off. The number of hits and misses is kept for
+ * each of the sensors.
+ */
+public class SampleCache {
+	public static final int DEFAULT_WINDOW = 200; // milliseconds
+	
+	private final ValueType[] values; // the last value sampled from each sensor
+	private final long[] sampleTimes; // the time at which each of the values were sampled
+	private final int[] hits;
+	private final int[] misses;
+	private int window; // the number of milliseconds a sample is considered fresh for
+	
+	SampleCache(int numSensors) {
+		values = new ValueType[numSensors];
+		sampleTimes = new long[numSensors];
+		hits = new int[numSensors];
+		misses = new int[numSensors];
+		window = DEFAULT_WINDOW;
+	}
+	
+	/**
+	 * Looks up the cached sample of a sensor, counting a hit or a miss
+	 * 
+	 * @param sensor the index of the sensor
+	 * @param now the current time in milliseconds
+	 * @return the cached value, or null if there is no fresh value cached
+	 */
+	synchronized ValueType get(int sensor, long now) {
+		ValueType value = values[sensor];
+		if (value != null && now - sampleTimes[sensor] < window) {
+			hits[sensor]++;
+			return value;
+		}
+		misses[sensor]++;
+		return null;
+	}
+	
+	/**
+	 * Stores a new sample of a sensor
+	 * 
+	 * @param sensor the index of the sensor
+	 * @param value the sampled value
+	 * @param now the time in milliseconds at which the value was sampled
+	 */
+	synchronized void put(int sensor, ValueType value, long now) {
+		values[sensor] = value;
+		sampleTimes[sensor] = now;
+	}
+	
+	/**
+	 * Drops all of the cached samples
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i != values.length; i++)
+			values[i] = null;
+	}
+	
+	/**
+	 * @return the number of milliseconds a sample is considered fresh for
+	 */
+	public synchronized int getWindow() {
+		return window;
+	}
+	
+	/**
+	 * @param window the number of milliseconds a sample is considered fresh for,
+	 * or 0 to not cache any samples
+	 */
+	public synchronized void setWindow(int window) {
+		this.window = window;
+	}
+	
+	/**
+	 * @param sensor the index of the sensor
+	 * @return the number of times a cached sample of the sensor was used
+	 */
+	public synchronized int getHits(int sensor) {
+		return hits[sensor];
+	}
+	
+	/**
+	 * @param sensor the index of the sensor
+	 * @return the number of times the sensor had to be read
+	 */
+	public synchronized int getMisses(int sensor) {
+		return misses[sensor];
+	}
+}
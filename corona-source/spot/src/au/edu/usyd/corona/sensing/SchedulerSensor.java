@@ -0,0 +1,77 @@
+package au.edu.usyd.corona.sensing;
+
+
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.Scheduler;
+import au.edu.usyd.corona.scheduler.SchedulerStats;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * A sensor which reads one of the statistics the {@link Scheduler} of the node
+ * keeps (see {@link SchedulerStats}), so that queries can watch how well the
+ * nodes keep up with their tasks, as an {@link IntType}. The times are the
+ * 95th percentile, in milliseconds, of the tasks executed recently.
+ */
+class SchedulerSensor implements Sensor {
+	public static final byte TYPE_QUEUED = 0; // the tasks due waiting for a worker
+	public static final byte TYPE_LATENESS = 1; // how late the tasks start
+	public static final byte TYPE_RUNTIME = 2; // how long the tasks take to execute
+	public static final byte TYPE_WORKERS = 3; // the workers executing a task
+	public static final byte TYPE_THREADS = 4; // the threads running on the node
+	public static final byte TYPE_MISSED = 5; // the executions of tasks skipped
+	
+	private static final int PERCENTILE = 95;
+	
+	private final byte statistic;
+	
+	public SchedulerSensor(byte statistic) {
+		this.statistic = statistic;
+	}
+	
+	public String getSensorName() {
+		switch (statistic) {
+			case TYPE_QUEUED:
+				return "queued";
+			case TYPE_LATENESS:
+				return "lateness";
+			case TYPE_RUNTIME:
+				return "runtime";
+			case TYPE_WORKERS:
+				return "workers";
+			case TYPE_THREADS:
+				return "threads";
+			case TYPE_MISSED:
+				return "missed";
+		}
+		return null;
+	}
+	
+	public ValueType sense() {
+		// the basestation does not sense, and must not start the scheduler of a node
+		if (Network.getInstance().getMode() != Network.MODE_SPOT)
+			return getPlaceholder();
+		
+		final Scheduler scheduler = Scheduler.getInstance();
+		final SchedulerStats stats = scheduler.getStats();
+		switch (statistic) {
+			case TYPE_QUEUED:
+				return IntType.valueOf(scheduler.getQueuedJobs());
+			case TYPE_LATENESS:
+				return IntType.valueOf((int) stats.getLateness().getPercentile(PERCENTILE));
+			case TYPE_RUNTIME:
+				return IntType.valueOf((int) stats.getDuration().getPercentile(PERCENTILE));
+			case TYPE_WORKERS:
+				return IntType.valueOf(scheduler.getBusyWorkers());
+			case TYPE_THREADS:
+				return IntType.valueOf(Thread.activeCount());
+			case TYPE_MISSED:
+				return IntType.valueOf(stats.getSkipped());
+		}
+		return getPlaceholder();
+	}
+	
+	public ValueType getPlaceholder() {
+		return IntType.valueOf(0);
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Vector;
 
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.srdb.ColumnarTable;
 import au.edu.usyd.corona.srdb.Table;
 import au.edu.usyd.corona.types.ValueType;
 import au.edu.usyd.corona.util.SPOTTools;
@@ -17,14 +18,18 @@ import com.sun.spot.sensorboard.peripheral.LEDColor;
  * This class provides a public interface to the sensors defined in this
  * package. By invoking the {@link #sense(TaskID)} method on this class, all of
  * the registered sensors will be sensed from, and the values returned as a SRDB
- * {@link Table} object.
+ * {@link Table} object. Queries which only reference some of the columns can use
+ * {@link #sense(TaskID, long)} to only sense from the sensors they need.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
  */
 public class SenseManager {
+	public static final long ALL_COLUMNS = -1L; // the column mask for sensing from every sensor
+	
 	private static final SenseManager instance = new SenseManager();
 	private final Vector sensors;
+	private final SampleCache cache;
 	
 	public static SenseManager getInstance() {
 		return instance;
@@ -49,6 +54,14 @@ public class SenseManager {
 		sensors.addElement(new BatterySensor());
 		sensors.addElement(new CPUSensor());
 		sensors.addElement(new MemorySensor());
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_QUEUED));
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_LATENESS));
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_RUNTIME));
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_WORKERS));
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_THREADS));
+		sensors.addElement(new SchedulerSensor(SchedulerSensor.TYPE_MISSED));
+		
+		cache = new SampleCache(sensors.size());
 	}
 	
 	/**
@@ -59,34 +72,90 @@ public class SenseManager {
 	 * @return the corresponding Table object
 	 */
 	public synchronized Table sense(TaskID taskID) {
+		return sense(taskID, ALL_COLUMNS);
+	}
+	
+	/**
+	 * Performs a sense operation, sensing from only the sensors whose columns are
+	 * set in the given mask. The other columns are filled with placeholder values
+	 * of the right type (see {@link Sensor#getPlaceholder()}). Sensors which were
+	 * sampled recently enough, by this or any other query, have their cached
+	 * value reused (see {@link SampleCache}).
+	 * 
+	 * @param taskID the id of the task we are currently sensing for
+	 * @param columnMask bit <i>i</i> is set if column <i>i</i> of the table is
+	 * needed
+	 * @return the corresponding Table object
+	 */
+	public synchronized Table sense(TaskID taskID, long columnMask) {
+		return tableOf(taskID, sample(columnMask));
+	}
+	
+	/**
+	 * Samples the sensors whose columns are set in the given mask, as
+	 * {@link #sense(TaskID, long)} does, without building a table. This lets the
+	 * scheduler sample once for all of the queries it runs together, and hand
+	 * the same row to each of them through {@link #tableOf(TaskID, ValueType[])}.
+	 * 
+	 * @param columnMask bit <i>i</i> is set if column <i>i</i> is needed
+	 * @return the sampled row, with placeholders in the columns not needed
+	 */
+	public synchronized ValueType[] sample(long columnMask) {
 		// Flash a light
 		if (Network.getInstance().getMode() == Network.MODE_SPOT) {
 			EDemoBoard.getInstance().getLEDs()[3].setOn();
 			EDemoBoard.getInstance().getLEDs()[3].setColor(LEDColor.WHITE);
 		}
 		
-		Table res = new Table(taskID);
 		ValueType[] row = new ValueType[sensors.size()];
 		
 		// get the sensor results
+		final long now = System.currentTimeMillis();
 		try {
-			for (int i = 0; i < sensors.size(); i++)
-				row[i] = ((Sensor) sensors.elementAt(i)).sense();
+			for (int i = 0; i < sensors.size(); i++) {
+				Sensor sensor = (Sensor) sensors.elementAt(i);
+				if (i >= 64 || (columnMask & (1L << i)) != 0) {
+					row[i] = cache.get(i, now);
+					if (row[i] == null) {
+						row[i] = sensor.sense();
+						cache.put(i, row[i], now);
+					}
+				}
+				else
+					row[i] = sensor.getPlaceholder();
+			}
 		}
 		catch (IOException e) {
 			SPOTTools.reportError(e);
 		}
 		
-		// add the result row to the result table
-		res.addRow(row);
-		
 		if (Network.getInstance().getMode() == Network.MODE_SPOT) {
 			EDemoBoard.getInstance().getLEDs()[3].setOff();
 		}
 		
+		return row;
+	}
+	
+	/**
+	 * Builds the sensed table of a task from a sampled row
+	 * 
+	 * @param taskID the id of the task the row was sampled for
+	 * @param row the row returned by {@link #sample(long)}
+	 * @return the corresponding Table object
+	 */
+	public Table tableOf(TaskID taskID, ValueType[] row) {
+		Table res = new ColumnarTable(taskID, ColumnarTable.schemaOf(row), 1);
+		res.addRow(row);
 		return res;
 	}
 	
+	/**
+	 * @return the cache of recent sensor samples shared by all queries
+	 */
+	public SampleCache getSampleCache() {
+		return cache;
+	}
+	
 	/**
 	 * @return an array of the (ordered) names of all of the registered sensors
 	 * that will be sensed from upon a call to {@link #sense(TaskID)}
@@ -28,4 +28,13 @@ public interface Sensor {
 	 * @throws IOException of reading from an actual sensor throws an IOException
 	 */
 	public ValueType sense() throws IOException;
+	
+	/**
+	 * Gives a value of the same type as {@link #sense()} returns, without
+	 * touching any hardware. This is used to fill in the columns of the sensed
+	 * table which a query does not reference.
+	 * 
+	 * @return a placeholder value for this sensor
+	 */
+	public ValueType getPlaceholder();
 }
@@ -48,4 +48,7 @@ class SwitchSensor implements Sensor {
 		return new BooleanType(sw.isClosed());
 	}
 	
+	public ValueType getPlaceholder() {
+		return new BooleanType(false);
+	}
 }
@@ -28,4 +28,8 @@ public class TemperatureSensor implements Sensor {
 		else
 			return new IntType(0);
 	}
+	
+	public ValueType getPlaceholder() {
+		return new IntType(0);
+	}
 }
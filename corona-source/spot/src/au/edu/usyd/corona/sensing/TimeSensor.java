@@ -21,4 +21,8 @@ class TimeSensor implements Sensor {
 	public ValueType sense() {
 		return new LongType(TimeSync.getInstance().getTime());
 	}
+	
+	public ValueType getPlaceholder() {
+		return new LongType(0);
+	}
 }
@@ -1,18 +1,29 @@
 package au.edu.usyd.corona.srdb;
 
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Vector;
-
-import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.DistinctSketchType;
 import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.QuantileSketchType;
 import au.edu.usyd.corona.types.ValueType;
 
 /**
  * This class performs aggregation functions SUM, AVG, MIN, MAX and COUNT over a
  * given attribute from the table passed in. Also groups rows by a given
  * attribute.
+ * <p>
+ * An aggregation can be either partial or final. A partial aggregation, as
+ * done on the nodes of the network, leaves the sum of an AVG in its column and
+ * the number of rows it covers in the count column (column 0), so its output
+ * can be aggregated again further up the routing tree. Only the final
+ * aggregation at the basestation divides the sums by the counts.
+ * <p>
+ * COUNT_DISTINCT and the quantiles (MEDIAN, P90, P95 and P99) cannot be
+ * partially aggregated into a single number, so a partial aggregation leaves a
+ * fixed size sketch of the values in their columns instead (a
+ * {@link DistinctSketchType} or a {@link QuantileSketchType}). Sketches are
+ * merged as they are aggregated again, and the final aggregation replaces them
+ * with their estimates.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
@@ -23,11 +34,30 @@ public class AggregateOperator extends TableOperator {
 	public static final byte MIN = 2;
 	public static final byte MAX = 3;
 	public static final byte COUNT = 4;
-	public static final String[] FUNCTIONS = {"SUM", "AVG", "MIN", "MAX", "COUNT"};
+	public static final byte COUNT_DISTINCT = 5;
+	public static final byte MEDIAN = 6;
+	public static final byte P90 = 7;
+	public static final byte P95 = 8;
+	public static final byte P99 = 9;
+	public static final String[] FUNCTIONS = {"SUM", "AVG", "MIN", "MAX", "COUNT", "COUNT_DISTINCT", "MEDIAN", "P90", "P95", "P99"};
 	
 	private final byte[] functions;
 	private final byte[] functionColumns;
 	private final byte[] groupByColumns;
+	private final boolean partial; // whether AVG's are left as a sum and a count
+	
+	/**
+	 * Constructor for a final aggregation. Takes a child operation to be
+	 * evaluated as a table.
+	 * 
+	 * @param child The child table to be evaluated to a table
+	 * @param functions
+	 * @param functionColumns
+	 * @param groupByColumns
+	 */
+	public AggregateOperator(TableOperator child, byte[] functions, byte[] functionColumns, byte[] groupByColumns) {
+		this(child, functions, functionColumns, groupByColumns, false);
+	}
 	
 	/**
 	 * Constructor for the aggregation. Takes a child operation to be evaluated
@@ -37,139 +67,79 @@ public class AggregateOperator extends TableOperator {
 	 * @param functions
 	 * @param functionColumns
 	 * @param groupByColumns
+	 * @param partial whether this is a partial aggregation, whose output is
+	 * aggregated again later on
 	 */
-	public AggregateOperator(TableOperator child, byte[] functions, byte[] functionColumns, byte[] groupByColumns) {
+	public AggregateOperator(TableOperator child, byte[] functions, byte[] functionColumns, byte[] groupByColumns, boolean partial) {
 		children = new TableOperator[]{child};
 		this.functions = functions;
 		this.functionColumns = functionColumns;
 		this.groupByColumns = (groupByColumns == null) ? new byte[0] : groupByColumns;
-	}
-	
-	private Vector filter(Enumeration rows, int index) throws InvalidOperationException {
-		// recursive base case; we have split items into buckets fully
-		if (index == groupByColumns.length) {
-			return doMagic(rows);
-		}
+		this.partial = partial;
 		
-		// do the filtering of the current attribute into buckets
-		Hashtable output = new Hashtable();
-		while (rows.hasMoreElements()) {
-			ValueType[] row = (ValueType[]) rows.nextElement();
-			ValueType key = row[groupByColumns[index]];
-			if (!output.containsKey(key))
-				output.put(key, new Vector());
-			((Vector) output.get(key)).addElement(row);
-		}
-		
-		// for each bucket, do the next layer of filtering
-		Vector outputRows = new Vector();
-		for (Enumeration e = output.keys(); e.hasMoreElements();) {
-			final Vector value = (Vector) output.get(e.nextElement());
-			final Vector done = filter(value.elements(), index + 1);
-			for (Enumeration e2 = done.elements(); e2.hasMoreElements();)
-				outputRows.addElement(e2.nextElement());
-		}
-		
-		return outputRows;
+		// lets any collected rows be pre-aggregated as they arrive
+		child.setAggregation(this);
 	}
 	
-	private Vector doMagic(Enumeration rows) throws InvalidOperationException {
-		ValueType[] result = null;
-		ValueType[] first = null;
-		
-		// for each row in the table
-		while (rows.hasMoreElements()) {
-			ValueType[] row = (ValueType[]) rows.nextElement();
-			
-			// keep a store of the first row, and create a new results row
-			if (first == null) {
-				first = row;
-				result = new ValueType[row.length];
-			}
-			
-			// for every aggregate we need to apply simultaneously
-			boolean usedCount = false;
-			for (int i = 0; i != functions.length; i++) {
-				final byte col = functionColumns[i];
-				
-				// if its the first row, copy across the values required
-				if (result[col] == null) {
-					result[col] = row[col];
-					if ((functions[i] == AVG || functions[i] == COUNT) && !usedCount) {
-						result[0] = row[0];
-						usedCount = true;
-					}
-				}
-				else {
-					// do the appropriate actions for each aggregate function
-					switch (functions[i]) {
-					case AVG:
-						result[col] = result[col].add(row[col]);
-						break;
-					
-					case MAX:
-						if (result[col].less(row[col]))
-							result[col] = row[col];
-						break;
-					
-					case MIN:
-						if (!result[col].less(row[col]))
-							result[col] = row[col];
-						break;
-					
-					case SUM:
-						result[col] = result[col].add(row[col]);
-						break;
-					}
-					
-					// ensure we only process the count column once
-					if ((functions[i] == AVG || functions[i] == COUNT) && !usedCount) {
-						result[0] = result[0].add(row[0]);
-						usedCount = true;
-					}
-				}
-			}
-		}
-		
-		Vector res = new Vector();
-		if (result != null) {
-			// handle any final steps of AVERAGE's at the end here
-			if (Network.getInstance().getMode() != Network.MODE_SPOT) {
-				for (int i = 0; i != functions.length; i++) {
-					if (functions[i] == AVG)
-						result[functionColumns[i]] = result[functionColumns[i]].divide(result[0]);
-				}
-			}
-			
-			// fill in the blanks not touched by the aggregates
-			for (int i = 0; i != result.length; i++)
-				if (result[i] == null)
-					result[i] = first[i];
-			
-			res.addElement(result);
-		}
-		return res;
+	/**
+	 * @return whether this is a partial aggregation, whose output is aggregated
+	 * again later on
+	 */
+	public boolean isPartial() {
+		return partial;
 	}
 	
 	/**
 	 * Actually performs the required aggregation and functionality. This method
 	 * is inherited from TableOperator, so see the documentation for that class
-	 * for more details. This method runs in O(n) linear time relative to the
-	 * size of the table operating on.
+	 * for more details. The rows are grouped by hashing their GROUP BY values,
+	 * so this method runs in O(n) linear time relative to the size of the table
+	 * operating on, regardless of the number of GROUP BY attributes.
 	 */
 	public Table eval(int epoch) throws InvalidOperationException {
-		// evaluates subtree
-		Table t = children[0].eval(epoch);
-		
-		Vector outputRows = filter(t.elements(), 0);
-		
-		Table output = new Table(t.getTaskID());
-		for (Enumeration e = outputRows.elements(); e.hasMoreElements();)
-			output.addRow((ValueType[]) e.nextElement());
+		// groups and aggregates the rows in a single pass, pulling them through the subtree one at a time
+		HashAggregator aggregator = new HashAggregator(functions, functionColumns, groupByColumns);
+		RowIterator rows = openChild(0, epoch);
+		Table output;
+		try {
+			for (ValueType[] row = rows.next(); row != null; row = rows.next())
+				aggregator.add(row);
+			output = new ColumnarTable(rows.getTaskID(), new byte[0]);
+		}
+		finally {
+			rows.close();
+		}
 		
+		aggregator.writeTo(output, !partial);
 		return output;
 	}
 	
+	protected boolean consumesRows() {
+		return true;
+	}
+	
+	/**
+	 * Creates an accumulator which partially aggregates tables in the same way
+	 * as this aggregation, so that its output can be aggregated again by this
+	 * aggregation.
+	 * 
+	 * @param taskID the task ID of the accumulated table
+	 * @return a new accumulator
+	 */
+	public ResultAccumulator createAccumulator(TaskID taskID) {
+		return new ResultAccumulator(taskID, functions, functionColumns, groupByColumns);
+	}
+	
+	public long getSensedColumns(long columns) {
+		// the count column, as well as the columns being aggregated and grouped by
+		long needed = columns | 1L;
+		for (int i = 0; i != functionColumns.length; i++)
+			needed |= 1L << functionColumns[i];
+		for (int i = 0; i != groupByColumns.length; i++)
+			needed |= 1L << groupByColumns[i];
+		return children[0].getSensedColumns(needed);
+	}
+	
 	public StringBuffer toTokens() {
 		StringBuffer b = new StringBuffer();
 		b.append(T_FUNCTION).append(T_GROUP_OPEN).append(children[0].toTokens());
@@ -0,0 +1,33 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class represents the logical AND of the results of two comparisons. The
+ * second comparison is only evaluated when the first holds.
+ */
+public class AndExpression extends ConditionExpression {
+	public AndExpression(ConditionExpression child1, ConditionExpression child2) {
+		super(child1, child2);
+	}
+	
+	/**
+	 * Evaluates the first comparison, and then the second if the first holds. It
+	 * returns 1 or 0 as all other comparison expressions do
+	 */
+	public ValueType eval(ValueType[] row) throws InvalidOperationException {
+		if (!((BooleanType) children[0].eval(row)).getVal())
+			return BooleanType.FALSE;
+		return BooleanType.valueOf(((BooleanType) children[1].eval(row)).getVal());
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_AND).append(T_GROUP_OPEN);
+		b.append(children[0].toTokens()).append(' ').append(children[1].toTokens());
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -27,6 +27,17 @@ public class AttributeExpression extends ConditionExpression {
 		return row[index];
 	}
 	
+	/**
+	 * @return the column of the row that is read
+	 */
+	byte getIndex() {
+		return index;
+	}
+	
+	public long getAttributeMask() {
+		return 1L << index;
+	}
+	
 	public StringBuffer toTokens() {
 		StringBuffer b = new StringBuffer();
 		return b.append(T_ATTRIBUTE).append(T_GROUP_OPEN).append(index).append(T_GROUP_CLOSE);
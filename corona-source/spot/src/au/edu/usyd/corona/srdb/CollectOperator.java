@@ -16,12 +16,16 @@ import com.sun.spot.util.IEEEAddress;
 
 /**
  * This class collects and returns a child table if it has been received in the
- * storage area
+ * storage area. The collector is woken up by the {@link ChildResultStore} as
+ * each child result arrives, and stops waiting as soon as all of the children
+ * have reported. The results are merged, or partially aggregated if the query
+ * aggregates them, by the store as they arrive. The time to wait for late
+ * children is worked out from the latencies the children have had in previous
+ * epochs, bounded by a fixed time per level of the routing tree.
  * 
  * @author Raymes Khoury
  */
 public class CollectOperator extends TableOperator {
-	private static final int INTERVAL_CHECK = 100; //The time between checks of results
 	private final ChildResultStore childResults;
 	private final TaskID taskID;
 	
@@ -36,32 +40,21 @@ public class CollectOperator extends TableOperator {
 		if (Network.getInstance().getMode() == Network.MODE_UNITTEST)
 			return new Table(taskID);
 		
-		// inits the time to wait before sending to be nothing
-		long sendDelta = 0;
-		
-		// works out the height of the tree
+		// the most time to wait is worked out from the height of the tree
 		final byte heightOfTree = Network.getInstance().getHeight();
+		final long maxDelta = COLLECT_HEIGHT_DELTA * heightOfTree;
 		
-		sendDelta += COLLECT_HEIGHT_DELTA * heightOfTree;
-		
-		// works out the children of the node
-		final int numChildrenExpected = Network.getInstance().getNumChildren();
+		// works out the children of the node, and how long they usually take
+		final Long[] children = Network.getInstance().getChildren();
+		final long start = System.currentTimeMillis();
+		final long sendDelta = childResults.getTimeout(children, maxDelta);
 		
-		// while the time elapsed is less than the max to wait, and the number of 
-		// results received is less than the expected number, poll for the results
-		long timeElapsed = 0;
-		while ((timeElapsed < sendDelta) && (childResults.numResults(epoch) < numChildrenExpected)) {
-			timeElapsed += INTERVAL_CHECK;
-			try {
-				Thread.sleep(INTERVAL_CHECK);
-			}
-			catch (InterruptedException e) {
-			}
-		}
+		// wait until either all of the children have reported, or the time is up
+		childResults.waitForResults(epoch, children.length, start + sendDelta);
+		childResults.recordLatencies(epoch, children, start, maxDelta);
 		
 		// send the task to any nodes we didn't receive from in case they dont have it
 		Vector received = childResults.getNodesReceivedFrom(epoch);
-		Long[] children = Network.getInstance().getChildren();
 		
 		for (int i = 0; i < children.length; i++) {
 			if (received == null || !received.contains(children[i])) {
@@ -78,26 +71,13 @@ public class CollectOperator extends TableOperator {
 			}
 		}
 		
-		// get the results that are available
-		Vector results = childResults.getResults(epoch);
-		
-		// merge all the results into one table
-		Table finalResult;
-		if (results != null) {
-			finalResult = (Table) results.firstElement();
-			
-			Table merger;
-			for (int i = 1; i < results.size(); i++) {
-				merger = (Table) results.elementAt(i);
-				MergeOperator merge = new MergeOperator(taskID, new ReadOperator(finalResult), new ReadOperator(merger));
-				finalResult = merge.eval(epoch);
-			}
-		}
-		else {
-			finalResult = new Table(taskID);
-		}
-		
-		return finalResult;
+		// the results were merged into one table as they arrived, and results arriving from now on are dropped
+		Table finalResult = childResults.takeResult(epoch);
+		return (finalResult == null) ? new Table(taskID) : finalResult;
+	}
+	
+	public void setAggregation(AggregateOperator aggregate) {
+		childResults.setAggregation(aggregate);
 	}
 	
 	public StringBuffer toTokens() {
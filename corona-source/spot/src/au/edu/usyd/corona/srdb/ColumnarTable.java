@@ -0,0 +1,765 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+import au.edu.usyd.corona.io.VarInt;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+import au.edu.usyd.corona.util.ClassIdentifiers;
+import au.edu.usyd.corona.util.Logger;
+
+/**
+ * A {@link Table} which stores its data column by column, keeping one primitive
+ * array per column instead of a {@link ValueType}[] per row. The storage used
+ * for each column is chosen from the type codes of the table schema (as given
+ * by {@link ClassIdentifiers}), so sensed and received values are only boxed
+ * into {@link ValueType} objects when a row is asked for through the
+ * row-oriented methods of {@link Table}. Columns of a type with no primitive
+ * representation, or which are given a value of a type other than the one in
+ * the schema, fall back to storing the boxed {@link ValueType} objects.
+ */
+public class ColumnarTable extends Table {
+	private static final int INITIAL_CAPACITY = 4;
+	
+	// the storage kinds of the columns
+	private static final byte KIND_BYTE = 0; // byte[]
+	private static final byte KIND_BOOLEAN = 1; // byte[], 0 or 1
+	private static final byte KIND_INT = 2; // int[]
+	private static final byte KIND_LONG = 3; // long[]
+	private static final byte KIND_ADDRESS = 4; // long[]
+	private static final byte KIND_FLOAT = 5; // float[]
+	private static final byte KIND_OBJECT = 6; // ValueType[]
+	
+	// the scales float columns can be sent at as fixed point numbers, and the marker for a column sent as raw floats
+	private static final int[] FLOAT_SCALES = {1, 10, 100, 1000, 10000};
+	private static final int RAW_FLOATS = 0xFF;
+	
+	private static final byte ID_BYTE = ClassIdentifiers.getID(ByteType.class);
+	private static final byte ID_BOOLEAN = ClassIdentifiers.getID(BooleanType.class);
+	private static final byte ID_INT = ClassIdentifiers.getID(IntType.class);
+	private static final byte ID_LONG = ClassIdentifiers.getID(LongType.class);
+	private static final byte ID_ADDRESS = ClassIdentifiers.getID(IEEEAddressType.class);
+	private static final byte ID_FLOAT = ClassIdentifiers.getID(FloatType.class);
+	
+	private byte[] schema; // the type codes of the columns
+	private byte[] kinds; // the storage kind of each column
+	private Object[] columns; // the column arrays, one per column
+	private boolean[][] nulls; // per column null masks, only allocated once a column holds a null
+	private int numRows; // the number of rows in the table
+	private int capacity; // the allocated length of each of the column arrays
+	
+	/**
+	 * Constructor for a table which is to be populated through
+	 * {@link #decode(DataInput)}
+	 */
+	public ColumnarTable() {
+		this(null, new byte[0]);
+	}
+	
+	/**
+	 * Constructor for the table, where the types of the columns are known
+	 * 
+	 * @param taskID the task ID that the table stores results from
+	 * @param schema the type codes (from {@link ClassIdentifiers}) of each of the
+	 * columns
+	 */
+	public ColumnarTable(TaskID taskID, byte[] schema) {
+		this(taskID, schema, INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Constructor for the table, where the types of the columns and the expected
+	 * number of rows are known
+	 * 
+	 * @param taskID the task ID that the table stores results from
+	 * @param schema the type codes (from {@link ClassIdentifiers}) of each of the
+	 * columns
+	 * @param capacity the number of rows to initially allocate space for
+	 */
+	public ColumnarTable(TaskID taskID, byte[] schema, int capacity) {
+		super(taskID);
+		allocate(schema, null, capacity);
+	}
+	
+	private ColumnarTable(TaskID taskID, byte[] schema, byte[] kinds, int capacity) {
+		super(taskID);
+		allocate(schema, kinds, capacity);
+	}
+	
+	/**
+	 * Works out the schema of a row of values
+	 * 
+	 * @param row the row of values
+	 * @return the type codes of each of the values in the row
+	 */
+	public static byte[] schemaOf(ValueType[] row) {
+		byte[] schema = new byte[row.length];
+		for (int i = 0; i != row.length; i++)
+			schema[i] = (row[i] == null) ? ID_INT : ClassIdentifiers.getID(row[i].getClass());
+		return schema;
+	}
+	
+	private void allocate(byte[] schema, byte[] kinds, int capacity) {
+		this.schema = schema;
+		this.capacity = (capacity < 1) ? 1 : capacity;
+		this.numRows = 0;
+		this.kinds = new byte[schema.length];
+		columns = new Object[schema.length];
+		nulls = new boolean[schema.length][];
+		for (int i = 0; i != schema.length; i++) {
+			this.kinds[i] = (kinds == null) ? kindOf(schema[i]) : kinds[i];
+			columns[i] = newColumn(this.kinds[i], this.capacity);
+		}
+	}
+	
+	static byte kindOf(byte id) {
+		if (id == ID_INT)
+			return KIND_INT;
+		else if (id == ID_FLOAT)
+			return KIND_FLOAT;
+		else if (id == ID_LONG)
+			return KIND_LONG;
+		else if (id == ID_ADDRESS)
+			return KIND_ADDRESS;
+		else if (id == ID_BOOLEAN)
+			return KIND_BOOLEAN;
+		else if (ClassIdentifiers.getClass(id) == ByteType.class)
+			return KIND_BYTE;
+		else
+			return KIND_OBJECT;
+	}
+	
+	private static Object newColumn(byte kind, int length) {
+		switch (kind) {
+		case KIND_BYTE:
+		case KIND_BOOLEAN:
+			return new byte[length];
+		case KIND_INT:
+			return new int[length];
+		case KIND_LONG:
+		case KIND_ADDRESS:
+			return new long[length];
+		case KIND_FLOAT:
+			return new float[length];
+		default:
+			return new ValueType[length];
+		}
+	}
+	
+	private void ensureCapacity(int required) {
+		if (required <= capacity)
+			return;
+		int newCapacity = capacity << 1;
+		if (newCapacity < required)
+			newCapacity = required;
+		for (int i = 0; i != columns.length; i++) {
+			Object column = newColumn(kinds[i], newCapacity);
+			System.arraycopy(columns[i], 0, column, 0, numRows);
+			columns[i] = column;
+			if (nulls[i] != null) {
+				boolean[] mask = new boolean[newCapacity];
+				System.arraycopy(nulls[i], 0, mask, 0, numRows);
+				nulls[i] = mask;
+			}
+		}
+		capacity = newCapacity;
+	}
+	
+	/**
+	 * Converts a primitive column into a column of boxed values, for when a value
+	 * of an unexpected type needs to be stored in it
+	 */
+	private void boxColumn(int col) {
+		ValueType[] boxed = new ValueType[capacity];
+		for (int i = 0; i != numRows; i++)
+			boxed[i] = getValue(i, col);
+		kinds[col] = KIND_OBJECT;
+		columns[col] = boxed;
+	}
+	
+	private void setNull(int row, int col, boolean isNull) {
+		if (nulls[col] == null) {
+			if (!isNull)
+				return;
+			nulls[col] = new boolean[capacity];
+		}
+		nulls[col][row] = isNull;
+	}
+	
+	private void setValue(int row, int col, ValueType value) {
+		setNull(row, col, value == null);
+		if (value == null)
+			return;
+		
+		switch (kinds[col]) {
+		case KIND_INT:
+			if (value instanceof IntType) {
+				((int[]) columns[col])[row] = ((IntType) value).getVal();
+				return;
+			}
+			break;
+		case KIND_FLOAT:
+			if (value instanceof FloatType) {
+				((float[]) columns[col])[row] = ((FloatType) value).getVal();
+				return;
+			}
+			break;
+		case KIND_LONG:
+			if (value instanceof LongType) {
+				((long[]) columns[col])[row] = ((LongType) value).getVal();
+				return;
+			}
+			break;
+		case KIND_ADDRESS:
+			if (value instanceof IEEEAddressType) {
+				((long[]) columns[col])[row] = ((IEEEAddressType) value).getVal();
+				return;
+			}
+			break;
+		case KIND_BYTE:
+			if (value instanceof ByteType) {
+				((byte[]) columns[col])[row] = ((ByteType) value).getVal();
+				return;
+			}
+			break;
+		case KIND_BOOLEAN:
+			if (value instanceof BooleanType) {
+				((byte[]) columns[col])[row] = (byte) (((BooleanType) value).getVal() ? 1 : 0);
+				return;
+			}
+			break;
+		}
+		
+		if (kinds[col] != KIND_OBJECT)
+			boxColumn(col);
+		((ValueType[]) columns[col])[row] = value;
+	}
+	
+	/**
+	 * Returns a single value in the table, boxed into a new {@link ValueType}
+	 * 
+	 * @param row the index of the row
+	 * @param col the index of the column
+	 * @return the value, or null if no value is stored at the given position
+	 */
+	public ValueType getValue(int row, int col) {
+		if (row >= numRows)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if (isNull(row, col))
+			return null;
+		
+		switch (kinds[col]) {
+		case KIND_INT:
+			return IntType.valueOf(((int[]) columns[col])[row]);
+		case KIND_FLOAT:
+			return new FloatType(((float[]) columns[col])[row]);
+		case KIND_LONG:
+			return new LongType(((long[]) columns[col])[row]);
+		case KIND_ADDRESS:
+			return new IEEEAddressType(((long[]) columns[col])[row]);
+		case KIND_BYTE:
+			return ByteType.valueOf(((byte[]) columns[col])[row]);
+		case KIND_BOOLEAN:
+			return BooleanType.valueOf(((byte[]) columns[col])[row] != 0);
+		default:
+			return ((ValueType[]) columns[col])[row];
+		}
+	}
+	
+	/**
+	 * @param col the index of the column
+	 * @return whether the column is stored in the primitive array of the type
+	 * in its schema, rather than as boxed values
+	 */
+	boolean isPrimitive(int col) {
+		return kinds[col] != KIND_OBJECT;
+	}
+	
+	/**
+	 * @param col the index of the column
+	 * @return whether any value in the column is null
+	 */
+	boolean hasNulls(int col) {
+		return nulls[col] != null;
+	}
+	
+	/**
+	 * @param row the index of the row
+	 * @param col the index of the column
+	 * @return whether the value at the given position is null
+	 */
+	boolean isNull(int row, int col) {
+		return nulls[col] != null && nulls[col][row];
+	}
+	
+	/**
+	 * Reads a value of a byte or boolean column straight from its array. Like
+	 * the other primitive accessors, this is only for columns which
+	 * {@link #isPrimitive(int)}, and a null value reads as 0.
+	 * 
+	 * @param row the index of the row
+	 * @param col the index of the column
+	 * @return the value, with booleans as 0 or 1
+	 */
+	byte getByte(int row, int col) {
+		return ((byte[]) columns[col])[row];
+	}
+	
+	int getInt(int row, int col) {
+		return ((int[]) columns[col])[row];
+	}
+	
+	long getLong(int row, int col) {
+		return ((long[]) columns[col])[row];
+	}
+	
+	float getFloat(int row, int col) {
+		return ((float[]) columns[col])[row];
+	}
+	
+	public void addRow(ValueType[] row) {
+		if (row.length != schema.length) {
+			if (numRows != 0 || schema.length != 0)
+				throw new IllegalArgumentException("Row has " + row.length + " columns, table has " + schema.length);
+			allocate(schemaOf(row), null, capacity);
+		}
+		ensureCapacity(numRows + 1);
+		for (int i = 0; i != row.length; i++)
+			setValue(numRows, i, row[i]);
+		numRows++;
+	}
+	
+	/**
+	 * Checks whether the rows of the given table can be copied into this table
+	 * column by column
+	 * 
+	 * @param other the other table
+	 * @return whether both tables have the same column types
+	 */
+	public boolean isCompatible(ColumnarTable other) {
+		if (other.kinds.length != kinds.length)
+			return false;
+		for (int i = 0; i != kinds.length; i++)
+			if (other.kinds[i] != kinds[i] || other.schema[i] != schema[i])
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Appends all of the rows of the given table onto the end of this table. The
+	 * two tables must be compatible (see {@link #isCompatible(ColumnarTable)}).
+	 * 
+	 * @param other the table whose rows are to be appended
+	 */
+	public void addAll(ColumnarTable other) {
+		if (!isCompatible(other))
+			throw new IllegalArgumentException("Cannot append a table with a different schema");
+		ensureCapacity(numRows + other.numRows);
+		for (int i = 0; i != columns.length; i++) {
+			System.arraycopy(other.columns[i], 0, columns[i], numRows, other.numRows);
+			if (other.nulls[i] != null) {
+				if (nulls[i] == null)
+					nulls[i] = new boolean[capacity];
+				System.arraycopy(other.nulls[i], 0, nulls[i], numRows, other.numRows);
+			}
+			else if (nulls[i] != null) {
+				for (int j = numRows; j != numRows + other.numRows; j++)
+					nulls[i][j] = false;
+			}
+		}
+		numRows += other.numRows;
+	}
+	
+	/**
+	 * Creates a new table containing only the given columns of this table, in the
+	 * given order. The column data is copied without boxing any values.
+	 * 
+	 * @param cols the indexes of the columns to keep
+	 * @return the projected table
+	 */
+	public ColumnarTable project(byte[] cols) {
+		byte[] projectedSchema = new byte[cols.length];
+		for (int i = 0; i != cols.length; i++)
+			projectedSchema[i] = schema[cols[i]];
+		
+		ColumnarTable result = new ColumnarTable(taskID, projectedSchema, numRows);
+		for (int i = 0; i != cols.length; i++) {
+			result.kinds[i] = kinds[cols[i]];
+			result.columns[i] = newColumn(result.kinds[i], result.capacity);
+			System.arraycopy(columns[cols[i]], 0, result.columns[i], 0, numRows);
+			if (nulls[cols[i]] != null) {
+				result.nulls[i] = new boolean[result.capacity];
+				System.arraycopy(nulls[cols[i]], 0, result.nulls[i], 0, numRows);
+			}
+		}
+		result.numRows = numRows;
+		return result;
+	}
+	
+	/**
+	 * Creates a new table containing only the given rows of this table, in the
+	 * given order. The column data is copied without boxing any values.
+	 * 
+	 * @param rows the indexes of the rows to keep
+	 * @param count the number of entries in <code>rows</code> to use
+	 * @return the table of selected rows
+	 */
+	public ColumnarTable select(int[] rows, int count) {
+		ColumnarTable result = new ColumnarTable(taskID, schema, kinds, count);
+		for (int i = 0; i != columns.length; i++) {
+			gather(kinds[i], columns[i], result.columns[i], rows, count);
+			if (nulls[i] != null) {
+				boolean[] src = nulls[i];
+				boolean[] dest = result.nulls[i] = new boolean[result.capacity];
+				for (int j = 0; j != count; j++)
+					dest[j] = src[rows[j]];
+			}
+		}
+		result.numRows = count;
+		return result;
+	}
+	
+	private static void gather(byte kind, Object src, Object dest, int[] rows, int count) {
+		switch (kind) {
+		case KIND_BYTE:
+		case KIND_BOOLEAN: {
+			byte[] s = (byte[]) src, d = (byte[]) dest;
+			for (int j = 0; j != count; j++)
+				d[j] = s[rows[j]];
+			break;
+		}
+		case KIND_INT: {
+			int[] s = (int[]) src, d = (int[]) dest;
+			for (int j = 0; j != count; j++)
+				d[j] = s[rows[j]];
+			break;
+		}
+		case KIND_LONG:
+		case KIND_ADDRESS: {
+			long[] s = (long[]) src, d = (long[]) dest;
+			for (int j = 0; j != count; j++)
+				d[j] = s[rows[j]];
+			break;
+		}
+		case KIND_FLOAT: {
+			float[] s = (float[]) src, d = (float[]) dest;
+			for (int j = 0; j != count; j++)
+				d[j] = s[rows[j]];
+			break;
+		}
+		default: {
+			Object[] s = (Object[]) src, d = (Object[]) dest;
+			for (int j = 0; j != count; j++)
+				d[j] = s[rows[j]];
+		}
+		}
+	}
+	
+	public void clear() {
+		numRows = 0;
+		for (int i = 0; i != nulls.length; i++)
+			nulls[i] = null;
+	}
+	
+	public Enumeration elements() {
+		return new Enumeration() {
+			private int next = 0;
+			
+			public boolean hasMoreElements() {
+				return next < numRows;
+			}
+			
+			public Object nextElement() {
+				if (next >= numRows)
+					throw new NoSuchElementException();
+				return getRow(next++);
+			}
+		};
+	}
+	
+	public ValueType[] getRow(int row) {
+		ValueType[] result = new ValueType[schema.length];
+		for (int i = 0; i != schema.length; i++)
+			result[i] = getValue(row, i);
+		return result;
+	}
+	
+	/**
+	 * @return the type codes (from {@link ClassIdentifiers}) of each of the
+	 * columns
+	 */
+	public byte[] getSchema() {
+		return schema;
+	}
+	
+	public int getNumCols() {
+		return schema.length;
+	}
+	
+	public int getNumRows() {
+		return numRows;
+	}
+	
+	public boolean isEmpty() {
+		return numRows == 0;
+	}
+	
+	/**
+	 * Encodes the table compactly, column by column, to fit as many rows as
+	 * possible into a radio packet. The table is identified by the ID of its
+	 * query alone, so it is written with the schema that the parent decodes it
+	 * with: the network schema of the query's {@link TableCodec}, or the schema
+	 * of the table if the query is not on this node. An empty table is written
+	 * with every column of that schema, whatever its own width. The values of
+	 * each column are written according to the type of the column in the
+	 * schema:
+	 * <ul>
+	 * <li>ints and longs as zig-zag variable length integers (see
+	 * {@link VarInt})</li>
+	 * <li>addresses as the variable length difference from the address in the
+	 * row before, which is small when the rows come from nearby nodes</li>
+	 * <li>booleans packed 8 to a byte</li>
+	 * <li>floats as variable length fixed point numbers, at the smallest of the
+	 * scales in {@link #FLOAT_SCALES} that every value in the column can be
+	 * written at with no loss, and as raw floats if there is none (so sensor
+	 * readings such as 21.5 are sent in 2 or 3 bytes, and are decoded exactly)</li>
+	 * <li>bytes and values of any other type as they encode themselves</li>
+	 * </ul>
+	 * The columns are preceded by a flag for each column, packed 8 to a byte,
+	 * set if the column holds any nulls. The values of such a column are
+	 * preceded by its null mask, packed in the same way, and the null values of
+	 * columns of objects are left out.
+	 */
+	public void encode(DataOutput b) throws IOException {
+		final TableCodec codec = TableCodec.forQuery(taskID.getQueryID());
+		final byte[] wire = (codec == null) ? schema : codec.schema;
+		if (numRows != 0 && wire.length != schema.length)
+			throw new IOException("Cannot encode a table with " + schema.length + " columns for a query with " + wire.length);
+		
+		VarInt.writeInt(b, taskID.getQueryID());
+		VarInt.writeUnsigned(b, numRows);
+		
+		final boolean[] hasNulls = new boolean[wire.length];
+		for (int j = 0; j != wire.length && j != columns.length; j++)
+			for (int i = 0; nulls[j] != null && !hasNulls[j] && i != numRows; i++)
+				hasNulls[j] = nulls[j][i];
+		writeMask(b, hasNulls, wire.length);
+		
+		for (int j = 0; j != wire.length; j++) {
+			final byte kind = kindOf(wire[j]);
+			final Object column = (j < columns.length && kinds[j] == kind) ? columns[j] : convert(j, wire[j]);
+			if (hasNulls[j])
+				writeMask(b, nulls[j], numRows);
+			switch (kind) {
+			case KIND_INT: {
+				int[] values = (int[]) column;
+				for (int i = 0; i != numRows; i++)
+					VarInt.writeInt(b, values[i]);
+				break;
+			}
+			case KIND_FLOAT:
+				encodeFloats(b, (float[]) column);
+				break;
+			case KIND_LONG: {
+				long[] values = (long[]) column;
+				for (int i = 0; i != numRows; i++)
+					VarInt.writeLong(b, values[i]);
+				break;
+			}
+			case KIND_ADDRESS: {
+				long[] values = (long[]) column;
+				long last = 0;
+				for (int i = 0; i != numRows; i++) {
+					VarInt.writeLong(b, values[i] - last);
+					last = values[i];
+				}
+				break;
+			}
+			case KIND_BYTE:
+				b.write((byte[]) column, 0, numRows);
+				break;
+			case KIND_BOOLEAN: {
+				byte[] values = (byte[]) column;
+				for (int i = 0; i < numRows; i += 8) {
+					int packed = 0;
+					for (int k = i; k != i + 8 && k != numRows; k++)
+						if (values[k] != 0)
+							packed |= 1 << (k - i);
+					b.writeByte(packed);
+				}
+				break;
+			}
+			default: {
+				ValueType[] values = (ValueType[]) column;
+				for (int i = 0; i != numRows; i++)
+					if (!hasNulls[j] || !nulls[j][i])
+						values[i].encode(b);
+			}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the first values of a mask, packed 8 to a byte
+	 */
+	private static void writeMask(DataOutput b, boolean[] mask, int length) throws IOException {
+		for (int i = 0; i < length; i += 8) {
+			int packed = 0;
+			for (int k = i; k != i + 8 && k != length; k++)
+				if (mask[k])
+					packed |= 1 << (k - i);
+			b.writeByte(packed);
+		}
+	}
+	
+	/**
+	 * Reads a mask written by {@link #writeMask(DataOutput, boolean[], int)}
+	 */
+	private static void readMask(DataInput b, boolean[] mask, int length) throws IOException {
+		for (int i = 0; i < length; i += 8) {
+			int packed = b.readUnsignedByte();
+			for (int k = i; k != i + 8 && k != length; k++)
+				mask[k] = ((packed >> (k - i)) & 1) != 0;
+		}
+	}
+	
+	/**
+	 * Converts a column into the array of the given type, so that it can be
+	 * encoded as that type. This is needed when the column has been boxed, or
+	 * when its type in the schema of the table is not the type in the schema
+	 * of the query (as when the first value given to it was null).
+	 */
+	private Object convert(int col, byte type) throws IOException {
+		ColumnarTable copy = new ColumnarTable(taskID, new byte[]{type}, numRows);
+		for (int i = 0; i != numRows; i++)
+			copy.addRow(new ValueType[]{getValue(i, col)});
+		if (copy.kinds[0] == KIND_OBJECT && kindOf(type) != KIND_OBJECT)
+			throw new IOException("Cannot encode column " + col + ", which holds values of a type other than its own");
+		return copy.columns[0];
+	}
+	
+	private void encodeFloats(DataOutput b, float[] values) throws IOException {
+		int scale = 0;
+		while (scale != FLOAT_SCALES.length && !isExact(values, FLOAT_SCALES[scale]))
+			scale++;
+		if (scale == FLOAT_SCALES.length) {
+			b.writeByte(RAW_FLOATS);
+			for (int i = 0; i != numRows; i++)
+				b.writeFloat(values[i]);
+		}
+		else {
+			b.writeByte(scale);
+			for (int i = 0; i != numRows; i++)
+				VarInt.writeInt(b, toFixed(values[i], FLOAT_SCALES[scale]));
+		}
+	}
+	
+	/**
+	 * Checks whether all of the given floats are decoded to exactly the same
+	 * value when sent as fixed point numbers at the given scale
+	 */
+	private boolean isExact(float[] values, int scale) {
+		for (int i = 0; i != numRows; i++) {
+			double fixed = Math.floor((double) values[i] * scale + 0.5);
+			if (!(fixed >= Integer.MIN_VALUE && fixed <= Integer.MAX_VALUE))
+				return false;
+			if (Float.floatToIntBits(fromFixed((int) fixed, scale)) != Float.floatToIntBits(values[i]))
+				return false;
+		}
+		return true;
+	}
+	
+	private static int toFixed(float value, int scale) {
+		return (int) Math.floor((double) value * scale + 0.5);
+	}
+	
+	private static float fromFixed(int value, int scale) {
+		return (float) (value / (double) scale);
+	}
+	
+	/**
+	 * Decodes a table, reading the values straight into the column arrays. The
+	 * schema of the table is taken from the {@link TableCodec} of the query the
+	 * table belongs to, which was built when the query was added to the
+	 * scheduler.
+	 */
+	public void decode(DataInput b) throws IOException {
+		final int queryID = VarInt.readInt(b);
+		final TableCodec codec = TableCodec.forQuery(queryID);
+		if (codec == null) {
+			taskID = new TaskID(-1, 0, queryID);
+			Logger.logError("Could not decode the table: query " + queryID + " not found in Scheduler.");
+			return;
+		}
+		taskID = codec.taskID;
+		
+		final int length = VarInt.readUnsigned(b);
+		allocate(codec.schema, codec.kinds, length);
+		final boolean[] hasNulls = new boolean[columns.length];
+		readMask(b, hasNulls, columns.length);
+		for (int j = 0; j != columns.length; j++) {
+			if (hasNulls[j]) {
+				nulls[j] = new boolean[capacity];
+				readMask(b, nulls[j], length);
+			}
+			switch (kinds[j]) {
+			case KIND_INT: {
+				int[] values = (int[]) columns[j];
+				for (int i = 0; i != length; i++)
+					values[i] = VarInt.readInt(b);
+				break;
+			}
+			case KIND_FLOAT: {
+				float[] values = (float[]) columns[j];
+				int scale = b.readUnsignedByte();
+				for (int i = 0; i != length; i++)
+					values[i] = (scale == RAW_FLOATS) ? b.readFloat() : fromFixed(VarInt.readInt(b), FLOAT_SCALES[scale]);
+				break;
+			}
+			case KIND_LONG: {
+				long[] values = (long[]) columns[j];
+				for (int i = 0; i != length; i++)
+					values[i] = VarInt.readLong(b);
+				break;
+			}
+			case KIND_ADDRESS: {
+				long[] values = (long[]) columns[j];
+				long last = 0;
+				for (int i = 0; i != length; i++)
+					last = values[i] = last + VarInt.readLong(b);
+				break;
+			}
+			case KIND_BYTE:
+				b.readFully((byte[]) columns[j], 0, length);
+				break;
+			case KIND_BOOLEAN: {
+				byte[] values = (byte[]) columns[j];
+				for (int i = 0; i < length; i += 8) {
+					int packed = b.readUnsignedByte();
+					for (int k = i; k != i + 8 && k != length; k++)
+						values[k] = (byte) ((packed >> (k - i)) & 1);
+				}
+				break;
+			}
+			default: {
+				ValueType[] values = (ValueType[]) columns[j];
+				for (int i = 0; i != length; i++)
+					if (!hasNulls[j] || !nulls[j][i])
+						values[i] = ((ValueType) ClassIdentifiers.newInstance(schema[j])).decode(b);
+			}
+			}
+		}
+		numRows = length;
+	}
+}
@@ -0,0 +1,716 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+import au.edu.usyd.corona.util.ClassIdentifiers;
+
+/**
+ * A {@link ConditionExpression} compiled for evaluation over primitive values.
+ * When created, the subtrees of the condition which do not read any attributes
+ * are folded into constants. The folded tree is then compiled for the column
+ * types of the rows it is given, working out the type of every arithmetic
+ * operation and comparison up front with the same promotion rules as the
+ * {@link ValueType}'s, so rows are tested without creating any objects.
+ * <p>
+ * Conditions which cannot be compiled for a schema (for example, ones which do
+ * arithmetic on booleans or addresses) are evaluated by interpreting the
+ * condition tree as before. So are rows which hold nulls, or values of another
+ * type than the schema the condition was compiled for, in the columns the
+ * condition reads. These are checked for before a row or table is evaluated.
+ */
+final class CompiledPredicate {
+	// the types of the values produced by the compiled nodes
+	private static final byte TYPE_BYTE = 0;
+	private static final byte TYPE_INT = 1;
+	private static final byte TYPE_LONG = 2;
+	private static final byte TYPE_FLOAT = 3;
+	private static final byte TYPE_BOOLEAN = 4;
+	private static final byte TYPE_ADDRESS = 5;
+	
+	// the operations of the compiled nodes
+	private static final byte OP_ADD = 0;
+	private static final byte OP_SUBTRACT = 1;
+	private static final byte OP_MULTIPLY = 2;
+	private static final byte OP_DIVIDE = 3;
+	private static final byte OP_EQUALS = 4;
+	private static final byte OP_LESS = 5;
+	private static final byte OP_NOT_EQUALS = 6;
+	private static final byte OP_LESS_EQUALS = 7;
+	private static final byte OP_GREATER = 8;
+	private static final byte OP_GREATER_EQUALS = 9;
+	private static final byte OP_AND = 10;
+	private static final byte OP_OR = 11;
+	private static final byte OP_NAND = 12;
+	
+	private final ConditionExpression expression; // the folded condition, interpreted when it cannot be compiled
+	private Compiled current; // the condition compiled for the last schema seen
+	
+	CompiledPredicate(ConditionExpression expression) {
+		this.expression = fold(expression);
+	}
+	
+	/**
+	 * Tests a row against the condition
+	 * 
+	 * @param row the row to test
+	 * @return whether the condition holds for the row
+	 * @throws InvalidOperationException if the condition cannot be evaluated
+	 */
+	boolean matches(ValueType[] row) throws InvalidOperationException {
+		Compiled compiled = current;
+		if (compiled == null || !compiled.fits(row)) {
+			// the row holds values of other types than the condition was compiled for, or nulls
+			byte[] schema = ColumnarTable.schemaOf(row);
+			if (compiled == null || !sameSchema(schema, compiled.schema))
+				compiled = compile(schema);
+		}
+		
+		if (compiled.root != null && compiled.fits(row))
+			return compiled.root.evalBoolean(row, null, 0);
+		return ((BooleanType) expression.eval(row)).getVal();
+	}
+	
+	/**
+	 * Tests every row of a table against the condition, reading the values
+	 * straight from the columns of the table
+	 * 
+	 * @param table the table to test
+	 * @param selected where the indexes of the rows for which the condition
+	 * holds are stored
+	 * @return the number of rows for which the condition holds
+	 * @throws InvalidOperationException if the condition cannot be evaluated
+	 */
+	int select(ColumnarTable table, int[] selected) throws InvalidOperationException {
+		Compiled compiled = current;
+		if (compiled == null || !sameSchema(table.getSchema(), compiled.schema))
+			compiled = compile(table.getSchema());
+		
+		// a column which has been given values of other types than its schema is no longer stored as primitives
+		final Node root = compiled.fits(table) ? compiled.root : null;
+		
+		// only the rows with nulls in the columns read need checking for them
+		int numNullable = 0;
+		final int[] nullable = new int[compiled.columns.length];
+		for (int j = 0; j != nullable.length; j++)
+			if (table.hasNulls(compiled.columns[j]))
+				nullable[numNullable++] = compiled.columns[j];
+		
+		final int numRows = table.getNumRows();
+		int count = 0;
+		for (int i = 0; i != numRows; i++) {
+			boolean match;
+			if (root == null || (numNullable != 0 && hasNull(table, i, nullable, numNullable)))
+				match = ((BooleanType) expression.eval(table.getRow(i))).getVal();
+			else
+				match = root.evalBoolean(null, table, i);
+			if (match)
+				selected[count++] = i;
+		}
+		return count;
+	}
+	
+	private static boolean hasNull(ColumnarTable table, int row, int[] cols, int numCols) {
+		for (int j = 0; j != numCols; j++)
+			if (table.isNull(row, cols[j]))
+				return true;
+		return false;
+	}
+	
+	private synchronized Compiled compile(byte[] schema) {
+		Node root = compile(expression, schema);
+		if (root != null && root.type != TYPE_BOOLEAN)
+			root = null;
+		boolean[] read = new boolean[schema.length];
+		if (root != null)
+			markColumns(expression, read);
+		current = new Compiled(schema, root, read);
+		return current;
+	}
+	
+	private static void markColumns(ConditionExpression e, boolean[] read) {
+		if (e instanceof AttributeExpression)
+			read[((AttributeExpression) e).getIndex()] = true;
+		else
+			for (int i = 0; i != e.children.length; i++)
+				if (e.children[i] != null)
+					markColumns(e.children[i], read);
+	}
+	
+	private static boolean sameSchema(byte[] a, byte[] b) {
+		if (a == b)
+			return true;
+		if (a.length != b.length)
+			return false;
+		for (int i = 0; i != a.length; i++)
+			if (a[i] != b[i])
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Folds the subtrees of a condition which do not read any attributes into
+	 * constants, by evaluating them once. The given tree is left untouched.
+	 */
+	static ConditionExpression fold(ConditionExpression e) {
+		if (e instanceof ConstantExpression || e instanceof AttributeExpression)
+			return e;
+		
+		if (e instanceof NotExpression) {
+			ConditionExpression a = fold(e.children[0]);
+			return evaluate((a == e.children[0]) ? e : new NotExpression(a));
+		}
+		
+		if (e.children[0] == null || e.children[1] == null)
+			return e;
+		return evaluate(rebuild(e, fold(e.children[0]), fold(e.children[1])));
+	}
+	
+	/**
+	 * Evaluates an expression whose children have been folded into constants,
+	 * leaving it as it is if they are not all constants, or if it cannot be
+	 * evaluated for their types
+	 */
+	private static ConditionExpression evaluate(ConditionExpression e) {
+		final boolean logical = e instanceof NotExpression || e instanceof AndExpression || e instanceof OrExpression || e instanceof NANDExpression;
+		for (int i = 0; i != e.children.length; i++) {
+			if (e.children[i] == null)
+				continue;
+			if (!(e.children[i] instanceof ConstantExpression))
+				return e;
+			ValueType value = ((ConstantExpression) e.children[i]).getConstant();
+			if (value == null || (logical && !(value instanceof BooleanType)))
+				return e;
+		}
+		
+		try {
+			ValueType value = e.eval(null);
+			return (value == null) ? e : new ConstantExpression(value);
+		}
+		catch (InvalidOperationException ex) {
+			// the types cannot be combined, which is reported when the condition is evaluated
+			return e;
+		}
+	}
+	
+	private static ConditionExpression rebuild(ConditionExpression e, ConditionExpression a, ConditionExpression b) {
+		if (a == e.children[0] && b == e.children[1])
+			return e;
+		else if (e instanceof AddExpression)
+			return new AddExpression(a, b);
+		else if (e instanceof SubtractExpression)
+			return new SubtractExpression(a, b);
+		else if (e instanceof MultiplyExpression)
+			return new MultiplyExpression(a, b);
+		else if (e instanceof DivideExpression)
+			return new DivideExpression(a, b);
+		else if (e instanceof EqualsExpression)
+			return new EqualsExpression(a, b);
+		else if (e instanceof NotEqualsExpression)
+			return new NotEqualsExpression(a, b);
+		else if (e instanceof LessThanExpression)
+			return new LessThanExpression(a, b);
+		else if (e instanceof LessEqualsExpression)
+			return new LessEqualsExpression(a, b);
+		else if (e instanceof GreaterThanExpression)
+			return new GreaterThanExpression(a, b);
+		else if (e instanceof GreaterEqualsExpression)
+			return new GreaterEqualsExpression(a, b);
+		else if (e instanceof AndExpression)
+			return new AndExpression(a, b);
+		else if (e instanceof OrExpression)
+			return new OrExpression(a, b);
+		else if (e instanceof NANDExpression)
+			return new NANDExpression(a, b);
+		else
+			return e;
+	}
+	
+	/**
+	 * Compiles a condition for rows of the given schema
+	 * 
+	 * @return the compiled condition, or null if it cannot be compiled
+	 */
+	private static Node compile(ConditionExpression e, byte[] schema) {
+		if (e instanceof AttributeExpression) {
+			int col = ((AttributeExpression) e).getIndex();
+			if (col >= schema.length)
+				return null;
+			byte type = typeOf(ClassIdentifiers.getClass(schema[col]));
+			return (type < 0) ? null : new Column(type, col);
+		}
+		else if (e instanceof ConstantExpression) {
+			ValueType value = ((ConstantExpression) e).getConstant();
+			byte type = (value == null) ? -1 : typeOf(value.getClass());
+			return (type < 0) ? null : new Constant(type, value);
+		}
+		
+		byte op;
+		if (e instanceof AddExpression)
+			op = OP_ADD;
+		else if (e instanceof SubtractExpression)
+			op = OP_SUBTRACT;
+		else if (e instanceof MultiplyExpression)
+			op = OP_MULTIPLY;
+		else if (e instanceof DivideExpression)
+			op = OP_DIVIDE;
+		else if (e instanceof EqualsExpression)
+			op = OP_EQUALS;
+		else if (e instanceof NotEqualsExpression)
+			op = OP_NOT_EQUALS;
+		else if (e instanceof LessThanExpression)
+			op = OP_LESS;
+		else if (e instanceof LessEqualsExpression)
+			op = OP_LESS_EQUALS;
+		else if (e instanceof GreaterThanExpression)
+			op = OP_GREATER;
+		else if (e instanceof GreaterEqualsExpression)
+			op = OP_GREATER_EQUALS;
+		else if (e instanceof AndExpression)
+			op = OP_AND;
+		else if (e instanceof OrExpression)
+			op = OP_OR;
+		else if (e instanceof NANDExpression)
+			op = OP_NAND;
+		else if (e instanceof NotExpression) {
+			Node a = compile(e.children[0], schema);
+			return (a != null && a.type == TYPE_BOOLEAN) ? new Not(a) : null;
+		}
+		else
+			return null;
+		
+		Node a = compile(e.children[0], schema);
+		Node b = compile(e.children[1], schema);
+		if (a == null || b == null)
+			return null;
+		
+		if (op >= OP_AND)
+			return (a.type == TYPE_BOOLEAN && b.type == TYPE_BOOLEAN) ? new Logical(op, a, b) : null;
+		else if (op >= OP_EQUALS) {
+			byte type = comparisonType(op, a.type, b.type);
+			return (type < 0) ? null : new Comparison(op, type, a, b);
+		}
+		else {
+			byte type = arithmeticType(op, a.type, b.type);
+			return (type < 0) ? null : new Arithmetic(op, type, a, b);
+		}
+	}
+	
+	private static byte typeOf(Class c) {
+		if (c == IntType.class)
+			return TYPE_INT;
+		else if (c == LongType.class)
+			return TYPE_LONG;
+		else if (c == FloatType.class)
+			return TYPE_FLOAT;
+		else if (c == ByteType.class)
+			return TYPE_BYTE;
+		else if (c == BooleanType.class)
+			return TYPE_BOOLEAN;
+		else if (c == IEEEAddressType.class)
+			return TYPE_ADDRESS;
+		else
+			return -1;
+	}
+	
+	/**
+	 * Works out the type of the result of an arithmetic operation, following
+	 * the rules of the {@link ValueType}'s. Arithmetic on booleans and addresses
+	 * is left to them.
+	 */
+	private static byte arithmeticType(byte op, byte a, byte b) {
+		if (a == TYPE_BOOLEAN || b == TYPE_BOOLEAN || a == TYPE_ADDRESS || b == TYPE_ADDRESS)
+			return -1;
+		else if (a == TYPE_FLOAT || b == TYPE_FLOAT)
+			return TYPE_FLOAT;
+		else if (a == TYPE_LONG || b == TYPE_LONG)
+			return TYPE_LONG;
+		else if (op == OP_DIVIDE && a == TYPE_BYTE && b == TYPE_BYTE)
+			return TYPE_BYTE;
+		else
+			return TYPE_INT;
+	}
+	
+	/**
+	 * Works out the type that the two sides of a comparison are compared as,
+	 * following the rules of the {@link ValueType}'s. Booleans compare as 0 or 1,
+	 * except when a boolean is tested for equality with a number, which every
+	 * comparison other than greater than or equals does.
+	 */
+	private static byte comparisonType(byte op, byte a, byte b) {
+		if (a == TYPE_ADDRESS)
+			return (b == TYPE_ADDRESS || b == TYPE_LONG) ? TYPE_LONG : -1;
+		else if (b == TYPE_ADDRESS)
+			return -1;
+		else if (op != OP_LESS && op != OP_GREATER_EQUALS && a == TYPE_BOOLEAN && b != TYPE_BOOLEAN)
+			return -1;
+		else if (a == TYPE_FLOAT || b == TYPE_FLOAT)
+			return TYPE_FLOAT;
+		else if (a == TYPE_LONG || b == TYPE_LONG)
+			return TYPE_LONG;
+		else
+			return TYPE_INT;
+	}
+	
+	/**
+	 * A condition compiled for a schema
+	 */
+	private static final class Compiled {
+		private final byte[] schema;
+		private final Node root; // null if the condition could not be compiled
+		private final int[] columns; // the columns read by the condition
+		private final Class[] classes; // the types of the values in the columns read
+		
+		Compiled(byte[] schema, Node root, boolean[] read) {
+			this.schema = schema;
+			this.root = root;
+			int n = 0;
+			for (int i = 0; i != read.length; i++)
+				if (read[i])
+					n++;
+			columns = new int[n];
+			classes = new Class[n];
+			n = 0;
+			for (int i = 0; i != read.length; i++) {
+				if (read[i]) {
+					columns[n] = i;
+					classes[n++] = ClassIdentifiers.getClass(schema[i]);
+				}
+			}
+		}
+		
+		/**
+		 * @return whether the row has values of the compiled types, and no
+		 * nulls, in the columns read
+		 */
+		boolean fits(ValueType[] row) {
+			if (row.length != schema.length)
+				return false;
+			for (int i = 0; i != columns.length; i++) {
+				ValueType value = row[columns[i]];
+				if (value == null || value.getClass() != classes[i])
+					return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * @return whether the columns read are stored in the primitive arrays of
+		 * their types
+		 */
+		boolean fits(ColumnarTable table) {
+			for (int i = 0; i != columns.length; i++)
+				if (!table.isPrimitive(columns[i]))
+					return false;
+			return true;
+		}
+	}
+	
+	/**
+	 * A node of a compiled condition. A node is evaluated from either a row, or
+	 * a row of a {@link ColumnarTable} when the table is given. Bytes and
+	 * booleans (as 0 or 1) are evaluated as ints, and ints and longs widen as
+	 * they do in Java.
+	 */
+	private static abstract class Node {
+		final byte type;
+		
+		Node(byte type) {
+			this.type = type;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			throw new IllegalStateException("Not a condition");
+		}
+		
+		int evalInt(ValueType[] row, ColumnarTable table, int index) {
+			return evalBoolean(row, table, index) ? 1 : 0;
+		}
+		
+		long evalLong(ValueType[] row, ColumnarTable table, int index) {
+			return evalInt(row, table, index);
+		}
+		
+		float evalFloat(ValueType[] row, ColumnarTable table, int index) {
+			if (type == TYPE_LONG || type == TYPE_ADDRESS)
+				return evalLong(row, table, index);
+			return evalInt(row, table, index);
+		}
+	}
+	
+	private static final class Column extends Node {
+		private final int col;
+		
+		Column(byte type, int col) {
+			super(type);
+			this.col = col;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			if (table != null)
+				return table.getByte(index, col) != 0;
+			return ((BooleanType) row[col]).getVal();
+		}
+		
+		int evalInt(ValueType[] row, ColumnarTable table, int index) {
+			if (type == TYPE_BOOLEAN)
+				return evalBoolean(row, table, index) ? 1 : 0;
+			else if (type == TYPE_BYTE)
+				return (table != null) ? table.getByte(index, col) : ((ByteType) row[col]).getVal();
+			return (table != null) ? table.getInt(index, col) : ((IntType) row[col]).getVal();
+		}
+		
+		long evalLong(ValueType[] row, ColumnarTable table, int index) {
+			if (type == TYPE_LONG)
+				return (table != null) ? table.getLong(index, col) : ((LongType) row[col]).getVal();
+			else if (type == TYPE_ADDRESS)
+				return (table != null) ? table.getLong(index, col) : ((IEEEAddressType) row[col]).getVal();
+			return evalInt(row, table, index);
+		}
+		
+		float evalFloat(ValueType[] row, ColumnarTable table, int index) {
+			if (type == TYPE_FLOAT)
+				return (table != null) ? table.getFloat(index, col) : ((FloatType) row[col]).getVal();
+			return super.evalFloat(row, table, index);
+		}
+	}
+	
+	private static final class Constant extends Node {
+		private final boolean booleanVal;
+		private final int intVal;
+		private final long longVal;
+		private final float floatVal;
+		
+		Constant(byte type, ValueType value) {
+			super(type);
+			boolean b = false;
+			int i = 0;
+			long l = 0;
+			float f = 0;
+			switch (type) {
+			case TYPE_BOOLEAN:
+				b = ((BooleanType) value).getVal();
+				i = b ? 1 : 0;
+				break;
+			case TYPE_BYTE:
+				i = ((ByteType) value).getVal();
+				break;
+			case TYPE_INT:
+				i = ((IntType) value).getVal();
+				break;
+			case TYPE_LONG:
+				l = ((LongType) value).getVal();
+				break;
+			case TYPE_ADDRESS:
+				l = ((IEEEAddressType) value).getVal();
+				break;
+			case TYPE_FLOAT:
+				f = ((FloatType) value).getVal();
+				break;
+			}
+			booleanVal = b;
+			intVal = i;
+			longVal = (type == TYPE_LONG || type == TYPE_ADDRESS) ? l : i;
+			floatVal = (type == TYPE_FLOAT) ? f : (type == TYPE_LONG || type == TYPE_ADDRESS) ? (float) l : (float) i;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			return booleanVal;
+		}
+		
+		int evalInt(ValueType[] row, ColumnarTable table, int index) {
+			return intVal;
+		}
+		
+		long evalLong(ValueType[] row, ColumnarTable table, int index) {
+			return longVal;
+		}
+		
+		float evalFloat(ValueType[] row, ColumnarTable table, int index) {
+			return floatVal;
+		}
+	}
+	
+	private static final class Arithmetic extends Node {
+		private final byte op;
+		private final Node a, b;
+		
+		Arithmetic(byte op, byte type, Node a, Node b) {
+			super(type);
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+		
+		int evalInt(ValueType[] row, ColumnarTable table, int index) {
+			int x = a.evalInt(row, table, index);
+			int y = rightInt(row, table, index);
+			switch (op) {
+			case OP_ADD:
+			case OP_SUBTRACT:
+				return x + y;
+			case OP_MULTIPLY:
+				return x * y;
+			default:
+				if (y == 0)
+					return 0;
+				return (type == TYPE_BYTE) ? (byte) (x / y) : x / y;
+			}
+		}
+		
+		long evalLong(ValueType[] row, ColumnarTable table, int index) {
+			if (type != TYPE_LONG)
+				return evalInt(row, table, index);
+			long x = a.evalLong(row, table, index);
+			long y = rightLong(row, table, index);
+			switch (op) {
+			case OP_ADD:
+			case OP_SUBTRACT:
+				return x + y;
+			case OP_MULTIPLY:
+				return x * y;
+			default:
+				return (y == 0) ? 0 : x / y;
+			}
+		}
+		
+		float evalFloat(ValueType[] row, ColumnarTable table, int index) {
+			if (type != TYPE_FLOAT)
+				return super.evalFloat(row, table, index);
+			float x = a.evalFloat(row, table, index);
+			float y = rightFloat(row, table, index);
+			switch (op) {
+			case OP_ADD:
+			case OP_SUBTRACT:
+				return x + y;
+			case OP_MULTIPLY:
+				return x * y;
+			default:
+				return x / y;
+			}
+		}
+		
+		// a - b is worked out as a + -b, where b is negated in its own type as negate() does
+		
+		private int rightInt(ValueType[] row, ColumnarTable table, int index) {
+			int y = b.evalInt(row, table, index);
+			if (op != OP_SUBTRACT)
+				return y;
+			return (b.type == TYPE_BYTE) ? (byte) -y : -y;
+		}
+		
+		private long rightLong(ValueType[] row, ColumnarTable table, int index) {
+			if (b.type != TYPE_LONG)
+				return rightInt(row, table, index);
+			long y = b.evalLong(row, table, index);
+			return (op == OP_SUBTRACT) ? -y : y;
+		}
+		
+		private float rightFloat(ValueType[] row, ColumnarTable table, int index) {
+			if (b.type == TYPE_LONG)
+				return rightLong(row, table, index);
+			else if (b.type != TYPE_FLOAT)
+				return rightInt(row, table, index);
+			float y = b.evalFloat(row, table, index);
+			return (op == OP_SUBTRACT) ? -y : y;
+		}
+	}
+	
+	private static final class Comparison extends Node {
+		private final byte op;
+		private final byte compareAs;
+		private final Node a, b;
+		
+		Comparison(byte op, byte compareAs, Node a, Node b) {
+			super(TYPE_BOOLEAN);
+			this.op = op;
+			this.compareAs = compareAs;
+			this.a = a;
+			this.b = b;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			boolean less, equal;
+			switch (compareAs) {
+			case TYPE_FLOAT: {
+				float x = a.evalFloat(row, table, index);
+				float y = b.evalFloat(row, table, index);
+				less = x < y;
+				equal = x == y;
+				break;
+			}
+			case TYPE_LONG: {
+				long x = a.evalLong(row, table, index);
+				long y = b.evalLong(row, table, index);
+				less = x < y;
+				equal = x == y;
+				break;
+			}
+			default: {
+				int x = a.evalInt(row, table, index);
+				int y = b.evalInt(row, table, index);
+				less = x < y;
+				equal = x == y;
+			}
+			}
+			
+			// the comparisons are made up from less and equals as the expressions are
+			switch (op) {
+			case OP_EQUALS:
+				return equal;
+			case OP_NOT_EQUALS:
+				return !equal;
+			case OP_LESS:
+				return less;
+			case OP_LESS_EQUALS:
+				return less || equal;
+			case OP_GREATER:
+				return !less && !equal;
+			default:
+				return !less;
+			}
+		}
+	}
+	
+	private static final class Logical extends Node {
+		private final byte op;
+		private final Node a, b;
+		
+		Logical(byte op, Node a, Node b) {
+			super(TYPE_BOOLEAN);
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			switch (op) {
+			case OP_AND:
+				return a.evalBoolean(row, table, index) && b.evalBoolean(row, table, index);
+			case OP_OR:
+				return a.evalBoolean(row, table, index) || b.evalBoolean(row, table, index);
+			default:
+				return !(a.evalBoolean(row, table, index) && b.evalBoolean(row, table, index));
+			}
+		}
+	}
+	
+	private static final class Not extends Node {
+		private final Node a;
+		
+		Not(Node a) {
+			super(TYPE_BOOLEAN);
+			this.a = a;
+		}
+		
+		boolean evalBoolean(ValueType[] row, ColumnarTable table, int index) {
+			return !a.evalBoolean(row, table, index);
+		}
+	}
+}
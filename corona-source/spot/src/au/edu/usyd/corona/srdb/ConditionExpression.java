@@ -26,6 +26,27 @@ public abstract class ConditionExpression implements TokenGrammarTokens {
 	 */
 	public abstract ValueType eval(ValueType[] row) throws InvalidOperationException;
 	
+	/**
+	 * @param i the index of the child
+	 * @return the <i>i</i>th child of this expression, or null if there is none
+	 */
+	public ConditionExpression getChild(int i) {
+		return children[i];
+	}
+	
+	/**
+	 * Works out which columns of a row this expression reads
+	 * 
+	 * @return a mask with bit <i>i</i> set if column <i>i</i> is read
+	 */
+	public long getAttributeMask() {
+		long mask = 0;
+		for (int i = 0; i != children.length; i++)
+			if (children[i] != null)
+				mask |= children[i].getAttributeMask();
+		return mask;
+	}
+	
 	/**
 	 * @return the tokenized version of the current node and its subtree
 	 */
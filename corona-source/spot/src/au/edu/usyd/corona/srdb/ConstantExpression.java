@@ -20,6 +20,13 @@ public class ConstantExpression extends ConditionExpression {
 		return constant;
 	}
 	
+	/**
+	 * @return the value of the constant
+	 */
+	ValueType getConstant() {
+		return constant;
+	}
+	
 	public StringBuffer toTokens() {
 		return new StringBuffer(constant.toTokens());
 	}
@@ -0,0 +1,73 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class represents a table of constants that was provided with the
+ * original query, such as a per node reference table of thresholds to
+ * {@link JoinOperator join} the sensed readings against. The rows are sent
+ * along with the rest of the query tokens, so the table should be kept small.
+ */
+public class ConstantTableOperator extends TableOperator {
+	private final TaskID taskID;
+	private final ValueType[][] rows;
+	private final int numCols;
+	
+	/**
+	 * @param taskID
+	 * @param rows the rows of the table, which must all have the same number of
+	 * columns and contain no null values
+	 */
+	public ConstantTableOperator(TaskID taskID, ValueType[][] rows) {
+		this.taskID = taskID;
+		this.rows = rows;
+		numCols = (rows.length == 0) ? 0 : rows[0].length;
+	}
+	
+	/**
+	 * Returns a new table of the constant rows, so that operators further up
+	 * the tree are free to modify it
+	 */
+	public Table eval(int epoch) {
+		Table table = (rows.length == 0) ? new ColumnarTable(taskID, new byte[0]) : new ColumnarTable(taskID, ColumnarTable.schemaOf(rows[0]), rows.length);
+		for (int i = 0; i != rows.length; i++)
+			table.addRow(rows[i]);
+		return table;
+	}
+	
+	public RowIterator open(int epoch) {
+		return new RowIterator() {
+			private int next;
+			
+			public ValueType[] next() {
+				if (next == rows.length)
+					return null;
+				ValueType[] row = new ValueType[numCols];
+				System.arraycopy(rows[next++], 0, row, 0, numCols);
+				return row;
+			}
+			
+			public void close() {
+			}
+			
+			public TaskID getTaskID() {
+				return taskID;
+			}
+		};
+	}
+	
+	public long getSensedColumns(long columns) {
+		return 0;
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_CONSTANT_TABLE).append(T_GROUP_OPEN).append(rows.length).append(' ').append(numCols);
+		for (int i = 0; i != rows.length; i++)
+			for (int j = 0; j != numCols; j++)
+				b.append(' ').append(rows[i][j].toTokens());
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -0,0 +1,108 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class suppresses the rows a node produces itself that have not changed
+ * since they were last reported. A row is reported if any of its numeric values
+ * has moved by more than the deadband since the last report of the row, or any
+ * of its other values is different. Every row is also reported at least once
+ * every <i>refresh</i> epochs, so that the basestation, which fills in the
+ * unreported rows with their last known values, can tell nodes that have gone
+ * quiet from nodes that have left the network.
+ * <p>
+ * Rows are matched with their last report by their position in the table, as
+ * each node senses the same number of rows every epoch.
+ */
+public class DeadbandOperator extends TableOperator {
+	private final float band; // how far a number must move before it is reported
+	private final int refresh; // the most epochs between reports of a row
+	private ValueType[][] reported = new ValueType[0][]; // the last reported value of each row
+	private int[] reportedEpochs = new int[0]; // the epoch each row was last reported in
+	
+	/**
+	 * @param child the rows the node produces itself
+	 * @param band how far a number must move before it is reported again
+	 * @param refresh the most epochs between reports of each row
+	 */
+	public DeadbandOperator(TableOperator child, float band, int refresh) {
+		if (band < 0 || refresh <= 0)
+			throw new IllegalArgumentException("The deadband must not be negative, and rows must be refreshed");
+		children = new TableOperator[]{child};
+		this.band = band;
+		this.refresh = refresh;
+	}
+	
+	public Table eval(int epoch) throws InvalidOperationException {
+		Table table = evalChild(0, epoch);
+		final int numRows = table.getNumRows();
+		if (numRows != reported.length) {
+			ValueType[][] rows = new ValueType[numRows][];
+			int[] epochs = new int[numRows];
+			int kept = (numRows < reported.length) ? numRows : reported.length;
+			System.arraycopy(reported, 0, rows, 0, kept);
+			System.arraycopy(reportedEpochs, 0, epochs, 0, kept);
+			reported = rows;
+			reportedEpochs = epochs;
+		}
+		
+		Table result = new ColumnarTable(table.getTaskID(), new byte[0]);
+		for (int i = 0; i != numRows; i++) {
+			ValueType[] row = table.getRow(i);
+			if (reported[i] == null || epoch - reportedEpochs[i] >= refresh || epoch < reportedEpochs[i] || changed(reported[i], row)) {
+				reported[i] = row;
+				reportedEpochs[i] = epoch;
+				result.addRow(row);
+			}
+		}
+		return result;
+	}
+	
+	private boolean changed(ValueType[] before, ValueType[] after) {
+		if (before.length != after.length)
+			return true;
+		for (int i = 0; i != after.length; i++) {
+			ValueType a = before[i], b = after[i];
+			if (a == null || b == null) {
+				if (a != b)
+					return true;
+			}
+			else if (isNumber(a) && isNumber(b)) {
+				double difference = toDouble(a) - toDouble(b);
+				if (difference > band || -difference > band)
+					return true;
+			}
+			else if (!a.equals((Object) b))
+				return true;
+		}
+		return false;
+	}
+	
+	private static boolean isNumber(ValueType v) {
+		return v instanceof IntType || v instanceof FloatType || v instanceof LongType || v instanceof ByteType;
+	}
+	
+	private static double toDouble(ValueType v) {
+		if (v instanceof IntType)
+			return ((IntType) v).getVal();
+		else if (v instanceof FloatType)
+			return ((FloatType) v).getVal();
+		else if (v instanceof LongType)
+			return ((LongType) v).getVal();
+		else
+			return ((ByteType) v).getVal();
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_DEADBAND).append(T_GROUP_OPEN).append(children[0].toTokens());
+		b.append(' ').append(band).append(' ').append(refresh);
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -19,7 +19,7 @@ public class EqualsExpression extends ConditionExpression {
 	 * equal to the second else returning 0.
 	 */
 	public ValueType eval(ValueType[] row) throws InvalidOperationException {
-		return (children[0].eval(row).equals(children[1].eval(row))) ? new BooleanType(1) : new BooleanType(0);
+		return (children[0].eval(row).equals(children[1].eval(row))) ? BooleanType.TRUE : BooleanType.FALSE;
 	}
 	
 	public StringBuffer toTokens() {
@@ -5,13 +5,16 @@ import java.io.IOException;
 
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.scheduler.ChildResultStore;
+import au.edu.usyd.corona.scheduler.SharedPlan;
 import au.edu.usyd.corona.scheduler.TaskID;
 import au.edu.usyd.corona.scheduler.TransmitResultsTask;
 import au.edu.usyd.corona.types.InvalidOperationException;
 import au.edu.usyd.corona.util.SPOTTools;
 
 /**
- * This class forwards the result of table operations to its parent node
+ * This class forwards the result of table operations to its parent node. If the
+ * query is being executed as part of a {@link SharedPlan}, the result is sent
+ * along with the results of the other queries in the plan.
  * 
  * @author Raymes Khoury
  */
@@ -28,17 +31,19 @@ public class ForwardOperator extends TableOperator {
 	 * contents to a flash file. Returns the resultant table.
 	 */
 	public Table eval(int epoch) throws InvalidOperationException {
-		Table table = children[0].eval(epoch);
+		Table table = evalChild(0, epoch);
 		
 		if (Network.getInstance().getMode() == Network.MODE_UNITTEST)
 			return table;
 		
-		TransmitResultsTask t = new TransmitResultsTask(new TaskID(table.getTaskID().getQueryID()), table, epoch);
-		try {
-			Network.getInstance().sendToParent(t.encode());
-		}
-		catch (IOException e) {
-			SPOTTools.reportError(e);
+		if (!SharedPlan.forward(table, epoch)) {
+			TransmitResultsTask t = new TransmitResultsTask(new TaskID(table.getTaskID().getQueryID()), table, epoch);
+			try {
+				Network.getInstance().sendToParent(t.encode());
+			}
+			catch (IOException e) {
+				SPOTTools.reportError(e);
+			}
 		}
 		
 		// Remove the old results for that epoch
@@ -0,0 +1,31 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class evaluates two expressions returning 1 if the first expression is
+ * evaluated to be greater than or equal to the second else returning 0.
+ */
+public class GreaterEqualsExpression extends ConditionExpression {
+	public GreaterEqualsExpression(ConditionExpression child1, ConditionExpression child2) {
+		super(child1, child2);
+	}
+	
+	/**
+	 * Evaluates the greater than or equals expression, returning 1 if the first
+	 * expression is not less than the second else returning 0.
+	 */
+	public ValueType eval(ValueType[] row) throws InvalidOperationException {
+		return (children[0].eval(row).less(children[1].eval(row))) ? BooleanType.FALSE : BooleanType.TRUE;
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_GE).append(T_GROUP_OPEN);
+		b.append(children[0].toTokens()).append(' ').append(children[1].toTokens());
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -0,0 +1,34 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class evaluates two expressions returning 1 if the first expression is
+ * evaluated to be greater than the second else returning 0.
+ */
+public class GreaterThanExpression extends ConditionExpression {
+	public GreaterThanExpression(ConditionExpression child1, ConditionExpression child2) {
+		super(child1, child2);
+	}
+	
+	/**
+	 * Evaluates the greater than expression, returning 1 if the first expression
+	 * is neither less than nor equal to the second else returning 0. Each
+	 * expression is evaluated only once.
+	 */
+	public ValueType eval(ValueType[] row) throws InvalidOperationException {
+		ValueType a = children[0].eval(row);
+		ValueType b = children[1].eval(row);
+		return (!a.less(b) && !a.equals(b)) ? BooleanType.TRUE : BooleanType.FALSE;
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_GT).append(T_GROUP_OPEN);
+		b.append(children[0].toTokens()).append(' ').append(children[1].toTokens());
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -0,0 +1,67 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * The composite key made up of some of the values of a row, such as its GROUP
+ * BY values or its join columns. Hashing and equality are those of the values,
+ * which are worked out from their primitive values.
+ */
+final class GroupKey {
+	private final ValueType[] values;
+	private int hash;
+	
+	GroupKey(ValueType[] values) {
+		this.values = values;
+	}
+	
+	GroupKey(GroupKey other) {
+		values = new ValueType[other.values.length];
+		System.arraycopy(other.values, 0, values, 0, values.length);
+		hash = other.hash;
+	}
+	
+	void set(ValueType[] row, byte[] columns) {
+		int h = 1;
+		for (int i = 0; i != columns.length; i++) {
+			values[i] = row[columns[i]];
+			h = 31 * h + hashOf(values[i]);
+		}
+		hash = h;
+	}
+	
+	/**
+	 * @return whether any of the values of the key are null
+	 */
+	boolean hasNull() {
+		for (int i = 0; i != values.length; i++)
+			if (values[i] == null)
+				return true;
+		return false;
+	}
+	
+	public int hashCode() {
+		return hash;
+	}
+	
+	public boolean equals(Object o) {
+		if (!(o instanceof GroupKey))
+			return false;
+		GroupKey other = (GroupKey) o;
+		if (other.hash != hash)
+			return false;
+		for (int i = 0; i != values.length; i++)
+			if (!same(values[i], other.values[i]))
+				return false;
+		return true;
+	}
+	
+	private static int hashOf(ValueType v) {
+		return (v == null) ? 0 : v.hashCode();
+	}
+	
+	private static boolean same(ValueType a, ValueType b) {
+		return (a == null) ? b == null : a.equals((Object) b);
+	}
+}
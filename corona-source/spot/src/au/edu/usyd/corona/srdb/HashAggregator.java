@@ -0,0 +1,296 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import au.edu.usyd.corona.types.DistinctSketchType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.QuantileSketchType;
+import au.edu.usyd.corona.types.SketchType;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * Single pass hash aggregation engine used by {@link AggregateOperator}. Each
+ * row is looked up in a hash table by a composite key made up of its GROUP BY
+ * values, and every group keeps one accumulator per aggregate function which is
+ * updated in place as the rows are added. Groups are output in the order in
+ * which they were first seen.
+ */
+class HashAggregator {
+	private final byte[] functions;
+	private final byte[] functionColumns;
+	private final byte[] groupByColumns;
+	private final boolean needsCount; // whether the count column needs summing
+	private final Hashtable groups; // GroupKey -> Group
+	private final Vector order; // the groups in the order they were first seen
+	private final GroupKey probe; // reused to look up the group of each row
+	
+	HashAggregator(byte[] functions, byte[] functionColumns, byte[] groupByColumns) {
+		this.functions = functions;
+		this.functionColumns = functionColumns;
+		this.groupByColumns = groupByColumns;
+		
+		boolean count = false;
+		for (int i = 0; i != functions.length; i++)
+			if (functions[i] == AggregateOperator.AVG || functions[i] == AggregateOperator.COUNT)
+				count = true;
+		needsCount = count;
+		
+		groups = new Hashtable();
+		order = new Vector();
+		probe = new GroupKey(new ValueType[groupByColumns.length]);
+	}
+	
+	/**
+	 * Adds a row into the group it belongs to
+	 * 
+	 * @param row the row to add
+	 * @throws InvalidOperationException if the values cannot be combined
+	 */
+	void add(ValueType[] row) throws InvalidOperationException {
+		probe.set(row, groupByColumns);
+		Group group = (Group) groups.get(probe);
+		if (group == null) {
+			group = new Group(new GroupKey(probe), row);
+			groups.put(group.key, group);
+			order.addElement(group);
+		}
+		else {
+			group.add(row);
+		}
+	}
+	
+	/**
+	 * Writes one row per group into the given table
+	 * 
+	 * @param output the table to add the aggregated rows to
+	 * @param complete whether this is the final aggregation, so the sums of AVG
+	 * columns should be divided by their counts and the sketches replaced by
+	 * their estimates
+	 * @throws InvalidOperationException if the values cannot be combined
+	 */
+	void writeTo(Table output, boolean complete) throws InvalidOperationException {
+		for (Enumeration e = order.elements(); e.hasMoreElements();)
+			output.addRow(((Group) e.nextElement()).toRow(complete));
+	}
+	
+	/**
+	 * @return the quantile estimated by the given quantile function
+	 */
+	private static float quantileOf(byte function) {
+		switch (function) {
+		case AggregateOperator.P90:
+			return 0.9f;
+		case AggregateOperator.P95:
+			return 0.95f;
+		case AggregateOperator.P99:
+			return 0.99f;
+		default:
+			return 0.5f;
+		}
+	}
+	
+	/**
+	 * The aggregation state of one group
+	 */
+	private final class Group {
+		private final GroupKey key;
+		private final ValueType[] first; // the first row, supplying the non-aggregated columns
+		private final Accumulator[] accumulators;
+		private final Accumulator count;
+		
+		Group(GroupKey key, ValueType[] row) throws InvalidOperationException {
+			this.key = key;
+			first = row;
+			accumulators = new Accumulator[functions.length];
+			for (int i = 0; i != functions.length; i++)
+				if (functions[i] != AggregateOperator.COUNT)
+					accumulators[i] = new Accumulator(functions[i], row[functionColumns[i]]);
+			count = needsCount ? new Accumulator(AggregateOperator.SUM, row[0]) : null;
+		}
+		
+		void add(ValueType[] row) throws InvalidOperationException {
+			for (int i = 0; i != accumulators.length; i++)
+				if (accumulators[i] != null)
+					accumulators[i].add(row[functionColumns[i]]);
+			if (count != null)
+				count.add(row[0]);
+		}
+		
+		ValueType[] toRow(boolean complete) throws InvalidOperationException {
+			ValueType[] row = new ValueType[first.length];
+			System.arraycopy(first, 0, row, 0, row.length);
+			for (int i = 0; i != accumulators.length; i++)
+				if (accumulators[i] != null)
+					row[functionColumns[i]] = accumulators[i].getValue();
+			if (count != null)
+				row[0] = count.getValue();
+			
+			if (complete) {
+				for (int i = 0; i != functions.length; i++) {
+					switch (functions[i]) {
+					case AggregateOperator.AVG:
+						row[functionColumns[i]] = row[functionColumns[i]].divide(row[0]);
+						break;
+					case AggregateOperator.COUNT_DISTINCT:
+						row[functionColumns[i]] = IntType.valueOf(((DistinctSketchType) row[functionColumns[i]]).estimate());
+						break;
+					case AggregateOperator.MEDIAN:
+					case AggregateOperator.P90:
+					case AggregateOperator.P95:
+					case AggregateOperator.P99:
+						row[functionColumns[i]] = new FloatType(((QuantileSketchType) row[functionColumns[i]]).quantile(quantileOf(functions[i])));
+						break;
+					}
+				}
+			}
+			return row;
+		}
+	}
+	
+	/**
+	 * Accumulates the value of one aggregate function. Int, long and float values
+	 * are accumulated as primitives; any other type, or a mix of types, falls back
+	 * to the arithmetic of the {@link ValueType}'s themselves. The sketch functions
+	 * offer each value, or merge each sketch, into a sketch of their own, so the
+	 * sketches of the rows are never changed.
+	 */
+	private static final class Accumulator {
+		private static final byte KIND_INT = 0;
+		private static final byte KIND_LONG = 1;
+		private static final byte KIND_FLOAT = 2;
+		private static final byte KIND_VALUE = 3;
+		private static final byte KIND_SKETCH = 4;
+		
+		private final byte function;
+		private byte kind;
+		private int intVal;
+		private long longVal;
+		private float floatVal;
+		private ValueType value;
+		
+		Accumulator(byte function, ValueType initial) throws InvalidOperationException {
+			this.function = function;
+			if (function == AggregateOperator.COUNT_DISTINCT) {
+				kind = KIND_SKETCH;
+				value = (initial == null) ? new DistinctSketchType() : new DistinctSketchType(initial);
+			}
+			else if (function >= AggregateOperator.MEDIAN) {
+				kind = KIND_SKETCH;
+				value = (initial == null) ? new QuantileSketchType() : new QuantileSketchType(initial);
+			}
+			else
+				start(initial);
+		}
+		
+		/**
+		 * Starts the running result of a function other than a sketch from its
+		 * first value. A null value, as in the rows padded out by a merge, leaves
+		 * the result null until the first value which is not.
+		 */
+		private void start(ValueType initial) {
+			if (initial instanceof IntType) {
+				kind = KIND_INT;
+				intVal = ((IntType) initial).getVal();
+			}
+			else if (initial instanceof LongType) {
+				kind = KIND_LONG;
+				longVal = ((LongType) initial).getVal();
+			}
+			else if (initial instanceof FloatType) {
+				kind = KIND_FLOAT;
+				floatVal = ((FloatType) initial).getVal();
+			}
+			else {
+				kind = KIND_VALUE;
+				value = initial;
+			}
+		}
+		
+		void add(ValueType v) throws InvalidOperationException {
+			if (v == null)
+				return;
+			if (kind == KIND_VALUE && value == null) {
+				start(v);
+				return;
+			}
+			switch (kind) {
+			case KIND_INT:
+				if (v instanceof IntType) {
+					int x = ((IntType) v).getVal();
+					if (function == AggregateOperator.MIN)
+						intVal = (intVal < x) ? intVal : x;
+					else if (function == AggregateOperator.MAX)
+						intVal = (intVal < x) ? x : intVal;
+					else
+						intVal += x;
+					return;
+				}
+				break;
+			case KIND_LONG:
+				if (v instanceof LongType) {
+					long x = ((LongType) v).getVal();
+					if (function == AggregateOperator.MIN)
+						longVal = (longVal < x) ? longVal : x;
+					else if (function == AggregateOperator.MAX)
+						longVal = (longVal < x) ? x : longVal;
+					else
+						longVal += x;
+					return;
+				}
+				break;
+			case KIND_FLOAT:
+				if (v instanceof FloatType) {
+					float x = ((FloatType) v).getVal();
+					if (function == AggregateOperator.MIN)
+						floatVal = (floatVal < x) ? floatVal : x;
+					else if (function == AggregateOperator.MAX)
+						floatVal = (floatVal < x) ? x : floatVal;
+					else
+						floatVal += x;
+					return;
+				}
+				break;
+			case KIND_SKETCH:
+				((SketchType) value).offer(v);
+				return;
+			}
+			
+			// different types, so use the ValueType arithmetic from now on
+			if (kind != KIND_VALUE) {
+				value = getValue();
+				kind = KIND_VALUE;
+			}
+			switch (function) {
+			case AggregateOperator.MIN:
+				if (!value.less(v))
+					value = v;
+				break;
+			case AggregateOperator.MAX:
+				if (value.less(v))
+					value = v;
+				break;
+			default:
+				value = value.add(v);
+			}
+		}
+		
+		ValueType getValue() {
+			switch (kind) {
+			case KIND_INT:
+				return IntType.valueOf(intVal);
+			case KIND_LONG:
+				return new LongType(longVal);
+			case KIND_FLOAT:
+				return new FloatType(floatVal);
+			default:
+				return value;
+			}
+		}
+	}
+}
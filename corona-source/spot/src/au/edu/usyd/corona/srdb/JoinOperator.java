@@ -0,0 +1,145 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class joins the rows of two tables whose values are equal in the given
+ * pairs of columns. Each output row is the row of the first table followed by
+ * the row of the second. The second table, typically a small reference table
+ * such as a {@link ConstantTableOperator}, is loaded into a hash table keyed by
+ * its join columns, and the rows of the first table are then streamed through
+ * it, so the join runs in time linear to the sizes of the two tables. Rows with
+ * a null join value never match. With no join columns, every combination of
+ * the rows is produced (the cross product).
+ */
+public class JoinOperator extends TableOperator {
+	private final TaskID taskID;
+	private final byte[] leftColumns; // the join columns of the first table
+	private final byte[] rightColumns; // the join columns of the second table
+	
+	/**
+	 * Constructor for the join. The join columns are given in pairs, so the
+	 * two arrays must be the same length.
+	 * 
+	 * @param taskID
+	 * @param left the first table to join, whose rows are streamed
+	 * @param right the second table to join, which is hashed
+	 * @param leftColumns the join columns of the first table
+	 * @param rightColumns the join columns of the second table
+	 */
+	public JoinOperator(TaskID taskID, TableOperator left, TableOperator right, byte[] leftColumns, byte[] rightColumns) {
+		if (leftColumns.length != rightColumns.length)
+			throw new IllegalArgumentException("The join columns must be given in pairs");
+		children = new TableOperator[]{left, right};
+		this.taskID = taskID;
+		this.leftColumns = leftColumns;
+		this.rightColumns = rightColumns;
+	}
+	
+	public Table eval(int epoch) throws InvalidOperationException {
+		return drain(open(epoch));
+	}
+	
+	/**
+	 * Builds the hash table from the second child, and then streams the joined
+	 * rows of the first child through it one at a time.
+	 */
+	public RowIterator open(int epoch) throws InvalidOperationException {
+		// hashes the rows of the second table by their join columns
+		Hashtable matches = new Hashtable(); // GroupKey -> Vector of rows
+		GroupKey probe = new GroupKey(new ValueType[rightColumns.length]);
+		RowIterator right = openChild(1, epoch);
+		try {
+			for (ValueType[] row = right.next(); row != null; row = right.next()) {
+				probe.set(row, rightColumns);
+				if (probe.hasNull())
+					continue;
+				Vector bucket = (Vector) matches.get(probe);
+				if (bucket == null) {
+					bucket = new Vector();
+					matches.put(new GroupKey(probe), bucket);
+				}
+				bucket.addElement(row);
+			}
+		}
+		finally {
+			right.close();
+		}
+		
+		return new JoinIterator(taskID, openChild(0, epoch), matches, leftColumns);
+	}
+	
+	protected boolean streams() {
+		return true;
+	}
+	
+	protected boolean consumesRows() {
+		return true;
+	}
+	
+	public long getSensedColumns(long columns) {
+		// the columns of the second table are shifted along, so be conservative
+		return super.getSensedColumns(ALL_COLUMNS);
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_JOIN).append(T_GROUP_OPEN).append(children[0].toTokens()).append(' ').append(children[1].toTokens());
+		
+		b.append(' ').append(leftColumns.length);
+		for (int i = 0; i != leftColumns.length; i++)
+			b.append(' ').append(leftColumns[i]).append(' ').append(rightColumns[i]);
+		
+		return b.append(T_GROUP_CLOSE);
+	}
+	
+	private static class JoinIterator implements RowIterator {
+		private final TaskID taskID;
+		private final RowIterator left;
+		private final Hashtable matches;
+		private final byte[] leftColumns;
+		private final GroupKey probe;
+		private ValueType[] current; // the row of the first table being joined
+		private Vector bucket; // the rows of the second table it matches
+		private int next; // the next row of the bucket to output
+		
+		JoinIterator(TaskID taskID, RowIterator left, Hashtable matches, byte[] leftColumns) {
+			this.taskID = taskID;
+			this.left = left;
+			this.matches = matches;
+			this.leftColumns = leftColumns;
+			probe = new GroupKey(new ValueType[leftColumns.length]);
+		}
+		
+		public ValueType[] next() throws InvalidOperationException {
+			while (bucket == null || next == bucket.size()) {
+				current = left.next();
+				if (current == null)
+					return null;
+				probe.set(current, leftColumns);
+				bucket = probe.hasNull() ? null : (Vector) matches.get(probe);
+				next = 0;
+			}
+			
+			ValueType[] other = (ValueType[]) bucket.elementAt(next++);
+			ValueType[] row = new ValueType[current.length + other.length];
+			System.arraycopy(current, 0, row, 0, current.length);
+			System.arraycopy(other, 0, row, current.length, other.length);
+			return row;
+		}
+		
+		public void close() {
+			left.close();
+		}
+		
+		public TaskID getTaskID() {
+			return taskID;
+		}
+	}
+}
@@ -35,7 +35,7 @@ public class MergeOperator extends TableOperator {
 	 */
 	public Table eval(int epoch) throws InvalidOperationException {
 		//evaluates the children and stores their tables
-		Table[] tables = new Table[]{children[0].eval(epoch), children[1].eval(epoch)};
+		Table[] tables = new Table[]{evalChild(0, epoch), evalChild(1, epoch)};
 		
 		//checks for null tables
 		if ((tables[0] == null) && (tables[1] == null))
@@ -51,6 +51,13 @@ public class MergeOperator extends TableOperator {
 		final int colCount = result.getNumCols();
 		ValueType[] row = null;
 		
+		// tables of the same column types are appended column by column
+		final Table other = tables[1 - maxIndex];
+		if ((result instanceof ColumnarTable) && (other instanceof ColumnarTable) && ((ColumnarTable) result).isCompatible((ColumnarTable) other)) {
+			((ColumnarTable) result).addAll((ColumnarTable) other);
+			return result;
+		}
+		
 		//merges the other tables into it, padding if need be
 		for (int i = 0; i < tables.length; i++) {
 			if (i == maxIndex)
@@ -65,8 +72,80 @@ public class MergeOperator extends TableOperator {
 		return result;
 	}
 	
+	/**
+	 * Streams the rows of both children, starting with the child whose rows have
+	 * the most columns and padding the rows of the other if need be. The first
+	 * row of each child is read ahead to work out the widths.
+	 */
+	public RowIterator open(int epoch) throws InvalidOperationException {
+		RowIterator[] iterators = new RowIterator[]{openChild(0, epoch), openChild(1, epoch)};
+		ValueType[][] firstRows;
+		try {
+			firstRows = new ValueType[][]{iterators[0].next(), iterators[1].next()};
+		}
+		catch (InvalidOperationException e) {
+			iterators[0].close();
+			iterators[1].close();
+			throw e;
+		}
+		
+		final int width0 = (firstRows[0] == null) ? 0 : firstRows[0].length;
+		final int width1 = (firstRows[1] == null) ? 0 : firstRows[1].length;
+		final int maxIndex = (width0 < width1) ? 1 : 0;
+		return new MergeIterator(taskID, iterators[maxIndex], firstRows[maxIndex], iterators[1 - maxIndex], firstRows[1 - maxIndex], Math.max(width0, width1));
+	}
+	
+	public void setAggregation(AggregateOperator aggregate) {
+		// aggregating each part of the union partially is the same as aggregating the whole union
+		children[0].setAggregation(aggregate);
+		children[1].setAggregation(aggregate);
+	}
+	
 	public StringBuffer toTokens() {
 		StringBuffer b = new StringBuffer();
 		return b.append(T_MERGE).append(T_GROUP_OPEN).append(children[0].toTokens()).append(' ').append(children[1].toTokens()).append(T_GROUP_CLOSE);
 	}
+	
+	private static class MergeIterator implements RowIterator {
+		private final TaskID taskID;
+		private final RowIterator[] iterators;
+		private final ValueType[][] pending; // the rows read ahead from each child
+		private final int colCount;
+		private int current;
+		
+		MergeIterator(TaskID taskID, RowIterator first, ValueType[] firstRow, RowIterator second, ValueType[] secondRow, int colCount) {
+			this.taskID = taskID;
+			this.iterators = new RowIterator[]{first, second};
+			this.pending = new ValueType[][]{firstRow, secondRow};
+			this.colCount = colCount;
+		}
+		
+		public ValueType[] next() throws InvalidOperationException {
+			for (; current != iterators.length; current++) {
+				ValueType[] row = pending[current];
+				if (row != null)
+					pending[current] = null;
+				else
+					row = iterators[current].next();
+				
+				if (row != null) {
+					if (row.length == colCount)
+						return row;
+					ValueType[] mergedRow = new ValueType[colCount];
+					System.arraycopy(row, 0, mergedRow, 0, row.length);
+					return mergedRow;
+				}
+			}
+			return null;
+		}
+		
+		public void close() {
+			iterators[0].close();
+			iterators[1].close();
+		}
+		
+		public TaskID getTaskID() {
+			return taskID;
+		}
+	}
 }
@@ -23,9 +23,9 @@ public class NANDExpression extends ConditionExpression {
 	 * expressions do
 	 */
 	public ValueType eval(ValueType[] row) throws InvalidOperationException {
-		boolean c1 = !(((BooleanType) children[0].eval(row)).equals(new BooleanType(0)));
-		boolean c2 = !(((BooleanType) children[1].eval(row)).equals(new BooleanType(0)));
-		return new BooleanType(!(c1 && c2));
+		boolean c1 = !(((BooleanType) children[0].eval(row)).equals(BooleanType.FALSE));
+		boolean c2 = !(((BooleanType) children[1].eval(row)).equals(BooleanType.FALSE));
+		return BooleanType.valueOf(!(c1 && c2));
 	}
 	
 	public StringBuffer toTokens() {
@@ -0,0 +1,29 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class represents the logical NOT of the result of a comparison.
+ */
+public class NotExpression extends ConditionExpression {
+	public NotExpression(ConditionExpression child) {
+		super(child, null);
+	}
+	
+	/**
+	 * Evaluates the comparison, returning 1 if it does not hold else returning 0
+	 */
+	public ValueType eval(ValueType[] row) throws InvalidOperationException {
+		return BooleanType.valueOf(!((BooleanType) children[0].eval(row)).getVal());
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_NOT).append(T_GROUP_OPEN);
+		b.append(children[0].toTokens());
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -0,0 +1,42 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * A {@link RowIterator} which runs each row of a source cursor through a chain
+ * of row stages (see {@link TableOperator#isRowStage()}) in turn, in a single
+ * loop. However long the chain is, pulling a row takes no deeper a thread
+ * stack than pulling one from the source, and no table is built between the
+ * stages.
+ */
+class PipelineIterator implements RowIterator {
+	private final RowIterator source;
+	private final TableOperator[] stages; // applied in order, from the first
+	
+	PipelineIterator(RowIterator source, TableOperator[] stages) {
+		this.source = source;
+		this.stages = stages;
+	}
+	
+	public ValueType[] next() throws InvalidOperationException {
+		ValueType[] row;
+		while ((row = source.next()) != null) {
+			for (int i = 0; row != null && i != stages.length; i++)
+				row = stages[i].process(row);
+			if (row != null)
+				return row;
+		}
+		return null;
+	}
+	
+	public void close() {
+		source.close();
+	}
+	
+	public TaskID getTaskID() {
+		return source.getTaskID();
+	}
+}
@@ -52,7 +52,13 @@ public class ProjectionOperator extends TableOperator {
 	 * @return a table with only the projected attributes
 	 */
 	public Table eval(int epoch) throws InvalidOperationException {
-		Table table = children[0].eval(epoch);
+		// a child which streams is projected as its rows are pulled, rather than being evaluated into a table first
+		if (isChildOpened(0))
+			return drain(open(epoch));
+		Table table = evalChild(0, epoch);
+		if (table instanceof ColumnarTable)
+			return ((ColumnarTable) table).project(constraints);
+		
 		Table result = new Table(table.getTaskID());
 		
 		ValueType[] row;
@@ -66,6 +72,36 @@ public class ProjectionOperator extends TableOperator {
 		return result;
 	}
 	
+	public long getSensedColumns(long columns) {
+		long needed = 0;
+		for (int i = 0; i < constraints.length; i++)
+			if (i >= 64 || (columns & (1L << i)) != 0)
+				needed |= 1L << constraints[i];
+		return children[0].getSensedColumns(needed);
+	}
+	
+	/**
+	 * Streams the projected rows of the child
+	 */
+	public RowIterator open(int epoch) throws InvalidOperationException {
+		return new PipelineIterator(openChild(0, epoch), new TableOperator[]{this});
+	}
+	
+	protected boolean streams() {
+		return true;
+	}
+	
+	protected boolean isRowStage() {
+		return true;
+	}
+	
+	protected ValueType[] process(ValueType[] row) {
+		ValueType[] projectedRow = new ValueType[constraints.length];
+		for (int i = 0; i < constraints.length; i++)
+			projectedRow[i] = row[constraints[i]];
+		return projectedRow;
+	}
+	
 	public StringBuffer toTokens() {
 		StringBuffer b = new StringBuffer();
 		b.append(T_PROJECT).append(T_GROUP_OPEN).append(children[0].toTokens());
@@ -0,0 +1,98 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.util.Enumeration;
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * Folds the result tables of the children of a node together as they arrive,
+ * so that the results of an epoch are never copied more than once. If the
+ * results are going to be aggregated, they are partially aggregated straight
+ * away, so only one row per group is held no matter how many children report.
+ * Otherwise the rows are appended to a single table, padding them if the tables
+ * have different numbers of columns.
+ */
+public class ResultAccumulator {
+	private final TaskID taskID;
+	private final HashAggregator aggregator; // null if the rows are only appended
+	private Table result;
+	
+	/**
+	 * Constructor for an accumulator which appends the rows of the tables
+	 * 
+	 * @param taskID the task ID of the accumulated table
+	 */
+	public ResultAccumulator(TaskID taskID) {
+		this.taskID = taskID;
+		aggregator = null;
+	}
+	
+	/**
+	 * Constructor for an accumulator which partially aggregates the rows of the
+	 * tables
+	 * 
+	 * @param taskID the task ID of the accumulated table
+	 * @param functions the aggregate functions
+	 * @param functionColumns the columns the functions are applied to
+	 * @param groupByColumns the columns the rows are grouped by
+	 */
+	ResultAccumulator(TaskID taskID, byte[] functions, byte[] functionColumns, byte[] groupByColumns) {
+		this.taskID = taskID;
+		aggregator = new HashAggregator(functions, functionColumns, groupByColumns);
+	}
+	
+	/**
+	 * Folds the rows of a table into the accumulated result
+	 * 
+	 * @param table the table to add
+	 * @throws InvalidOperationException if the rows cannot be aggregated
+	 */
+	public void add(Table table) throws InvalidOperationException {
+		if (table == null)
+			return;
+		
+		if (aggregator != null) {
+			for (Enumeration e = table.elements(); e.hasMoreElements();)
+				aggregator.add((ValueType[]) e.nextElement());
+		}
+		else if (result == null) {
+			result = table;
+		}
+		else if ((result instanceof ColumnarTable) && (table instanceof ColumnarTable) && ((ColumnarTable) result).isCompatible((ColumnarTable) table)) {
+			((ColumnarTable) result).addAll((ColumnarTable) table);
+		}
+		else {
+			// append the narrower table to the wider one, padding its rows
+			Table from = table;
+			if (result.getNumCols() < table.getNumCols()) {
+				from = result;
+				result = table;
+			}
+			final int colCount = result.getNumCols();
+			for (Enumeration e = from.elements(); e.hasMoreElements();) {
+				ValueType[] row = (ValueType[]) e.nextElement();
+				if (row.length != colCount) {
+					ValueType[] padded = new ValueType[colCount];
+					System.arraycopy(row, 0, padded, 0, row.length);
+					row = padded;
+				}
+				result.addRow(row);
+			}
+		}
+	}
+	
+	/**
+	 * @return the accumulated table, or null if no rows were ever added
+	 * @throws InvalidOperationException if the rows cannot be aggregated
+	 */
+	public Table getTable() throws InvalidOperationException {
+		if (aggregator == null)
+			return result;
+		Table output = new ColumnarTable(taskID, new byte[0]);
+		aggregator.writeTo(output, false);
+		return output;
+	}
+}
@@ -0,0 +1,35 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * An open cursor over the rows produced by a {@link TableOperator} for one
+ * epoch, as returned by {@link TableOperator#open(int)}. Rows are pulled one at
+ * a time through {@link #next()}, so operators which stream their rows never
+ * need to build an intermediate {@link Table}. Each call to
+ * {@link TableOperator#open(int)} returns a new cursor, so the same operator
+ * tree can be iterated over for more than one epoch at a time.
+ */
+public interface RowIterator {
+	/**
+	 * Produces the next row
+	 * 
+	 * @return the next row, or null if there are no more rows
+	 * @throws InvalidOperationException if evaluating the row fails
+	 */
+	public ValueType[] next() throws InvalidOperationException;
+	
+	/**
+	 * Releases any resources held by this cursor and the cursors of its children.
+	 * No more rows can be pulled once it has been closed.
+	 */
+	public void close();
+	
+	/**
+	 * @return the task ID that the rows belong to
+	 */
+	public TaskID getTaskID();
+}
@@ -3,16 +3,19 @@ package au.edu.usyd.corona.srdb;
 
 import java.util.Enumeration;
 
-import au.edu.usyd.corona.types.BooleanType;
 import au.edu.usyd.corona.types.InvalidOperationException;
 import au.edu.usyd.corona.types.ValueType;
 
 /**
  * Class that performs a selection on a table based on constrains expressed as a
- * {@link ConditionExpression}
+ * {@link ConditionExpression}. The constraints are compiled (see
+ * {@link CompiledPredicate}) when the operator is created, so that rows are
+ * tested on their primitive values rather than by interpreting the expression
+ * tree.
  */
 public class SelectionOperator extends TableOperator {
 	private final ConditionExpression constraints;
+	private final CompiledPredicate predicate;
 	
 	/**
 	 * Constructor for the selection operator, where a the result of a
@@ -25,13 +28,25 @@ public class SelectionOperator extends TableOperator {
 	public SelectionOperator(TableOperator table, ConditionExpression expr) {
 		children = new TableOperator[]{table};
 		constraints = expr;
+		predicate = new CompiledPredicate(expr);
 	}
 	
 	/**
 	 * Evaluates the selection operation
 	 */
 	public Table eval(int epoch) throws InvalidOperationException {
-		Table table = children[0].eval(epoch);
+		// a child which streams is filtered as its rows are pulled, rather than being evaluated into a table first
+		if (isChildOpened(0))
+			return drain(open(epoch));
+		Table table = evalChild(0, epoch);
+		
+		// column-wise tables are filtered by gathering the indexes of the wanted rows
+		if (table instanceof ColumnarTable) {
+			ColumnarTable columns = (ColumnarTable) table;
+			int[] selected = new int[columns.getNumRows()];
+			int count = predicate.select(columns, selected);
+			return columns.select(selected, count);
+		}
 		
 		//creates the return table
 		Table t = new Table(table.getTaskID());
@@ -40,13 +55,36 @@ public class SelectionOperator extends TableOperator {
 		//goes through the table row by row and evaluates it against the expression
 		for (Enumeration it = table.elements(); it.hasMoreElements();) {
 			row = (ValueType[]) it.nextElement();
-			if (((BooleanType) constraints.eval(row)).getVal())
+			if (predicate.matches(row))
 				t.addRow(row);
 		}
 		
 		return t;
 	}
 	
+	public long getSensedColumns(long columns) {
+		return children[0].getSensedColumns(columns | constraints.getAttributeMask());
+	}
+	
+	/**
+	 * Streams the rows of the child which satisfy the constraints
+	 */
+	public RowIterator open(int epoch) throws InvalidOperationException {
+		return new PipelineIterator(openChild(0, epoch), new TableOperator[]{this});
+	}
+	
+	protected boolean streams() {
+		return true;
+	}
+	
+	protected boolean isRowStage() {
+		return true;
+	}
+	
+	protected ValueType[] process(ValueType[] row) throws InvalidOperationException {
+		return predicate.matches(row) ? row : null;
+	}
+	
 	public StringBuffer toTokens() {
 		StringBuffer b = new StringBuffer();
 		return b.append(T_SELECT).append(T_GROUP_OPEN).append(children[0].toTokens()).append(' ').append(constraints.toTokens()).append(T_GROUP_CLOSE);
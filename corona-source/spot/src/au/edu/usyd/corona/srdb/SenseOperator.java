@@ -35,6 +35,10 @@ public class SenseOperator extends TableOperator {
 		return table;
 	}
 	
+	public long getSensedColumns(long columns) {
+		return columns;
+	}
+	
 	public StringBuffer toTokens() {
 		return new StringBuffer().append(T_SENSE).append(T_GROUP_OPEN).append(T_GROUP_CLOSE);
 	}
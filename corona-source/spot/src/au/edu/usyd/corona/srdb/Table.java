@@ -7,14 +7,8 @@ import java.io.IOException;
 import java.util.Enumeration;
 import java.util.Vector;
 
-import au.edu.usyd.corona.scheduler.QueryTask;
-import au.edu.usyd.corona.scheduler.Scheduler;
 import au.edu.usyd.corona.scheduler.TaskID;
-import au.edu.usyd.corona.scheduler.TaskNotFoundException;
 import au.edu.usyd.corona.types.ValueType;
-import au.edu.usyd.corona.util.ClassIdentifiers;
-import au.edu.usyd.corona.util.Logger;
-import au.edu.usyd.corona.util.SPOTTools;
 
 /**
  * This class represents a Table in the SunSPOT Relational DataBase
@@ -24,7 +18,7 @@ import au.edu.usyd.corona.util.SPOTTools;
  */
 public class Table {
 	private final Vector rows; // the rows of the table, stored as a vector of ValueType[]
-	private TaskID taskID; // the task ID number which the table is associated with
+	protected TaskID taskID; // the task ID number which the table is associated with
 	
 	public Table() {
 		this(null);
@@ -118,8 +112,8 @@ public class Table {
 		StringBuffer out = new StringBuffer();
 		out.append("Table TaskID: " + taskID);
 		out.append('\n');
-		for (int i = 0; i != rows.size(); i++) {
-			ValueType[] row = (ValueType[]) rows.elementAt(i);
+		for (Enumeration it = elements(); it.hasMoreElements();) {
+			ValueType[] row = (ValueType[]) it.nextElement();
 			
 			for (int j = 0; j != row.length; j++) {
 				if (j != 0)
@@ -132,19 +126,18 @@ public class Table {
 	}
 	
 	/**
-	 * Encodes a table to a ByteArrayStream
+	 * Encodes a table to a ByteArrayStream, in the compact format of
+	 * {@link ColumnarTable#encode(DataOutput)}
 	 * 
 	 * @param b The ByteArrayStream to encode to
 	 * @throws IOException
 	 */
 	public void encode(DataOutput b) throws IOException {
-		taskID.encode(b);
-		b.writeInt(rows.size());
-		for (Enumeration rowEnum = rows.elements(); rowEnum.hasMoreElements();) {
-			ValueType[] row = (ValueType[]) rowEnum.nextElement();
-			for (int i = 0; i < row.length; ++i)
-				row[i].encode(b);
-		}
+		byte[] schema = rows.isEmpty() ? new byte[0] : ColumnarTable.schemaOf((ValueType[]) rows.firstElement());
+		ColumnarTable columns = new ColumnarTable(taskID, schema, rows.size());
+		for (Enumeration rowEnum = rows.elements(); rowEnum.hasMoreElements();)
+			columns.addRow((ValueType[]) rowEnum.nextElement());
+		columns.encode(b);
 	}
 	
 	/**
@@ -154,35 +147,12 @@ public class Table {
 	 * @throws IOException
 	 */
 	public void decode(DataInput b) throws IOException {
-		taskID = new TaskID(b);
-		QueryTask task = null;
-		try {
-			task = (QueryTask) Scheduler.getInstance().getTask(taskID);
-		}
-		catch (TaskNotFoundException e) {
-			Logger.logError("Could not decode the table: " + e);
-			return;
-		}
-		byte[] schema = task.getNetworkSchema();
+		ColumnarTable columns = new ColumnarTable();
+		columns.decode(b);
+		taskID = columns.getTaskID();
 		
 		rows.removeAllElements();
-		
-		int length = b.readInt();
-		for (int i = 0; i < length; ++i) {
-			ValueType[] row = new ValueType[schema.length];
-			for (int j = 0; j < schema.length; ++j) {
-				try {
-					row[j] = (ValueType) (ClassIdentifiers.getClass(schema[j])).newInstance();
-					row[j].decode(b);
-				}
-				catch (InstantiationException e) {
-					SPOTTools.reportError(e);
-				}
-				catch (IllegalAccessException e) {
-					SPOTTools.reportError(e);
-				}
-			}
-			rows.addElement(row);
-		}
+		for (Enumeration rowEnum = columns.elements(); rowEnum.hasMoreElements();)
+			rows.addElement(rowEnum.nextElement());
 	}
 }
@@ -0,0 +1,66 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.util.Hashtable;
+
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.Scheduler;
+import au.edu.usyd.corona.scheduler.TaskID;
+
+/**
+ * The decoder for the result tables of one query. A codec is built once for
+ * each query when its {@link QueryTask} is added to the {@link Scheduler}, and
+ * holds everything a {@link ColumnarTable} needs to decode a table of the
+ * query: the task ID the table is given, the network schema, and the storage
+ * kind of each column. Decoding a table received from a child then takes one
+ * lookup in the registry, rather than finding the query through the
+ * synchronized methods of the scheduler and working out the column types again
+ * for every packet.
+ */
+public class TableCodec {
+	private static final Hashtable codecs = new Hashtable(); // Maps query ID to the TableCodec of the query
+	
+	final TaskID taskID; // the task ID of the query, which decoded tables are given
+	final byte[] schema; // the network schema of the query
+	final byte[] kinds; // the storage kind of each column of the schema
+	
+	private TableCodec(QueryTask task) {
+		taskID = task.getTaskId();
+		schema = task.getNetworkSchema();
+		kinds = new byte[schema.length];
+		for (int i = 0; i != schema.length; i++)
+			kinds[i] = ColumnarTable.kindOf(schema[i]);
+	}
+	
+	/**
+	 * Builds the codec of a query
+	 * 
+	 * @param task the QueryTask of the query
+	 */
+	public static void register(QueryTask task) {
+		if (task.getNetworkSchema() != null)
+			codecs.put(new Integer(task.getTaskId().getQueryID()), new TableCodec(task));
+	}
+	
+	/**
+	 * Removes the codec of a query, if it was built from the given task
+	 * 
+	 * @param task the QueryTask of the query
+	 */
+	public static void unregister(QueryTask task) {
+		Integer key = new Integer(task.getTaskId().getQueryID());
+		synchronized (codecs) {
+			TableCodec codec = (TableCodec) codecs.get(key);
+			if (codec != null && codec.taskID.equals(task.getTaskId()))
+				codecs.remove(key);
+		}
+	}
+	
+	/**
+	 * @param queryID the ID of the query
+	 * @return the codec of the query, or null if the query is not on this node
+	 */
+	static TableCodec forQuery(int queryID) {
+		return (TableCodec) codecs.get(new Integer(queryID));
+	}
+}
@@ -1,8 +1,12 @@
 package au.edu.usyd.corona.srdb;
 
 
+import java.util.Hashtable;
+import java.util.Vector;
+
 import au.edu.usyd.corona.grammar.TokenGrammarTokens;
 import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
 
 /**
  * This is the abstract base class for items in this expression tree. Queries in
@@ -10,10 +14,35 @@ import au.edu.usyd.corona.types.InvalidOperationException;
  * expression tree, and when it is their time to be executed in the scheduler,
  * the {@link #eval(int)} method is called, recursively evaluating the
  * expression tree.
+ * <p>
+ * Operators can also be executed in a pipelined fashion through
+ * {@link #open(int)}, which returns a {@link RowIterator} that pulls the rows
+ * through the tree one at a time. Operators which do not override
+ * {@link #open(int)} are adapted by evaluating their whole table through
+ * {@link #eval(int)} and iterating over it.
+ * <p>
+ * The scheduler evaluates whole trees through {@link #evaluate(int)}, which
+ * walks the tree with an explicit stack rather than recursing, evaluating each
+ * operator once the tables of its children are ready. Operators which stream
+ * (see {@link #streams()}) are not evaluated into tables when their parent
+ * pulls rows from them, but are opened by the parent instead, and a chain of
+ * operators which each turn one row into at most one row (see
+ * {@link #isRowStage()}) is run as a single flat pipeline over the rows of the
+ * table below it. Operators read the output of their children through
+ * {@link #evalChild(int, int)} and {@link #openChild(int, int)}, which hand
+ * back the tables or pipelines already worked out for them, so neither the
+ * depth of the thread stack nor the number of intermediate tables grows with
+ * the depth of the tree, and any number of trees can be evaluated at once.
  * 
  * @author Tim Dawborn
  */
 public abstract class TableOperator implements TokenGrammarTokens {
+	public static final long ALL_COLUMNS = -1L; // column mask with every column set
+	
+	private static final Object NO_TABLE = new Object(); // stands in for a null table in the results of an evaluation
+	private static final Object PIPELINED = new Object(); // stands in for the table of an operator its parent opens instead
+	private static final Hashtable evaluations = new Hashtable(); // Maps each thread evaluating a tree to the tables evaluated so far (operator to Table)
+	
 	protected TableOperator[] children; // the children of the current node in the operator tree
 	
 	/**
@@ -26,6 +55,276 @@ public abstract class TableOperator implements TokenGrammarTokens {
 	 */
 	public abstract Table eval(int epoch) throws InvalidOperationException;
 	
+	/**
+	 * Opens a cursor over the rows that this operation produces for the given
+	 * epoch. By default the table is evaluated in full through
+	 * {@link #eval(int)}; operators which can produce their rows one at a time
+	 * override this so that no intermediate table is built.
+	 * 
+	 * @param epoch
+	 * @return a new cursor over the rows of the result
+	 * @throws InvalidOperationException
+	 */
+	public RowIterator open(int epoch) throws InvalidOperationException {
+		return new TableRowIterator(eval(epoch));
+	}
+	
+	/**
+	 * @return true if this operator can produce its rows through
+	 * {@link #open(int)} without building its own table, so that it is opened
+	 * rather than evaluated when its parent pulls rows from it
+	 */
+	protected boolean streams() {
+		return false;
+	}
+	
+	/**
+	 * @return true if this operator reads its children through
+	 * {@link #openChild(int, int)}, so that those of its children which stream
+	 * need not be evaluated into tables
+	 */
+	protected boolean consumesRows() {
+		return false;
+	}
+	
+	/**
+	 * @return true if this operator has a single child and produces at most one
+	 * row for each row of it through {@link #process(ValueType[])}, so that it
+	 * can be run as one stage of a pipeline
+	 */
+	protected boolean isRowStage() {
+		return false;
+	}
+	
+	/**
+	 * Produces the row of this operator for one row of its child, for the
+	 * operators which are row stages (see {@link #isRowStage()})
+	 * 
+	 * @param row the row of the child
+	 * @return the row produced, or null if the row is dropped
+	 * @throws InvalidOperationException
+	 */
+	protected ValueType[] process(ValueType[] row) throws InvalidOperationException {
+		throw new IllegalStateException("Not a row stage");
+	}
+	
+	/**
+	 * Evaluates this operator and the whole tree below it for the given epoch,
+	 * without recursing. The operators are evaluated in post order off an
+	 * explicit stack, and the table of each is kept until its parent has been
+	 * evaluated. An operator which streams, under a parent which pulls rows, is
+	 * not evaluated at all: it is opened by its parent, and the tables below it
+	 * are kept until its parent has been evaluated.
+	 * 
+	 * @param epoch
+	 * @return the table produced by this operator
+	 * @throws InvalidOperationException
+	 */
+	public final Table evaluate(int epoch) throws InvalidOperationException {
+		final Thread thread = Thread.currentThread();
+		final Object outer = evaluations.get(thread);
+		final Hashtable results = new Hashtable();
+		evaluations.put(thread, results);
+		try {
+			// each operator is on the stack twice: first to push its children, then to evaluate it
+			final Vector stack = new Vector();
+			final Vector expanded = new Vector();
+			final Vector pipelined = new Vector(); // whether each operator on the stack is opened by its parent
+			stack.addElement(this);
+			expanded.addElement(Boolean.FALSE);
+			pipelined.addElement(Boolean.FALSE);
+			while (!stack.isEmpty()) {
+				int top = stack.size() - 1;
+				TableOperator op = (TableOperator) stack.elementAt(top);
+				if (results.containsKey(op)) {
+					// the same operator appears more than once in the tree
+					stack.removeElementAt(top);
+					expanded.removeElementAt(top);
+					pipelined.removeElementAt(top);
+				}
+				else if (expanded.elementAt(top) == Boolean.FALSE) {
+					expanded.setElementAt(Boolean.TRUE, top);
+					final boolean pulls = pipelined.elementAt(top) == Boolean.TRUE || op.consumesRows() || op.streams();
+					if (op.children != null)
+						for (int i = op.children.length - 1; i >= 0; i--) {
+							stack.addElement(op.children[i]);
+							expanded.addElement(Boolean.FALSE);
+							pipelined.addElement((pulls && op.children[i].streams()) ? Boolean.TRUE : Boolean.FALSE);
+						}
+				}
+				else {
+					final boolean opened = pipelined.elementAt(top) == Boolean.TRUE;
+					stack.removeElementAt(top);
+					expanded.removeElementAt(top);
+					pipelined.removeElementAt(top);
+					if (opened) {
+						// the parent opens this operator, which reads the tables below it then
+						results.put(op, PIPELINED);
+						continue;
+					}
+					Table table = op.eval(epoch);
+					results.put(op, (table == null) ? NO_TABLE : (Object) table);
+					release(results, op);
+				}
+			}
+			Object result = results.get(this);
+			return (result == NO_TABLE) ? null : (Table) result;
+		}
+		finally {
+			if (outer == null)
+				evaluations.remove(thread);
+			else
+				evaluations.put(thread, outer);
+		}
+	}
+	
+	/**
+	 * Drops the tables kept for the children of an operator which has been
+	 * evaluated, along with those kept below any of its children which were
+	 * opened rather than evaluated
+	 * 
+	 * @param results the tables evaluated so far
+	 * @param op the operator evaluated
+	 */
+	private static void release(Hashtable results, TableOperator op) {
+		final Vector pending = new Vector();
+		pending.addElement(op);
+		while (!pending.isEmpty()) {
+			TableOperator parent = (TableOperator) pending.lastElement();
+			pending.removeElementAt(pending.size() - 1);
+			if (parent.children != null)
+				for (int i = 0; i != parent.children.length; i++)
+					if (results.remove(parent.children[i]) == PIPELINED)
+						pending.addElement(parent.children[i]);
+		}
+	}
+	
+	/**
+	 * Within {@link #evaluate(int)}, this is whether a child of this operator is
+	 * to be opened rather than having had its table evaluated, in which case an
+	 * operator which streams should produce its own table by pulling its rows
+	 * through {@link #open(int)}
+	 * 
+	 * @param i the index of the child
+	 * @return true if the child is opened
+	 */
+	protected final boolean isChildOpened(int i) {
+		Hashtable results = (Hashtable) evaluations.get(Thread.currentThread());
+		return results != null && results.get(children[i]) == PIPELINED;
+	}
+	
+	/**
+	 * Produces the table of a child of this operator. Within
+	 * {@link #evaluate(int)} this is the table the child has already produced,
+	 * otherwise the child is evaluated through {@link #eval(int)}.
+	 * 
+	 * @param i the index of the child
+	 * @param epoch
+	 * @return the table produced by the child
+	 * @throws InvalidOperationException
+	 */
+	protected final Table evalChild(int i, int epoch) throws InvalidOperationException {
+		Hashtable results = (Hashtable) evaluations.get(Thread.currentThread());
+		Object result = (results == null) ? null : results.get(children[i]);
+		if (result == null)
+			return children[i].eval(epoch);
+		if (result == PIPELINED)
+			return drain(openChild(i, epoch));
+		return (result == NO_TABLE) ? null : (Table) result;
+	}
+	
+	/**
+	 * Opens a cursor over the rows of a child of this operator. Within
+	 * {@link #evaluate(int)} this iterates over the table the child has already
+	 * produced, or if the child is opened, runs the chain of row stages from
+	 * the child down as one pipeline over the rows of the operator below them.
+	 * Otherwise the child is opened through {@link #open(int)}.
+	 * 
+	 * @param i the index of the child
+	 * @param epoch
+	 * @return a new cursor over the rows of the child
+	 * @throws InvalidOperationException
+	 */
+	protected final RowIterator openChild(int i, int epoch) throws InvalidOperationException {
+		Hashtable results = (Hashtable) evaluations.get(Thread.currentThread());
+		Object result = (results == null) ? null : results.get(children[i]);
+		if (result == null)
+			return children[i].open(epoch);
+		if (result != PIPELINED)
+			return new TableRowIterator((result == NO_TABLE) ? null : (Table) result);
+		
+		// collects the row stages down to the operator whose rows they process
+		final Vector stages = new Vector();
+		TableOperator source = children[i];
+		while (result == PIPELINED && source.isRowStage()) {
+			stages.addElement(source);
+			source = source.children[0];
+			result = results.get(source);
+		}
+		
+		RowIterator rows;
+		if (result == null || result == PIPELINED)
+			rows = source.open(epoch);
+		else
+			rows = new TableRowIterator((result == NO_TABLE) ? null : (Table) result);
+		if (stages.isEmpty())
+			return rows;
+		
+		// the stages are applied from the bottom up
+		final TableOperator[] pipeline = new TableOperator[stages.size()];
+		for (int j = 0; j != pipeline.length; j++)
+			pipeline[j] = (TableOperator) stages.elementAt(pipeline.length - 1 - j);
+		return new PipelineIterator(rows, pipeline);
+	}
+	
+	/**
+	 * Pulls all of the rows of a cursor into a table, closing it
+	 * 
+	 * @param rows the cursor
+	 * @return a table of the rows
+	 * @throws InvalidOperationException
+	 */
+	protected static Table drain(RowIterator rows) throws InvalidOperationException {
+		try {
+			Table table = new ColumnarTable(rows.getTaskID(), new byte[0]);
+			for (ValueType[] row = rows.next(); row != null; row = rows.next())
+				table.addRow(row);
+			return table;
+		}
+		finally {
+			rows.close();
+		}
+	}
+	
+	/**
+	 * Works out which columns of the sensed table are needed to produce the
+	 * given columns of the output of this operation. Bit <i>i</i> of a mask is
+	 * set if column <i>i</i> is needed. By default the columns are assumed to be
+	 * passed straight through from the children, which is overridden by the
+	 * operators which change the columns of their input.
+	 * 
+	 * @param columns the mask of the columns of the output which are needed
+	 * @return the mask of the columns of the sensed table which are needed
+	 */
+	public long getSensedColumns(long columns) {
+		long sensed = 0;
+		if (children != null)
+			for (int i = 0; i != children.length; i++)
+				sensed |= children[i].getSensedColumns(columns);
+		return sensed;
+	}
+	
+	/**
+	 * Tells this operation that its output is aggregated by the given
+	 * aggregation, so that operations which collect rows from elsewhere can
+	 * partially aggregate them as they arrive. By default nothing is done, as
+	 * an operation which changes its rows cannot pass this on to its children.
+	 * 
+	 * @param aggregate the aggregation performed over the output
+	 */
+	public void setAggregation(AggregateOperator aggregate) {
+	}
+	
 	/**
 	 * @return the tokenized version of the current node and its subtree
 	 */
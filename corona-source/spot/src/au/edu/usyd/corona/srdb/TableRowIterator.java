@@ -0,0 +1,33 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * A {@link RowIterator} over the rows of an already evaluated {@link Table}.
+ * This is what operators which do not stream their rows return from
+ * {@link TableOperator#open(int)}.
+ */
+class TableRowIterator implements RowIterator {
+	private Table table;
+	private int row;
+	
+	TableRowIterator(Table table) {
+		this.table = table;
+	}
+	
+	public ValueType[] next() {
+		if (table == null || row == table.getNumRows())
+			return null;
+		return table.getRow(row++);
+	}
+	
+	public void close() {
+		table = null;
+	}
+	
+	public TaskID getTaskID() {
+		return (table == null) ? null : table.getTaskID();
+	}
+}
@@ -0,0 +1,162 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+/**
+ * This class orders the rows of a table by the given columns, keeping only the
+ * first <i>k</i> rows of the ordering (an <code>ORDER BY ... LIMIT k</code>).
+ * As the best <i>k</i> rows of a union of tables are found among the best
+ * <i>k</i> rows of each of them, this operator can be applied at every hop of
+ * the network, so that no node ever forwards more than <i>k</i> rows to its
+ * parent no matter how large its subtree is.
+ * <p>
+ * The rows are kept in a bounded heap with the worst kept row at its root, so
+ * ordering <i>n</i> rows takes time proportional to <i>n</i> log <i>k</i>. Null
+ * values are ordered after all other values, in either direction. With no
+ * ordering columns the first <i>k</i> rows are kept.
+ */
+public class TopKOperator extends TableOperator {
+	public static final int NO_LIMIT = -1;
+	
+	private final int limit; // the number of rows to keep, or NO_LIMIT
+	private final byte[] columns; // the columns to order by, most significant first
+	private final boolean[] descending; // whether each column is ordered largest first
+	
+	/**
+	 * @param child the table to order
+	 * @param limit the number of rows to keep, or {@link #NO_LIMIT} to keep them
+	 * all
+	 * @param columns the columns to order by, most significant first
+	 * @param descending for each column, whether the largest values come first
+	 */
+	public TopKOperator(TableOperator child, int limit, byte[] columns, boolean[] descending) {
+		if (columns.length != descending.length)
+			throw new IllegalArgumentException("A direction must be given for each ordering column");
+		children = new TableOperator[]{child};
+		this.limit = limit;
+		this.columns = columns;
+		this.descending = descending;
+	}
+	
+	public Table eval(int epoch) throws InvalidOperationException {
+		RowIterator rows = openChild(0, epoch);
+		Table result = new ColumnarTable(rows.getTaskID(), new byte[0]);
+		try {
+			if (columns.length == 0) {
+				// nothing to order by, so the first rows will do
+				ValueType[] row;
+				for (int i = 0; (limit == NO_LIMIT || i != limit) && (row = rows.next()) != null; i++)
+					result.addRow(row);
+			}
+			else {
+				ValueType[][] heap = new ValueType[(limit == NO_LIMIT) ? 16 : limit][];
+				int size = 0;
+				for (ValueType[] row = rows.next(); row != null; row = rows.next()) {
+					if (limit == NO_LIMIT || size != limit) {
+						if (size == heap.length) {
+							ValueType[][] tmp = new ValueType[size * 2][];
+							System.arraycopy(heap, 0, tmp, 0, size);
+							heap = tmp;
+						}
+						heap[size] = row;
+						siftUp(heap, size++);
+					}
+					else if (size != 0 && compare(row, heap[0]) < 0) {
+						heap[0] = row;
+						siftDown(heap, 0, size);
+					}
+				}
+				
+				// takes the worst row off the heap each time, filling the ordering from the end
+				ValueType[][] ordered = new ValueType[size][];
+				while (size != 0) {
+					ordered[--size] = heap[0];
+					heap[0] = heap[size];
+					heap[size] = null;
+					siftDown(heap, 0, size);
+				}
+				for (int i = 0; i != ordered.length; i++)
+					result.addRow(ordered[i]);
+			}
+		}
+		finally {
+			rows.close();
+		}
+		return result;
+	}
+	
+	/**
+	 * Compares two rows on the ordering columns
+	 * 
+	 * @return negative if the first row comes before the second, positive if it
+	 * comes after, or 0 if they are level
+	 */
+	private int compare(ValueType[] a, ValueType[] b) throws InvalidOperationException {
+		for (int i = 0; i != columns.length; i++) {
+			ValueType x = a[columns[i]];
+			ValueType y = b[columns[i]];
+			int c;
+			if (x == null || y == null)
+				c = (x == null) ? ((y == null) ? 0 : 1) : -1;
+			else if (x.less(y))
+				c = descending[i] ? 1 : -1;
+			else if (y.less(x))
+				c = descending[i] ? -1 : 1;
+			else
+				c = 0;
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+	
+	private void siftUp(ValueType[][] heap, int i) throws InvalidOperationException {
+		ValueType[] row = heap[i];
+		while (i != 0) {
+			int parent = (i - 1) >> 1;
+			if (compare(row, heap[parent]) <= 0)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = row;
+	}
+	
+	private void siftDown(ValueType[][] heap, int i, int size) throws InvalidOperationException {
+		if (size == 0)
+			return;
+		ValueType[] row = heap[i];
+		int child;
+		while ((child = 2 * i + 1) < size) {
+			if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0)
+				child++;
+			if (compare(heap[child], row) <= 0)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = row;
+	}
+	
+	protected boolean consumesRows() {
+		return true;
+	}
+	
+	public long getSensedColumns(long columns) {
+		long needed = columns;
+		for (int i = 0; i != this.columns.length; i++)
+			needed |= 1L << this.columns[i];
+		return children[0].getSensedColumns(needed);
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_TOP_K).append(T_GROUP_OPEN).append(children[0].toTokens());
+		b.append(' ').append(limit).append(' ').append(columns.length);
+		for (int i = 0; i != columns.length; i++)
+			b.append(' ').append(columns[i]).append(' ').append(descending[i] ? 1 : 0);
+		return b.append(T_GROUP_CLOSE);
+	}
+}
@@ -0,0 +1,63 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.types.InvalidOperationException;
+
+/**
+ * This class aggregates over a sliding window of the most recent epochs rather
+ * than over a single epoch. Its child is the partial aggregation of the rows a
+ * node produces itself each epoch; the results of the last <i>n</i> epochs are
+ * kept in a ring buffer on the node, and each epoch they are aggregated
+ * together into the result for the whole window.
+ * <p>
+ * Only the rows of the node itself are windowed. The results collected from
+ * its children already cover the windows of their subtrees, so merging them
+ * with the window of the node gives the window of the whole subtree, and each
+ * node forwards a single partial result per group no matter how long the
+ * window is. As a node sends its whole window every epoch, a lost result only
+ * affects a single epoch at its parent.
+ */
+public class WindowOperator extends TableOperator {
+	private final int size; // the number of epochs in the window
+	private final Table[] results; // the partial aggregates of the last epochs
+	private final int[] epochs; // the epoch each of the results is from
+	
+	/**
+	 * @param child the partial aggregation of the rows of each epoch
+	 * @param size the number of epochs in the window
+	 */
+	public WindowOperator(AggregateOperator child, int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("The window must cover at least one epoch");
+		children = new TableOperator[]{child};
+		this.size = size;
+		results = new Table[size];
+		epochs = new int[size];
+	}
+	
+	/**
+	 * Aggregates the rows of the current epoch, and then aggregates them with
+	 * the results of the rest of the window
+	 */
+	public Table eval(int epoch) throws InvalidOperationException {
+		Table current = evalChild(0, epoch);
+		int slot = epoch % size;
+		if (slot < 0)
+			slot += size;
+		results[slot] = current;
+		epochs[slot] = epoch;
+		
+		ResultAccumulator window = ((AggregateOperator) children[0]).createAccumulator(current.getTaskID());
+		for (int i = 0; i != size; i++)
+			if (results[i] != null && epochs[i] <= epoch && epochs[i] > epoch - size)
+				window.add(results[i]);
+		return window.getTable();
+	}
+	
+	public StringBuffer toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_WINDOW).append(T_GROUP_OPEN).append(children[0].toTokens());
+		b.append(' ').append(size);
+		return b.append(T_GROUP_CLOSE);
+	}
+}
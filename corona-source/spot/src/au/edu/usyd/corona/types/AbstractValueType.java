@@ -11,12 +11,41 @@ import au.edu.usyd.corona.util.SPOTTools;
 
 /**
  * Abstract base class implementation of {@link ValueType} for all the type
- * implementations in this package to extend from.
+ * implementations in this package to extend from. Each type has a numeric type
+ * code, which the operators switch on to work out what the other operand is,
+ * rather than testing it against each type in turn. Values are hashed and
+ * compared by their primitive values, and two values are only equal if they are
+ * of the same type.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
  */
 abstract class AbstractValueType implements ValueType, TokenGrammarTokens {
+	static final int TYPE_UNKNOWN = -1;
+	static final int TYPE_BOOLEAN = 0;
+	static final int TYPE_BYTE = 1;
+	static final int TYPE_INT = 2;
+	static final int TYPE_LONG = 3;
+	static final int TYPE_FLOAT = 4;
+	static final int TYPE_IEEE_ADDRESS = 5;
+	static final int TYPE_DISTINCT_SKETCH = 6;
+	static final int TYPE_QUANTILE_SKETCH = 7;
+	
+	private final int typeCode;
+	
+	protected AbstractValueType(int typeCode) {
+		this.typeCode = typeCode;
+	}
+	
+	/**
+	 * @param v a value, which may be null
+	 * @return the type code of the value, or {@link #TYPE_UNKNOWN} if it is null
+	 * or not one of the types of this package
+	 */
+	static int typeOf(ValueType v) {
+		return (v instanceof AbstractValueType) ? ((AbstractValueType) v).typeCode : TYPE_UNKNOWN;
+	}
+	
 	
 	protected abstract void _decode(DataInput b) throws IOException;
 	
@@ -59,19 +88,40 @@ abstract class AbstractValueType implements ValueType, TokenGrammarTokens {
 	 */
 	public abstract String toString();
 	
+	/**
+	 * Whether the given value, which is of the same type as this value, has the
+	 * same value
+	 * 
+	 * @param v the value to compare against
+	 * @return true if the values are the same
+	 */
+	protected abstract boolean sameValue(AbstractValueType v);
+	
+	/**
+	 * @return a hash of the value, consistent with {@link #sameValue}
+	 */
+	protected abstract int valueHash();
+	
 	/**
 	 * Overrides for use in hashed data structures
 	 */
 	public final boolean equals(Object o) {
-		if (o instanceof ValueType)
-			return toTokens().equals(((ValueType) o).toTokens());
-		return false;
+		if (o == this)
+			return true;
+		if (!(o instanceof AbstractValueType))
+			return false;
+		AbstractValueType v = (AbstractValueType) o;
+		return v.typeCode == typeCode && sameValue(v);
 	}
 	
 	/**
 	 * Overrides for use in hashed data structures
 	 */
 	public final int hashCode() {
-		return toTokens().hashCode();
+		return 31 * valueHash() + typeCode;
+	}
+	
+	static int hash(long v) {
+		return (int) (v ^ (v >>> 32));
 	}
 }
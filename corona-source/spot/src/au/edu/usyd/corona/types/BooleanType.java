@@ -7,60 +7,78 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 /**
- * Class representing a normal boolean value in our type system.
+ * Class representing a normal boolean value in our type system. The two values
+ * are shared between uses, see {@link #valueOf(boolean)}.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
  */
 public class BooleanType extends AbstractValueType {
+	public static final BooleanType TRUE = new BooleanType(true);
+	public static final BooleanType FALSE = new BooleanType(false);
+	
 	private boolean val;
 	
 	public BooleanType() {
-		this.val = false;
+		this(false);
 	}
 	
 	public BooleanType(int val) {
-		this.val = (val != 0);
+		this(val != 0);
 	}
 	
 	public BooleanType(boolean val) {
+		super(TYPE_BOOLEAN);
 		this.val = val;
 	}
 	
 	public BooleanType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
+	/**
+	 * @param val the value
+	 * @return {@link #TRUE} or {@link #FALSE}
+	 */
+	public static BooleanType valueOf(boolean val) {
+		return val ? TRUE : FALSE;
+	}
+	
 	public ValueType add(ValueType a) throws InvalidOperationException {
 		final byte v = (byte) (val ? 1 : 0);
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() + v);
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return IntType.valueOf(((IntType) a).getVal() + v);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() + v);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() + v);
-		else if (a instanceof ByteType)
-			return new ByteType(((ByteType) a).getVal() + v);
-		else if (a instanceof BooleanType)
-			return new BooleanType(((BooleanType) a).getVal() | val);
-		else
+		case TYPE_BYTE:
+			return ByteType.valueOf(((ByteType) a).getVal() + v);
+		case TYPE_BOOLEAN:
+			return valueOf(((BooleanType) a).val | val);
+		default:
 			throw new InvalidOperationException("Cannot add types", this, a);
+		}
 	}
 	
 	public ValueType multiply(ValueType a) throws InvalidOperationException {
-		byte v = (byte) (val ? 1 : 0);
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() * v);
-		else if (a instanceof LongType)
+		final byte v = (byte) (val ? 1 : 0);
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return IntType.valueOf(((IntType) a).getVal() * v);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() * v);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() * v);
-		else if (a instanceof ByteType)
-			return new ByteType(((ByteType) a).getVal() * v);
-		else if (a instanceof BooleanType)
-			return new BooleanType(((BooleanType) a).getVal() & val);
-		else
+		case TYPE_BYTE:
+			return ByteType.valueOf(((ByteType) a).getVal() * v);
+		case TYPE_BOOLEAN:
+			return valueOf(((BooleanType) a).val & val);
+		default:
 			throw new InvalidOperationException("Cannot multiply types", this, a);
+		}
 	}
 	
 	public ValueType divide(ValueType a) throws InvalidOperationException {
@@ -68,34 +86,38 @@ public class BooleanType extends AbstractValueType {
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return (((IntType) a).getVal() != 0) == val;
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return (((LongType) a).getVal() != 0) == val;
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return (((FloatType) a).getVal() != 0) == val;
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return (((ByteType) a).getVal() != 0) == val;
-		else if (a instanceof BooleanType)
-			return ((BooleanType) a).getVal() == val;
-		else
+		case TYPE_BOOLEAN:
+			return ((BooleanType) a).val == val;
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		byte v = (byte) (val ? 1 : 0);
-		if (a instanceof IntType)
+		final byte v = (byte) (val ? 1 : 0);
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return v < ((IntType) a).getVal();
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return v < ((LongType) a).getVal();
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return v < ((FloatType) a).getVal();
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return v < ((ByteType) a).getVal();
-		else if (a instanceof BooleanType)
-			return v < (((BooleanType) a).getVal() ? 1 : 0);
-		else
+		case TYPE_BOOLEAN:
+			return v < (((BooleanType) a).val ? 1 : 0);
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	protected void _decode(DataInput b) throws IOException {
@@ -107,13 +129,21 @@ public class BooleanType extends AbstractValueType {
 	}
 	
 	public ValueType negate() {
-		return new BooleanType(!val);
+		return valueOf(!val);
 	}
 	
 	public boolean getVal() {
 		return val;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		return ((BooleanType) v).val == val;
+	}
+	
+	protected int valueHash() {
+		return val ? 1231 : 1237;
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_BOOLEAN + "" + T_GROUP_OPEN + (val ? "1" : "0") + T_GROUP_CLOSE;
 	}
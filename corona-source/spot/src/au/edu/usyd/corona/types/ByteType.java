@@ -8,100 +8,129 @@ import java.io.IOException;
 
 /**
  * Class representing a normal byte value (signed 8 bit) in our type system.
+ * Every value is shared between uses, see {@link #valueOf(int)}.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
  */
 public class ByteType extends AbstractValueType {
+	private static final ByteType[] cache = new ByteType[256];
+	
 	private byte val;
 	
 	public ByteType() {
-		this.val = 0;
+		this((byte) 0);
 	}
 	
 	public ByteType(byte val) {
+		super(TYPE_BYTE);
 		this.val = val;
 	}
 	
 	public ByteType(int val) {
-		this.val = (byte) val;
+		this((byte) val);
 	}
 	
 	public ByteType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
+	/**
+	 * Returns the shared ByteType of the given value
+	 * 
+	 * @param val the value, which is cast to a byte
+	 * @return a ByteType of the value
+	 */
+	public static ByteType valueOf(int val) {
+		final int i = val & 0xff;
+		ByteType v = cache[i];
+		if (v == null)
+			cache[i] = v = new ByteType(val);
+		return v;
+	}
+	
 	public ValueType add(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() + val);
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return IntType.valueOf(((IntType) a).getVal() + val);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() + val);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() + val);
-		else if (a instanceof ByteType)
-			return new IntType(((ByteType) a).getVal() + val);
-		else if (a instanceof BooleanType)
-			return new ByteType((((BooleanType) a).getVal() ? 1 : 0) + val);
-		else
+		case TYPE_BYTE:
+			return IntType.valueOf(((ByteType) a).val + val);
+		case TYPE_BOOLEAN:
+			return valueOf((((BooleanType) a).getVal() ? 1 : 0) + val);
+		default:
 			throw new InvalidOperationException("Cannot add types", this, a);
+		}
 	}
 	
 	public ValueType multiply(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() * val);
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return IntType.valueOf(((IntType) a).getVal() * val);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() * val);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() * val);
-		else if (a instanceof ByteType)
-			return new IntType(((ByteType) a).getVal() * val);
-		else if (a instanceof BooleanType)
-			return new ByteType(((BooleanType) a).getVal() ? val : 0);
-		else
+		case TYPE_BYTE:
+			return IntType.valueOf(((ByteType) a).val * val);
+		case TYPE_BOOLEAN:
+			return ((BooleanType) a).getVal() ? this : valueOf(0);
+		default:
 			throw new InvalidOperationException("Cannot multiply types", this, a);
+		}
 	}
 	
 	public ValueType divide(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(val / ((IntType) a).getVal());
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return IntType.valueOf(val / ((IntType) a).getVal());
+		case TYPE_LONG:
 			return new LongType(val / ((LongType) a).getVal());
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(val / ((FloatType) a).getVal());
-		else if (a instanceof ByteType)
-			return new ByteType(val / ((ByteType) a).getVal());
-		else
+		case TYPE_BYTE:
+			return valueOf(val / ((ByteType) a).val);
+		default:
 			throw new InvalidOperationException("Cannot divide types", this, a);
+		}
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return ((IntType) a).getVal() == val;
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return ((LongType) a).getVal() == val;
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return ((FloatType) a).getVal() == val;
-		else if (a instanceof ByteType)
-			return ((ByteType) a).getVal() == val;
-		else if (a instanceof BooleanType)
+		case TYPE_BYTE:
+			return ((ByteType) a).val == val;
+		case TYPE_BOOLEAN:
 			return (((BooleanType) a).getVal() ? 1 : 0) == val;
-		else
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return val < ((IntType) a).getVal();
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return val < ((LongType) a).getVal();
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return val < ((FloatType) a).getVal();
-		else if (a instanceof ByteType)
-			return val < ((ByteType) a).getVal();
-		else if (a instanceof BooleanType)
+		case TYPE_BYTE:
+			return val < ((ByteType) a).val;
+		case TYPE_BOOLEAN:
 			return val < (((BooleanType) a).getVal() ? 1 : 0);
-		else
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	public void _decode(DataInput b) throws IOException {
@@ -113,13 +142,21 @@ public class ByteType extends AbstractValueType {
 	}
 	
 	public ValueType negate() {
-		return new ByteType(-val);
+		return valueOf(-val);
 	}
 	
 	public byte getVal() {
 		return val;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		return ((ByteType) v).val == val;
+	}
+	
+	protected int valueHash() {
+		return val;
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_BYTE + "" + T_GROUP_OPEN + Integer.toString(val) + T_GROUP_CLOSE;
 	}
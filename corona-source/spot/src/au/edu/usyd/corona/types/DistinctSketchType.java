@@ -0,0 +1,149 @@
+package au.edu.usyd.corona.types;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values in a set. Each
+ * value is hashed to 64 bits; the first bits pick one of the registers, and the
+ * register keeps the longest run of leading zeros seen in the rest of the hash.
+ * Merging two sketches takes the larger of each pair of registers, so a sketch
+ * always takes {@link #REGISTERS} bytes however many values it has seen, and
+ * the estimate has a relative standard error of about 13%.
+ * <p>
+ * Numbers are hashed by their value, so 5 and 5.0 are the same value whatever
+ * their types.
+ */
+public class DistinctSketchType extends SketchType {
+	private static final int BITS = 6; // the number of hash bits picking the register
+	public static final int REGISTERS = 1 << BITS;
+	private static final double ALPHA = 0.709; // the bias correction for 64 registers
+	
+	private final byte[] registers;
+	
+	public DistinctSketchType() {
+		super(TYPE_DISTINCT_SKETCH);
+		registers = new byte[REGISTERS];
+	}
+	
+	public DistinctSketchType(ValueType v) throws InvalidOperationException {
+		this();
+		offer(v);
+	}
+	
+	public void offer(ValueType v) throws InvalidOperationException {
+		if (v instanceof DistinctSketchType) {
+			byte[] other = ((DistinctSketchType) v).registers;
+			for (int i = 0; i != REGISTERS; i++)
+				if (registers[i] < other[i])
+					registers[i] = other[i];
+			return;
+		}
+		
+		long hash = mix(key(v));
+		int register = (int) (hash >>> (64 - BITS));
+		byte rank = 1;
+		for (long rest = hash << BITS; rest >= 0 && rank <= 64 - BITS; rest <<= 1)
+			rank++;
+		if (registers[register] < rank)
+			registers[register] = rank;
+	}
+	
+	private static long key(ValueType v) throws InvalidOperationException {
+		switch (typeOf(v)) {
+		case TYPE_INT:
+			return ((IntType) v).getVal();
+		case TYPE_LONG:
+			return ((LongType) v).getVal();
+		case TYPE_BYTE:
+			return ((ByteType) v).getVal();
+		case TYPE_IEEE_ADDRESS:
+			return ((IEEEAddressType) v).getVal();
+		case TYPE_BOOLEAN:
+			return ((BooleanType) v).getVal() ? 1 : 0;
+		case TYPE_FLOAT:
+			float f = ((FloatType) v).getVal();
+			if (f == (long) f)
+				return (long) f;
+			return Float.floatToIntBits(f) | 1L << 32;
+		default:
+			throw new InvalidOperationException("Cannot count distinct values of types", new DistinctSketchType(), v);
+		}
+	}
+	
+	/**
+	 * Spreads the bits of a key evenly over the hash (the MurmurHash3 finaliser)
+	 */
+	private static long mix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+	
+	/**
+	 * @return the estimated number of distinct values offered to this sketch
+	 */
+	public int estimate() {
+		double sum = 0;
+		int empty = 0;
+		for (int i = 0; i != REGISTERS; i++) {
+			sum += 1.0 / (1L << registers[i]);
+			if (registers[i] == 0)
+				empty++;
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		
+		// few values leave most registers empty, which linear counting handles better
+		if (estimate <= 2.5 * REGISTERS && empty != 0)
+			estimate = REGISTERS * log((double) REGISTERS / empty);
+		return (int) (estimate + 0.5);
+	}
+	
+	protected SketchType newSketch() {
+		return new DistinctSketchType();
+	}
+	
+	protected void _decode(DataInput b) throws IOException {
+		b.readFully(registers);
+	}
+	
+	protected void _encode(DataOutput b) throws IOException {
+		b.write(registers);
+	}
+	
+	protected boolean sameValue(AbstractValueType v) {
+		byte[] other = ((DistinctSketchType) v).registers;
+		for (int i = 0; i != REGISTERS; i++)
+			if (registers[i] != other[i])
+				return false;
+		return true;
+	}
+	
+	protected int valueHash() {
+		int h = 0;
+		for (int i = 0; i != REGISTERS; i++)
+			h = 31 * h + registers[i];
+		return h;
+	}
+	
+	public String toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_DATA_TYPE_DISTINCT_SKETCH).append(T_GROUP_OPEN);
+		for (int i = 0; i != REGISTERS; i++)
+			b.append(Integer.toHexString(registers[i] >> 4)).append(Integer.toHexString(registers[i] & 0xf));
+		return b.append(T_GROUP_CLOSE).toString();
+	}
+	
+	public String toString() {
+		return String.valueOf(estimate());
+	}
+	
+	public Object toJDBCObject() {
+		return new Integer(estimate());
+	}
+}
@@ -17,88 +17,100 @@ public class FloatType extends AbstractValueType {
 	private float val;
 	
 	public FloatType() {
-		this.val = 0;
+		this(0);
 	}
 	
 	public FloatType(float val) {
+		super(TYPE_FLOAT);
 		this.val = val;
 	}
 	
 	public FloatType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
 	public ValueType add(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new FloatType(((IntType) a).getVal() + val);
-		else if (a instanceof FloatType)
-			return new FloatType(((FloatType) a).getVal() + val);
-		else if (a instanceof LongType)
+		case TYPE_FLOAT:
+			return new FloatType(((FloatType) a).val + val);
+		case TYPE_LONG:
 			return new FloatType(((LongType) a).getVal() + val);
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new FloatType(((ByteType) a).getVal() + val);
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return new FloatType((((BooleanType) a).getVal() ? 1 : 0) + val);
-		else
+		default:
 			throw new InvalidOperationException("Cannot add types", this, a);
+		}
 	}
 	
 	public ValueType multiply(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new FloatType(((IntType) a).getVal() * val);
-		else if (a instanceof FloatType)
-			return new FloatType(((FloatType) a).getVal() * val);
-		else if (a instanceof LongType)
+		case TYPE_FLOAT:
+			return new FloatType(((FloatType) a).val * val);
+		case TYPE_LONG:
 			return new FloatType(((LongType) a).getVal() * val);
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new FloatType(((ByteType) a).getVal() * val);
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return new FloatType(((BooleanType) a).getVal() ? val : 0);
-		else
+		default:
 			throw new InvalidOperationException("Cannot multiply types", this, a);
+		}
 	}
 	
 	public ValueType divide(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new FloatType(val / ((IntType) a).getVal());
-		else if (a instanceof FloatType)
-			return new FloatType(val / ((FloatType) a).getVal());
-		else if (a instanceof LongType)
+		case TYPE_FLOAT:
+			return new FloatType(val / ((FloatType) a).val);
+		case TYPE_LONG:
 			return new FloatType(val / ((LongType) a).getVal());
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new FloatType(val / ((ByteType) a).getVal());
-		else
+		default:
 			throw new InvalidOperationException("Cannot divide types", this, a);
+		}
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return ((IntType) a).getVal() == val;
-		else if (a instanceof FloatType)
-			return ((FloatType) a).getVal() == val;
-		else if (a instanceof LongType)
+		case TYPE_FLOAT:
+			return ((FloatType) a).val == val;
+		case TYPE_LONG:
 			return ((LongType) a).getVal() == val;
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return ((ByteType) a).getVal() == val;
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return (((BooleanType) a).getVal() ? 1 : 0) == val;
-		else
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return val < ((IntType) a).getVal();
-		else if (a instanceof FloatType)
-			return val < ((FloatType) a).getVal();
-		else if (a instanceof LongType)
+		case TYPE_FLOAT:
+			return val < ((FloatType) a).val;
+		case TYPE_LONG:
 			return val < ((LongType) a).getVal();
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return val < ((ByteType) a).getVal();
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return val < (((BooleanType) a).getVal() ? 1 : 0);
-		else
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	public void _decode(DataInput b) throws IOException {
@@ -117,6 +129,15 @@ public class FloatType extends AbstractValueType {
 		return val;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		// by bits, so that NaN is the same as itself and 0 and -0 are different
+		return Float.floatToIntBits(((FloatType) v).val) == Float.floatToIntBits(val);
+	}
+	
+	protected int valueHash() {
+		return Float.floatToIntBits(val);
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_FLOAT + "" + T_GROUP_OPEN + Float.toString(val) + T_GROUP_CLOSE;
 	}
@@ -20,18 +20,20 @@ public class IEEEAddressType extends AbstractValueType {
 	private long address;
 	
 	public IEEEAddressType() {
-		this.address = 0;
+		this(0);
 	}
 	
 	public IEEEAddressType(long address) {
+		super(TYPE_IEEE_ADDRESS);
 		this.address = address;
 	}
 	
 	public IEEEAddressType(String address) {
-		this.address = IEEEAddress.toLong(address);
+		this(IEEEAddress.toLong(address));
 	}
 	
 	public IEEEAddressType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
@@ -48,21 +50,25 @@ public class IEEEAddressType extends AbstractValueType {
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IEEEAddressType)
+		switch (typeOf(a)) {
+		case TYPE_IEEE_ADDRESS:
 			return ((IEEEAddressType) a).address == address;
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return ((LongType) a).getVal() == address;
-		else
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		if (a instanceof IEEEAddressType)
+		switch (typeOf(a)) {
+		case TYPE_IEEE_ADDRESS:
 			return address < ((IEEEAddressType) a).address;
-		else if (a instanceof LongType)
+		case TYPE_LONG:
 			return address < ((LongType) a).getVal();
-		else
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	public void _decode(DataInput b) throws IOException {
@@ -81,6 +87,14 @@ public class IEEEAddressType extends AbstractValueType {
 		return address;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		return ((IEEEAddressType) v).address == address;
+	}
+	
+	protected int valueHash() {
+		return hash(address);
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_IEEE_ADDRESS + "" + T_GROUP_OPEN + Long.toString(address) + T_GROUP_CLOSE;
 	}
@@ -8,96 +8,131 @@ import java.io.IOException;
 
 /**
  * Class representing a normal byte value (signed 32 bit) in our type system.
+ * Small values are shared between uses, see {@link #valueOf(int)}.
  * 
  * @author Tim Dawborn
  * @author Raymes Khoury
  */
 public class IntType extends AbstractValueType {
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1023;
+	private static final IntType[] cache = new IntType[CACHE_HIGH - CACHE_LOW + 1];
+	
 	private int val;
 	
 	public IntType() {
-		this.val = 0;
+		this(0);
 	}
 	
 	public IntType(int val) {
+		super(TYPE_INT);
 		this.val = val;
 	}
 	
 	public IntType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
+	/**
+	 * Returns an IntType of the given value, which is shared with the other
+	 * users of the value if it is small. As values are never changed once made,
+	 * except by decoding into a new value, this saves making a new object for
+	 * each of the counts and small readings which make up most values.
+	 * 
+	 * @param val the value
+	 * @return an IntType of the value
+	 */
+	public static IntType valueOf(int val) {
+		if (val < CACHE_LOW || val > CACHE_HIGH)
+			return new IntType(val);
+		IntType v = cache[val - CACHE_LOW];
+		if (v == null)
+			cache[val - CACHE_LOW] = v = new IntType(val);
+		return v;
+	}
+	
 	public ValueType add(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() + val);
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return valueOf(((IntType) a).val + val);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() + val);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() + val);
-		else if (a instanceof ByteType)
-			return new IntType(((ByteType) a).getVal() + val);
-		else if (a instanceof BooleanType)
-			return new IntType((((BooleanType) a).getVal() ? 1 : 0) + val);
-		else
+		case TYPE_BYTE:
+			return valueOf(((ByteType) a).getVal() + val);
+		case TYPE_BOOLEAN:
+			return valueOf((((BooleanType) a).getVal() ? 1 : 0) + val);
+		default:
 			throw new InvalidOperationException("Cannot add types", this, a);
+		}
 	}
 	
 	public ValueType multiply(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(((IntType) a).getVal() * val);
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return valueOf(((IntType) a).val * val);
+		case TYPE_LONG:
 			return new LongType(((LongType) a).getVal() * val);
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() * val);
-		else if (a instanceof ByteType)
-			return new IntType(((ByteType) a).getVal() * val);
-		else if (a instanceof BooleanType)
-			return new IntType(((BooleanType) a).getVal() ? val : 0);
-		else
+		case TYPE_BYTE:
+			return valueOf(((ByteType) a).getVal() * val);
+		case TYPE_BOOLEAN:
+			return ((BooleanType) a).getVal() ? this : valueOf(0);
+		default:
 			throw new InvalidOperationException("Cannot multiply types", this, a);
+		}
 	}
 	
 	public ValueType divide(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return new IntType(val / ((IntType) a).getVal());
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return valueOf(val / ((IntType) a).val);
+		case TYPE_LONG:
 			return new LongType(val / ((LongType) a).getVal());
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return new FloatType(val / ((FloatType) a).getVal());
-		else if (a instanceof ByteType)
-			return new IntType(val / ((ByteType) a).getVal());
-		else
+		case TYPE_BYTE:
+			return valueOf(val / ((ByteType) a).getVal());
+		default:
 			throw new InvalidOperationException("Cannot divide types", this, a);
+		}
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return ((IntType) a).getVal() == val;
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return ((IntType) a).val == val;
+		case TYPE_LONG:
 			return ((LongType) a).getVal() == val;
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return ((FloatType) a).getVal() == val;
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return ((ByteType) a).getVal() == val;
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return (((BooleanType) a).getVal() ? 1 : 0) == val;
-		else
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
-			return val < ((IntType) a).getVal();
-		else if (a instanceof LongType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
+			return val < ((IntType) a).val;
+		case TYPE_LONG:
 			return val < ((LongType) a).getVal();
-		else if (a instanceof FloatType)
+		case TYPE_FLOAT:
 			return val < ((FloatType) a).getVal();
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return val < ((ByteType) a).getVal();
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return val < (((BooleanType) a).getVal() ? 1 : 0);
-		else
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	public void _decode(DataInput b) throws IOException {
@@ -109,13 +144,21 @@ public class IntType extends AbstractValueType {
 	}
 	
 	public ValueType negate() {
-		return new IntType(-val);
+		return valueOf(-val);
 	}
 	
 	public int getVal() {
 		return val;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		return ((IntType) v).val == val;
+	}
+	
+	protected int valueHash() {
+		return val;
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_INT + "" + T_GROUP_OPEN + Integer.toString(val) + T_GROUP_CLOSE;
 	}
@@ -16,88 +16,100 @@ public class LongType extends AbstractValueType {
 	private long val;
 	
 	public LongType() {
-		this.val = 0;
+		this(0);
 	}
 	
 	public LongType(long val) {
+		super(TYPE_LONG);
 		this.val = val;
 	}
 	
 	public LongType(DataInputStream b) {
+		this();
 		decode(b);
 	}
 	
 	public ValueType add(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new LongType(((IntType) a).getVal() + val);
-		else if (a instanceof LongType)
-			return new LongType(((LongType) a).getVal() + val);
-		else if (a instanceof FloatType)
+		case TYPE_LONG:
+			return new LongType(((LongType) a).val + val);
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() + val);
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new LongType(((ByteType) a).getVal() + val);
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return new LongType((((BooleanType) a).getVal() ? 1 : 0) + val);
-		else
+		default:
 			throw new InvalidOperationException("Cannot add types", this, a);
+		}
 	}
 	
 	public ValueType multiply(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new LongType(((IntType) a).getVal() * val);
-		else if (a instanceof LongType)
-			return new LongType(((LongType) a).getVal() * val);
-		else if (a instanceof FloatType)
+		case TYPE_LONG:
+			return new LongType(((LongType) a).val * val);
+		case TYPE_FLOAT:
 			return new FloatType(((FloatType) a).getVal() * val);
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new LongType(((ByteType) a).getVal() * val);
-		else if (a instanceof BooleanType)
-			return new LongType(((BooleanType) a).getVal() ? val : 0);
-		else
+		case TYPE_BOOLEAN:
+			return ((BooleanType) a).getVal() ? this : new LongType(0);
+		default:
 			throw new InvalidOperationException("Cannot multiply types", this, a);
+		}
 	}
 	
 	public ValueType divide(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return new LongType(val / ((IntType) a).getVal());
-		else if (a instanceof LongType)
-			return new LongType(val / ((LongType) a).getVal());
-		else if (a instanceof FloatType)
+		case TYPE_LONG:
+			return new LongType(val / ((LongType) a).val);
+		case TYPE_FLOAT:
 			return new FloatType(val / ((FloatType) a).getVal());
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return new LongType(val / ((ByteType) a).getVal());
-		else
+		default:
 			throw new InvalidOperationException("Cannot divide types", this, a);
+		}
 	}
 	
 	public boolean equals(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return ((IntType) a).getVal() == val;
-		else if (a instanceof LongType)
-			return ((LongType) a).getVal() == val;
-		else if (a instanceof FloatType)
+		case TYPE_LONG:
+			return ((LongType) a).val == val;
+		case TYPE_FLOAT:
 			return ((FloatType) a).getVal() == val;
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return ((ByteType) a).getVal() == val;
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return (((BooleanType) a).getVal() ? 1 : 0) == val;
-		else
+		default:
 			throw new InvalidOperationException("Cannot equate types", this, a);
+		}
 	}
 	
 	public boolean less(ValueType a) throws InvalidOperationException {
-		if (a instanceof IntType)
+		switch (typeOf(a)) {
+		case TYPE_INT:
 			return val < ((IntType) a).getVal();
-		else if (a instanceof LongType)
-			return val < ((LongType) a).getVal();
-		else if (a instanceof FloatType)
+		case TYPE_LONG:
+			return val < ((LongType) a).val;
+		case TYPE_FLOAT:
 			return val < ((FloatType) a).getVal();
-		else if (a instanceof ByteType)
+		case TYPE_BYTE:
 			return val < ((ByteType) a).getVal();
-		else if (a instanceof BooleanType)
+		case TYPE_BOOLEAN:
 			return val < (((BooleanType) a).getVal() ? 1 : 0);
-		else
+		default:
 			throw new InvalidOperationException("Cannot comapre types", this, a);
+		}
 	}
 	
 	public void _decode(DataInput b) throws IOException {
@@ -116,6 +128,14 @@ public class LongType extends AbstractValueType {
 		return val;
 	}
 	
+	protected boolean sameValue(AbstractValueType v) {
+		return ((LongType) v).val == val;
+	}
+	
+	protected int valueHash() {
+		return hash(val);
+	}
+	
 	public String toTokens() {
 		return T_DATA_TYPE_LONG + "" + T_GROUP_OPEN + Long.toString(val) + T_GROUP_CLOSE;
 	}
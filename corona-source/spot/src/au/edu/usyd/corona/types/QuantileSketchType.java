@@ -0,0 +1,217 @@
+package au.edu.usyd.corona.types;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A small digest of the distribution of a set of numbers, from which any
+ * quantile can be estimated. The values are summarised by at most
+ * {@link #CENTROIDS} centroids, each being the mean and the number of a run of
+ * neighbouring values, along with the exact minimum and maximum. When there
+ * are too many centroids the two neighbours whose merging costs the least
+ * accuracy are merged; merging is cheaper in the middle of the distribution
+ * than at its tails, so the high and low percentiles stay the most accurate.
+ * Two digests are merged by adding the centroids of one to the other.
+ */
+public class QuantileSketchType extends SketchType {
+	public static final int CENTROIDS = 16;
+	
+	private final float[] means = new float[2 * CENTROIDS];
+	private final int[] counts = new int[2 * CENTROIDS];
+	private int size; // the number of centroids in use
+	private int total; // the number of values summarised
+	private float min;
+	private float max;
+	
+	public QuantileSketchType() {
+		super(TYPE_QUANTILE_SKETCH);
+	}
+	
+	public QuantileSketchType(ValueType v) throws InvalidOperationException {
+		this();
+		offer(v);
+	}
+	
+	public void offer(ValueType v) throws InvalidOperationException {
+		if (v instanceof QuantileSketchType) {
+			QuantileSketchType other = (QuantileSketchType) v;
+			if (other.total == 0)
+				return;
+			for (int i = 0; i != other.size; i++)
+				insert(other.means[i], other.counts[i]);
+			min = (total == other.total || other.min < min) ? other.min : min;
+			max = (total == other.total || other.max > max) ? other.max : max;
+			compress();
+			return;
+		}
+		
+		float x;
+		switch (typeOf(v)) {
+		case TYPE_INT:
+			x = ((IntType) v).getVal();
+			break;
+		case TYPE_FLOAT:
+			x = ((FloatType) v).getVal();
+			break;
+		case TYPE_LONG:
+			x = ((LongType) v).getVal();
+			break;
+		case TYPE_BYTE:
+			x = ((ByteType) v).getVal();
+			break;
+		default:
+			throw new InvalidOperationException("Cannot take quantiles of types", this, v);
+		}
+		insert(x, 1);
+		min = (total == 1 || x < min) ? x : min;
+		max = (total == 1 || x > max) ? x : max;
+		compress();
+	}
+	
+	/**
+	 * Adds a centroid, keeping the centroids ordered by their means
+	 */
+	private void insert(float mean, int count) {
+		int i = size;
+		while (i != 0 && means[i - 1] > mean) {
+			means[i] = means[i - 1];
+			counts[i] = counts[i - 1];
+			i--;
+		}
+		means[i] = mean;
+		counts[i] = count;
+		size++;
+		total += count;
+	}
+	
+	/**
+	 * Merges neighbouring centroids until there are few enough of them. The cost
+	 * of merging two centroids is their combined count, weighted against merging
+	 * near either end of the distribution.
+	 */
+	private void compress() {
+		while (size > CENTROIDS) {
+			int best = 0;
+			double bestCost = Double.MAX_VALUE;
+			long before = 0; // the number of values in the centroids before i
+			for (int i = 0; i != size - 1; i++) {
+				int count = counts[i] + counts[i + 1];
+				double q = (before + count / 2.0) / total;
+				double cost = count / (q * (1 - q));
+				if (cost < bestCost) {
+					bestCost = cost;
+					best = i;
+				}
+				before += counts[i];
+			}
+			
+			int count = counts[best] + counts[best + 1];
+			means[best] = (float) (((double) means[best] * counts[best] + (double) means[best + 1] * counts[best + 1]) / count);
+			counts[best] = count;
+			size--;
+			System.arraycopy(means, best + 2, means, best + 1, size - best - 1);
+			System.arraycopy(counts, best + 2, counts, best + 1, size - best - 1);
+		}
+	}
+	
+	/**
+	 * Estimates a quantile of the values, interpolating between the centres of
+	 * the centroids
+	 * 
+	 * @param q the quantile, between 0 and 1
+	 * @return the estimated value, or NaN if the sketch is empty
+	 */
+	public float quantile(float q) {
+		if (total == 0)
+			return Float.NaN;
+		double rank = q * (double) total;
+		
+		// the minimum sits at rank 0 and the maximum at the total, with each centroid centred on its run
+		double prevRank = 0;
+		float prevValue = min;
+		double before = 0;
+		for (int i = 0; i != size; i++) {
+			double centre = before + counts[i] / 2.0;
+			if (rank < centre)
+				return interpolate(prevRank, prevValue, centre, means[i], rank);
+			prevRank = centre;
+			prevValue = means[i];
+			before += counts[i];
+		}
+		return interpolate(prevRank, prevValue, total, max, rank);
+	}
+	
+	private static float interpolate(double r0, float v0, double r1, float v1, double rank) {
+		if (r1 <= r0)
+			return v1;
+		return (float) (v0 + (v1 - v0) * (rank - r0) / (r1 - r0));
+	}
+	
+	/**
+	 * @return the number of values summarised by this sketch
+	 */
+	public int getCount() {
+		return total;
+	}
+	
+	protected SketchType newSketch() {
+		return new QuantileSketchType();
+	}
+	
+	protected void _decode(DataInput b) throws IOException {
+		min = b.readFloat();
+		max = b.readFloat();
+		size = b.readUnsignedByte();
+		total = 0;
+		for (int i = 0; i != size; i++) {
+			means[i] = b.readFloat();
+			counts[i] = b.readInt();
+			total += counts[i];
+		}
+	}
+	
+	protected void _encode(DataOutput b) throws IOException {
+		b.writeFloat(min);
+		b.writeFloat(max);
+		b.writeByte(size);
+		for (int i = 0; i != size; i++) {
+			b.writeFloat(means[i]);
+			b.writeInt(counts[i]);
+		}
+	}
+	
+	protected boolean sameValue(AbstractValueType v) {
+		QuantileSketchType other = (QuantileSketchType) v;
+		if (other.size != size || Float.floatToIntBits(other.min) != Float.floatToIntBits(min) || Float.floatToIntBits(other.max) != Float.floatToIntBits(max))
+			return false;
+		for (int i = 0; i != size; i++)
+			if (other.counts[i] != counts[i] || Float.floatToIntBits(other.means[i]) != Float.floatToIntBits(means[i]))
+				return false;
+		return true;
+	}
+	
+	protected int valueHash() {
+		int h = Float.floatToIntBits(min) ^ Float.floatToIntBits(max);
+		for (int i = 0; i != size; i++)
+			h = 31 * h + counts[i];
+		return h;
+	}
+	
+	public String toTokens() {
+		StringBuffer b = new StringBuffer();
+		b.append(T_DATA_TYPE_QUANTILE_SKETCH).append(T_GROUP_OPEN).append(min).append(' ').append(max);
+		for (int i = 0; i != size; i++)
+			b.append(' ').append(means[i]).append(' ').append(counts[i]);
+		return b.append(T_GROUP_CLOSE).toString();
+	}
+	
+	public String toString() {
+		return "[" + min + ", " + quantile(0.5f) + ", " + max + "]";
+	}
+	
+	public Object toJDBCObject() {
+		return new Float(quantile(0.5f));
+	}
+}
@@ -0,0 +1,85 @@
+package au.edu.usyd.corona.types;
+
+
+/**
+ * Abstract base class for the fixed size summaries of a set of values which
+ * are used to compute aggregates, such as distinct counts and quantiles, that
+ * cannot be computed from a single number per node. A sketch is built up by
+ * offering it values, and two sketches of the same kind can be merged into a
+ * sketch of the union of their values, so sketches can be partially aggregated
+ * on every node of the routing tree like a SUM can.
+ * <p>
+ * As with the other types, {@link #add(ValueType)} returns a new sketch. The
+ * {@link #offer(ValueType)} method changes the sketch in place, and is what the
+ * aggregation uses to build its sketches without copying them for each row.
+ */
+public abstract class SketchType extends AbstractValueType {
+	
+	protected SketchType(int typeCode) {
+		super(typeCode);
+	}
+	
+	/**
+	 * Adds a value into this sketch. If the value is a sketch of the same kind,
+	 * it is merged into this sketch instead.
+	 * 
+	 * @param v the value or sketch to add
+	 * @throws InvalidOperationException if the value cannot be summarised by
+	 * this kind of sketch
+	 */
+	public abstract void offer(ValueType v) throws InvalidOperationException;
+	
+	/**
+	 * @return a new sketch of the same kind with nothing in it
+	 */
+	protected abstract SketchType newSketch();
+	
+	public ValueType add(ValueType a) throws InvalidOperationException {
+		SketchType sum = newSketch();
+		sum.offer(this);
+		sum.offer(a);
+		return sum;
+	}
+	
+	public ValueType multiply(ValueType a) throws InvalidOperationException {
+		throw new InvalidOperationException("Cannot multiply types", this, a);
+	}
+	
+	public ValueType divide(ValueType a) throws InvalidOperationException {
+		throw new InvalidOperationException("Cannot divide types", this, a);
+	}
+	
+	public boolean equals(ValueType a) throws InvalidOperationException {
+		throw new InvalidOperationException("Cannot equate types", this, a);
+	}
+	
+	public boolean less(ValueType a) throws InvalidOperationException {
+		throw new InvalidOperationException("Cannot comapre types", this, a);
+	}
+	
+	public ValueType negate() throws InvalidOperationException {
+		throw new InvalidOperationException("Cannot negate types", this, this);
+	}
+	
+	/**
+	 * Natural logarithm, which CLDC's Math lacks
+	 */
+	static double log(double x) {
+		// x = m * 2^k with 1 <= m < 2, and ln(m) = 2 atanh((m - 1) / (m + 1))
+		int k = 0;
+		while (x >= 2) {
+			x /= 2;
+			k++;
+		}
+		while (x < 1) {
+			x *= 2;
+			k--;
+		}
+		double y = (x - 1) / (x + 1), y2 = y * y, term = y, sum = 0;
+		for (int i = 1; i < 40; i += 2) {
+			sum += term / i;
+			term *= y2;
+		}
+		return 2 * sum + k * 0.6931471805599453;
+	}
+}
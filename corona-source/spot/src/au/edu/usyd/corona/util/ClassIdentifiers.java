@@ -5,13 +5,16 @@ import au.edu.usyd.corona.scheduler.KillTask;
 import au.edu.usyd.corona.scheduler.PropgateExceptionTask;
 import au.edu.usyd.corona.scheduler.QueryTask;
 import au.edu.usyd.corona.scheduler.SetPropertyTask;
+import au.edu.usyd.corona.scheduler.TransmitPlanResultsTask;
 import au.edu.usyd.corona.scheduler.TransmitResultsTask;
 import au.edu.usyd.corona.types.BooleanType;
 import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.DistinctSketchType;
 import au.edu.usyd.corona.types.FloatType;
 import au.edu.usyd.corona.types.IEEEAddressType;
 import au.edu.usyd.corona.types.IntType;
 import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.QuantileSketchType;
 
 /**
  * This class maps Classes to a byte which represents that class. This provides
@@ -21,7 +24,7 @@ import au.edu.usyd.corona.types.LongType;
  * @author Raymes Khoury
  */
 public class ClassIdentifiers {
-	private static final Class[] classes = new Class[]{ByteType.class, IntType.class, LongType.class, ByteType.class, BooleanType.class, IEEEAddressType.class, FloatType.class, KillTask.class, QueryTask.class, TransmitResultsTask.class, PropgateExceptionTask.class, SetPropertyTask.class};
+	private static final Class[] classes = new Class[]{ByteType.class, IntType.class, LongType.class, ByteType.class, BooleanType.class, IEEEAddressType.class, FloatType.class, KillTask.class, QueryTask.class, TransmitResultsTask.class, PropgateExceptionTask.class, SetPropertyTask.class, DistinctSketchType.class, QuantileSketchType.class, TransmitPlanResultsTask.class};
 	
 	private ClassIdentifiers() {
 		// hidden constructor
@@ -49,4 +52,49 @@ public class ClassIdentifiers {
 				return (byte) i;
 		throw new IllegalArgumentException("No byte value for the specified class " + c.getName());
 	}
+	
+	/**
+	 * Makes a new, empty object of the class with the given type-code, ready to
+	 * be decoded into. This is used in place of
+	 * <code>getClass(id).newInstance()</code> on the receive path, as it needs
+	 * no reflection. The cases follow the order of the classes array.
+	 * 
+	 * @param id The code of the type to make
+	 * @return A new object of the type
+	 */
+	public static Object newInstance(byte id) {
+		switch (id) {
+		case 0:
+		case 3:
+			return new ByteType();
+		case 1:
+			return new IntType();
+		case 2:
+			return new LongType();
+		case 4:
+			return new BooleanType();
+		case 5:
+			return new IEEEAddressType();
+		case 6:
+			return new FloatType();
+		case 7:
+			return new KillTask();
+		case 8:
+			return new QueryTask();
+		case 9:
+			return new TransmitResultsTask();
+		case 10:
+			return new PropgateExceptionTask();
+		case 11:
+			return new SetPropertyTask();
+		case 12:
+			return new DistinctSketchType();
+		case 13:
+			return new QuantileSketchType();
+		case 14:
+			return new TransmitPlanResultsTask();
+		default:
+			throw new IllegalArgumentException("No class for the type-code " + id);
+		}
+	}
 }
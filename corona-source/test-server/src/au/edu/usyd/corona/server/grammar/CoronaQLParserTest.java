@@ -85,4 +85,43 @@ public class CoronaQLParserTest extends TestCase {
 		run("SELECT * RUNCOUNT 123.45", false);
 		
 	}
+	
+	public void testOrderBy() throws Exception {
+		run("SELECT node ORDER BY light", true);
+		run("SELECT node ORDER BY light DESC, node ASC LIMIT 5", true);
+		run("SELECT node, MAX(light) GROUP BY node ORDER BY MAX(light) desc", true);
+		run("SELECT node LIMIT 5 RUNCOUNT 10", true);
+		run("SELECT node ORDER BY", false);
+		run("SELECT node ORDER BY light UP", false);
+		run("SELECT node LIMIT", false);
+		run("SELECT node LIMIT 2.5", false);
+		run("SELECT node LIMIT 5 ORDER BY light", false);
+	}
+	
+	public void testWindow() throws Exception {
+		run("SELECT AVG(light) WINDOW 10 EPOCHS", true);
+		run("SELECT node, MAX(light) GROUP BY node WINDOW 3 EPOCHS RUNCOUNT 20", true);
+		run("SELECT node ORDER BY light LIMIT 5 WINDOW 2 EPOCHS", true);
+		run("SELECT AVG(light) WINDOW 10", false);
+		run("SELECT AVG(light) WINDOW EPOCHS", false);
+		run("SELECT AVG(light) WINDOW 2.5 EPOCHS", false);
+		run("SELECT AVG(light) WINDOW 10 EPOCHS LIMIT 5", false);
+	}
+	
+	public void testDeadband() throws Exception {
+		run("SELECT node, light DEADBAND 0.5", true);
+		run("SELECT node, light WHERE light > 5 DEADBAND 2 RUNCOUNT 10", true);
+		run("SELECT node, light DEADBAND", false);
+		run("SELECT node, light DEADBAND abc", false);
+		run("SELECT AVG(light) DEADBAND 1 WINDOW 2 EPOCHS", false);
+	}
+	
+	public void testOverrun() throws Exception {
+		run("SELECT light EPOCH 1 SECOND RUNCOUNT FOREVER OVERRUN SKIP", true);
+		run("SELECT AVG(light) OVERRUN DEGRADE", true);
+		run("SELECT light RUNCOUNT 10 OVERRUN CATCHUP", true);
+		run("SELECT light OVERRUN", false);
+		run("SELECT light OVERRUN NEVER", false);
+		run("SELECT light OVERRUN SKIP RUNCOUNT 10", false);
+	}
 }
@@ -1,6 +1,8 @@
 package au.edu.usyd.corona.server.grammar;
 
 
+import au.edu.usyd.corona.scheduler.SchedulableTask;
+
 public class QueryCompilerGrammarTest extends CompilerTestCase {
 	
 	private void expectFail(String query) {
@@ -38,4 +40,11 @@ public class QueryCompilerGrammarTest extends CompilerTestCase {
 		expectFail("SELECT * FROM FISH");
 		expectFail("SELECT * FROM NETWORK");
 	}
+	
+	public void testOverrun() throws Exception {
+		final QLCompiler compiler = QLCompiler.getInstance();
+		assertEquals(SchedulableTask.OVERRUN_CATCH_UP, compiler.compile("SELECT light RUNCOUNT FOREVER", 0, adminUser).getOverrunPolicy());
+		assertEquals(SchedulableTask.OVERRUN_SKIP, compiler.compile("SELECT light RUNCOUNT FOREVER OVERRUN SKIP", 0, adminUser).getOverrunPolicy());
+		assertEquals(SchedulableTask.OVERRUN_DEGRADE, compiler.compile("SELECT AVG(light) OVERRUN DEGRADE", 0, adminUser).getOverrunPolicy());
+	}
 }
@@ -39,14 +39,17 @@ public class QueryCompilerTokenGenerationTest extends CompilerTestCase {
 	
 	public void testSelect() throws QLParseException, QLCompileException {
 		run("SELECT *", //
-		"D(M(C() P(E() 1 2 3 4 5 6 7 8 9 10 11 12 13)))", //
-		"P(C() 0 1 2 3 4 5 6 7 8 9 10 11 12)");
+		"D(M(C() P(E() 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 17 18 19)))", //
+		"P(C() 0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 17 18)");
 		run("SELECT node", //
 		"D(M(C() P(E() 1)))", //
 		"P(C() 0)");
 		run("SELECT node, parent", //
 		"D(M(C() P(E() 1 10)))", //
 		"P(C() 0 1)");
+		run("SELECT node, queued, lateness, missed", //
+		"D(M(C() P(E() 1 14 15 19)))", //
+		"P(C() 0 1 2 3)");
 		run("SELECT z, y, x, sw2", //
 		"D(M(C() P(E() 5 4 3 7)))", //
 		"P(C() 0 1 2 3)");
@@ -69,7 +72,7 @@ public class QueryCompilerTokenGenerationTest extends CompilerTestCase {
 		"D(F(M(C() P(E() 8)) 1 0 0 0))", //
 		"P(F(C() 1 0 0 0) 0)");
 		run("SELECT AVG(light)", //
-		"D(M(C() P(E() 0 8)))", //
+		"D(F(M(C() P(E() 0 8)) 1 1 1 0))", //
 		"P(F(C() 1 1 1 0) 1)");
 		run("SELECT MIN(light)", //
 		"D(F(M(C() P(E() 8)) 1 2 0 0))", //
@@ -111,19 +114,19 @@ public class QueryCompilerTokenGenerationTest extends CompilerTestCase {
 		"D(M(C() P(S(E() <(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		run("SELECT memory WHERE node <= 12", //
-		"D(M(C() P(S(E() N(N(<(B(1) c(12)) <(B(1) c(12))) N(=(B(1) c(12)) =(B(1) c(12))))) 13 1)))", //
+		"D(M(C() P(S(E() L(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		run("SELECT memory WHERE node == 12", //
 		"D(M(C() P(S(E() =(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		run("SELECT memory WHERE node != 12", //
-		"D(M(C() P(S(E() N(=(B(1) c(12)) =(B(1) c(12)))) 13 1)))", //
+		"D(M(C() P(S(E() #(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		run("SELECT memory WHERE node >= 12", //
-		"D(M(C() P(S(E() N(<(B(1) c(12)) <(B(1) c(12)))) 13 1)))", //
+		"D(M(C() P(S(E() G(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		run("SELECT memory WHERE node > 12", //
-		"D(M(C() P(S(E() N(N(N(<(B(1) c(12)) <(B(1) c(12))) N(=(B(1) c(12)) =(B(1) c(12)))) N(N(<(B(1) c(12)) <(B(1) c(12))) N(=(B(1) c(12)) =(B(1) c(12)))))) 13 1)))", //
+		"D(M(C() P(S(E() >(B(1) c(12))) 13 1)))", //
 		"P(C() 0)");
 		
 		run("SELECT temp, sw1 WHERE node == 12", //
@@ -134,23 +137,32 @@ public class QueryCompilerTokenGenerationTest extends CompilerTestCase {
 		"P(C() 0 1)");
 		
 		run("SELECT x WHERE x == x AND y + 2 < 3", //
-		"D(M(C() P(S(E() N(N(=(B(3) B(3)) <(+(B(4) c(2)) c(3))) N(=(B(3) B(3)) <(+(B(4) c(2)) c(3))))) 3 4)))", //
+		"D(M(C() P(S(E() &(=(B(3) B(3)) <(+(B(4) c(2)) c(3)))) 3 4)))", //
 		"P(C() 0)");
 		run("SELECT x WHERE x == x OR y + 2 < 3", //
-		"D(M(C() P(S(E() N(N(=(B(3) B(3)) =(B(3) B(3))) N(<(+(B(4) c(2)) c(3)) <(+(B(4) c(2)) c(3))))) 3 4)))", //
+		"D(M(C() P(S(E() |(=(B(3) B(3)) <(+(B(4) c(2)) c(3)))) 3 4)))", //
 		"P(C() 0)");
 		run("SELECT x WHERE NOT x == x", //
-		"D(M(C() P(S(E() N(=(B(3) B(3)) =(B(3) B(3)))) 3)))", //
+		"D(M(C() P(S(E() #(B(3) B(3))) 3)))", //
 		"P(C() 0)");
 		
 		run("SELECT memory WHERE memory == (12 + light)", //
 		"D(M(C() P(S(E() =(B(13) +(c(12) B(8)))) 13 8)))", //
 		"P(C() 0)");
 		run("SELECT node WHERE 1 != (3 < 4)", //
-		"D(M(C() P(S(E() N(=(c(1) <(c(3) c(4))) =(c(1) <(c(3) c(4))))) 1)))", //
+		"D(M(C() P(S(E() d(0)) 1)))", //
 		"P(C() 0)");
 		run("SELECT node WHERE memory == (12 + light) AND 1 != (3 < 4)", //
-		"D(M(C() P(S(E() N(N(=(B(13) +(c(12) B(8))) N(=(c(1) <(c(3) c(4))) =(c(1) <(c(3) c(4))))) N(=(B(13) +(c(12) B(8))) N(=(c(1) <(c(3) c(4))) =(c(1) <(c(3) c(4))))))) 1 13 8)))", //
+		"D(M(C() P(S(E() d(0)) 1 13 8)))", //
+		"P(C() 0)");
+		run("SELECT node WHERE memory == (12 + light) OR 1 != (3 < 4)", //
+		"D(M(C() P(S(E() =(B(13) +(c(12) B(8)))) 1 13 8)))", //
+		"P(C() 0)");
+		run("SELECT node WHERE 1 == (3 < 4)", //
+		"D(M(C() P(E() 1)))", //
+		"P(C() 0)");
+		run("SELECT x WHERE NOT (x < 2 AND x < 2) AND NOT (NOT y > 10 - 1)", //
+		"D(M(C() P(S(E() &(G(B(3) c(2)) >(B(4) c(9)))) 3 4)))", //
 		"P(C() 0)");
 		
 		runParseError("SELECT * WHERE light > 22.5f");
@@ -206,11 +218,79 @@ public class QueryCompilerTokenGenerationTest extends CompilerTestCase {
 		"P(S(F(C() 2 2 1 3 2 1 0) <(B(2) c(1234567))) 0 1 2)");
 		run("SELECT parent, COUNT(*) GROUP BY parent HAVING COUNT(*) > 5", //
 		"D(F(M(C() P(E() 0 10)) 1 4 0 1 1))", //
-		"P(S(F(C() 1 4 0 1 1) N(N(N(<(B(0) c(5)) <(B(0) c(5))) N(=(B(0) c(5)) =(B(0) c(5)))) N(N(<(B(0) c(5)) <(B(0) c(5))) N(=(B(0) c(5)) =(B(0) c(5)))))) 1 0)");
+		"P(S(F(C() 1 4 0 1 1) >(B(0) c(5))) 1 0)");
 		run("SELECT parent GROUP BY parent HAVING COUNT(*) > 5", //
 		"D(F(M(C() P(E() 0 10)) 1 4 0 1 1))", //
-		"P(S(F(C() 1 4 0 1 1) N(N(N(<(B(0) c(5)) <(B(0) c(5))) N(=(B(0) c(5)) =(B(0) c(5)))) N(N(<(B(0) c(5)) <(B(0) c(5))) N(=(B(0) c(5)) =(B(0) c(5)))))) 1)");
+		"P(S(F(C() 1 4 0 1 1) >(B(0) c(5))) 1)");
 		
 		runCompileError("SELECT * HAVING node < 12");
 	}
+	
+	public void testOrderBy() throws QLParseException, QLCompileException {
+		// the top k is kept at every hop, and again at the base
+		run("SELECT node ORDER BY light DESC LIMIT 5", //
+		"D(K(M(C() P(E() 1 8)) 5 1 1 1))", //
+		"P(K(C() 5 1 1 1) 0)");
+		run("SELECT node, light WHERE light < 10 ORDER BY light, node DESC LIMIT 3", //
+		"D(K(M(C() P(S(E() <(B(8) c(10))) 1 8)) 3 2 1 0 0 1))", //
+		"P(K(C() 3 2 1 0 0 1) 0 1)");
+		run("SELECT node LIMIT 2", //
+		"D(K(M(C() P(E() 1)) 2 0))", //
+		"P(K(C() 2 0) 0)");
+		
+		// without a limit, the rows are only ordered at the base
+		run("SELECT node ORDER BY light", //
+		"D(M(C() P(E() 1 8)))", //
+		"P(K(C() -1 1 1 0) 0)");
+		
+		// partial aggregates cannot be cut down in the network
+		run("SELECT node, MAX(light) GROUP BY node ORDER BY MAX(light) DESC LIMIT 3", //
+		"D(F(M(C() P(E() 1 8)) 1 3 1 1 0))", //
+		"P(K(F(C() 1 3 1 1 0) 3 1 1 1) 0 1)");
+		run("SELECT parent, COUNT(*) GROUP BY parent ORDER BY COUNT(*) DESC LIMIT 1", //
+		"D(F(M(C() P(E() 0 10)) 1 4 0 1 1))", //
+		"P(K(F(C() 1 4 0 1 1) 1 1 0 1) 1 0)");
+		
+		runCompileError("SELECT node LIMIT 0");
+		runCompileError("SELECT node ORDER BY fish");
+		runCompileError("SELECT node ORDER BY light, light");
+		runCompileError("SELECT MAX(light) GROUP BY node ORDER BY parent");
+	}
+	
+	public void testSketches() throws QLParseException, QLCompileException {
+		// the sketches are built up in the network, and only estimated at the base
+		run("SELECT MEDIAN(light), P99(light), COUNT_DISTINCT(parent)", //
+		"D(F(M(C() P(E() 8 8 10)) 3 6 0 9 1 5 2 0))", //
+		"P(F(C() 3 6 0 9 1 5 2 0) 0 1 2)");
+		run("SELECT node, P90(temp) GROUP BY node HAVING P90(temp) > 30", //
+		"D(F(M(C() P(E() 1 9)) 1 7 1 1 0))", //
+		"P(S(F(C() 1 7 1 1 0) >(B(1) c(30))) 0 1)");
+	}
+	
+	public void testWindow() throws QLParseException, QLCompileException {
+		// each node aggregates its own rows over the window, then merges in the windows of its children
+		run("SELECT AVG(light) WINDOW 10 EPOCHS", //
+		"D(F(M(C() W(F(P(E() 0 8) 1 1 1 0) 10)) 1 1 1 0))", //
+		"P(F(C() 1 1 1 0) 1)");
+		run("SELECT node, MAX(light) WHERE light > 5 GROUP BY node WINDOW 3 EPOCHS", //
+		"D(F(M(C() W(F(P(S(E() >(B(8) c(5))) 1 8 8) 1 3 1 1 0) 3)) 1 3 1 1 0))", //
+		"P(F(C() 1 3 1 1 0) 0 1)");
+		
+		runCompileError("SELECT node WINDOW 10 EPOCHS");
+		runCompileError("SELECT AVG(light) WINDOW 0 EPOCHS");
+	}
+	
+	public void testDeadband() throws QLParseException, QLCompileException {
+		// nodes only report changed rows, which the basestation fills back in by the node they came from
+		run("SELECT light DEADBAND 0.5", //
+		"D(M(C() R(P(E() 8 1) 0.5 10)))", //
+		"P(V(C() 1 10) 0)");
+		// a node cannot take back a row it did not report, so selection happens after the fill
+		run("SELECT node, light WHERE light > 5 DEADBAND 2", //
+		"D(M(C() R(P(E() 1 8) 2.0 10)))", //
+		"P(S(V(C() 0 10) >(B(1) c(5))) 0 1)");
+		
+		runCompileError("SELECT AVG(light) DEADBAND 1");
+		runCompileError("SELECT node, light GROUP BY node DEADBAND 1");
+	}
 }
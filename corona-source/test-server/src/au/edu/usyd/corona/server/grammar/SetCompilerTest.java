@@ -39,6 +39,20 @@ public class SetCompilerTest extends CompilerTestCase {
 		
 		run("intercluster_power = -33", adminUser, false);
 		run("intercluster_power = 32", adminUser, false);
+		
+		run("sample_cache_window = 0", adminUser, true);
+		run("sample_cache_window = 500", adminUser, true);
+		run("sample_cache_window = -1", adminUser, false);
+		
+		run("max_concurrent_queries = 1", adminUser, true);
+		run("max_concurrent_queries = 64", adminUser, true);
+		run("max_concurrent_queries = 0", adminUser, false);
+		run("max_concurrent_queries = 65", adminUser, false);
+		
+		run("coalesce_tolerance = 0", adminUser, true);
+		run("coalesce_tolerance = 250", adminUser, true);
+		run("coalesce_tolerance = -1", adminUser, false);
+		run("coalesce_tolerance = 60001", adminUser, false);
 	}
 	
 	public void testValidValues() {
@@ -0,0 +1,56 @@
+package au.edu.usyd.corona.server.persistence.JDBCDAO;
+
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.Scheduler;
+import au.edu.usyd.corona.server.persistence.DAOinterface.MetricsDAO;
+import au.edu.usyd.corona.server.persistence.DAOinterface.RemoteTableResultsInterface;
+
+public class JDBCMetricsDAOTest extends TestCase {
+	private static final String ALL_METRICS = "SELECT * FROM " + MetricsDAO.TABLE_NAME + " ORDER BY recordedTime";
+	
+	private JDBCDAOFactory factory;
+	private MetricsDAO md;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Network.initialize(Network.MODE_UNITTEST);
+		factory = new JDBCDAOFactory();
+		factory.clean();
+		factory.close();
+		factory = new JDBCDAOFactory();
+		md = factory.getMetricsDAO();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		factory.clean();
+		factory.close();
+		super.tearDown();
+	}
+	
+	public void testInsertAndDelete() throws Exception {
+		final Scheduler scheduler = Scheduler.getInstance();
+		md.insert(1000, scheduler);
+		md.insert(2000, scheduler);
+		md.insert(3000, scheduler);
+		
+		// the metrics are read like any other table
+		RemoteTableResultsInterface res = factory.getResultDAO().retrieve(ALL_METRICS);
+		assertEquals(3, res.getNumItems());
+		assertEquals(11, res.getNumCols());
+		assertEquals("recordedtime", res.getColumnNames()[0].toLowerCase());
+		List<Object[]> rows = res.getItems(0, 3);
+		assertEquals(1000L, ((Number) rows.get(0)[0]).longValue());
+		assertTrue(((Number) rows.get(0)[4]).intValue() > 0); // threads
+		
+		md.deleteBefore(2500);
+		res = factory.getResultDAO().retrieve(ALL_METRICS);
+		assertEquals(1, res.getNumItems());
+		assertEquals(3000L, ((Number) res.getItems(0, 1).get(0)[0]).longValue());
+	}
+}
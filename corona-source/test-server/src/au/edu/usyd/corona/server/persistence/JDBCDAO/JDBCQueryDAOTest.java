@@ -2,12 +2,15 @@ package au.edu.usyd.corona.server.persistence.JDBCDAO;
 
 
 import java.rmi.RemoteException;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.List;
 
 import junit.framework.TestCase;
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.scheduler.KillTask;
 import au.edu.usyd.corona.scheduler.SchedulableTask;
+import au.edu.usyd.corona.scheduler.TaskDetails;
 import au.edu.usyd.corona.scheduler.TaskID;
 import au.edu.usyd.corona.server.grammar.Query;
 import au.edu.usyd.corona.server.persistence.DAOinterface.DAOException;
@@ -97,6 +100,44 @@ public class JDBCQueryDAOTest extends TestCase {
 		assertEquals(Integer.MAX_VALUE, qd.getHighestQueryID());
 	}
 	
+	public void testTaskOverrunCounts() throws DAOException {
+		addQuery(u, 3);
+		TaskDetails task = td.retrieve("qID = 3", "", 0, 10).get(0);
+		assertEquals(0, task.getLateness());
+		assertEquals(0, task.getSkippedEpochs());
+		
+		task.setLateness(1250);
+		task.setSkippedEpochs(4);
+		td.update(task);
+		task = td.retrieve("qID = 3", "", 0, 10).get(0);
+		assertEquals(1250, task.getLateness());
+		assertEquals(4, task.getSkippedEpochs());
+	}
+	
+	public void testTaskTableMigration() throws Exception {
+		// replace the tasks table with one from before the overrun counts were recorded
+		Connection conn = factory.getDataSource().getConnection();
+		Statement st = conn.createStatement();
+		st.executeUpdate("DROP TABLE tasks");
+		st.executeUpdate("CREATE TABLE tasks (qID INTEGER, nodeID BIGINT, localTaskID INTEGER, executionTime BIGINT, reschedulePeriod BIGINT, runCountTotal INTEGER, runCountLeft INTEGER, status INTEGER, PRIMARY KEY (qID, nodeID, localTaskID))");
+		st.executeUpdate("INSERT INTO tasks VALUES (9, 0, 0, 0, 0, 1, 1, 0)");
+		DBUtils.closeStatement(st);
+		DBUtils.closeConnection(conn);
+		factory.close();
+		
+		// the factory adds the missing columns, keeping the existing tasks
+		factory = new JDBCDAOFactory();
+		td = (JDBCTaskDAO) factory.getTaskDAO();
+		qd = (JDBCQueryDAO) factory.getQueryDAO();
+		assertEquals(0, td.retrieve("qID = 9", "", 0, 10).get(0).getLateness());
+		
+		addQuery(u, 3);
+		TaskDetails task = td.retrieve("qID = 3", "", 0, 10).get(0);
+		task.setSkippedEpochs(2);
+		td.update(task);
+		assertEquals(2, td.retrieve("qID = 3", "", 0, 10).get(0).getSkippedEpochs());
+	}
+	
 	public void testDelete() throws DAOException, RemoteException, QueryRetrieveException {
 		// When database is empty
 		assertEquals(-1, qd.getHighestQueryID());
@@ -0,0 +1,92 @@
+package au.edu.usyd.corona.server.srdb;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.srdb.DeadbandOperator;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.srdb.TableOperator;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+public class LastValueOperatorTest extends TestCase {
+	private ValueType[][] rows; // the rows received in the next epoch
+	
+	private final TableOperator tableOp = new TableOperator() {
+		@Override
+		public Table eval(int epoch) throws InvalidOperationException {
+			Table table = new Table(new TaskID(1));
+			for (ValueType[] row : rows)
+				table.addRow(row);
+			return table;
+		}
+		
+		@Override
+		public StringBuffer toTokens() {
+			return new StringBuffer("C()");
+		}
+	};
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+	}
+	
+	private static ValueType[] row(long node, float light) {
+		return new ValueType[]{new FloatType(light), new IEEEAddressType(node)};
+	}
+	
+	private static void assertLight(Table table, float... lights) {
+		assertEquals(lights.length, table.getNumRows());
+		for (int i = 0; i != lights.length; i++)
+			assertEquals(new FloatType(lights[i]), table.getRow(i)[0]);
+	}
+	
+	public void testFill() throws InvalidOperationException {
+		final LastValueOperator fill = new LastValueOperator(tableOp, (byte) 1, 10);
+		rows = new ValueType[][]{row(1, 10), row(2, 20)};
+		assertLight(fill.eval(0), 10, 20);
+		
+		// unreported rows keep their last values
+		rows = new ValueType[][]{row(2, 25)};
+		assertLight(fill.eval(1), 10, 25);
+		rows = new ValueType[][]{};
+		assertLight(fill.eval(2), 10, 25);
+		rows = new ValueType[][]{row(3, 30), row(1, 15)};
+		assertLight(fill.eval(3), 15, 25, 30);
+	}
+	
+	public void testExpiry() throws InvalidOperationException {
+		final LastValueOperator fill = new LastValueOperator(tableOp, (byte) 1, 3);
+		rows = new ValueType[][]{row(1, 10), row(2, 20)};
+		fill.eval(0);
+		
+		// node 2 keeps refreshing, but node 1 has gone
+		for (int epoch = 1; epoch <= 6; epoch++) {
+			rows = (epoch % 3 == 0) ? new ValueType[][]{row(2, 20)} : new ValueType[][]{};
+			assertLight(fill.eval(epoch), 10, 20);
+		}
+		rows = new ValueType[][]{};
+		assertLight(fill.eval(7), 20);
+	}
+	
+	public void testWithDeadband() throws InvalidOperationException {
+		// the rows a node reports through a deadband are filled back in to what it sensed
+		final DeadbandOperator deadband = new DeadbandOperator(tableOp, 1, 5);
+		final LastValueOperator fill = new LastValueOperator(deadband, (byte) 1, 5);
+		
+		final float[] lights = {10, 10.5f, 11.2f, 11, 12, 8, 8.5f, 8.5f, 8.5f, 8.5f, 8.5f, 8.5f};
+		final float[] expected = {10, 10, 11.2f, 11.2f, 11.2f, 8, 8, 8, 8, 8, 8.5f, 8.5f};
+		for (int epoch = 0; epoch != lights.length; epoch++) {
+			rows = new ValueType[][]{row(1, lights[epoch])};
+			assertLight(fill.eval(epoch), expected[epoch]);
+		}
+	}
+	
+	public void testTokens() {
+		assertEquals("V(C() 2 10)", new LastValueOperator(tableOp, (byte) 2, 10).toTokens().toString());
+	}
+}
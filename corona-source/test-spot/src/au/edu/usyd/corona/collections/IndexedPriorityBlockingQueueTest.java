@@ -0,0 +1,183 @@
+package au.edu.usyd.corona.collections;
+
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IndexedPriorityBlockingQueueTest extends TestCase {
+	private IndexedPriorityBlockingQueue queue;
+	private final Random random = new Random(42);
+	
+	/**
+	 * An element found by equality, as in {@link PriorityBlockingQueueTest}
+	 */
+	private static class CInteger implements Comparable {
+		private final int n;
+		
+		public CInteger(int n) {
+			this.n = n;
+		}
+		
+		public int compareTo(Object o) {
+			return n - ((CInteger) o).n;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof CInteger && ((CInteger) o).n == n;
+		}
+		
+		@Override
+		public String toString() {
+			return Integer.toString(n);
+		}
+	}
+	
+	/**
+	 * An element which keeps its position in the queue
+	 */
+	static class Timer implements Indexable {
+		final long time;
+		private int index = -1;
+		
+		Timer(long time) {
+			this.time = time;
+		}
+		
+		public int compareTo(Object o) {
+			long other = ((Timer) o).time;
+			return (time < other) ? -1 : ((time == other) ? 0 : 1);
+		}
+		
+		public int getQueueIndex() {
+			return index;
+		}
+		
+		public void setQueueIndex(int index) {
+			this.index = index;
+		}
+	}
+	
+	@Override
+	public void setUp() {
+		queue = new IndexedPriorityBlockingQueue(1);
+	}
+	
+	public void testAddPoll() {
+		assertEquals(null, queue.poll());
+		assertEquals(null, queue.peek());
+		for (int n : new int[]{5, -1, 0, 3, 9, 11})
+			queue.add(new CInteger(n));
+		assertEquals(6, queue.size());
+		assertEquals(new CInteger(-1), queue.peek());
+		assertEquals(new CInteger(-1), queue.poll());
+		assertEquals(new CInteger(0), queue.poll());
+		assertEquals(new CInteger(3), queue.pollBlocking());
+		queue.add(new CInteger(-22));
+		queue.add(new CInteger(100));
+		queue.add(new CInteger(6));
+		
+		// elements which are not indexed are removed by equality
+		assertTrue(queue.remove(new CInteger(6)));
+		assertFalse(queue.remove(new CInteger(7)));
+		for (int n : new int[]{-22, 5, 9, 11, 100})
+			assertEquals(new CInteger(n), queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+	
+	public void testClear() {
+		final Timer t = new Timer(1);
+		queue.add(t);
+		queue.add(new Timer(2));
+		queue.clear();
+		assertEquals(0, queue.size());
+		assertEquals(-1, t.getQueueIndex());
+		assertNull(queue.poll());
+	}
+	
+	public void testIndexedRemove() {
+		final List<Timer> timers = new ArrayList<Timer>();
+		for (int i = 0; i != 200; i++) {
+			Timer t = new Timer(random.nextInt(1000));
+			timers.add(t);
+			queue.add(t);
+		}
+		
+		// remove half of the timers, checking the positions every time
+		for (int i = 0; i != 100; i++) {
+			Timer t = timers.remove(random.nextInt(timers.size()));
+			assertTrue(queue.remove(t));
+			assertEquals(-1, t.getQueueIndex());
+			assertFalse(queue.remove(t));
+			assertIndexes();
+		}
+		
+		// an equal timer which is not in the queue is not removed
+		assertFalse(queue.remove(new Timer(timers.get(0).time)));
+		
+		long last = Long.MIN_VALUE;
+		while (!queue.isEmpty()) {
+			Timer t = (Timer) queue.poll();
+			assertTrue(last <= t.time);
+			assertTrue(timers.remove(t));
+			last = t.time;
+		}
+		assertTrue(timers.isEmpty());
+	}
+	
+	public void testSameOrderAsJavaQueue() {
+		// the periodic pattern of the scheduler: take the earliest, then put it back later
+		final java.util.PriorityQueue<Integer> expected = new java.util.PriorityQueue<Integer>();
+		for (int i = 0; i != 500; i++) {
+			int n = random.nextInt(1000);
+			queue.add(new CInteger(n));
+			expected.add(n);
+		}
+		for (int i = 0; i != 5000; i++) {
+			CInteger head = (CInteger) queue.poll();
+			assertEquals(expected.poll().intValue(), head.n);
+			if (random.nextInt(10) == 0) {
+				int removed = random.nextInt(1000);
+				assertEquals(expected.remove(removed), queue.remove(new CInteger(removed)));
+			}
+			int next = head.n + random.nextInt(100);
+			queue.add(new CInteger(next));
+			expected.add(next);
+		}
+	}
+	
+	public void testPeekBlocking() throws InterruptedException {
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				}
+				catch (InterruptedException e) {
+				}
+				queue.add(new Timer(5));
+			}
+		}.start();
+		assertEquals(5, ((Timer) queue.peekBlocking()).time);
+		assertEquals(1, queue.size());
+	}
+	
+	public void testElements() {
+		for (int i = 0; i != 10; i++)
+			queue.add(new Timer(i));
+		int count = 0;
+		for (Enumeration e = queue.elements(); e.hasMoreElements(); e.nextElement())
+			count++;
+		assertEquals(10, count);
+	}
+	
+	private void assertIndexes() {
+		int i = 0;
+		for (Enumeration e = queue.elements(); e.hasMoreElements(); i++)
+			assertEquals(i, ((Timer) e.nextElement()).getQueueIndex());
+	}
+}
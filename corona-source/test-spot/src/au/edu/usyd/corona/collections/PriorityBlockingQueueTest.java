@@ -221,5 +221,17 @@ public class PriorityBlockingQueueTest extends TestCase {
 		
 		assertTrue(queue.isEmpty());
 	}
+	public void testPollInOrder() {
+		for (int i = 0; i < 200; i++)
+			queue.add(new CInteger((int) (Math.random() * 100)));
+		queue.remove(queue.peek());
+		
+		int last = Integer.MIN_VALUE;
+		while (!queue.isEmpty()) {
+			int current = ((CInteger) queue.poll()).getN();
+			assertTrue(last <= current);
+			last = current;
+		}
+	}
 	
 }
@@ -0,0 +1,108 @@
+package au.edu.usyd.corona.collections;
+
+
+import java.util.Random;
+
+import au.edu.usyd.corona.collections.IndexedPriorityBlockingQueueTest.Timer;
+
+/**
+ * Times {@link PriorityBlockingQueue} against
+ * {@link IndexedPriorityBlockingQueue} on the patterns of the scheduler: a
+ * standing set of periodic tasks which are taken from the head and put back one
+ * period later, and the cancellation of tasks when their queries are killed.
+ * Run with <code>main</code>; it is not part of the unit tests.
+ */
+public class PriorityQueueBenchmark {
+	private static final int[] SIZES = {10, 100, 1000, 5000};
+	private static final int ROUNDS = 20000;
+	
+	/**
+	 * The operations of one of the queues
+	 */
+	private interface Queue {
+		void add(Comparable c);
+		
+		Comparable poll();
+		
+		boolean remove(Comparable c);
+	}
+	
+	private static Queue binary() {
+		final PriorityBlockingQueue q = new PriorityBlockingQueue();
+		return new Queue() {
+			public void add(Comparable c) {
+				q.add(c);
+			}
+			
+			public Comparable poll() {
+				return q.poll();
+			}
+			
+			public boolean remove(Comparable c) {
+				return q.remove(c);
+			}
+		};
+	}
+	
+	private static Queue indexed() {
+		final IndexedPriorityBlockingQueue q = new IndexedPriorityBlockingQueue();
+		return new Queue() {
+			public void add(Comparable c) {
+				q.add(c);
+			}
+			
+			public Comparable poll() {
+				return q.poll();
+			}
+			
+			public boolean remove(Comparable c) {
+				return q.remove(c);
+			}
+		};
+	}
+	
+	/**
+	 * @return the time in nanoseconds per round of taking the head and putting
+	 * it back a period later
+	 */
+	private static double periodic(Queue q, int size) {
+		final Random random = new Random(size);
+		for (int i = 0; i != size; i++)
+			q.add(new Timer(random.nextInt(1000)));
+		final long start = System.nanoTime();
+		for (int i = 0; i != ROUNDS; i++) {
+			Timer t = (Timer) q.poll();
+			q.add(new Timer(t.time + 500 + random.nextInt(1000)));
+		}
+		return (System.nanoTime() - start) / (double) ROUNDS;
+	}
+	
+	/**
+	 * @return the time in nanoseconds per cancellation of a task which is
+	 * somewhere in the queue
+	 */
+	private static double cancel(Queue q, int size) {
+		final Random random = new Random(size);
+		final Timer[] timers = new Timer[size];
+		for (int i = 0; i != size; i++)
+			q.add(timers[i] = new Timer(random.nextInt(1000)));
+		final long start = System.nanoTime();
+		for (int i = 0; i != size; i++)
+			q.remove(timers[(i * 7919) % size]);
+		return (System.nanoTime() - start) / (double) size;
+	}
+	
+	public static void main(String[] args) {
+		// warm up the compiler before the timed runs
+		for (int i = 0; i != 3; i++) {
+			periodic(binary(), 1000);
+			periodic(indexed(), 1000);
+			cancel(binary(), 1000);
+			cancel(indexed(), 1000);
+		}
+		
+		System.out.println("size\tperiodic binary\tperiodic indexed\tcancel binary\tcancel indexed (ns per operation)");
+		for (int size : SIZES)
+			System.out.printf("%d\t%.0f\t%.0f\t%.0f\t%.0f%n", size, periodic(binary(), size), periodic(indexed(), size), cancel(binary(), size), cancel(indexed(), size));
+	}
+}
@@ -3,6 +3,7 @@ package au.edu.usyd.corona.grammar;
 
 import junit.framework.TestCase;
 import au.edu.usyd.corona.srdb.ConditionExpression;
+import au.edu.usyd.corona.types.BooleanType;
 import au.edu.usyd.corona.types.ByteType;
 import au.edu.usyd.corona.types.IntType;
 import au.edu.usyd.corona.types.InvalidOperationException;
@@ -72,6 +73,32 @@ public class TokenParserTest extends TestCase implements TokenGrammarTokens {
 		tokens = new StringBuffer().append(T_ADD).append(T_GROUP_OPEN).append(getInt(4)).append(' ').append(getInt(-3)).append(T_GROUP_CLOSE);
 		runNumeric(tokens.toString(), new IntType(1));
 	}
+	
+	public void testComparisons() throws TokenParseException, InvalidOperationException {
+		runNumeric(">(b(5) b(3))", new BooleanType(true));
+		runNumeric(">(b(3) b(3))", new BooleanType(false));
+		runNumeric("G(b(3) b(3))", new BooleanType(true));
+		runNumeric("L(b(3) b(3))", new BooleanType(true));
+		runNumeric("L(b(4) b(3))", new BooleanType(false));
+		runNumeric("#(b(4) b(3))", new BooleanType(true));
+		runNumeric("&(>(b(5) b(3)) !(L(b(5) b(3))))", new BooleanType(true));
+		runNumeric("|(<(b(5) b(3)) =(b(5) b(3)))", new BooleanType(false));
+		
+		String tokens = "&(>(B(1) b(3)) |(!(#(B(2) c(4))) G(B(1) f(2.5))))";
+		assertEquals(tokens, parser.parseConditionalExpression(tokens).toTokens().toString());
+	}
+	
+	public void testShortCircuit() throws TokenParseException, InvalidOperationException {
+		// booleans cannot be divided, so the second operand fails if evaluated
+		runNumeric("&(d(0) /(d(1) d(1)))", new BooleanType(false));
+		runNumeric("|(d(1) /(d(1) d(1)))", new BooleanType(true));
+		try {
+			runNumeric("&(d(1) /(d(1) d(1)))", new BooleanType(false));
+			fail("The second operand should be evaluated");
+		}
+		catch (InvalidOperationException e) {
+		}
+	}
 	/*
 	 * public void testStar() throws TokenParseException,
 	 * InvalidOperationException { runNumeric("*(2 +(-678324 75894759))",
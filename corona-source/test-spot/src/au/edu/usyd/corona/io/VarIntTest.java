@@ -0,0 +1,69 @@
+package au.edu.usyd.corona.io;
+
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class VarIntTest extends TestCase {
+	
+	private static int intLength(int value) throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream();
+		VarInt.writeInt(out, value);
+		final byte[] bytes = out.getBytes();
+		final ByteArrayDataInputStream in = new ByteArrayDataInputStream(bytes);
+		assertEquals(value, VarInt.readInt(in));
+		assertEquals(0, in.available());
+		return bytes.length;
+	}
+	
+	private static int longLength(long value) throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream();
+		VarInt.writeLong(out, value);
+		final byte[] bytes = out.getBytes();
+		final ByteArrayDataInputStream in = new ByteArrayDataInputStream(bytes);
+		assertEquals(value, VarInt.readLong(in));
+		assertEquals(0, in.available());
+		return bytes.length;
+	}
+	
+	public void testInts() throws IOException {
+		assertEquals(1, intLength(0));
+		assertEquals(1, intLength(63));
+		assertEquals(1, intLength(-64));
+		assertEquals(2, intLength(64));
+		assertEquals(2, intLength(-8192));
+		assertEquals(5, intLength(Integer.MAX_VALUE));
+		assertEquals(5, intLength(Integer.MIN_VALUE));
+	}
+	
+	public void testLongs() throws IOException {
+		assertEquals(1, longLength(-1));
+		assertEquals(3, longLength(1 << 19));
+		assertEquals(10, longLength(Long.MAX_VALUE));
+		assertEquals(10, longLength(Long.MIN_VALUE));
+	}
+	
+	public void testUnsigned() throws IOException {
+		final ByteArrayDataOutputStream out = new ByteArrayDataOutputStream();
+		VarInt.writeUnsigned(out, 127);
+		VarInt.writeUnsigned(out, 128);
+		VarInt.writeUnsigned(out, -1);
+		final byte[] bytes = out.getBytes();
+		assertEquals(1 + 2 + 5, bytes.length);
+		
+		final ByteArrayDataInputStream in = new ByteArrayDataInputStream(bytes);
+		assertEquals(127, VarInt.readUnsigned(in));
+		assertEquals(128, VarInt.readUnsigned(in));
+		assertEquals(-1, VarInt.readUnsigned(in));
+	}
+	
+	public void testMalformed() {
+		try {
+			VarInt.readUnsigned(new ByteArrayDataInputStream(new byte[]{-1, -1, -1, -1, -1, 1}));
+			fail("Read an int longer than 5 bytes");
+		}
+		catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.srdb.AggregateOperator;
+import au.edu.usyd.corona.srdb.CollectOperator;
+import au.edu.usyd.corona.srdb.MergeOperator;
+import au.edu.usyd.corona.srdb.ReadOperator;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.srdb.TableOperator;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+public class ChildResultStoreTest extends TestCase {
+	private static final Long[] CHILDREN = {new Long(1), new Long(2)};
+	private static final long MAX_TIMEOUT = 8000;
+	
+	private ChildResultStore store;
+	
+	@Override
+	protected void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		store = new ChildResultStore();
+	}
+	
+	public void testWakesOnLastResult() throws InterruptedException {
+		final Thread child = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				}
+				catch (InterruptedException e) {
+				}
+				store.addResult(new Table(new TaskID(1)), 0, 1);
+				store.addResult(new Table(new TaskID(1)), 0, 2);
+			}
+		};
+		
+		final long start = System.currentTimeMillis();
+		child.start();
+		assertEquals(2, store.waitForResults(0, 2, start + MAX_TIMEOUT));
+		assertTrue(System.currentTimeMillis() - start < MAX_TIMEOUT / 2);
+		child.join();
+	}
+	
+	public void testDeadline() {
+		store.addResult(new Table(new TaskID(1)), 0, 1);
+		final long start = System.currentTimeMillis();
+		assertEquals(1, store.waitForResults(0, 2, start + 50));
+		assertTrue(System.currentTimeMillis() - start >= 50);
+	}
+	
+	public void testAdaptiveTimeout() {
+		// not enough has been seen of the children yet
+		assertEquals(MAX_TIMEOUT, store.getTimeout(CHILDREN, MAX_TIMEOUT));
+		
+		final long start = System.currentTimeMillis();
+		for (int epoch = 0; epoch < ChildResultStore.MIN_SAMPLES; epoch++) {
+			store.addResult(new Table(new TaskID(1)), epoch, 1);
+			store.addResult(new Table(new TaskID(1)), epoch, 2);
+			store.recordLatencies(epoch, CHILDREN, start, MAX_TIMEOUT);
+			store.removeResults(epoch);
+		}
+		final long timeout = store.getTimeout(CHILDREN, MAX_TIMEOUT);
+		assertTrue(timeout >= ChildResultStore.TIMEOUT_SLACK);
+		assertTrue(timeout < MAX_TIMEOUT / 2);
+		
+		// a child that stops reporting pushes the timeout back up
+		for (int epoch = 0; epoch < LatencyTracker.WINDOW; epoch++)
+			store.recordLatencies(epoch, CHILDREN, start, MAX_TIMEOUT);
+		assertEquals(MAX_TIMEOUT, store.getTimeout(CHILDREN, MAX_TIMEOUT));
+	}
+	
+	public void testMergeOnArrival() throws InvalidOperationException {
+		assertNull(store.takeResult(0));
+		store.removeResults(0);
+		for (int node = 1; node <= 3; node++)
+			store.addResult(table(new int[][]{{1, node, 0}, {1, node, 1}}), 0, node);
+		assertEquals(3, store.numResults(0));
+		final Table result = store.takeResult(0);
+		assertEquals(6, result.getNumRows());
+		
+		// a late result does not change the table the collector took
+		store.addResult(table(new int[][]{{1, 4, 0}}), 0, 4);
+		assertEquals(6, result.getNumRows());
+		assertEquals(3, store.numResults(0));
+		assertNull(store.takeResult(0));
+		
+		store.removeResults(0);
+		store.addResult(table(new int[][]{{1, 4, 0}}), 0, 4);
+		assertEquals(1, store.takeResult(0).getNumRows());
+	}
+	
+	public void testPreAggregation() throws InvalidOperationException {
+		// AVG(column 1) GROUP BY column 2 over the collected rows, with the count in column 0
+		final TaskID taskID = new TaskID(1);
+		final TableOperator merge = new MergeOperator(taskID, new CollectOperator(taskID, store), new ReadOperator(new Table(taskID)));
+		new AggregateOperator(merge, new byte[]{AggregateOperator.AVG}, new byte[]{1}, new byte[]{2}, true);
+		for (int node = 1; node <= 3; node++)
+			store.addResult(table(new int[][]{{2, node, 0}, {1, node, 1}}), 0, node);
+		
+		final Table result = store.takeResult(0);
+		assertEquals(2, result.getNumRows());
+		assertEquals(new IntType(6), result.getRow(0)[0]);
+		assertEquals(new IntType(6), result.getRow(0)[1]);
+		assertEquals(new IntType(3), result.getRow(1)[0]);
+		assertEquals(new IntType(6), result.getRow(1)[1]);
+	}
+	
+	private static Table table(int[][] values) {
+		final Table table = new Table(new TaskID(1));
+		for (int[] row : values) {
+			final ValueType[] r = new ValueType[row.length];
+			for (int i = 0; i < row.length; i++)
+				r[i] = new IntType(row[i]);
+			table.addRow(r);
+		}
+		return table;
+	}
+	
+	public void testPercentile() {
+		final LatencyTracker tracker = new LatencyTracker();
+		assertEquals(-1, tracker.getPercentile());
+		for (int i = 1; i <= LatencyTracker.WINDOW; i++)
+			tracker.addSample(i * 10);
+		assertEquals(LatencyTracker.WINDOW, tracker.getNumSamples());
+		assertEquals(190, tracker.getPercentile());
+		
+		// the oldest samples are replaced
+		for (int i = 0; i < LatencyTracker.WINDOW; i++)
+			tracker.addSample(5);
+		assertEquals(5, tracker.getPercentile());
+	}
+}
@@ -0,0 +1,63 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import junit.framework.TestCase;
+
+public class HistogramTest extends TestCase {
+	
+	public void testEmpty() {
+		final Histogram h = new Histogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getPercentile(50));
+		assertEquals(0, h.getPercentile(100));
+	}
+	
+	public void testPercentiles() {
+		final Histogram h = new Histogram();
+		for (int i = 1; i <= 100; i++)
+			h.record(i);
+		h.record(-5); // clamped to 0
+		assertEquals(101, h.getCount());
+		
+		// each estimate is the upper bound of the power of two bucket the value is in
+		assertEquals(0, h.getPercentile(0));
+		assertEquals(63, h.getPercentile(50));
+		assertEquals(127, h.getPercentile(95));
+		assertEquals(127, h.getPercentile(100));
+		
+		h.record(Long.MAX_VALUE);
+		assertTrue(h.getPercentile(100) > 1000000000L);
+	}
+	
+	public void testDecay() {
+		final Histogram h = new Histogram();
+		for (int i = 0; i != 8; i++)
+			h.record(1000);
+		h.record(1);
+		
+		// the old values fade away, so that recent ones decide the percentiles
+		final long now = System.currentTimeMillis();
+		h.decay(now + Histogram.DECAY_PERIOD);
+		assertEquals(4, h.getCount());
+		h.decay(now + 3 * Histogram.DECAY_PERIOD);
+		assertEquals(1, h.getCount());
+		h.decay(now + 4 * Histogram.DECAY_PERIOD);
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getPercentile(95));
+	}
+	
+	public void testStats() {
+		final SchedulerStats stats = new SchedulerStats();
+		stats.recordExecution(5, 20);
+		stats.recordExecution(0, 3);
+		stats.recordSkipped(1);
+		stats.recordSkipped(3);
+		stats.recordWakeUp(2);
+		assertEquals(2, stats.getExecuted());
+		assertEquals(4, stats.getSkipped());
+		assertEquals(1, stats.getWakeUps());
+		assertEquals(7, stats.getLateness().getPercentile(100));
+		assertEquals(31, stats.getDuration().getPercentile(100));
+		assertEquals(3, stats.getBacklog().getPercentile(50));
+	}
+}
@@ -0,0 +1,99 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.srdb.TableOperator;
+
+public class QueryTaskTest extends TestCase {
+	private final Object lock = new Object();
+	private int inside; // the number of trees being evaluated
+	private int mostInside; // the most trees seen being evaluated at once
+	
+	@Override
+	protected void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+	}
+	
+	@Override
+	protected void tearDown() {
+		QueryTask.setMaxConcurrentEvaluations(QueryTask.DEFAULT_MAX_CONCURRENT_EVALUATIONS);
+	}
+	
+	/**
+	 * An operator which, like a collect waiting on children, holds on until
+	 * another tree is evaluated alongside it or a second passes
+	 */
+	private class WaitingOperator extends TableOperator {
+		@Override
+		public Table eval(int epoch) {
+			synchronized (lock) {
+				inside++;
+				mostInside = Math.max(mostInside, inside);
+				lock.notifyAll();
+				final long end = System.currentTimeMillis() + 1000;
+				try {
+					while (mostInside < 2 && System.currentTimeMillis() < end)
+						lock.wait(end - System.currentTimeMillis());
+				}
+				catch (InterruptedException e) {
+				}
+				inside--;
+			}
+			return null;
+		}
+		
+		@Override
+		public StringBuffer toTokens() {
+			return new StringBuffer();
+		}
+	}
+	
+	private Thread evaluate(final int queryID) {
+		final QueryTask task = new QueryTask() {
+			{
+				taskID = new TaskID(queryID);
+				networkTree = new WaitingOperator();
+			}
+		};
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					task.executeNetworkTree(0);
+				}
+				catch (Exception e) {
+					fail(e.getMessage());
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+	
+	private long evaluateTwo() throws InterruptedException {
+		final long start = System.currentTimeMillis();
+		final Thread a = evaluate(1), b = evaluate(2);
+		a.join();
+		b.join();
+		return System.currentTimeMillis() - start;
+	}
+	
+	public void testConcurrentEvaluation() throws InterruptedException {
+		// independent queries evaluate together rather than one after the other
+		assertTrue(evaluateTwo() < 1000);
+		assertEquals(2, mostInside);
+		assertEquals(0, QueryTask.getRunningEvaluations());
+	}
+	
+	public void testCap() throws InterruptedException {
+		QueryTask.setMaxConcurrentEvaluations(1);
+		assertTrue(evaluateTwo() >= 2000);
+		assertEquals(1, mostInside);
+		assertEquals(0, QueryTask.getRunningEvaluations());
+		
+		QueryTask.setMaxConcurrentEvaluations(0);
+		assertEquals(1, QueryTask.getMaxConcurrentEvaluations());
+	}
+}
@@ -4,6 +4,7 @@ package au.edu.usyd.corona.scheduler;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Vector;
 
 import junit.framework.TestCase;
 import au.edu.usyd.corona.middleLayer.Network;
@@ -62,6 +63,100 @@ public class SchedulerTest extends TestCase {
 		DestroyableSchedular.destroyInstance();
 	}
 	
+	private int wakeUps;
+	
+	private long[] runBatch(long tolerance) throws InterruptedException {
+		DestroyableSchedular.initialize();
+		s = (DestroyableSchedular) DestroyableSchedular.getInstance();
+		s.setCoalesceTolerance(tolerance);
+		s.addSleepable(new Sleepable() {
+			public void toSleep() {
+			}
+			
+			public void wakeUp() {
+				wakeUps++;
+			}
+		});
+		
+		// five tasks due 100ms apart
+		final Vector executed = new Vector();
+		final long start = System.currentTimeMillis() + 500;
+		for (int i = 0; i != 5; i++)
+			s.addTask(new RecordingTask(i, start + i * 100, executed));
+		Thread.sleep(200);
+		wakeUps = 0;
+		
+		Thread.sleep(1300);
+		assertEquals(5, executed.size());
+		assertEquals(0, s.size());
+		assertEquals(5, s.getStats().getExecuted());
+		assertEquals(0, s.getStats().getSkipped());
+		assertTrue(s.getStats().getWakeUps() >= 1);
+		DestroyableSchedular.destroyInstance();
+		
+		final long[] times = new long[executed.size()];
+		for (int i = 0; i != times.length; i++)
+			times[i] = ((Long) executed.elementAt(i)).longValue() - start;
+		return times;
+	}
+	
+	public void testCoalescing() throws InterruptedException {
+		// the tasks due within the tolerance of the first are run with it, in one wake up
+		final long[] times = runBatch(500);
+		for (int i = 0; i != times.length; i++)
+			assertTrue(times[i] < 90);
+		assertEquals(1, wakeUps);
+		
+		// otherwise each is run at its own time
+		final long[] apart = runBatch(0);
+		for (int i = 0; i != apart.length; i++)
+			assertTrue(apart[i] >= i * 100);
+		assertEquals(5, wakeUps);
+	}
+	
+	public void testOverrunPolicies() {
+		// catching up runs every execution, however far behind
+		final TestTask catchUp = new TestTask(0, 1000, 100, 20);
+		catchUp.handleOverrun(350);
+		assertEquals(1000, catchUp.getExecutionTime());
+		assertEquals(0, catchUp.getSkippedEpochs());
+		
+		// skipping leaves only the latest of the executions due
+		final TestTask skip = new TestTask(0, 1000, 100, 20);
+		skip.setOverrunPolicy(SchedulableTask.OVERRUN_SKIP);
+		skip.handleOverrun(-50);
+		assertEquals(1000, skip.getExecutionTime());
+		skip.handleOverrun(350);
+		assertEquals(1300, skip.getExecutionTime());
+		assertEquals(3, skip.getSkippedEpochs());
+		assertEquals(17, skip.getRunCountLeft());
+		skip.handleOverrun(5000);
+		assertEquals(0, skip.getRunCountLeft());
+		assertFalse(skip.needsRescheduling());
+		
+		// degrading runs every other execution after an overrun, every fourth after two, and recovers when on time
+		final TestTask degrade = new TestTask(0, 1000, 100, SchedulableTask.RUNCOUNT_FOREVER);
+		degrade.setOverrunPolicy(SchedulableTask.OVERRUN_DEGRADE);
+		degrade.handleOverrun(0);
+		assertEquals(1100, degrade.getExecutionTime());
+		degrade.handleOverrun(20);
+		assertEquals(1400, degrade.getExecutionTime());
+		degrade.handleOverrun(-100);
+		assertEquals(1500, degrade.getExecutionTime());
+		degrade.handleOverrun(-100);
+		assertEquals(1500, degrade.getExecutionTime());
+		assertEquals(5, degrade.getSkippedEpochs());
+	}
+	
+	public void testCompareTo() {
+		// the times are further apart than fits in an int
+		final TestTask early = new TestTask(0, 0, 0, 1), late = new TestTask(1, 1L << 32, 0, 1), later = new TestTask(2, (1L << 32) + (1L << 31), 0, 1);
+		assertTrue(early.compareTo(late) < 0);
+		assertTrue(late.compareTo(early) > 0);
+		assertTrue(late.compareTo(later) < 0);
+		assertEquals(0, later.compareTo(later));
+	}
+	
 	private static class DestroyableSchedular extends Scheduler {
 		public static void initialize() {
 			if (instance == null)
@@ -109,4 +204,18 @@ public class SchedulerTest extends TestCase {
 		public void nodeInit() {
 		}
 	}
+	
+	private static class RecordingTask extends TestTask {
+		private final Vector executed;
+		
+		public RecordingTask(int queryId, long executionTime, Vector executed) {
+			super(queryId, executionTime, 0, 1);
+			this.executed = executed;
+		}
+		
+		@Override
+		protected void _execute() {
+			executed.addElement(new Long(System.currentTimeMillis()));
+		}
+	}
 }
@@ -0,0 +1,163 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.srdb.Table;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.ValueType;
+import au.edu.usyd.corona.util.ClassIdentifiers;
+
+public class SharedPlanTest extends TestCase {
+	private static final long START = 100000;
+	
+	private final Vector executed = new Vector(); // the members executed, and the epochs they were executed for
+	private final Vector forwarded = new Vector(); // whether each member's result went with the rest of the plan
+	
+	@Override
+	protected void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+	}
+	
+	private QueryTask member(final int queryID, final int plan, final long time, final int left) {
+		return new QueryTask() {
+			{
+				taskID = new TaskID(queryID);
+				planID = plan;
+				executionTime = time;
+				runCountTotal = 10;
+				runCountLeft = left;
+				networkSchema = new byte[]{ClassIdentifiers.getID(IntType.class)};
+			}
+			
+			@Override
+			void executeNetworkTree(int epoch) {
+				executed.addElement(queryID + "@" + epoch);
+				Table result = new Table(taskID);
+				result.addRow(new ValueType[]{new IntType(queryID)});
+				forwarded.addElement(new Boolean(SharedPlan.forward(result, epoch)));
+			}
+		};
+	}
+	
+	public void testMembership() {
+		final QueryTask a = member(1, 1, START, 10), b = member(2, 1, START, 10);
+		assertNull(SharedPlan.getPlan(1));
+		SharedPlan.join(a);
+		SharedPlan.join(b);
+		final SharedPlan plan = SharedPlan.getPlan(1);
+		assertNotNull(plan);
+		
+		SharedPlan.leave(a);
+		assertSame(plan, SharedPlan.getPlan(1));
+		SharedPlan.leave(b);
+		assertNull(SharedPlan.getPlan(1));
+	}
+	
+	public void testExecutesDueMembers() {
+		final QueryTask a = member(1, 1, START, 10), b = member(2, 1, START, 7), c = member(3, 1, START + 500, 10);
+		SharedPlan.join(a);
+		SharedPlan.join(b);
+		SharedPlan.join(c);
+		final SharedPlan plan = SharedPlan.getPlan(1);
+		
+		// the first member due executes all of the members due with it, at their own epochs
+		plan.execute(a, 0);
+		assertEquals(2, executed.size());
+		assertTrue(executed.contains("1@0"));
+		assertTrue(executed.contains("2@3"));
+		assertEquals(Boolean.TRUE, forwarded.elementAt(0));
+		assertEquals(Boolean.TRUE, forwarded.elementAt(1));
+		
+		// and the other members have nothing left to do
+		plan.execute(b, 3);
+		assertEquals(2, executed.size());
+		
+		// a member due on its own forwards its result as normal
+		plan.execute(c, 0);
+		assertEquals(3, executed.size());
+		assertEquals(Boolean.FALSE, forwarded.elementAt(2));
+		
+		SharedPlan.leave(a);
+		SharedPlan.leave(b);
+		SharedPlan.leave(c);
+	}
+	
+	public void testExecutesMembersConcurrently() {
+		// each member waits for the other to start, as it would wait for its children, so run one after another they would both time out
+		final Vector started = new Vector();
+		final Vector overlapped = new Vector();
+		final QueryTask[] members = new QueryTask[2];
+		for (int i = 0; i != members.length; i++) {
+			final int queryID = i + 1;
+			members[i] = new QueryTask() {
+				{
+					taskID = new TaskID(queryID);
+					planID = 2;
+					executionTime = START;
+					runCountTotal = 10;
+					runCountLeft = 10;
+				}
+				
+				@Override
+				void executeNetworkTree(int epoch) {
+					synchronized (started) {
+						started.addElement(taskID);
+						started.notifyAll();
+						final long deadline = System.currentTimeMillis() + 2000;
+						while (started.size() != members.length && System.currentTimeMillis() < deadline) {
+							try {
+								started.wait(100);
+							}
+							catch (InterruptedException e) {
+								// check again
+							}
+						}
+						overlapped.addElement(new Boolean(started.size() == members.length));
+					}
+				}
+			};
+			SharedPlan.join(members[i]);
+		}
+		
+		SharedPlan.getPlan(2).execute(members[0], 0);
+		assertEquals(2, overlapped.size());
+		assertEquals(Boolean.TRUE, overlapped.elementAt(0));
+		assertEquals(Boolean.TRUE, overlapped.elementAt(1));
+		
+		SharedPlan.leave(members[0]);
+		SharedPlan.leave(members[1]);
+	}
+	
+	public void testForwardOutsidePlan() {
+		assertFalse(SharedPlan.forward(new Table(new TaskID(1)), 0));
+	}
+	
+	public void testEncode() throws Exception {
+		// the tables are decoded with the schemas of their queries, but the query of the second is not on this node
+		final QueryTask first = member(1, 1, Long.MAX_VALUE / 2, 10), third = member(3, 1, Long.MAX_VALUE / 2, 10);
+		Scheduler.getInstance().addTask(first);
+		Scheduler.getInstance().addTask(third);
+		
+		final TransmitPlanResultsTask task = new TransmitPlanResultsTask(new TaskID(1));
+		final TaskID[] ids = {first.getTaskId(), new TaskID(2), third.getTaskId()};
+		for (int i = 1; i <= 3; i++) {
+			Table t = new Table(ids[i - 1]);
+			for (int j = 0; j != i; j++)
+				t.addRow(new ValueType[]{new IntType(j)});
+			task.addResult(t, i * 10);
+		}
+		
+		final TransmitPlanResultsTask decoded = (TransmitPlanResultsTask) SchedulableTask.decode(task.encode());
+		assertEquals(task.getTaskId(), decoded.getTaskId());
+		assertEquals(3, decoded.getNumResults());
+		assertEquals(1, decoded.getResult(0).getNumRows());
+		assertEquals(new IntType(2), decoded.getResult(2).getRow(2)[0]);
+		assertEquals(third.getTaskId(), decoded.getResult(2).getTaskID());
+		
+		Scheduler.getInstance().killQuery(1);
+		Scheduler.getInstance().killQuery(3);
+	}
+}
@@ -0,0 +1,121 @@
+package au.edu.usyd.corona.scheduler;
+
+
+import junit.framework.TestCase;
+
+public class WorkerPoolTest extends TestCase {
+	private final Object gate = new Object();
+	private boolean open = false;
+	private int finished = 0;
+	
+	/**
+	 * A job which blocks until the gate is opened
+	 */
+	private final Runnable blocked = new Runnable() {
+		public void run() {
+			synchronized (gate) {
+				while (!open) {
+					try {
+						gate.wait();
+					}
+					catch (InterruptedException e) {
+					}
+				}
+			}
+			done();
+		}
+	};
+	
+	private final Runnable quick = new Runnable() {
+		public void run() {
+			done();
+		}
+	};
+	
+	private synchronized void done() {
+		finished++;
+		notifyAll();
+	}
+	
+	private synchronized void awaitFinished(int count) throws InterruptedException {
+		final long end = System.currentTimeMillis() + 5000;
+		while (finished < count && System.currentTimeMillis() < end)
+			wait(100);
+		assertEquals(count, finished);
+	}
+	
+	private void openGate() {
+		synchronized (gate) {
+			open = true;
+			gate.notifyAll();
+		}
+	}
+	
+	private static void awaitBusy(WorkerPool pool, int lane, int busy) throws InterruptedException {
+		for (int i = 0; i != 50 && pool.getBusyWorkers(lane) != busy; i++)
+			Thread.sleep(100);
+		assertEquals(busy, pool.getBusyWorkers(lane));
+	}
+	
+	public void testLanesAreIndependent() throws InterruptedException {
+		final WorkerPool pool = new WorkerPool(1, 2, 4);
+		assertTrue(pool.submit(blocked, WorkerPool.LANE_LONG, false));
+		assertTrue(pool.submit(blocked, WorkerPool.LANE_LONG, false));
+		awaitBusy(pool, WorkerPool.LANE_LONG, 2);
+		
+		// the long lane is blocked, but the short jobs still run
+		for (int i = 0; i != 3; i++)
+			assertTrue(pool.submit(quick, WorkerPool.LANE_SHORT, false));
+		awaitFinished(3);
+		assertEquals(3, pool.getRunCount(WorkerPool.LANE_SHORT));
+		
+		openGate();
+		awaitFinished(5);
+		assertEquals(2, pool.getRunCount(WorkerPool.LANE_LONG));
+	}
+	
+	public void testFullLane() throws InterruptedException {
+		final WorkerPool pool = new WorkerPool(1, 1, 2);
+		assertTrue(pool.submit(blocked, WorkerPool.LANE_LONG, false));
+		awaitBusy(pool, WorkerPool.LANE_LONG, 1);
+		assertTrue(pool.submit(quick, WorkerPool.LANE_LONG, false));
+		assertTrue(pool.submit(quick, WorkerPool.LANE_LONG, false));
+		assertEquals(2, pool.getQueueLength(WorkerPool.LANE_LONG));
+		
+		// the queue is full, so the job is turned away
+		assertFalse(pool.submit(quick, WorkerPool.LANE_LONG, false));
+		assertEquals(1, pool.getTurnedAwayCount(WorkerPool.LANE_LONG));
+		
+		// or waits for space, once the worker is free
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+				}
+				catch (InterruptedException e) {
+				}
+				openGate();
+			}
+		}.start();
+		assertTrue(pool.submit(quick, WorkerPool.LANE_LONG, true));
+		awaitFinished(4);
+		assertEquals(4, pool.getRunCount(WorkerPool.LANE_LONG));
+		
+		// the jobs queued behind the blocked job waited for it
+		assertTrue(pool.getMaxWaitTime(WorkerPool.LANE_LONG) >= 150);
+		assertTrue(pool.getTotalWaitTime(WorkerPool.LANE_LONG) >= pool.getMaxWaitTime(WorkerPool.LANE_LONG));
+	}
+	
+	public void testFailingJob() throws InterruptedException {
+		final WorkerPool pool = new WorkerPool(1, 1, 2);
+		pool.submit(new Runnable() {
+			public void run() {
+				throw new RuntimeException("Expected failure");
+			}
+		}, WorkerPool.LANE_SHORT, false);
+		
+		// the worker carries on after the failure
+		pool.submit(quick, WorkerPool.LANE_SHORT, false);
+		awaitFinished(1);
+	}
+}
@@ -0,0 +1,41 @@
+package au.edu.usyd.corona.sensing;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.types.IntType;
+
+public class SampleCacheTest extends TestCase {
+	private SampleCache cache;
+	
+	@Override
+	public void setUp() {
+		cache = new SampleCache(2);
+		cache.setWindow(100);
+	}
+	
+	public void testFreshness() {
+		assertNull(cache.get(0, 1000));
+		cache.put(0, new IntType(7), 1000);
+		assertEquals(new IntType(7), cache.get(0, 1000));
+		assertEquals(new IntType(7), cache.get(0, 1099));
+		assertNull(cache.get(0, 1100));
+		assertNull(cache.get(1, 1000));
+		
+		assertEquals(2, cache.getHits(0));
+		assertEquals(2, cache.getMisses(0));
+		assertEquals(0, cache.getHits(1));
+		assertEquals(1, cache.getMisses(1));
+	}
+	
+	public void testDisabled() {
+		cache.setWindow(0);
+		cache.put(0, new IntType(7), 1000);
+		assertNull(cache.get(0, 1000));
+	}
+	
+	public void testClear() {
+		cache.put(0, new IntType(7), 1000);
+		cache.clear();
+		assertNull(cache.get(0, 1000));
+	}
+}
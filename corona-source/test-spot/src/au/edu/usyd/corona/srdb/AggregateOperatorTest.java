@@ -5,8 +5,12 @@ import java.util.Enumeration;
 
 import au.edu.usyd.corona.middleLayer.Network;
 import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.DistinctSketchType;
+import au.edu.usyd.corona.types.FloatType;
 import au.edu.usyd.corona.types.IntType;
 import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.QuantileSketchType;
 import au.edu.usyd.corona.types.ValueType;
 
 public class AggregateOperatorTest extends TableOperatorTestCase {
@@ -125,6 +129,29 @@ public class AggregateOperatorTest extends TableOperatorTestCase {
 		assertEquals(new IntType(16), e.nextElement()[1]);
 	}
 	
+	public void testPartialAverage() throws Exception {
+		// partially aggregate each half of the table, as two nodes would
+		final Table half1 = new Table(new TaskID(1)), half2 = new Table(new TaskID(1));
+		for (int i = 0; i != table.getNumRows(); i++)
+			((i < 8) ? half1 : half2).addRow(table.getRow(i));
+		final Table partial1 = new AggregateOperator(new ReadOperator(half1), new byte[]{AggregateOperator.AVG}, new byte[]{1}, new byte[]{2}, true).eval(0);
+		final Table partial2 = new AggregateOperator(new ReadOperator(half2), new byte[]{AggregateOperator.AVG}, new byte[]{1}, new byte[]{2}, true).eval(0);
+		
+		// partial results keep the sum and the count
+		assertEquals(1, partial1.getNumRows());
+		assertEquals(new IntType(8), partial1.getRow(0)[0]);
+		assertEquals(new IntType(140), partial1.getRow(0)[1]);
+		
+		// the final aggregation of the merged partial results is the same as aggregating everything at once
+		final TableOperator merged = new MergeOperator(new TaskID(1), new ReadOperator(partial1), new ReadOperator(partial2));
+		final Table t = new AggregateOperator(merged, new byte[]{AggregateOperator.AVG}, new byte[]{1}, new byte[]{2}).eval(0);
+		assertEquals(2, t.getNumRows());
+		assertEquals(new IntType(22), t.getRow(0)[1]);
+		assertEquals(new IntType(10), t.getRow(0)[0]);
+		assertEquals(new IntType(9), t.getRow(1)[1]);
+		assertEquals(new IntType(7), t.getRow(1)[0]);
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void testCount() throws Exception {
 		Table t;
@@ -195,4 +222,90 @@ public class AggregateOperatorTest extends TableOperatorTestCase {
 		assertEquals(new IntType(225), e.nextElement()[1]);
 		assertEquals(new IntType(63), e.nextElement()[1]);
 	}
+	
+	@SuppressWarnings("unchecked")
+	public void testMultipleGroupBys() throws Exception {
+		table = new Table(new TaskID(1));
+		for (int i = 0; i != 12; i++)
+			table.addRow(new ValueType[]{new IntType(1), new IntType(i % 2), new IntType(i % 3), new FloatType(i)});
+		
+		Table t = new AggregateOperator(tableOp, new byte[]{AggregateOperator.SUM, AggregateOperator.COUNT}, new byte[]{3, 0}, new byte[]{1, 2}).eval(0);
+		assertEquals(4, t.getNumCols());
+		assertEquals(6, t.getNumRows());
+		
+		// groups come out in the order they were first seen
+		Enumeration<ValueType[]> e = t.elements();
+		for (int i = 0; i != 6; i++) {
+			ValueType[] row = e.nextElement();
+			assertEquals(new IntType(i % 2), row[1]);
+			assertEquals(new IntType(i % 3), row[2]);
+			assertEquals(new IntType(2), row[0]);
+			assertEquals(new FloatType(2 * i + 6), row[3]);
+		}
+	}
+	
+	public void testMixedTypes() throws Exception {
+		table = new Table(new TaskID(1));
+		table.addRow(new ValueType[]{new IntType(1), new IntType(2)});
+		table.addRow(new ValueType[]{new IntType(1), new LongType(3)});
+		table.addRow(new ValueType[]{new IntType(1), new FloatType(0.5f)});
+		
+		Table t = new AggregateOperator(tableOp, new byte[]{AggregateOperator.SUM}, new byte[]{1}, new byte[]{}).eval(0);
+		assertEquals(new FloatType(5.5f), t.getRow(0)[1]);
+		
+		t = new AggregateOperator(tableOp, new byte[]{AggregateOperator.MAX}, new byte[]{1}, new byte[]{}).eval(0);
+		assertEquals(new LongType(3), t.getRow(0)[1]);
+	}
+	
+	public void testNullFirstValue() throws Exception {
+		// the first row of each group is padded with a null, as by a merge of tables of different widths
+		table = new Table(new TaskID(1));
+		table.addRow(new ValueType[]{new IntType(1), null, new IntType(0)});
+		table.addRow(new ValueType[]{new IntType(1), new IntType(4), new IntType(0)});
+		table.addRow(new ValueType[]{new IntType(1), null, new IntType(1)});
+		table.addRow(new ValueType[]{new IntType(1), new FloatType(2.5f), new IntType(1)});
+		table.addRow(new ValueType[]{new IntType(1), new FloatType(1.5f), new IntType(1)});
+		
+		final byte[] functions = {AggregateOperator.MIN, AggregateOperator.MAX, AggregateOperator.SUM};
+		final ValueType[][] expected = {{new IntType(4), new FloatType(1.5f)}, {new IntType(4), new FloatType(2.5f)}, {new IntType(4), new FloatType(4)}};
+		for (int i = 0; i != functions.length; i++) {
+			Table t = new AggregateOperator(tableOp, new byte[]{functions[i]}, new byte[]{1}, new byte[]{2}).eval(0);
+			assertEquals(2, t.getNumRows());
+			assertEquals(expected[i][0], t.getRow(0)[1]);
+			assertEquals(expected[i][1], t.getRow(1)[1]);
+		}
+		
+		Table t = new AggregateOperator(tableOp, new byte[]{AggregateOperator.COUNT_DISTINCT}, new byte[]{1}, new byte[]{}).eval(0);
+		assertEquals(new IntType(3), t.getRow(0)[1]);
+	}
+	
+	public void testSketches() throws Exception {
+		final byte[] functions = {AggregateOperator.COUNT_DISTINCT, AggregateOperator.MEDIAN, AggregateOperator.P90};
+		final byte[] columns = {1, 2, 3};
+		
+		// two nodes each partially aggregate their own rows into sketches
+		Table[] partials = new Table[2];
+		for (int node = 0; node != 2; node++) {
+			table = new Table(new TaskID(1));
+			for (int i = 0; i != 50; i++)
+				table.addRow(new ValueType[]{new IntType(1), new IntType(i % 20), new IntType(node * 50 + i), new IntType(node * 50 + i)});
+			partials[node] = new AggregateOperator(tableOp, functions, columns, new byte[]{}, true).eval(0);
+			assertTrue(partials[node].getRow(0)[1] instanceof DistinctSketchType);
+			assertTrue(partials[node].getRow(0)[2] instanceof QuantileSketchType);
+		}
+		
+		// which are merged and estimated at the base
+		table = new Table(new TaskID(1));
+		table.addRow(partials[0].getRow(0));
+		table.addRow(partials[1].getRow(0));
+		Table t = new AggregateOperator(tableOp, functions, columns, new byte[]{}).eval(0);
+		assertEquals(1, t.getNumRows());
+		ValueType[] row = t.getRow(0);
+		assertTrue(Math.abs(((IntType) row[1]).getVal() - 20) <= 2);
+		assertTrue(Math.abs(((FloatType) row[2]).getVal() - 49.5f) <= 5);
+		assertTrue(Math.abs(((FloatType) row[3]).getVal() - 89.5f) <= 5);
+		
+		// the sketches of the nodes are left as they were
+		assertEquals(50, ((QuantileSketchType) partials[0].getRow(0)[2]).getCount());
+	}
 }
@@ -0,0 +1,234 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.Scheduler;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+import au.edu.usyd.corona.util.ClassIdentifiers;
+
+public class ColumnarTableTest extends TableOperatorTestCase {
+	private ColumnarTable columnTable;
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		super.setUp();
+		columnTable = new ColumnarTable(testTable.getTaskID(), ColumnarTable.schemaOf(rows.get(0)));
+		for (ValueType[] row : rows)
+			columnTable.addRow(row);
+	}
+	
+	public void testRows() throws InvalidOperationException {
+		assertTableEquals(4, columnTable, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		for (int i = 0; i < rows.size(); i++)
+			assertTrue(rowsEqual(i, columnTable.getRow(i)));
+		
+		columnTable.clear();
+		assertTrue(columnTable.isEmpty());
+		assertEquals(4, columnTable.getNumCols());
+	}
+	
+	public void testProjection() throws InvalidOperationException {
+		final Table result = new ProjectionOperator(new ReadOperator(columnTable), new byte[]{3, 0}).eval(0);
+		assertTrue(result instanceof ColumnarTable);
+		assertEquals(10, result.getNumRows());
+		for (int i = 0; i < rows.size(); i++)
+			assertTrue(rowsEqual(new ValueType[]{rows.get(i)[3], rows.get(i)[0]}, result.getRow(i)));
+	}
+	
+	public void testSelection() throws InvalidOperationException {
+		// node < 121
+		final ConditionExpression condition = new LessThanExpression(new AttributeExpression((byte) 0), new ConstantExpression(new LongType(121)));
+		final Table result = new SelectionOperator(new ReadOperator(columnTable), condition).eval(0);
+		assertTrue(result instanceof ColumnarTable);
+		assertTableEquals(4, result, 3, 4);
+	}
+	
+	public void testMerge() throws InvalidOperationException {
+		final ColumnarTable other = new ColumnarTable(new TaskID(1), columnTable.getSchema());
+		other.addRow(new ValueType[]{new LongType(1), new IntType(2), new IntType(3), new BooleanType(true)});
+		rows.add(other.getRow(0));
+		
+		final Table result = new MergeOperator(new TaskID(1), new ReadOperator(columnTable), new ReadOperator(other)).eval(0);
+		assertTableEquals(4, result, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+	}
+	
+	public void testMixedTypesAndNulls() throws InvalidOperationException {
+		final ColumnarTable t = new ColumnarTable(new TaskID(1), new byte[]{1, 1});
+		t.addRow(new ValueType[]{new IntType(1), new IntType(2)});
+		t.addRow(new ValueType[]{new FloatType(1.5f), null});
+		
+		assertEquals(new IntType(1), t.getValue(0, 0));
+		assertEquals(new FloatType(1.5f), t.getValue(1, 0));
+		assertEquals(new IntType(2), t.getValue(0, 1));
+		assertNull(t.getValue(1, 1));
+	}
+	
+	public void testEncodingMatchesRowTable() throws IOException {
+		assertTrue(Arrays.equals(encode(testTable), encode(columnTable)));
+	}
+	
+	public void testCompactEncoding() throws IOException, InvalidOperationException {
+		register(testTable.getTaskID(), columnTable.getSchema());
+		try {
+			final byte[] bytes = encode(columnTable);
+			// query ID, row count, 2 bytes per long, 1 or 2 per int and 2 bytes of packed booleans
+			assertTrue(bytes.length < 50);
+			
+			final ColumnarTable decoded = decode(bytes);
+			assertEquals(testTable.getTaskID(), decoded.getTaskID());
+			assertTableEquals(4, decoded, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+			for (int i = 0; i < rows.size(); i++)
+				assertTrue(rowsEqual(i, decoded.getRow(i)));
+		}
+		finally {
+			Scheduler.getInstance().killQuery(1);
+		}
+	}
+	
+	public void testCompactFloatsAndAddresses() throws IOException {
+		final byte[] schema = ColumnarTable.schemaOf(new ValueType[]{new FloatType(0), new FloatType(0), new IEEEAddressType(0)});
+		final TaskID id = new TaskID(2);
+		register(id, schema);
+		try {
+			// the first column can be sent as fixed point, but the second has values which cannot
+			final float[][] floats = {{21.5f, 0.25f, -3, 1017.125f}, {0.1f, Float.NaN, -0f, 1e-9f}};
+			final ColumnarTable t = new ColumnarTable(id, schema);
+			for (int i = 0; i != 4; i++)
+				t.addRow(new ValueType[]{new FloatType(floats[0][i]), new FloatType(floats[1][i]), new IEEEAddressType(0x00144F0100001234L + i)});
+			
+			final ColumnarTable decoded = decode(encode(t));
+			assertEquals(4, decoded.getNumRows());
+			for (int i = 0; i != 4; i++) {
+				assertEquals(new FloatType(floats[0][i]), decoded.getValue(i, 0));
+				assertEquals(new FloatType(floats[1][i]), decoded.getValue(i, 1));
+				assertEquals(new IEEEAddressType(0x00144F0100001234L + i), decoded.getValue(i, 2));
+			}
+		}
+		finally {
+			Scheduler.getInstance().killQuery(2);
+		}
+	}
+	
+	public void testNullsAreSent() throws IOException {
+		final ValueType[] first = {new IntType(3), new FloatType(1.5f), new IEEEAddressType(0x00144F0100001234L), new BooleanType(true), new LongType(7)};
+		final byte[] schema = ColumnarTable.schemaOf(first);
+		final TaskID id = new TaskID(3);
+		register(id, schema);
+		try {
+			// rows padded with nulls, as when merging tables of different widths
+			final ColumnarTable t = new ColumnarTable(id, schema);
+			t.addRow(first);
+			t.addRow(new ValueType[]{null, null, null, null, new LongType(8)});
+			t.addRow(new ValueType[]{new IntType(0), new FloatType(0), new IEEEAddressType(0), new BooleanType(false), new LongType(9)});
+			
+			final ColumnarTable decoded = decode(encode(t));
+			assertEquals(3, decoded.getNumRows());
+			for (int i = 0; i != 3; i++)
+				for (int j = 0; j != schema.length; j++)
+					assertEquals(t.getValue(i, j), decoded.getValue(i, j));
+			assertNull(decoded.getValue(1, 0));
+			assertNull(decoded.getValue(1, 3));
+			assertEquals(new IntType(0), decoded.getValue(2, 0));
+		}
+		finally {
+			Scheduler.getInstance().killQuery(3);
+		}
+	}
+	
+	public void testEmptyTables() throws IOException {
+		final byte[] schema = {ClassIdentifiers.getID(IntType.class), ClassIdentifiers.getID(FloatType.class), ClassIdentifiers.getID(BooleanType.class)};
+		final TaskID id = new TaskID(3);
+		register(id, schema);
+		try {
+			// tables with no rows are built with no schema, but are sent with the columns of the query, leaving what follows them intact
+			final Table[] tables = {new Table(id), new ColumnarTable(id, new byte[0]), new ColumnarTable(id, schema)};
+			for (Table table : tables) {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final DataOutputStream out = new DataOutputStream(bytes);
+				table.encode(out);
+				out.writeInt(42);
+				
+				final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+				final ColumnarTable decoded = new ColumnarTable();
+				decoded.decode(in);
+				assertEquals(0, decoded.getNumRows());
+				assertEquals(id, decoded.getTaskID());
+				assertEquals(42, in.readInt());
+				assertEquals(0, in.available());
+			}
+		}
+		finally {
+			Scheduler.getInstance().killQuery(3);
+		}
+	}
+	
+	public void testSentWithQuerySchema() throws IOException {
+		final byte[] schema = {ClassIdentifiers.getID(FloatType.class), ClassIdentifiers.getID(IntType.class)};
+		final TaskID id = new TaskID(3);
+		register(id, schema);
+		try {
+			// the first row has a null where the query has a float, so the table takes the column for ints
+			final Table t = new Table(id);
+			t.addRow(new ValueType[]{null, new IntType(1)});
+			t.addRow(new ValueType[]{new FloatType(21.5f), new IntType(2)});
+			
+			final ColumnarTable decoded = decode(encode(t));
+			assertEquals(2, decoded.getNumRows());
+			assertNull(decoded.getValue(0, 0));
+			assertEquals(new FloatType(21.5f), decoded.getValue(1, 0));
+			assertEquals(new IntType(2), decoded.getValue(1, 1));
+		}
+		finally {
+			Scheduler.getInstance().killQuery(3);
+		}
+	}
+	
+	public void testDecodeOfRemovedQuery() throws IOException {
+		register(testTable.getTaskID(), columnTable.getSchema());
+		final byte[] bytes = encode(columnTable);
+		Scheduler.getInstance().killQuery(1);
+		
+		// the codec of the query goes with it, so the table cannot be decoded
+		final ColumnarTable decoded = decode(bytes);
+		assertEquals(1, decoded.getTaskID().getQueryID());
+		assertTrue(decoded.isEmpty());
+	}
+	
+	private static void register(final TaskID id, final byte[] schema) {
+		Scheduler.getInstance().addTask(new QueryTask() {
+			{
+				taskID = id;
+				executionTime = Long.MAX_VALUE / 2;
+				networkSchema = schema;
+			}
+		});
+	}
+	
+	private static ColumnarTable decode(byte[] bytes) throws IOException {
+		final ColumnarTable table = new ColumnarTable();
+		table.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+		return table;
+	}
+	
+	private static byte[] encode(Table table) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		table.encode(new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,204 @@
+package au.edu.usyd.corona.srdb;
+
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.BooleanType;
+import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+
+public class CompiledPredicateTest extends TestCase {
+	private static final int NUM_COLS = 6;
+	
+	private Random random;
+	
+	@Override
+	protected void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		random = new Random(42);
+	}
+	
+	private ValueType randomValue(int type) {
+		switch (type) {
+		case 0:
+			return new ByteType((byte) (random.nextInt(256) - 128));
+		case 1:
+			return new IntType(random.nextInt(5) == 0 ? Integer.MIN_VALUE : random.nextInt(200) - 100);
+		case 2:
+			return new LongType(random.nextInt(200) - 100);
+		case 3:
+			return new FloatType(random.nextFloat() * 200 - 100);
+		case 4:
+			return new BooleanType(random.nextBoolean());
+		default:
+			return new IEEEAddressType(random.nextInt(4));
+		}
+	}
+	
+	private ValueType[] randomRow() {
+		final ValueType[] row = new ValueType[NUM_COLS];
+		for (int i = 0; i < NUM_COLS; i++)
+			row[i] = randomValue(i);
+		return row;
+	}
+	
+	private ConditionExpression randomNumeric(int depth) {
+		if (depth == 0 || random.nextInt(3) == 0) {
+			if (random.nextBoolean())
+				return new AttributeExpression((byte) random.nextInt(NUM_COLS));
+			return new ConstantExpression(randomValue(random.nextInt(4)));
+		}
+		final ConditionExpression a = randomNumeric(depth - 1), b = randomNumeric(depth - 1);
+		switch (random.nextInt(4)) {
+		case 0:
+			return new AddExpression(a, b);
+		case 1:
+			return new SubtractExpression(a, b);
+		case 2:
+			return new MultiplyExpression(a, b);
+		default:
+			return new DivideExpression(a, b);
+		}
+	}
+	
+	private ConditionExpression randomCondition(int depth) {
+		if (depth > 0 && random.nextInt(3) == 0) {
+			switch (random.nextInt(4)) {
+			case 0:
+				return new NANDExpression(randomCondition(depth - 1), randomCondition(depth - 1));
+			case 1:
+				return new AndExpression(randomCondition(depth - 1), randomCondition(depth - 1));
+			case 2:
+				return new OrExpression(randomCondition(depth - 1), randomCondition(depth - 1));
+			default:
+				return new NotExpression(randomCondition(depth - 1));
+			}
+		}
+		final ConditionExpression a = randomNumeric(2), b = randomNumeric(2);
+		switch (random.nextInt(6)) {
+		case 0:
+			return new LessThanExpression(a, b);
+		case 1:
+			return new LessEqualsExpression(a, b);
+		case 2:
+			return new GreaterThanExpression(a, b);
+		case 3:
+			return new GreaterEqualsExpression(a, b);
+		case 4:
+			return new NotEqualsExpression(a, b);
+		default:
+			return new EqualsExpression(a, b);
+		}
+	}
+	
+	private static Boolean interpret(ConditionExpression condition, ValueType[] row) {
+		try {
+			return ((BooleanType) condition.eval(row)).getVal();
+		}
+		catch (InvalidOperationException e) {
+			return null;
+		}
+		catch (RuntimeException e) {
+			return null;
+		}
+	}
+	
+	public void testMatchesInterpreter() throws InvalidOperationException {
+		int compared = 0;
+		for (int i = 0; i < 2000; i++) {
+			final ConditionExpression condition = randomCondition(2);
+			final CompiledPredicate predicate = new CompiledPredicate(condition);
+			final ValueType[][] rows = {randomRow(), randomRow(), randomRow()};
+			
+			final ColumnarTable table = new ColumnarTable(new TaskID(1), ColumnarTable.schemaOf(rows[0]));
+			for (ValueType[] row : rows)
+				table.addRow(row);
+			
+			for (ValueType[] row : rows) {
+				final Boolean expected = interpret(condition, row);
+				if (expected == null)
+					continue; // the compiled version may short circuit past the error
+				assertEquals(condition.toTokens().toString(), expected.booleanValue(), predicate.matches(row));
+				compared++;
+			}
+			
+			final int[] selected = new int[rows.length];
+			try {
+				final int count = predicate.select(table, selected);
+				for (int j = 0; j < count; j++)
+					assertEquals(Boolean.TRUE, interpret(condition, rows[selected[j]]));
+			}
+			catch (InvalidOperationException e) {
+			}
+			catch (ClassCastException e) {
+			}
+		}
+		assertTrue(compared > 1000);
+	}
+	
+	public void testConstantFolding() throws InvalidOperationException {
+		// b(1) < 2 + 3
+		final ConditionExpression condition = new LessThanExpression(new AttributeExpression((byte) 1), new AddExpression(new ConstantExpression(new IntType(2)), new ConstantExpression(new IntType(3))));
+		final ConditionExpression folded = CompiledPredicate.fold(condition);
+		assertEquals("<(B(1) b(5))", folded.toTokens().toString());
+		assertEquals("<(B(1) +(b(2) b(3)))", condition.toTokens().toString());
+		
+		final CompiledPredicate predicate = new CompiledPredicate(condition);
+		assertTrue(predicate.matches(new ValueType[]{null, new IntType(4)}));
+		assertFalse(predicate.matches(new ValueType[]{null, new IntType(5)}));
+		
+		// the types of the values change
+		assertTrue(predicate.matches(new ValueType[]{null, new FloatType(4.5f)}));
+		assertFalse(predicate.matches(new ValueType[]{null, new LongType(7)}));
+	}
+	
+	public void testUnfoldable() {
+		// null constants, booleans negated or combined as numbers, and types which cannot be added are left as they are
+		final ConditionExpression[] conditions = {new AddExpression(new ConstantExpression(null), new ConstantExpression(new IntType(3))), new NotExpression(new ConstantExpression(new IntType(1))), new AndExpression(new ConstantExpression(new IntType(1)), new ConstantExpression(BooleanType.TRUE)), new AddExpression(new ConstantExpression(new IEEEAddressType(1)), new ConstantExpression(new IntType(3)))};
+		for (ConditionExpression condition : conditions)
+			assertSame(condition, CompiledPredicate.fold(condition));
+	}
+	
+	public void testNullColumn() throws InvalidOperationException {
+		final ColumnarTable table = new ColumnarTable(new TaskID(1), new byte[]{1, 1});
+		table.addRow(new ValueType[]{new IntType(1), new IntType(0)});
+		table.addRow(new ValueType[]{null, new IntType(1)});
+		table.addRow(new ValueType[]{new IntType(50), new IntType(0)});
+		
+		// column 1 = 1 OR column 0 < 10, where the row holding the null is decided by column 1
+		final CompiledPredicate predicate = new CompiledPredicate(new OrExpression(new EqualsExpression(new AttributeExpression((byte) 1), new ConstantExpression(new IntType(1))), new LessThanExpression(new AttributeExpression((byte) 0), new ConstantExpression(new IntType(10)))));
+		final int[] selected = new int[3];
+		assertEquals(2, predicate.select(table, selected));
+		assertEquals(0, selected[0]);
+		assertEquals(1, selected[1]);
+		assertTrue(predicate.matches(new ValueType[]{null, new IntType(1)}));
+		assertFalse(predicate.matches(new ValueType[]{new IntType(50), new IntType(0)}));
+		
+		// the nulls are not read at all by a condition on the other column
+		final CompiledPredicate other = new CompiledPredicate(new EqualsExpression(new AttributeExpression((byte) 1), new ConstantExpression(new IntType(0))));
+		assertEquals(2, other.select(table, selected));
+		assertEquals(2, selected[1]);
+	}
+	
+	public void testMixedColumn() throws InvalidOperationException {
+		final ColumnarTable table = new ColumnarTable(new TaskID(1), new byte[]{1});
+		table.addRow(new ValueType[]{new IntType(1)});
+		table.addRow(new ValueType[]{new FloatType(9.5f)});
+		table.addRow(new ValueType[]{new IntType(20)});
+		
+		// column 0 < 10
+		final CompiledPredicate predicate = new CompiledPredicate(new LessThanExpression(new AttributeExpression((byte) 0), new ConstantExpression(new IntType(10))));
+		final int[] selected = new int[3];
+		assertEquals(2, predicate.select(table, selected));
+		assertEquals(0, selected[0]);
+		assertEquals(1, selected[1]);
+	}
+}
@@ -0,0 +1,149 @@
+package au.edu.usyd.corona.srdb;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.grammar.TokenParseException;
+import au.edu.usyd.corona.grammar.TokenParser;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.FloatType;
+import au.edu.usyd.corona.types.IEEEAddressType;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+public class DeadbandOperatorTest extends TestCase {
+	
+	private ValueType[][] rows; // the rows sensed in the next epoch
+	
+	private final TableOperator tableOp = new TableOperator() {
+		@Override
+		public Table eval(int epoch) throws InvalidOperationException {
+			Table table = new Table(new TaskID(1));
+			for (int i = 0; i != rows.length; i++)
+				table.addRow(rows[i]);
+			return table;
+		}
+		
+		@Override
+		public StringBuffer toTokens() {
+			return null;
+		}
+	};
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+	}
+	
+	private static ValueType[] row(long node, float light) {
+		return new ValueType[]{new IEEEAddressType(node), new FloatType(light)};
+	}
+	
+	public void testSuppression() throws InvalidOperationException {
+		final DeadbandOperator deadband = new DeadbandOperator(tableOp, 0.5f, 100);
+		
+		// always reported the first time
+		rows = new ValueType[][]{row(1, 10)};
+		assertEquals(1, deadband.eval(0).getNumRows());
+		
+		// within the band of the last report, even when it creeps
+		rows = new ValueType[][]{row(1, 10.3f)};
+		assertEquals(0, deadband.eval(1).getNumRows());
+		rows = new ValueType[][]{row(1, 9.6f)};
+		assertEquals(0, deadband.eval(2).getNumRows());
+		rows = new ValueType[][]{row(1, 10.4f)};
+		assertEquals(0, deadband.eval(3).getNumRows());
+		
+		// beyond it
+		rows = new ValueType[][]{row(1, 10.6f)};
+		Table t = deadband.eval(4);
+		assertEquals(1, t.getNumRows());
+		assertEquals(new FloatType(10.6f), t.getRow(0)[1]);
+		
+		// measured from the new report
+		rows = new ValueType[][]{row(1, 10.2f)};
+		assertEquals(0, deadband.eval(5).getNumRows());
+		rows = new ValueType[][]{row(1, 10)};
+		assertEquals(1, deadband.eval(6).getNumRows());
+	}
+	
+	public void testNonNumbers() throws InvalidOperationException {
+		final DeadbandOperator deadband = new DeadbandOperator(tableOp, 1000, 100);
+		rows = new ValueType[][]{row(1, 10)};
+		deadband.eval(0);
+		
+		// any change to a value which is not a number is reported
+		rows = new ValueType[][]{row(2, 10)};
+		assertEquals(1, deadband.eval(1).getNumRows());
+		rows = new ValueType[][]{row(2, 10)};
+		assertEquals(0, deadband.eval(2).getNumRows());
+	}
+	
+	public void testRows() throws InvalidOperationException {
+		final DeadbandOperator deadband = new DeadbandOperator(tableOp, 0, 100);
+		rows = new ValueType[][]{row(1, 1), row(1, 2)};
+		assertEquals(2, deadband.eval(0).getNumRows());
+		
+		// only the changed rows are reported
+		rows = new ValueType[][]{row(1, 1), row(1, 3)};
+		Table t = deadband.eval(1);
+		assertEquals(1, t.getNumRows());
+		assertEquals(new FloatType(3), t.getRow(0)[1]);
+		
+		// a new row is reported
+		rows = new ValueType[][]{row(1, 1), row(1, 3), row(1, 4)};
+		assertEquals(1, deadband.eval(2).getNumRows());
+		
+		// a zero band reports every change, and nothing else
+		rows = new ValueType[][]{row(1, 1), row(1, 3), row(1, 4)};
+		assertEquals(0, deadband.eval(3).getNumRows());
+		
+		// the same number as another type is not a change
+		rows = new ValueType[][]{new ValueType[]{new IEEEAddressType(1), new IntType(1)}};
+		assertEquals(0, deadband.eval(4).getNumRows());
+	}
+	
+	public void testRefresh() throws InvalidOperationException {
+		final DeadbandOperator deadband = new DeadbandOperator(tableOp, 1, 3);
+		rows = new ValueType[][]{row(1, 5)};
+		int reports = 0;
+		for (int epoch = 0; epoch != 10; epoch++)
+			reports += deadband.eval(epoch).getNumRows();
+		
+		// in epochs 0, 3, 6 and 9
+		assertEquals(4, reports);
+	}
+	
+	public void testInvalid() {
+		try {
+			new DeadbandOperator(tableOp, -1, 10);
+			fail("Negative deadband created");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			new DeadbandOperator(tableOp, 1, 0);
+			fail("Deadband without refreshes created");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	public void testTokens() throws TokenParseException {
+		final TableOperator deadband = new DeadbandOperator(new ProjectionOperator(new SenseOperator(new TaskID(1)), new byte[]{1, 8}), 0.5f, 10);
+		final String tokens = deadband.toTokens().toString();
+		assertEquals("R(P(E() 1 8) 0.5 10)", tokens);
+		
+		final QueryTask task = new QueryTask() {
+			{
+				taskID = new TaskID(1);
+				tokenStream = tokens;
+			}
+		};
+		final TableOperator parsed = new TokenParser().parse(task);
+		assertTrue(parsed instanceof DeadbandOperator);
+		assertEquals(tokens, parsed.toTokens().toString());
+	}
+}
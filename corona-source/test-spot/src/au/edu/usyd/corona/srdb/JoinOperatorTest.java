@@ -0,0 +1,71 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.grammar.TokenParseException;
+import au.edu.usyd.corona.grammar.TokenParser;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+
+public class JoinOperatorTest extends TableOperatorTestCase {
+	private ConstantTableOperator thresholds;
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		super.setUp();
+		
+		// a reference table of node -> threshold
+		thresholds = new ConstantTableOperator(testTable.getTaskID(), new ValueType[][]{{new LongType(122), new IntType(50)}, {new LongType(124), new IntType(12)}, {new LongType(999), new IntType(0)}});
+	}
+	
+	public void testEquiJoin() throws InvalidOperationException {
+		final Table result = new JoinOperator(testTable.getTaskID(), new ReadOperator(testTable), thresholds, new byte[]{0}, new byte[]{0}).eval(0);
+		assertEquals(6, result.getNumCols());
+		assertEquals(6, result.getNumRows());
+		for (int i = 0; i < result.getNumRows(); i++) {
+			final ValueType[] row = result.getRow(i);
+			assertEquals(row[0], row[4]);
+			assertEquals(row[0].equals(new LongType(122)) ? new IntType(50) : new IntType(12), row[5]);
+		}
+	}
+	
+	public void testThresholdFilter() throws InvalidOperationException {
+		// the readings in column 1 which are below the threshold of their node
+		final TableOperator join = new JoinOperator(testTable.getTaskID(), new ReadOperator(testTable), thresholds, new byte[]{0}, new byte[]{0});
+		final Table result = new ProjectionOperator(new SelectionOperator(join, new LessThanExpression(new AttributeExpression((byte) 1), new AttributeExpression((byte) 5))), new byte[]{0, 1, 2, 3}).eval(0);
+		assertTableEquals(4, result, 1, 7, 9);
+	}
+	
+	public void testCrossProduct() throws InvalidOperationException {
+		final Table result = new JoinOperator(testTable.getTaskID(), new ReadOperator(testTable), thresholds, new byte[0], new byte[0]).eval(0);
+		assertEquals(6, result.getNumCols());
+		assertEquals(30, result.getNumRows());
+	}
+	
+	public void testNoMatches() throws InvalidOperationException {
+		final Table result = new JoinOperator(testTable.getTaskID(), new ReadOperator(testTable), thresholds, new byte[]{1}, new byte[]{0}).eval(0);
+		assertEquals(0, result.getNumRows());
+	}
+	
+	public void testTokens() throws TokenParseException, InvalidOperationException {
+		final TableOperator join = new JoinOperator(testTable.getTaskID(), new SenseOperator(testTable.getTaskID()), thresholds, new byte[]{1}, new byte[]{0});
+		final String tokens = join.toTokens().toString();
+		assertEquals("J(E() T(3 2 c(122) b(50) c(124) b(12) c(999) b(0)) 1 1 0)", tokens);
+		
+		final QueryTask task = new QueryTask() {
+			{
+				taskID = new TaskID(1);
+				tokenStream = tokens;
+			}
+		};
+		final TableOperator parsed = new TokenParser().parse(task);
+		assertTrue(parsed instanceof JoinOperator);
+		assertEquals(tokens, parsed.toTokens().toString());
+		assertEquals(3, ((JoinOperator) parsed).children[1].eval(0).getNumRows());
+	}
+}
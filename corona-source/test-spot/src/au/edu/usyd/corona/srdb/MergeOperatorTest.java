@@ -96,4 +96,23 @@ public class MergeOperatorTest extends TableOperatorTestCase implements TokenGra
 		assertTableEquals(te, t1, t2);
 	}
 	
+	public void testStreaming() throws InvalidOperationException {
+		final Table t1 = new Table(new TaskID(0));
+		t1.addRow(new ValueType[]{new IntType(11), new BooleanType(true)});
+		t1.addRow(new ValueType[]{new IntType(21), new BooleanType(false)});
+		
+		final Table t2 = new Table(new TaskID(0));
+		t2.addRow(new ValueType[]{new IntType(1), new BooleanType(true), new LongType(123)});
+		t2.addRow(new ValueType[]{new IntType(4), new BooleanType(false), new LongType(456)});
+		
+		final ValueType[][] expected = new ValueType[][]{t2.getRow(0), t2.getRow(1), {new IntType(11), new BooleanType(true), null}, {new IntType(21), new BooleanType(false), null}};
+		
+		// the widest child is streamed first, and the rows of the other padded
+		final RowIterator it = new MergeOperator(new TaskID(2), new ReadOperator(t1), new ReadOperator(t2)).open(0);
+		for (ValueType[] row : expected)
+			assertTrue(rowsEqual(row, it.next()));
+		assertNull(it.next());
+		it.close();
+	}
+	
 }
@@ -0,0 +1,56 @@
+package au.edu.usyd.corona.srdb;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.ChildResultStore;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.sensing.SenseManager;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.ValueType;
+
+public class SensedColumnsTest extends TestCase {
+	private TaskID taskID;
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		taskID = new TaskID(1);
+	}
+	
+	private TableOperator networkTree(TableOperator projection) {
+		return new ForwardOperator(new MergeOperator(taskID, new CollectOperator(taskID, new ChildResultStore()), projection), new ChildResultStore());
+	}
+	
+	public void testProjection() {
+		// SELECT light, temp
+		TableOperator tree = networkTree(new ProjectionOperator(new SenseOperator(taskID), new byte[]{8, 9}));
+		assertEquals((1L << 8) | (1L << 9), tree.getSensedColumns(TableOperator.ALL_COLUMNS));
+	}
+	
+	public void testSelection() {
+		// SELECT light WHERE x < 5
+		ConditionExpression condition = new LessThanExpression(new AttributeExpression((byte) 3), new ConstantExpression(new IntType(5)));
+		TableOperator tree = networkTree(new ProjectionOperator(new SelectionOperator(new SenseOperator(taskID), condition), new byte[]{8}));
+		assertEquals((1L << 3) | (1L << 8), tree.getSensedColumns(TableOperator.ALL_COLUMNS));
+	}
+	
+	public void testAggregate() {
+		// SELECT AVG(light) GROUP BY parent
+		TableOperator projection = new ProjectionOperator(new SenseOperator(taskID), new byte[]{0, 8, 10});
+		TableOperator tree = new ForwardOperator(new AggregateOperator(projection, new byte[]{AggregateOperator.AVG}, new byte[]{1}, new byte[]{2}, true), new ChildResultStore());
+		assertEquals(1L | (1L << 8) | (1L << 10), tree.getSensedColumns(TableOperator.ALL_COLUMNS));
+	}
+	
+	public void testMaskedSense() {
+		ValueType[] all = SenseManager.getInstance().sense(taskID).getRow(0);
+		ValueType[] masked = SenseManager.getInstance().sense(taskID, 1L << 8).getRow(0);
+		assertEquals(all.length, masked.length);
+		for (int i = 0; i != all.length; i++)
+			assertEquals(all[i].getClass(), masked[i].getClass());
+		
+		// the count sensor is only sensed when asked for
+		assertEquals(new IntType(1), all[0]);
+		assertEquals(new IntType(0), masked[0]);
+	}
+}
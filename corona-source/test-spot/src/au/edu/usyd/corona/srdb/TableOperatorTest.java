@@ -0,0 +1,74 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+
+public class TableOperatorTest extends TableOperatorTestCase {
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		super.setUp();
+	}
+	
+	private static ConditionExpression lessThan(int column, int value) {
+		return new LessThanExpression(new AttributeExpression((byte) column), new ConstantExpression(new IntType(value)));
+	}
+	
+	public void testSameAsEval() throws InvalidOperationException {
+		final TableOperator selection = new SelectionOperator(new ReadOperator(testTable), lessThan(1, 50));
+		final TableOperator tree = new AggregateOperator(selection, new byte[]{AggregateOperator.MIN, AggregateOperator.COUNT}, new byte[]{2, 2}, new byte[]{0});
+		final Table evaluated = tree.evaluate(0), expected = tree.eval(0);
+		assertEquals(expected.getNumRows(), evaluated.getNumRows());
+		for (int i = 0; i != expected.getNumRows(); i++)
+			assertTrue(rowsEqual(expected.getRow(i), evaluated.getRow(i)));
+		
+		assertTableEquals(4, new SelectionOperator(new ReadOperator(testTable), lessThan(1, 12)).evaluate(0), 1, 7, 9);
+	}
+	
+	public void testStreamsIntoConsumer() throws InvalidOperationException {
+		// the selection and projection are opened by the aggregation, never evaluated into tables of their own
+		final TableOperator selection = new SelectionOperator(new ReadOperator(testTable), lessThan(1, 50)) {
+			@Override
+			public Table eval(int epoch) {
+				fail("Evaluated the selection");
+				return null;
+			}
+		};
+		final TableOperator projection = new ProjectionOperator(selection, new byte[]{0, 2}) {
+			@Override
+			public Table eval(int epoch) {
+				fail("Evaluated the projection");
+				return null;
+			}
+		};
+		final TableOperator tree = new AggregateOperator(projection, new byte[]{AggregateOperator.MIN, AggregateOperator.COUNT}, new byte[]{1, 1}, new byte[]{0});
+		final Table evaluated = tree.evaluate(0), expected = tree.eval(0);
+		assertTrue(expected.getNumRows() > 0);
+		assertEquals(expected.getNumRows(), evaluated.getNumRows());
+		for (int i = 0; i != expected.getNumRows(); i++)
+			assertTrue(rowsEqual(expected.getRow(i), evaluated.getRow(i)));
+	}
+	
+	public void testSharedChild() throws InvalidOperationException {
+		// the same operator under both sides of a merge
+		final Table table = new Table(new TaskID(1));
+		table.addRow(new ValueType[]{new LongType(1), new IntType(1)});
+		final TableOperator read = new ReadOperator(table);
+		final Table merged = new MergeOperator(new TaskID(1), new SelectionOperator(read, lessThan(1, 5)), new ProjectionOperator(read, new byte[]{0, 1})).evaluate(0);
+		assertEquals(2, merged.getNumRows());
+	}
+	
+	public void testDeepTree() throws InvalidOperationException {
+		// far deeper than the thread stack allows the recursion through eval to go
+		TableOperator tree = new ReadOperator(testTable);
+		for (int i = 0; i != 100000; i++)
+			tree = new SelectionOperator(tree, lessThan(1, 100));
+		assertTableEquals(4, tree.evaluate(0), 0, 1, 2, 5, 6, 7, 8, 9);
+	}
+}
@@ -0,0 +1,105 @@
+package au.edu.usyd.corona.srdb;
+
+
+import au.edu.usyd.corona.grammar.TokenParseException;
+import au.edu.usyd.corona.grammar.TokenParser;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.LongType;
+import au.edu.usyd.corona.types.ValueType;
+
+public class TopKOperatorTest extends TableOperatorTestCase {
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		super.setUp();
+	}
+	
+	private void assertOrder(Table table, int... rowNumbers) throws InvalidOperationException {
+		assertEquals(1, table.getTaskID().getQueryID());
+		assertEquals(rowNumbers.length, table.getNumRows());
+		for (int i = 0; i < rowNumbers.length; i++)
+			assertTrue("row " + i, rowsEqual(rowNumbers[i], table.getRow(i)));
+	}
+	
+	public void testLargest() throws InvalidOperationException {
+		final Table result = new TopKOperator(new ReadOperator(testTable), 2, new byte[]{1}, new boolean[]{true}).eval(0);
+		assertOrder(result, 3, 4);
+	}
+	
+	public void testSmallest() throws InvalidOperationException {
+		final Table result = new TopKOperator(new ReadOperator(testTable), 3, new byte[]{1}, new boolean[]{false}).eval(0);
+		assertEquals(3, result.getNumRows());
+		assertTrue(rowsEqual(7, result.getRow(0)) || rowsEqual(9, result.getRow(0)));
+		assertTrue(rowsEqual(7, result.getRow(1)) || rowsEqual(9, result.getRow(1)));
+		assertTrue(rowsEqual(1, result.getRow(2)));
+	}
+	
+	public void testSeveralColumns() throws InvalidOperationException {
+		final Table result = new TopKOperator(new ReadOperator(testTable), 4, new byte[]{0, 1, 2}, new boolean[]{false, true, false}).eval(0);
+		assertOrder(result, 3, 4, 5, 2);
+	}
+	
+	public void testNoLimit() throws InvalidOperationException {
+		final Table result = new TopKOperator(new ReadOperator(testTable), TopKOperator.NO_LIMIT, new byte[]{1}, new boolean[]{false}).eval(0);
+		assertEquals(testTable.getNumRows(), result.getNumRows());
+		for (int i = 1; i < result.getNumRows(); i++)
+			assertFalse(result.getRow(i)[1].less(result.getRow(i - 1)[1]));
+	}
+	
+	public void testLimitOnly() throws InvalidOperationException {
+		final Table result = new TopKOperator(new ReadOperator(testTable), 3, new byte[0], new boolean[0]).eval(0);
+		assertOrder(result, 0, 1, 2);
+	}
+	
+	public void testNullsLast() throws InvalidOperationException {
+		final Table table = new Table(new TaskID(1));
+		table.addRow(new ValueType[]{new LongType(1), null});
+		table.addRow(new ValueType[]{new LongType(2), new IntType(5)});
+		table.addRow(new ValueType[]{new LongType(3), new IntType(7)});
+		
+		Table result = new TopKOperator(new ReadOperator(table), 2, new byte[]{1}, new boolean[]{true}).eval(0);
+		assertEquals(new LongType(3), result.getRow(0)[0]);
+		assertEquals(new LongType(2), result.getRow(1)[0]);
+		result = new TopKOperator(new ReadOperator(table), 2, new byte[]{1}, new boolean[]{false}).eval(0);
+		assertEquals(new LongType(2), result.getRow(0)[0]);
+		assertEquals(new LongType(3), result.getRow(1)[0]);
+	}
+	
+	public void testMergeable() throws InvalidOperationException {
+		// the top k of the top k of each half is the top k of the whole
+		final Table first = new Table(testTable.getTaskID());
+		final Table second = new Table(testTable.getTaskID());
+		for (int i = 0; i < testTable.getNumRows(); i++)
+			(i % 2 == 0 ? first : second).addRow(testTable.getRow(i));
+		
+		final byte[] columns = {2, 1};
+		final boolean[] descending = {true, false};
+		final TableOperator a = new TopKOperator(new ReadOperator(first), 3, columns, descending);
+		final TableOperator b = new TopKOperator(new ReadOperator(second), 3, columns, descending);
+		final Table merged = new TopKOperator(new MergeOperator(testTable.getTaskID(), a, b), 3, columns, descending).eval(0);
+		final Table whole = new TopKOperator(new ReadOperator(testTable), 3, columns, descending).eval(0);
+		for (int i = 0; i < 3; i++)
+			assertTrue(rowsEqual(whole.getRow(i), merged.getRow(i)));
+	}
+	
+	public void testTokens() throws TokenParseException, InvalidOperationException {
+		final TableOperator top = new TopKOperator(new SenseOperator(testTable.getTaskID()), 5, new byte[]{2, 0}, new boolean[]{true, false});
+		final String tokens = top.toTokens().toString();
+		assertEquals("K(E() 5 2 2 1 0 0)", tokens);
+		
+		final QueryTask task = new QueryTask() {
+			{
+				taskID = new TaskID(1);
+				tokenStream = tokens;
+			}
+		};
+		final TableOperator parsed = new TokenParser().parse(task);
+		assertTrue(parsed instanceof TopKOperator);
+		assertEquals(tokens, parsed.toTokens().toString());
+		assertEquals(1L << 0 | 1L << 2 | 1L << 5, parsed.getSensedColumns(1L << 5));
+	}
+}
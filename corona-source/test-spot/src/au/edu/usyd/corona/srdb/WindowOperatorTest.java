@@ -0,0 +1,109 @@
+package au.edu.usyd.corona.srdb;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.grammar.TokenParseException;
+import au.edu.usyd.corona.grammar.TokenParser;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.scheduler.QueryTask;
+import au.edu.usyd.corona.scheduler.TaskID;
+import au.edu.usyd.corona.types.IntType;
+import au.edu.usyd.corona.types.InvalidOperationException;
+import au.edu.usyd.corona.types.ValueType;
+
+public class WindowOperatorTest extends TestCase {
+	
+	// senses a single row each epoch, holding one more than the epoch number
+	private final TableOperator tableOp = new TableOperator() {
+		@Override
+		public Table eval(int epoch) throws InvalidOperationException {
+			Table table = new Table(new TaskID(1));
+			table.addRow(new ValueType[]{new IntType(1), new IntType(epoch + 1), new IntType(epoch + 1), new IntType(epoch + 1)});
+			return table;
+		}
+		
+		@Override
+		public StringBuffer toTokens() {
+			return null;
+		}
+	};
+	
+	private AggregateOperator aggregate;
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+		aggregate = new AggregateOperator(tableOp, new byte[]{AggregateOperator.SUM, AggregateOperator.MAX, AggregateOperator.AVG}, new byte[]{1, 2, 3}, new byte[]{}, true);
+	}
+	
+	private void assertWindow(Table table, int count, int sum, int max) throws InvalidOperationException {
+		assertEquals(1, table.getNumRows());
+		ValueType[] row = table.getRow(0);
+		assertEquals(new IntType(count), row[0]);
+		assertEquals(new IntType(sum), row[1]);
+		assertEquals(new IntType(max), row[2]);
+		assertEquals(new IntType(sum), row[3]); // the AVG is left as a sum to be divided by the count
+	}
+	
+	public void testSliding() throws InvalidOperationException {
+		final WindowOperator window = new WindowOperator(aggregate, 3);
+		assertWindow(window.eval(0), 1, 1, 1);
+		assertWindow(window.eval(1), 2, 3, 2);
+		assertWindow(window.eval(2), 3, 6, 3);
+		assertWindow(window.eval(3), 3, 9, 4);
+		assertWindow(window.eval(4), 3, 12, 5);
+	}
+	
+	public void testExpiry() throws InvalidOperationException {
+		final WindowOperator window = new WindowOperator(aggregate, 3);
+		window.eval(0);
+		window.eval(1);
+		window.eval(2);
+		
+		// missed epochs are not in the window, nor are the epochs before them
+		assertWindow(window.eval(4), 2, 8, 5);
+		assertWindow(window.eval(10), 1, 11, 11);
+	}
+	
+	public void testSingleEpoch() throws InvalidOperationException {
+		final WindowOperator window = new WindowOperator(aggregate, 1);
+		for (int epoch = 0; epoch != 5; epoch++)
+			assertWindow(window.eval(epoch), 1, epoch + 1, epoch + 1);
+	}
+	
+	public void testInvalidSize() {
+		try {
+			new WindowOperator(aggregate, 0);
+			fail("Window of no epochs created");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	private static QueryTask task(final String tokens) {
+		return new QueryTask() {
+			{
+				taskID = new TaskID(1);
+				tokenStream = tokens;
+			}
+		};
+	}
+	
+	public void testTokens() throws TokenParseException {
+		final TableOperator window = new WindowOperator(new AggregateOperator(new SenseOperator(new TaskID(1)), new byte[]{AggregateOperator.AVG}, new byte[]{8}, new byte[]{1}, true), 10);
+		final String tokens = window.toTokens().toString();
+		assertEquals("W(F(E() 1 1 8 1 1) 10)", tokens);
+		
+		final TableOperator parsed = new TokenParser().parse(task(tokens));
+		assertTrue(parsed instanceof WindowOperator);
+		assertEquals(tokens, parsed.toTokens().toString());
+		assertEquals(1L << 0 | 1L << 1 | 1L << 8, parsed.getSensedColumns(0));
+		
+		try {
+			new TokenParser().parse(task("W(E() 10)"));
+			fail("Window over a non aggregate parsed");
+		}
+		catch (TokenParseException e) {
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package au.edu.usyd.corona.types;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SketchTypeTest extends TestCase {
+	
+	private static ValueType roundTrip(ValueType value, ValueType into) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		value.encode(new DataOutputStream(baos));
+		return into.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+	}
+	
+	private static void assertWithin(double expected, double actual, double error) {
+		assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= error);
+	}
+	
+	public void testLog() {
+		for (double x = 0.001; x < 1e6; x *= 3.7)
+			assertWithin(Math.log(x), SketchType.log(x), 1e-9);
+	}
+	
+	public void testDistinctSmall() throws InvalidOperationException {
+		DistinctSketchType sketch = new DistinctSketchType();
+		assertEquals(0, sketch.estimate());
+		for (int i = 0; i != 10; i++)
+			for (int j = 0; j != 5; j++)
+				sketch.offer(new IntType(i));
+		assertWithin(10, sketch.estimate(), 1);
+		
+		// the same numbers of other types are not new values
+		for (int i = 0; i != 10; i++) {
+			sketch.offer(new LongType(i));
+			sketch.offer(new FloatType(i));
+		}
+		assertWithin(10, sketch.estimate(), 1);
+	}
+	
+	public void testDistinctLarge() throws InvalidOperationException {
+		for (int n = 100; n <= 100000; n *= 10) {
+			DistinctSketchType sketch = new DistinctSketchType();
+			for (int i = 0; i != n; i++)
+				sketch.offer(new IntType(i * 7919));
+			assertWithin(n, sketch.estimate(), 0.4 * n);
+		}
+	}
+	
+	public void testDistinctMerge() throws InvalidOperationException {
+		// merging sketches gives the sketch of the union, however the values overlap
+		DistinctSketchType a = new DistinctSketchType(), b = new DistinctSketchType(), all = new DistinctSketchType();
+		for (int i = 0; i != 3000; i++) {
+			ValueType v = new LongType(i);
+			all.offer(v);
+			if (i < 2000)
+				a.offer(v);
+			if (i >= 1000)
+				b.offer(v);
+		}
+		ValueType merged = a.add(b);
+		assertEquals(all, merged);
+		assertEquals(all.estimate(), ((DistinctSketchType) merged).estimate());
+		
+		// adding made a new sketch
+		assertFalse(a.equals((Object) merged));
+	}
+	
+	public void testDistinctEncode() throws InvalidOperationException {
+		DistinctSketchType sketch = new DistinctSketchType();
+		for (int i = 0; i != 500; i++)
+			sketch.offer(new IntType(i));
+		assertEquals(sketch, roundTrip(sketch, new DistinctSketchType()));
+	}
+	
+	public void testQuantileExact() throws InvalidOperationException {
+		// with no more values than centroids, nothing is approximated
+		QuantileSketchType sketch = new QuantileSketchType();
+		for (int i = 10; i >= 1; i--)
+			sketch.offer(new IntType(i));
+		assertEquals(10, sketch.getCount());
+		assertEquals(5.5f, sketch.quantile(0.5f), 0);
+		assertEquals(1f, sketch.quantile(0), 0);
+		assertEquals(10f, sketch.quantile(1), 0);
+	}
+	
+	public void testQuantileAccuracy() throws InvalidOperationException {
+		Random random = new Random(7);
+		QuantileSketchType sketch = new QuantileSketchType();
+		for (int i = 0; i != 10000; i++)
+			sketch.offer(new FloatType(random.nextFloat() * 1000));
+		
+		assertWithin(500, sketch.quantile(0.5f), 50);
+		assertWithin(900, sketch.quantile(0.9f), 20);
+		assertWithin(990, sketch.quantile(0.99f), 10);
+		assertWithin(10, sketch.quantile(0.01f), 10);
+	}
+	
+	public void testQuantileMerge() throws InvalidOperationException {
+		// a routing tree of sketches, each merged into its parent
+		QuantileSketchType root = new QuantileSketchType();
+		for (int node = 0; node != 20; node++) {
+			QuantileSketchType child = new QuantileSketchType();
+			for (int i = 0; i != 50; i++)
+				child.offer(new IntType(node * 50 + i));
+			root.offer(child);
+		}
+		assertEquals(1000, root.getCount());
+		assertWithin(500, root.quantile(0.5f), 50);
+		assertWithin(990, root.quantile(0.99f), 10);
+		assertEquals(999f, root.quantile(1), 0);
+		assertEquals(0f, root.quantile(0), 0);
+	}
+	
+	public void testQuantileEncode() throws InvalidOperationException {
+		QuantileSketchType sketch = new QuantileSketchType();
+		for (int i = 0; i != 100; i++)
+			sketch.offer(new IntType(i * i));
+		QuantileSketchType decoded = (QuantileSketchType) roundTrip(sketch, new QuantileSketchType());
+		assertEquals(sketch, decoded);
+		assertEquals(100, decoded.getCount());
+		assertEquals(sketch.quantile(0.9f), decoded.quantile(0.9f), 0);
+	}
+	
+	public void testInvalid() {
+		try {
+			new QuantileSketchType(new BooleanType(true));
+			fail("Quantiles of booleans");
+		}
+		catch (InvalidOperationException e) {
+		}
+		try {
+			new QuantileSketchType().offer(new DistinctSketchType());
+			fail("Distinct sketch merged into a quantile sketch");
+		}
+		catch (InvalidOperationException e) {
+		}
+		try {
+			new DistinctSketchType().less(new DistinctSketchType());
+			fail("Sketches compared");
+		}
+		catch (InvalidOperationException e) {
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package au.edu.usyd.corona.types;
+
+
+import java.util.Hashtable;
+
+import junit.framework.TestCase;
+
+public class ValueTypeTest extends TestCase {
+	
+	private static void assertEqualValues(ValueType a, ValueType b, boolean same) {
+		assertEquals(same, a.equals((Object) b));
+		assertEquals(same, b.equals((Object) a));
+		if (same)
+			assertEquals(a.hashCode(), b.hashCode());
+		
+		// the same as the token representations, which equality was worked out from before
+		assertEquals(same, a.toTokens().equals(b.toTokens()));
+	}
+	
+	public void testEquality() {
+		assertEqualValues(new IntType(5), new IntType(5), true);
+		assertEqualValues(new IntType(5), new IntType(6), false);
+		assertEqualValues(new IntType(5), new LongType(5), false);
+		assertEqualValues(new LongType(5), new IEEEAddressType(5), false);
+		assertEqualValues(new ByteType(5), new IntType(5), false);
+		assertEqualValues(new BooleanType(true), new BooleanType(1), true);
+		assertEqualValues(new FloatType(1.5f), new FloatType(1.5f), true);
+		assertEqualValues(new FloatType(0f), new FloatType(-0f), false);
+		assertEqualValues(new FloatType(Float.NaN), new FloatType(0f / 0f), true);
+		assertEqualValues(new IEEEAddressType(1L << 40), new IEEEAddressType(1L << 40), true);
+		assertFalse(new IntType(5).equals((Object) null));
+		assertFalse(new IntType(5).equals((Object) new Integer(5)));
+	}
+	
+	public void testSketchEquality() throws InvalidOperationException {
+		DistinctSketchType a = new DistinctSketchType(), b = new DistinctSketchType();
+		QuantileSketchType c = new QuantileSketchType(), d = new QuantileSketchType();
+		for (int i = 0; i != 50; i++) {
+			a.offer(new IntType(i));
+			b.offer(new IntType(49 - i));
+			c.offer(new FloatType(i * 1.5f));
+			d.offer(new FloatType(i * 1.5f));
+		}
+		assertEqualValues(a, b, true);
+		assertEqualValues(c, d, true);
+		d.offer(new IntType(1000));
+		assertEqualValues(a, new DistinctSketchType(), false);
+		assertEqualValues(c, d, false);
+	}
+	
+	public void testHashing() {
+		Hashtable table = new Hashtable();
+		for (int i = 0; i != 100; i++) {
+			table.put(new IntType(i), new Integer(i));
+			table.put(new LongType(i), new Integer(-i));
+		}
+		assertEquals(200, table.size());
+		assertEquals(new Integer(42), table.get(IntType.valueOf(42)));
+		assertEquals(new Integer(-42), table.get(new LongType(42)));
+		assertNull(table.get(new ByteType(42)));
+	}
+	
+	public void testShared() throws InvalidOperationException {
+		assertTrue(IntType.valueOf(7) == IntType.valueOf(7));
+		assertTrue(IntType.valueOf(-128) == IntType.valueOf(-128));
+		assertTrue(ByteType.valueOf(-3) == ByteType.valueOf(253));
+		assertTrue(BooleanType.valueOf(true) == BooleanType.TRUE);
+		assertEquals(new IntType(1 << 20), IntType.valueOf(1 << 20));
+		assertEquals(new ByteType(-3), ByteType.valueOf(-3));
+		
+		// the results of operations are shared too
+		assertTrue(IntType.valueOf(3) == new IntType(1).add(new IntType(2)));
+		assertTrue(BooleanType.TRUE == new BooleanType(false).negate());
+	}
+	
+	public void testPromotion() throws InvalidOperationException {
+		// the type of each result is that of the wider operand
+		assertEquals(new IntType(3), new ByteType(1).add(new ByteType(2)));
+		assertEquals(new LongType(3), new IntType(1).add(new LongType(2)));
+		assertEquals(new FloatType(3), new LongType(1).add(new FloatType(2)));
+		assertEquals(new ByteType(2), new ByteType(1).add(new BooleanType(true)));
+		assertEquals(new ByteType(3), new ByteType(7).divide(new ByteType(2)));
+		assertEquals(new LongType(0), new LongType(5).multiply(new BooleanType(false)));
+		assertEquals(new FloatType(2.5f), new IntType(5).divide(new FloatType(2)));
+		
+		assertTrue(new IntType(1).less(new FloatType(1.5f)));
+		assertTrue(new FloatType(2).equals(new LongType(2)));
+		assertTrue(new IEEEAddressType(5).equals(new LongType(5)));
+	}
+	
+	public void testInvalid() {
+		final ValueType[] values = {new IntType(1), new LongType(1), new FloatType(1), new ByteType(1)};
+		for (int i = 0; i != values.length; i++) {
+			try {
+				values[i].add(new IEEEAddressType(1));
+				fail("Added an address");
+			}
+			catch (InvalidOperationException e) {
+			}
+			try {
+				values[i].less(null);
+				fail("Compared with null");
+			}
+			catch (InvalidOperationException e) {
+			}
+			try {
+				values[i].divide(new BooleanType(true));
+				fail("Divided by a boolean");
+			}
+			catch (InvalidOperationException e) {
+			}
+		}
+	}
+}
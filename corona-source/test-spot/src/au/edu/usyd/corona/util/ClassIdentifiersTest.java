@@ -0,0 +1,47 @@
+package au.edu.usyd.corona.util;
+
+
+import junit.framework.TestCase;
+import au.edu.usyd.corona.middleLayer.Network;
+import au.edu.usyd.corona.types.ByteType;
+import au.edu.usyd.corona.types.IntType;
+
+public class ClassIdentifiersTest extends TestCase {
+	
+	@Override
+	public void setUp() {
+		Network.initialize(Network.MODE_UNITTEST);
+	}
+	
+	public void testNewInstance() {
+		byte id = 0;
+		for (;; id++) {
+			final Class c;
+			try {
+				c = ClassIdentifiers.getClass(id);
+			}
+			catch (ArrayIndexOutOfBoundsException e) {
+				break;
+			}
+			assertSame(c, ClassIdentifiers.newInstance(id).getClass());
+		}
+		
+		try {
+			ClassIdentifiers.newInstance(id);
+			fail("Made an object of an unknown type-code");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	public void testGetID() {
+		assertEquals(0, ClassIdentifiers.getID(ByteType.class));
+		assertEquals(1, ClassIdentifiers.getID(IntType.class));
+		try {
+			ClassIdentifiers.getID(String.class);
+			fail("Found an ID for a class which is never transmitted");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+}